@@ -0,0 +1,40 @@
+package com.example.backend.attachment;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Metadata of one uploaded file. The bytes live in the {@link BlobStore} under their SHA-256, so
+ * attachments with the same content share one blob.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document
+public class Attachment {
+    @Id
+    private String id;
+    private String uploaderId;
+    private String fileName;
+    private String contentType;
+    private long size;
+    // Set when the last chunk arrives; until then the upload can be resumed
+    @Indexed
+    private String sha256;
+    private Date createdAt;
+    private Date completedAt;
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return sha256 != null;
+    }
+}
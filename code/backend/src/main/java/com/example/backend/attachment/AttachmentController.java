@@ -0,0 +1,135 @@
+package com.example.backend.attachment;
+
+import com.example.backend.attachment.dto.CreateUploadRequest;
+import com.example.backend.attachment.dto.UploadStatus;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Controller
+@RequiredArgsConstructor
+public class AttachmentController {
+
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private final AttachmentService attachmentService;
+
+    @PostMapping("/attachments/uploads")
+    public ResponseEntity<UploadStatus> startUpload(@Valid @RequestBody CreateUploadRequest request) {
+        return ResponseEntity.ok(attachmentService.start(request));
+    }
+
+    // Raw bytes, not multipart, so the body is streamed to disk as it arrives
+    @PutMapping(value = "/attachments/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadStatus> uploadChunk(@PathVariable String uploadId,
+                                                    @RequestHeader(UPLOAD_OFFSET) long offset,
+                                                    InputStream body) throws IOException {
+        return ResponseEntity.ok(attachmentService.append(uploadId, offset, body));
+    }
+
+    // Where to resume after a dropped connection
+    @GetMapping("/attachments/uploads/{uploadId}")
+    public ResponseEntity<UploadStatus> findUpload(@PathVariable String uploadId) throws IOException {
+        return ResponseEntity.ok(attachmentService.status(uploadId));
+    }
+
+    // Content never changes under an id, so the blob hash is a strong ETag
+    @GetMapping("/attachments/{attachmentId}")
+    public ResponseEntity<StreamingResponseBody> downloadAttachment(@PathVariable String attachmentId,
+                                                                    @RequestHeader HttpHeaders requestHeaders) {
+        Attachment attachment = attachmentService.findCompleted(attachmentId);
+        String etag = "\"" + attachment.getSha256() + "\"";
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (ifNoneMatch.contains(etag) || ifNoneMatch.contains("*")) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        long size = attachment.getSize();
+        long start = 0;
+        long length = size;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        HttpRange range = requestedRange(requestHeaders, etag);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(size);
+                length = range.getRangeEnd(size) - start + 1;
+            } catch (IllegalArgumentException e) {
+                length = 0;
+            }
+            if (start >= size || length <= 0) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+            response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+        }
+
+        long from = start;
+        long count = length;
+        return response
+                .eTag(etag)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate())
+                .contentType(MediaType.parseMediaType(attachment.getContentType()))
+                .contentLength(length)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                        .filename(attachment.getFileName(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .body(out -> attachmentService.transfer(attachment, from, count, out));
+    }
+
+    // Sizes are app.attachments.thumbnails.sizes; 404 until the PREVIEWS_READY notification for the message
+    @GetMapping("/attachments/{attachmentId}/previews/{size}")
+    public ResponseEntity<StreamingResponseBody> downloadPreview(@PathVariable String attachmentId,
+                                                                 @PathVariable int size,
+                                                                 @RequestHeader HttpHeaders requestHeaders) {
+        Attachment attachment = attachmentService.findCompleted(attachmentId);
+        Path thumbnail = attachmentService.thumbnail(attachment, size);
+        String etag = "\"" + attachment.getSha256() + "-" + size + "\"";
+        if (requestHeaders.getIfNoneMatch().contains(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate())
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(out -> attachmentService.transfer(thumbnail, out));
+    }
+
+    // A single range only; a stale If-Range, several ranges or a malformed header get the whole file
+    private static HttpRange requestedRange(HttpHeaders requestHeaders, String etag) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = requestHeaders.getRange();
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.backend.attachment;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface AttachmentRepository extends MongoRepository<Attachment, String> {
+}
@@ -0,0 +1,156 @@
+package com.example.backend.attachment;
+
+import com.example.backend.attachment.dto.CreateUploadRequest;
+import com.example.backend.attachment.dto.UploadStatus;
+import com.example.backend.shared.exceptions.AttachmentNotFoundException;
+import com.example.backend.shared.exceptions.InvalidUploadException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Resumable uploads: a client declares the file, then PUTs chunks at the offset the server has
+ * received so far. The last chunk completes the upload, after which the attachment id can be put
+ * on a {@link com.example.backend.chat.ChatMessage}.
+ */
+@Slf4j
+@Service
+public class AttachmentService {
+
+    private final AttachmentRepository attachmentRepository;
+    private final BlobStore blobStore;
+    private final ThumbnailService thumbnailService;
+    private final long maxBytes;
+
+    public AttachmentService(AttachmentRepository attachmentRepository,
+                             BlobStore blobStore,
+                             ThumbnailService thumbnailService,
+                             @Value("${app.attachments.max-bytes:104857600}") long maxBytes) {
+        this.attachmentRepository = attachmentRepository;
+        this.blobStore = blobStore;
+        this.thumbnailService = thumbnailService;
+        this.maxBytes = maxBytes;
+    }
+
+    public UploadStatus start(CreateUploadRequest request) {
+        if (request.getSize() > maxBytes) {
+            throw new InvalidUploadException("Attachments are limited to " + maxBytes + " bytes");
+        }
+        Attachment attachment = attachmentRepository.save(Attachment.builder()
+                .uploaderId(request.getUploaderId())
+                .fileName(request.getFileName())
+                .contentType(contentType(request.getContentType()))
+                .size(request.getSize())
+                .createdAt(new Date())
+                .build());
+        return status(attachment, 0);
+    }
+
+    public UploadStatus append(String uploadId, long offset, InputStream body) throws IOException {
+        Attachment attachment = findAttachment(uploadId);
+        if (attachment.isComplete()) {
+            return status(attachment, attachment.getSize());
+        }
+        long received = blobStore.append(uploadId, offset, body, attachment.getSize());
+        if (received < attachment.getSize()) {
+            return status(attachment, received);
+        }
+        // The blob is in place before the document says so; a crash in between leaves at worst
+        // an unreferenced blob that the next upload of the same content reuses
+        attachment.setSha256(blobStore.commit(uploadId));
+        attachment.setCompletedAt(new Date());
+        Attachment completed = attachmentRepository.save(attachment);
+        // Started now so previews are usually ready by the time the message is sent
+        thumbnailService.previews(completed);
+        return status(completed, received);
+    }
+
+    public UploadStatus status(String uploadId) throws IOException {
+        Attachment attachment = findAttachment(uploadId);
+        return status(attachment, attachment.isComplete() ? attachment.getSize() : blobStore.received(uploadId));
+    }
+
+    public Attachment findCompleted(String attachmentId) {
+        Attachment attachment = findAttachment(attachmentId);
+        if (!attachment.isComplete()) {
+            throw new AttachmentNotFoundException("Attachment " + attachmentId + " is still uploading");
+        }
+        return attachment;
+    }
+
+    public void transfer(Attachment attachment, long start, long length, OutputStream out) throws IOException {
+        blobStore.transfer(attachment.getSha256(), start, length, out);
+    }
+
+    /**
+     * Completes with the ids, among {@code attachmentIds}, of the images whose previews are on disk,
+     * once every one of them has been rendered or has failed.
+     */
+    public CompletableFuture<List<String>> previewsReady(List<String> attachmentIds) {
+        // Looked up off the caller's thread: callers are completing a save on the write flusher
+        return CompletableFuture.supplyAsync(() -> attachmentRepository.findAllById(attachmentIds).stream()
+                        .filter(ThumbnailService::isImage)
+                        .toList())
+                .thenCompose(images -> {
+                    List<CompletableFuture<Boolean>> previews = images.stream().map(thumbnailService::previews).toList();
+                    return CompletableFuture.allOf(previews.toArray(new CompletableFuture[0]))
+                            .thenApply(done -> IntStream.range(0, images.size())
+                                    .filter(i -> previews.get(i).join())
+                                    .mapToObj(i -> images.get(i).getId())
+                                    .toList());
+                });
+    }
+
+    public Path thumbnail(Attachment attachment, int size) {
+        if (!ThumbnailService.isImage(attachment) || !thumbnailService.hasSize(size)) {
+            throw new AttachmentNotFoundException("Attachment " + attachment.getId() + " has no " + size + "px preview");
+        }
+        Path thumbnail = thumbnailService.thumbnail(attachment.getSha256(), size);
+        if (!Files.exists(thumbnail)) {
+            thumbnailService.previews(attachment);
+            throw new AttachmentNotFoundException("Preview of attachment " + attachment.getId() + " is not ready");
+        }
+        return thumbnail;
+    }
+
+    public void transfer(Path file, OutputStream out) throws IOException {
+        BlobStore.transfer(file, 0, Files.size(file), out);
+    }
+
+    private Attachment findAttachment(String attachmentId) {
+        return attachmentRepository.findById(attachmentId)
+                .orElseThrow(() -> new AttachmentNotFoundException("Attachment " + attachmentId + " not found"));
+    }
+
+    private static String contentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        try {
+            return MediaType.parseMediaType(contentType).toString();
+        } catch (InvalidMediaTypeException e) {
+            throw new InvalidUploadException("Invalid content type " + contentType);
+        }
+    }
+
+    private static UploadStatus status(Attachment attachment, long received) {
+        return UploadStatus.builder()
+                .id(attachment.getId())
+                .size(attachment.getSize())
+                .received(received)
+                .complete(attachment.isComplete())
+                .build();
+    }
+}
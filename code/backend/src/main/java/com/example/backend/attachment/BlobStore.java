@@ -0,0 +1,179 @@
+package com.example.backend.attachment;
+
+import com.example.backend.shared.exceptions.InvalidUploadException;
+import com.example.backend.shared.exceptions.UploadOffsetMismatchException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed file storage. Uploads are appended to a part file per upload id; on
+ * completion the part is hashed and moved to {@code blobs/<first two hex chars>/<sha256>}, or
+ * discarded if that blob already exists. Bytes are moved between channels and the disk without
+ * ever holding a whole file in heap.
+ */
+@Slf4j
+@Component
+public class BlobStore {
+
+    // Upper bound per transferFrom/transferTo call; the loops continue until done
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+    private static final int DIGEST_BUFFER = 64 * 1024;
+
+    private final Path parts;
+    private final Path blobs;
+    private final Counter deduplicated;
+
+    public BlobStore(@Value("${app.attachments.root:${java.io.tmpdir}/chat-attachments}") Path root,
+                     MeterRegistry meterRegistry) throws IOException {
+        this.parts = Files.createDirectories(root.resolve("parts"));
+        this.blobs = Files.createDirectories(root.resolve("blobs"));
+        this.deduplicated = Counter.builder("attachment.blob.deduplicated")
+                .description("Completed uploads whose content was already stored")
+                .register(meterRegistry);
+    }
+
+    public long received(String uploadId) throws IOException {
+        Path part = part(uploadId);
+        return Files.exists(part) ? Files.size(part) : 0;
+    }
+
+    /**
+     * Appends {@code in} to the upload's part file, which must currently end at {@code offset}.
+     * A client that lost its connection asks for {@link #received} and continues from there.
+     *
+     * @return the length of the part file afterwards
+     */
+    public long append(String uploadId, long offset, InputStream in, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(part(uploadId), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                throw new UploadOffsetMismatchException("Upload " + uploadId + " is receiving another chunk");
+            }
+            try {
+                if (channel.size() != offset) {
+                    throw new UploadOffsetMismatchException("Upload " + uploadId + " continues at offset " + channel.size());
+                }
+                ReadableByteChannel source = Channels.newChannel(in);
+                long position = offset;
+                long transferred;
+                // One byte past the declared size is enough to tell an oversized upload
+                while (position <= size
+                        && (transferred = channel.transferFrom(source, position, Math.min(TRANSFER_CHUNK, size + 1 - position))) > 0) {
+                    position += transferred;
+                }
+                if (position > size) {
+                    channel.truncate(offset);
+                    throw new InvalidUploadException("Upload " + uploadId + " is larger than its declared " + size + " bytes");
+                }
+                return position;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Hashes a finished part file and moves it into place.
+     *
+     * @return the SHA-256 of the content, hex encoded
+     */
+    public String commit(String uploadId) throws IOException {
+        Path part = part(uploadId);
+        String sha256 = digest(part);
+        Path blob = blob(sha256);
+        if (Files.exists(blob)) {
+            Files.delete(part);
+            deduplicated.increment();
+            return sha256;
+        }
+        Files.createDirectories(blob.getParent());
+        try {
+            Files.move(part, blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Same content completed concurrently by another upload
+            Files.deleteIfExists(part);
+            deduplicated.increment();
+        }
+        return sha256;
+    }
+
+    // FileChannel.transferTo lets the kernel copy straight from the page cache where the target allows it
+    public void transfer(String sha256, long start, long length, OutputStream out) throws IOException {
+        transfer(blob(sha256), start, length, out);
+    }
+
+    static void transfer(Path file, long start, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = channel.transferTo(position, Math.min(TRANSFER_CHUNK, end - position), target);
+                if (transferred <= 0) {
+                    throw new IOException(file + " ended at " + position + " of " + end);
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    Path blob(String sha256) {
+        return blobs.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path part(String uploadId) {
+        // Upload ids are ObjectIds; anything else must not be able to escape the parts directory
+        if (!uploadId.matches("[0-9a-fA-F]{24}")) {
+            throw new InvalidUploadException("Invalid upload id " + uploadId);
+        }
+        return parts.resolve(uploadId);
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private static String digest(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(DIGEST_BUFFER);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
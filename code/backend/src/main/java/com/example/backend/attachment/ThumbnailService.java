@@ -0,0 +1,209 @@
+package com.example.backend.attachment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders JPEG previews of image attachments off the request threads. Work is keyed by content
+ * hash, so an image uploaded many times is rendered once; outputs are cached on disk under
+ * {@code thumbnails/<first two hex chars>/<sha256>/<size>.jpg}, where size is the longest edge.
+ * The queue is bounded: when it is full, previews for that image are skipped rather than blocking
+ * the caller, and the next request for them tries again.
+ */
+@Slf4j
+@Service
+public class ThumbnailService {
+
+    private final BlobStore blobStore;
+    private final Path thumbnails;
+    private final List<Integer> sizes;
+    private final ThreadPoolExecutor workers;
+    // One render per hash at a time; removed once done, after which the files on disk answer
+    private final Map<String, CompletableFuture<Boolean>> rendering = new ConcurrentHashMap<>();
+    private final Timer renderTime;
+    private final Counter rejected;
+    private final Counter failed;
+
+    public ThumbnailService(BlobStore blobStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.attachments.root:${java.io.tmpdir}/chat-attachments}") Path root,
+                            @Value("${app.attachments.thumbnails.sizes:160,480,1080}") List<Integer> sizes,
+                            @Value("${app.attachments.thumbnails.workers:0}") int workers,
+                            @Value("${app.attachments.thumbnails.queue-capacity:1000}") int queueCapacity) throws IOException {
+        this.blobStore = blobStore;
+        this.thumbnails = Files.createDirectories(root.resolve("thumbnails"));
+        // Largest first: each size is scaled down from the one before
+        this.sizes = sizes.stream().sorted(Comparator.reverseOrder()).toList();
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "thumbnail-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.renderTime = Timer.builder("attachment.thumbnail.render")
+                .description("Time to decode one image and write all its preview sizes")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("attachment.thumbnail.rejected")
+                .description("Images skipped because the preview queue was full")
+                .register(meterRegistry);
+        this.failed = Counter.builder("attachment.thumbnail.failed")
+                .description("Images whose previews could not be rendered")
+                .register(meterRegistry);
+        Gauge.builder("attachment.thumbnail.queue.depth", this.workers.getQueue(), BlockingQueue::size)
+                .description("Images waiting for a preview worker")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdownNow();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public static boolean isImage(Attachment attachment) {
+        return attachment.getContentType() != null && attachment.getContentType().startsWith("image/");
+    }
+
+    /**
+     * Completes with true once every preview size of the attachment is on disk, rendering them
+     * first if needed; false for attachments that are not images or could not be rendered.
+     */
+    public CompletableFuture<Boolean> previews(Attachment attachment) {
+        if (!attachment.isComplete() || !isImage(attachment)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String sha256 = attachment.getSha256();
+        if (rendered(sha256)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = rendering.putIfAbsent(sha256, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    created.complete(renderTime.recordCallable(() -> render(sha256)));
+                } catch (Exception e) {
+                    failed.increment();
+                    log.warn("Could not render previews of {}", sha256, e);
+                    created.complete(false);
+                } finally {
+                    rendering.remove(sha256, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            rendering.remove(sha256, created);
+            created.complete(false);
+        }
+        return created;
+    }
+
+    public boolean hasSize(int size) {
+        return sizes.contains(size);
+    }
+
+    public Path thumbnail(String sha256, int size) {
+        return thumbnails.resolve(sha256.substring(0, 2)).resolve(sha256).resolve(size + ".jpg");
+    }
+
+    private boolean rendered(String sha256) {
+        return sizes.stream().allMatch(size -> Files.exists(thumbnail(sha256, size)));
+    }
+
+    private boolean render(String sha256) throws IOException {
+        BufferedImage image = decode(blobStore.blob(sha256), sizes.get(0));
+        if (image == null) {
+            return false;
+        }
+        Files.createDirectories(thumbnail(sha256, sizes.get(0)).getParent());
+        for (int size : sizes) {
+            image = scale(image, size);
+            Path target = thumbnail(sha256, size);
+            // Written aside and moved, so a reader never sees a half-written preview
+            Path partial = target.resolveSibling(size + ".jpg.part");
+            if (!ImageIO.write(image, "jpg", partial.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return true;
+    }
+
+    // Decodes with source subsampling, so a huge photo is never held in memory at full size
+    private static BufferedImage decode(Path blob, int largest) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(blob.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                log.debug("No image reader for {}", blob);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // Keep at least twice the largest preview so the final scale still smooths
+                int step = Math.max(1, longest / (largest * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Opaque RGB at most size on the longest edge; smaller images keep their size
+    private static BufferedImage scale(BufferedImage source, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha; transparent areas become white
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.backend.attachment.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CreateUploadRequest {
+    @NotBlank
+    private String uploaderId;
+    @NotBlank
+    private String fileName;
+    private String contentType;
+    // Declared up front so chunks can be checked against it and the last one recognised
+    @Positive
+    private long size;
+}
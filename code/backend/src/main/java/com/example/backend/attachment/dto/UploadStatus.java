@@ -0,0 +1,18 @@
+package com.example.backend.attachment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadStatus {
+    private String id;
+    private long size;
+    // The offset the next chunk has to start at
+    private long received;
+    private boolean complete;
+}
@@ -7,6 +7,7 @@ import com.example.backend.auth.dto.TokenPair;
 import com.example.backend.shared.exceptions.UserExistsException;
 import com.example.backend.shared.exceptions.UserNotFoundException;
 import com.example.backend.shared.jwt.JwtService;
+import com.example.backend.user.KnownUsernames;
 import com.example.backend.user.UserRepository;
 import com.example.backend.user.enums.Status;
 import jakarta.validation.Valid;
@@ -30,9 +31,12 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final KnownUsernames knownUsernames;
 
     public void registerUser(RegisterRequest registerRequest) {
-        if(userRepository.existsByUsername(registerRequest.getUsername())) {
+        // A definitely unknown name skips the query; the unique index still guards the insert
+        if(knownUsernames.mightExist(registerRequest.getUsername())
+                && userRepository.existsByUsername(registerRequest.getUsername())) {
             throw new UserExistsException("Username is already in use");
         }
         User user = User
@@ -46,6 +50,7 @@ public class AuthService {
                 .build();
 
         userRepository.save(user);
+        knownUsernames.added(user.getUsername());
     }
 
     public TokenPair login(LoginRequest loginRequest) {
@@ -1,42 +1,234 @@
 package com.example.backend.chat;
 
+import com.example.backend.attachment.AttachmentService;
+import com.example.backend.chat.dto.ChatMessagePage;
+import com.example.backend.chat.dto.ChatSyncRequest;
+import com.example.backend.chat.dto.ChatSyncResponse;
+import com.example.backend.chat.dto.EditMessageRequest;
+import com.example.backend.chat.dto.TypingEvent;
+import com.example.backend.chat.enums.NotificationType;
+import com.example.backend.chat.reaction.ReactionService;
+import com.example.backend.chat.typing.TypingIndicatorService;
+import com.example.backend.inbox.OfflineInbox;
+import com.example.backend.shared.exceptions.HistoryAccessForbiddenException;
+import com.example.backend.shared.exceptions.MessageChangeForbiddenException;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.security.Principal;
+import java.util.Date;
 
+@Slf4j
 @Controller
 @RequiredArgsConstructor
 public class ChatController {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final OfflineInbox offlineInbox;
     private final ChatMessageService chatMessageService;
+    private final ChatExportService chatExportService;
+    private final TypingIndicatorService typingIndicatorService;
+    private final AttachmentService attachmentService;
+    private final ReactionService reactionService;
 
     @MessageMapping("/chat")
     public void processMessage(@Payload ChatMessage chatMessage) {
-        ChatMessage savedMsg = chatMessageService.save(chatMessage);
-        messagingTemplate.convertAndSendToUser(
-                chatMessage.getRecipientId(), "/queue/messages",
-                new ChatNotification(
-                        savedMsg.getId(),
-                        savedMsg.getSenderId(),
-                        savedMsg.getRecipientId(),
-                        savedMsg.getContent()
-                )
-        );
+        typingIndicatorService.onMessageSent(chatMessage.getSenderId(), chatMessage.getRecipientId());
+        // Delivery waits for the group commit, but the inbound channel thread does not.
+        // Recipients without a live subscription get it from their inbox when they next subscribe.
+        chatMessageService.save(chatMessage)
+                .thenAccept(savedMsg -> {
+                    offlineInbox.deliver(savedMsg.getRecipientId(), notification(savedMsg).build());
+                    notifyWhenPreviewsReady(savedMsg);
+                })
+                .exceptionally(ex -> {
+                    log.error("Failed to persist message from {} to {}",
+                            chatMessage.getSenderId(), chatMessage.getRecipientId(), ex);
+                    return null;
+                });
+    }
+
+    // Image previews render in the background; both sides are told once they can be fetched
+    private void notifyWhenPreviewsReady(ChatMessage savedMsg) {
+        if (savedMsg.getAttachmentIds() == null || savedMsg.getAttachmentIds().isEmpty()) {
+            return;
+        }
+        attachmentService.previewsReady(savedMsg.getAttachmentIds())
+                .thenAccept(ready -> {
+                    if (ready.isEmpty()) {
+                        return;
+                    }
+                    ChatNotification update = notification(savedMsg)
+                            .content(null)
+                            .attachmentIds(ready)
+                            .type(NotificationType.PREVIEWS_READY)
+                            .build();
+                    offlineInbox.deliver(savedMsg.getRecipientId(), update);
+                    offlineInbox.deliver(savedMsg.getSenderId(), update);
+                });
+    }
+
+    // Both sides get the patch itself rather than being told to reload the conversation
+    private void notifyChanged(ChatMessage patched, NotificationType type) {
+        ChatNotification update = notification(patched)
+                .type(type)
+                .version(patched.getVersion())
+                .build();
+        offlineInbox.deliver(patched.getRecipientId(), update);
+        offlineInbox.deliver(patched.getSenderId(), update);
+    }
+
+    // A delta rather than the message's counters, so the update stays small however popular it is
+    private void notifyReaction(ChatMessage updated, String userId, String emoji, boolean add) {
+        ChatNotification update = notification(updated)
+                .content(null)
+                .attachmentIds(null)
+                .type(NotificationType.REACTION)
+                .reaction(emoji)
+                .reactorId(userId)
+                .reactionDelta(add ? 1 : -1)
+                .build();
+        offlineInbox.deliver(updated.getRecipientId(), update);
+        offlineInbox.deliver(updated.getSenderId(), update);
+    }
+
+    private static ChatNotification.ChatNotificationBuilder notification(ChatMessage savedMsg) {
+        return ChatNotification.builder()
+                .id(savedMsg.getId())
+                .senderId(savedMsg.getSenderId())
+                .recipientId(savedMsg.getRecipientId())
+                .content(savedMsg.getContent())
+                .seq(savedMsg.getSeq())
+                .attachmentIds(savedMsg.getAttachmentIds());
+    }
+
+    // Never persisted: throttled per sender/recipient pair and forwarded to /user/{recipientId}/queue/typing
+    @MessageMapping("/chat.typing")
+    public void processTyping(@Payload TypingEvent typingEvent) {
+        typingIndicatorService.onTyping(typingEvent);
     }
 
     @GetMapping("/messages/{senderId}/{recipientId}")
-    public ResponseEntity<List<ChatMessage>> findChatMessages(@PathVariable String senderId,
-                                                              @PathVariable String recipientId) {
+    public ResponseEntity<ChatMessagePage> findChatMessages(@PathVariable String senderId,
+                                                            @PathVariable String recipientId,
+                                                            @RequestParam(required = false) String before,
+                                                            @RequestParam(required = false) String after,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            Principal principal) {
         return ResponseEntity
-                .ok(chatMessageService.findChatMessages(senderId, recipientId));
+                .ok(chatMessageService.findChatMessages(readingUser(principal, senderId), recipientId, before, after, limit));
+    }
+
+    @PutMapping("/messages/{senderId}/{recipientId}/{messageId}")
+    public ResponseEntity<ChatMessage> editMessage(@PathVariable String senderId,
+                                                   @PathVariable String recipientId,
+                                                   @PathVariable String messageId,
+                                                   @Valid @RequestBody EditMessageRequest request,
+                                                   Principal principal) {
+        String actor = actingUser(principal, senderId);
+        String chatId = chatMessageService.chatIdOf(actor, recipientId);
+        ChatMessage patched = chatMessageService.edit(chatId, messageId, actor, request);
+        notifyChanged(patched, NotificationType.EDITED);
+        return ResponseEntity.ok(patched);
+    }
+
+    // Answers with the tombstone; version, if given, must match the stored one
+    @DeleteMapping("/messages/{senderId}/{recipientId}/{messageId}")
+    public ResponseEntity<ChatMessage> deleteMessage(@PathVariable String senderId,
+                                                     @PathVariable String recipientId,
+                                                     @PathVariable String messageId,
+                                                     @RequestParam(required = false) Long version,
+                                                     Principal principal) {
+        String actor = actingUser(principal, senderId);
+        String chatId = chatMessageService.chatIdOf(actor, recipientId);
+        ChatMessage patched = chatMessageService.delete(chatId, messageId, actor, version);
+        notifyChanged(patched, NotificationType.DELETED);
+        return ResponseEntity.ok(patched);
     }
-}
 
+    // Either participant may react; a repeat of the same change is answered with 204 and sends nothing
+    @PutMapping("/messages/{userId}/{peerId}/{messageId}/reactions/{emoji}")
+    public ResponseEntity<ChatMessage> addReaction(@PathVariable String userId,
+                                                   @PathVariable String peerId,
+                                                   @PathVariable String messageId,
+                                                   @PathVariable String emoji,
+                                                   Principal principal) {
+        return react(actingUser(principal, userId), peerId, messageId, emoji, true);
+    }
+
+    @DeleteMapping("/messages/{userId}/{peerId}/{messageId}/reactions/{emoji}")
+    public ResponseEntity<ChatMessage> removeReaction(@PathVariable String userId,
+                                                      @PathVariable String peerId,
+                                                      @PathVariable String messageId,
+                                                      @PathVariable String emoji,
+                                                      Principal principal) {
+        return react(actingUser(principal, userId), peerId, messageId, emoji, false);
+    }
+
+    private ResponseEntity<ChatMessage> react(String userId, String peerId, String messageId, String emoji, boolean add) {
+        String chatId = chatMessageService.chatIdOf(userId, peerId);
+        return reactionService.react(chatId, messageId, userId, emoji, add)
+                .map(updated -> {
+                    notifyReaction(updated, userId, emoji, add);
+                    return ResponseEntity.ok(updated);
+                })
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    // Changes are made as the authenticated user; the path only names the conversation from their side
+    private static String actingUser(Principal principal, String pathUserId) {
+        if (principal == null || !principal.getName().equals(pathUserId)) {
+            throw new MessageChangeForbiddenException("Messages can only be changed as the signed-in user");
+        }
+        return principal.getName();
+    }
+
+    // History is only read from the authenticated user's side of a conversation
+    private static String readingUser(Principal principal, String userId) {
+        if (principal == null || !principal.getName().equals(userId)) {
+            throw new HistoryAccessForbiddenException("Only the signed-in user's conversations can be read");
+        }
+        return principal.getName();
+    }
+
+    // Reconnecting clients send their last seq per conversation and get only the gap back
+    @PostMapping("/messages/sync")
+    public ResponseEntity<ChatSyncResponse> syncChatMessages(@Valid @RequestBody ChatSyncRequest request,
+                                                             Principal principal) {
+        readingUser(principal, request.getUserId());
+        return ResponseEntity.ok(chatMessageService.sync(request));
+    }
+
+    // Whole conversation as NDJSON, resumable from the last seq or timestamp the client received
+    @GetMapping("/messages/{senderId}/{recipientId}/export")
+    public ResponseEntity<StreamingResponseBody> exportChatMessages(
+            @PathVariable String senderId,
+            @PathVariable String recipientId,
+            @RequestParam(required = false) Long afterSeq,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date since,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Principal principal) {
+        readingUser(principal, senderId);
+        StreamingResponseBody body = chatExportService.export(senderId, recipientId, afterSeq, since, gzip);
+        String filename = senderId + "_" + recipientId + (gzip ? ".ndjson.gz" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
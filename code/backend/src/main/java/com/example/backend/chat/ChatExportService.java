@@ -0,0 +1,76 @@
+package com.example.backend.chat;
+
+import com.example.backend.chatroom.ChatRoomService;
+import com.example.backend.shared.exceptions.ChatRoomNotFoundException;
+import com.example.backend.shared.exceptions.InvalidCursorException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a whole conversation as NDJSON straight from a Mongo cursor. Memory stays bounded by
+ * the cursor batch and the output buffer: the next batch is only fetched once the previous one
+ * has been written, so a slow client slows the cursor down instead of filling the heap.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatExportService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ChatHistoryStore historyStore;
+    private final ChatRoomService chatRoomService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.chat.export.buffer-bytes:65536}")
+    private int bufferBytes;
+
+    /**
+     * Validates the request up front, so errors still map to a status code, and returns the body
+     * that streams the export. Resume with {@code afterSeq} (seq order, messages without a seq are
+     * skipped) or {@code since} (timestamp order, inclusive); with neither the export starts at the
+     * first message.
+     */
+    public StreamingResponseBody export(String senderId, String recipientId, Long afterSeq, Date since, boolean gzip) {
+        if (afterSeq != null && since != null) {
+            throw new InvalidCursorException("Resume from either a seq or a timestamp, not both");
+        }
+        String chatId = chatRoomService.getChatRoomId(senderId, recipientId, false)
+                .orElseThrow(() -> new ChatRoomNotFoundException("Chat room not found"));
+        return out -> write(chatId, afterSeq, since, gzip ? new GZIPOutputStream(out, bufferBytes) : out);
+    }
+
+    private void write(String chatId, Long afterSeq, Date since, OutputStream target) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ChatMessage.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        try (Stream<ChatMessage> messages = historyStore.streamChat(chatId, afterSeq, since);
+             OutputStream out = new BufferedOutputStream(target, bufferBytes)) {
+            Iterator<ChatMessage> iterator = messages.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(out, iterator.next());
+                out.write(NEWLINE);
+                count++;
+            }
+        } catch (IOException e) {
+            // Usually the client went away; the cursor is closed above
+            log.info("Export of chat {} stopped after {} messages: {}", chatId, count, e.getMessage());
+            throw e;
+        }
+        log.debug("Exported {} messages of chat {}", count, chatId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.backend.chat;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Where chat messages are persisted and read back, chosen by {@code app.chat.storage.layout}:
+ * one document per message ({@link DocumentHistoryStore}, the default) or messages packed into
+ * per-chat bucket documents ({@link com.example.backend.chat.bucket.BucketHistoryStore}).
+ * Streams must be closed, they hold a Mongo cursor.
+ */
+public interface ChatHistoryStore {
+
+    /**
+     * Stores a batch of messages that already carry their id. Returns the indexes of the messages
+     * that were rejected; throws if the batch as a whole could not be written.
+     */
+    Set<Integer> insert(List<ChatMessage> messages);
+
+    // Newest first
+    List<ChatMessage> findLatest(String chatId, int limit);
+
+    // Newest first, strictly older than the cursor
+    List<ChatMessage> findBefore(String chatId, MessageCursor cursor, int limit);
+
+    // Oldest first, strictly newer than the cursor
+    List<ChatMessage> findAfter(String chatId, MessageCursor cursor, int limit);
+
+    // Ascending seq, messages without a seq are left out
+    List<ChatMessage> findAfterSeq(String chatId, long seq, int limit);
+
+    // Highest stored seq of the chat, 0 when it has none
+    long lastSeq(String chatId);
+
+    List<ChatMessage> findAllById(Collection<String> ids);
+
+    // The message a sender submitted under a client message id, if it was stored
+    Optional<ChatMessage> findByClientMessageId(String senderId, String clientMessageId);
+
+    /**
+     * Brings the sender's message to {@code patch.version} if it is still at the version before
+     * and not deleted. Returns the patched message, with its chatId, or empty if the guard failed.
+     */
+    Optional<ChatMessage> applyPatch(MessagePatch patch);
+
+    /**
+     * Applies a reaction change with one atomic update. Returns the updated message, with its
+     * chatId, or empty if the change was a repeat or the message is gone or deleted.
+     */
+    Optional<ChatMessage> react(ReactionChange change);
+
+    // The chat in seq order after afterSeq, or in timestamp order from since (inclusive) or the start
+    Stream<ChatMessage> streamChat(String chatId, Long afterSeq, Date since);
+
+    // Every stored message in no particular order, with at least id, chatId and content
+    Stream<ChatMessage> streamAll();
+}
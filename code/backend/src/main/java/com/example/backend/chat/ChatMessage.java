@@ -1,18 +1,37 @@
 package com.example.backend.chat;
 
+import com.example.backend.chat.codec.ContentCodec;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Document
+// Backs the keyset pagination in ChatMessageRepository: equality on chatId, then (timestamp, _id) order
+@CompoundIndex(name = "chat_timestamp_id", def = "{'chatId': 1, 'timestamp': 1, '_id': 1}")
+// Backs delta sync: everything in a chat after a given sequence number
+@CompoundIndex(name = "chat_seq", def = "{'chatId': 1, 'seq': 1}")
+// Idempotent submission: a sender's clientMessageId is stored at most once
+@CompoundIndex(name = "sender_client_message_id", def = "{'senderId': 1, 'clientMessageId': 1}", unique = true,
+        partialFilter = "{'clientMessageId': {'$exists': true}}")
 public class ChatMessage {
     @Id
     private String id;
@@ -21,5 +40,53 @@ public class ChatMessage {
     private String recipientId;
     private String content;
     private Date timestamp;
+    // Per-chat, monotonically increasing; assigned by ChatSequenceService on save
+    private Long seq;
+    // Optional, chosen by the client; a resend with the same id returns the stored message
+    private String clientMessageId;
+    // Uploaded through AttachmentController; only ids are kept so the message document stays small
+    private List<String> attachmentIds;
+    // Null until the first edit or delete, then bumped by each; see MessagePatch. These fields are
+    // left out of the JSON while unset, so untouched messages stay as small in journal and caches.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Date editedAt;
+    // Set on a tombstone, whose content and attachments have been cleared
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Date deletedAt;
+    // Emoji -> number of users who reacted with it; kept up to date with $inc, see ReactionChange
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Long> reactions;
+    // Emoji -> ids of those users; guards the counters and is left out of history reads
+    @JsonIgnore
+    private Map<String, List<String>> reactors;
+    // Bumped by every reaction change, so caches can tell the newer of two copies
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long reactionsVersion;
+    // Set instead of content when the body was compressed at rest, see CompressContentCallback
+    @JsonIgnore
+    private ContentCodec contentCodec;
+    @JsonIgnore
+    private byte[] compressedContent;
+    // The decoded compressedContent, kept once read. Caches hold compressed copies without it and
+    // hand out a decoded copy per read, see HotHistoryCache.
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String decodedContent;
+
+    public String getContent() {
+        if (content == null && contentCodec != null && compressedContent != null) {
+            if (decodedContent == null) {
+                decodedContent = contentCodec.decode(compressedContent);
+            }
+            return decodedContent;
+        }
+        return content;
+    }
 }
 
@@ -0,0 +1,225 @@
+package com.example.backend.chat;
+
+import com.example.backend.shared.exceptions.MessageWriteRejectedException;
+import com.example.backend.shared.exceptions.MessageWriterBusyException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commit for chat messages: callers enqueue and get a future, a single flusher thread
+ * drains the queue into bulk writes of up to {@code batchSize} messages to the {@link ChatHistoryStore},
+ * waiting at most {@code maxLingerMs} for a batch to fill. Each future completes once its batch
+ * is acknowledged, on a completion thread, so the stages callers chain onto it (cache appends,
+ * indexing, delivery) never delay the next group commit.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.chat.journal.enabled", havingValue = "false", matchIfMissing = true)
+public class ChatMessageBatchWriter implements ChatMessageWriter {
+
+    private final ChatHistoryStore historyStore;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final long maxLingerNanos;
+    private final long enqueueTimeoutMs;
+    private final DistributionSummary batchFill;
+    private final Timer flushLatency;
+    private final ExecutorService completions;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ChatMessageBatchWriter(ChatHistoryStore historyStore,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.chat.write.batch-size:100}") int batchSize,
+                                  @Value("${app.chat.write.max-linger-ms:2}") long maxLingerMs,
+                                  @Value("${app.chat.write.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${app.chat.write.enqueue-timeout-ms:1000}") long enqueueTimeoutMs,
+                                  @Value("${app.chat.write.completion-threads:4}") int completionThreads) {
+        this.historyStore = historyStore;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.completions = Executors.newFixedThreadPool(completionThreads, task -> {
+            Thread thread = new Thread(task, "chat-write-completion-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchFill = DistributionSummary.builder("chat.write.batch.size")
+                .description("Messages per bulk insert")
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("chat.write.flush.latency")
+                .description("Time to acknowledge one bulk insert")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("chat.write.queue.depth", queue, BlockingQueue::size)
+                .description("Messages waiting for the next flush")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "chat-message-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        // The flusher drains whatever is still queued before it exits
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        // Callers of the last batches are still released
+        completions.shutdown();
+        completions.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public CompletableFuture<ChatMessage> submit(ChatMessage message) {
+        // Assigned up front so the id is known without reading it back from the bulk result
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+        PendingWrite write = new PendingWrite(message);
+        if (!running) {
+            write.future.completeExceptionally(new MessageWriterBusyException("Message writer is shut down"));
+            return write.future;
+        }
+        try {
+            if (!queue.offer(write, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                write.future.completeExceptionally(new MessageWriterBusyException("Message write queue is full"));
+            } else if (!running && queue.remove(write)) {
+                // Stopped meanwhile and the flusher may have drained for the last time already;
+                // if it took the write instead, it completes it
+                write.future.completeExceptionally(new MessageWriterBusyException("Message writer is shut down"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.future.completeExceptionally(e);
+        }
+        return write.future;
+    }
+
+    private void runFlusher() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            flush(batch);
+            batch.clear();
+        }
+        // Only non-empty when interrupted; never leave a caller waiting forever
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void fillBatch(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxLingerNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        batchFill.record(batch.size());
+        long start = System.nanoTime();
+        Set<Integer> failed;
+        RuntimeException error = null;
+        try {
+            failed = historyStore.insert(batch.stream().map(PendingWrite::getMessage).toList());
+            if (!failed.isEmpty()) {
+                log.warn("Bulk insert of {} messages had {} failures", batch.size(), failed.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Bulk insert of {} messages failed", batch.size(), e);
+            failed = null;
+            error = e;
+        }
+        // Recorded before any caller is released, so the meters already include this flush
+        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        List<PendingWrite> writes = List.copyOf(batch);
+        Set<Integer> rejected = failed;
+        RuntimeException cause = error;
+        Runnable release = () -> complete(writes, rejected, cause);
+        try {
+            completions.execute(release);
+        } catch (RejectedExecutionException e) {
+            // Only after a stop that outwaited the flusher; still never leave a caller waiting
+            release.run();
+        }
+    }
+
+    private static void complete(List<PendingWrite> batch, Set<Integer> failed, RuntimeException error) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (error != null) {
+                batch.get(i).future.completeExceptionally(error);
+            } else if (failed.contains(i)) {
+                batch.get(i).future.completeExceptionally(
+                        new MessageWriteRejectedException("Message was rejected by the store"));
+            } else {
+                batch.get(i).complete();
+            }
+        }
+    }
+
+    static final class PendingWrite {
+        private final ChatMessage message;
+        private final CompletableFuture<ChatMessage> future = new CompletableFuture<>();
+
+        PendingWrite(ChatMessage message) {
+            this.message = message;
+        }
+
+        ChatMessage getMessage() {
+            return message;
+        }
+
+        void complete() {
+            future.complete(message);
+        }
+    }
+}
@@ -1,10 +1,38 @@
 package com.example.backend.chat;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 public interface ChatMessageRepository extends MongoRepository<ChatMessage, String> {
+    // History pages never need chatId back, the caller already knows it
+    String HISTORY_FIELDS = "{ 'senderId': 1, 'recipientId': 1, 'content': 1, 'timestamp': 1, 'seq': 1, 'clientMessageId': 1, 'attachmentIds': 1, 'version': 1, 'editedAt': 1, 'deletedAt': 1, 'reactions': 1, 'reactionsVersion': 1, 'contentCodec': 1, 'compressedContent': 1 }";
+
     List<ChatMessage> findByChatId(String chatId);
-}
 
+    @Query(value = "{ 'chatId': ?0 }",
+            fields = HISTORY_FIELDS,
+            sort = "{ 'timestamp': -1, '_id': -1 }")
+    List<ChatMessage> findLatest(String chatId, Pageable pageable);
+
+    @Query(value = "{ 'chatId': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }",
+            fields = HISTORY_FIELDS,
+            sort = "{ 'timestamp': -1, '_id': -1 }")
+    List<ChatMessage> findBefore(String chatId, Date timestamp, String id, Pageable pageable);
+
+    @Query(value = "{ 'chatId': ?0, '$or': [ { 'timestamp': { '$gt': ?1 } }, { 'timestamp': ?1, '_id': { '$gt': ?2 } } ] }",
+            fields = HISTORY_FIELDS,
+            sort = "{ 'timestamp': 1, '_id': 1 }")
+    List<ChatMessage> findAfter(String chatId, Date timestamp, String id, Pageable pageable);
+
+    @Query(value = "{ 'chatId': ?0, 'seq': { '$gt': ?1 } }",
+            fields = HISTORY_FIELDS,
+            sort = "{ 'seq': 1 }")
+    List<ChatMessage> findAfterSeq(String chatId, long seq, Pageable pageable);
+
+    Optional<ChatMessage> findTopByChatIdOrderBySeqDesc(String chatId);
+}
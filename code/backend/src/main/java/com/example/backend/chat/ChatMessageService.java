@@ -1,31 +1,296 @@
 package com.example.backend.chat;
 
+import com.example.backend.chat.dto.ChatDelta;
+import com.example.backend.chat.dto.ChatMessagePage;
+import com.example.backend.chat.dto.ChatSyncRequest;
+import com.example.backend.chat.dto.ChatSyncResponse;
+import com.example.backend.chat.dto.EditMessageRequest;
+import com.example.backend.chat.enums.NotificationType;
 import com.example.backend.chatroom.ChatRoomService;
+import com.example.backend.conversation.ConversationService;
+import com.example.backend.search.MessageSearchIndexer;
 import com.example.backend.shared.exceptions.ChatRoomNotFoundException;
+import com.example.backend.shared.exceptions.InvalidCursorException;
+import com.example.backend.shared.exceptions.InvalidSyncRequestException;
+import com.example.backend.shared.exceptions.MessageChangeForbiddenException;
+import com.example.backend.shared.exceptions.MessageNotFoundException;
+import com.example.backend.shared.exceptions.MessageVersionConflictException;
+import com.example.backend.shared.exceptions.MessageWriteRejectedException;
+import com.example.backend.unread.UnreadCounterService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
 public class ChatMessageService {
-    private final ChatMessageRepository repository;
+    private final ChatHistoryStore historyStore;
     private final ChatRoomService chatRoomService;
+    private final ChatMessageWriter messageWriter;
+    private final ChatSequenceService sequenceService;
+    private final HotHistoryCache hotHistory;
+    private final RedisHistoryCache redisHistory;
+    private final MessageSearchIndexer searchIndexer;
+    private final UnreadCounterService unreadCounters;
+    private final RecentSubmissions recentSubmissions;
+    private final ConversationService conversations;
+    private final MessagePatchRepository patchRepository;
 
-    public ChatMessage save(ChatMessage chatMessage) {
+    @Value("${app.chat.history.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.chat.history.max-page-size:200}")
+    private int maxPageSize;
+
+    @Value("${app.chat.sync.max-chats:100}")
+    private int maxSyncChats;
+
+    @Value("${app.chat.sync.gap-grace-ms:5000}")
+    private long gapGraceMs;
+
+    // Completes once the configured writer considers the message durable
+    public CompletableFuture<ChatMessage> save(ChatMessage chatMessage) {
         var chatId = chatRoomService
                 .getChatRoomId(chatMessage.getSenderId(), chatMessage.getRecipientId(), true)
                 .orElseThrow(()-> new ChatRoomNotFoundException("Chat room not found"));
+        return store(chatId, chatMessage, true);
+    }
+
+    // Stores a message under an already resolved chat id; group rooms come in here directly
+    public CompletableFuture<ChatMessage> append(String chatId, ChatMessage chatMessage) {
+        return store(chatId, chatMessage, false);
+    }
+
+    // A resent clientMessageId gets the first submission's result and is not written again
+    private CompletableFuture<ChatMessage> store(String chatId, ChatMessage chatMessage, boolean direct) {
+        String senderId = chatMessage.getSenderId();
+        String clientMessageId = chatMessage.getClientMessageId();
+        if (clientMessageId == null) {
+            return write(chatId, chatMessage, direct);
+        }
+        CompletableFuture<ChatMessage> submission = new CompletableFuture<>();
+        CompletableFuture<ChatMessage> earlier = recentSubmissions.claim(senderId, clientMessageId, submission);
+        if (earlier != null) {
+            return earlier;
+        }
+        write(chatId, chatMessage, direct).whenComplete((saved, ex) -> {
+            if (ex == null) {
+                submission.complete(saved);
+                return;
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            // Resent after the window or to another node: the writer refused it, so the first
+            // copy is stored or about to be. Only rejected writes pay for this lookup.
+            Optional<ChatMessage> stored = cause instanceof MessageWriteRejectedException
+                    ? messageWriter.findPending(senderId, clientMessageId)
+                            .or(() -> historyStore.findByClientMessageId(senderId, clientMessageId))
+                    : Optional.empty();
+            if (stored.isPresent()) {
+                submission.complete(stored.get());
+            } else {
+                recentSubmissions.release(senderId, clientMessageId, submission);
+                submission.completeExceptionally(cause);
+            }
+        });
+        return submission;
+    }
+
+    private CompletableFuture<ChatMessage> write(String chatId, ChatMessage chatMessage, boolean direct) {
         chatMessage.setChatId(chatId);
-        repository.save(chatMessage);
-        return chatMessage;
+        // The history cursor is (timestamp, id) and sync's gap grace is timed from it, so the
+        // server decides; a client's clock may be skewed. Stamped together with the seq, so that
+        // seq order and timestamp order agree
+        ChatSequenceService.Stamp stamp = sequenceService.next(chatId);
+        chatMessage.setSeq(stamp.seq());
+        chatMessage.setTimestamp(stamp.timestamp());
+        return messageWriter.submit(chatMessage)
+                .thenApply(saved -> {
+                    hotHistory.append(saved);
+                    redisHistory.append(saved);
+                    searchIndexer.index(saved);
+                    // Badges and conversation lists are kept for direct chats only
+                    if (direct) {
+                        unreadCounters.increment(saved.getRecipientId(), saved.getSenderId());
+                        conversations.record(saved);
+                    }
+                    return saved;
+                });
+    }
+
+    // Direct chats: the sender's chat with recipientId, which must already exist
+    public String chatIdOf(String senderId, String recipientId) {
+        return chatRoomService.getChatRoomId(senderId, recipientId, false)
+                .orElseThrow(() -> new ChatRoomNotFoundException("Chat room not found"));
+    }
+
+    public ChatMessage edit(String chatId, String messageId, String senderId, EditMessageRequest request) {
+        return patch(chatId, messageId, senderId, request.getVersion(),
+                NotificationType.EDITED, request.getContent());
+    }
+
+    // The message stays in history as a tombstone so that seq gaps and cursors keep working
+    public ChatMessage delete(String chatId, String messageId, String senderId, Long version) {
+        return patch(chatId, messageId, senderId, version, NotificationType.DELETED, null);
+    }
+
+    /**
+     * Persists the change as the message's next version, then patches every cache holding the
+     * message in place; a conditional update on the version serializes concurrent changes.
+     */
+    private ChatMessage patch(String chatId, String messageId, String senderId, Long expectedVersion,
+                              NotificationType type, String content) {
+        ChatMessage current = historyStore.findAllById(List.of(messageId)).stream()
+                .filter(message -> chatId.equals(message.getChatId()))
+                .findFirst()
+                .orElseThrow(() -> new MessageNotFoundException("Message not found"));
+        if (!current.getSenderId().equals(senderId)) {
+            throw new MessageChangeForbiddenException("Only the sender can change a message");
+        }
+        if (current.getDeletedAt() != null) {
+            throw new MessageVersionConflictException("Message was deleted");
+        }
+        long version = current.getVersion() == null ? 0 : current.getVersion();
+        if (expectedVersion != null && expectedVersion != version) {
+            throw new MessageVersionConflictException("Message is at version " + version);
+        }
+        MessagePatch patch = MessagePatch.builder()
+                .messageId(messageId)
+                .chatId(chatId)
+                .senderId(senderId)
+                .type(type)
+                .version(version + 1)
+                .content(content)
+                .createdAt(new Date())
+                .build();
+        ChatMessage patched = historyStore.applyPatch(patch)
+                .orElseThrow(() -> new MessageVersionConflictException("Message was changed concurrently"));
+        // Written after the guarded update, so a lost race never leaves a patch behind
+        patchRepository.insert(patch);
+        hotHistory.patch(patched);
+        redisHistory.patch(patched);
+        if (type == NotificationType.EDITED) {
+            searchIndexer.index(patched);
+        }
+        // Group messages are addressed to the room, whose id doubles as the chat id
+        if (!chatId.equals(patched.getRecipientId())) {
+            conversations.record(patched);
+        }
+        return patched;
     }
-    @Cacheable(value = "chatMessage",key = "#senderId+'_'+recipientId")
-    public List<ChatMessage> findChatMessages(String senderId, String recipientId) {
+
+    // Recent pages come from the hot tier; older pages and cold chats are index range scans
+    public ChatMessagePage findChatMessages(String senderId, String recipientId,
+                                            String before, String after, Integer limit) {
+        if (before != null && after != null) {
+            throw new InvalidCursorException("Only one of 'before' or 'after' may be given");
+        }
         var chatId = chatRoomService.getChatRoomId(senderId, recipientId, false);
-        return chatId.map(repository::findByChatId).orElse(new ArrayList<>());
+        if (chatId.isEmpty()) {
+            return ChatMessagePage.empty();
+        }
+        return findByChatId(chatId.get(), before, after, limit);
+    }
+
+    public ChatMessagePage findByChatId(String chatId, String before, String after, Integer limit) {
+        if (before != null && after != null) {
+            throw new InvalidCursorException("Only one of 'before' or 'after' may be given");
+        }
+        int pageSize = resolvePageSize(limit);
+        // Fetch one extra row to learn whether another page exists without a count query
+        List<ChatMessage> rows;
+        boolean ascending = after != null;
+        if (after != null) {
+            MessageCursor cursor = MessageCursor.decode(after);
+            rows = historyStore.findAfter(chatId, cursor, pageSize + 1);
+        } else if (before != null) {
+            MessageCursor cursor = MessageCursor.decode(before);
+            rows = hotHistory.before(chatId, cursor, pageSize + 1)
+                    .orElseGet(() -> historyStore.findBefore(chatId, cursor, pageSize + 1));
+        } else {
+            // Node memory, then the shared Redis tier, then Mongo
+            rows = hotHistory.latest(chatId, pageSize + 1,
+                    count -> redisHistory.latest(chatId, count,
+                            loadCount -> historyStore.findLatest(chatId, loadCount)));
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessage> messages = new ArrayList<>(rows.subList(0, Math.min(rows.size(), pageSize)));
+        if (!ascending) {
+            Collections.reverse(messages);
+        }
+        return toPage(messages, hasMore);
+    }
+
+    public ChatSyncResponse sync(ChatSyncRequest request) {
+        if (request.getSince().size() > maxSyncChats) {
+            throw new InvalidSyncRequestException("At most " + maxSyncChats + " chats can be synced per request");
+        }
+        int pageSize = resolvePageSize(request.getLimit());
+        List<ChatDelta> deltas = new ArrayList<>();
+        request.getSince().forEach((peerId, lastSeq) -> {
+            long since = lastSeq == null ? 0 : lastSeq;
+            chatRoomService.getChatRoomId(request.getUserId(), peerId, false)
+                    .ifPresent(chatId -> deltas.add(syncChat(peerId, chatId, since, pageSize)));
+        });
+        return new ChatSyncResponse(deltas);
+    }
+
+    private ChatDelta syncChat(String peerId, String chatId, long since, int pageSize) {
+        List<ChatMessage> rows = historyStore.findAfterSeq(chatId, since, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessage> messages = new ArrayList<>();
+        long expected = since + 1;
+        long graceStart = System.currentTimeMillis() - gapGraceMs;
+        long lastPending = -1;
+        for (ChatMessage message : rows.subList(0, Math.min(rows.size(), pageSize))) {
+            // Sequence numbers are handed out before the write, so a lower one can still be
+            // in flight. Stop at a fresh gap rather than let the client skip past it; a gap
+            // older than the grace period is a failed write and is skipped, unless the writer
+            // still holds an acked message at or past it that has not reached the store yet.
+            if (message.getSeq() != expected) {
+                if (message.getTimestamp().getTime() <= graceStart && lastPending < 0) {
+                    lastPending = messageWriter.lastPendingSeq(chatId);
+                }
+                if (message.getTimestamp().getTime() > graceStart || expected <= lastPending) {
+                    hasMore = true;
+                    break;
+                }
+            }
+            messages.add(message);
+            expected = message.getSeq() + 1;
+        }
+        return ChatDelta.builder()
+                .peerId(peerId)
+                .messages(messages)
+                .lastSeq(expected - 1)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private ChatMessagePage toPage(List<ChatMessage> messages, boolean hasMore) {
+        if (messages.isEmpty()) {
+            return ChatMessagePage.empty();
+        }
+        return ChatMessagePage.builder()
+                .messages(messages)
+                .beforeCursor(MessageCursor.of(messages.get(0)).encode())
+                .afterCursor(MessageCursor.of(messages.get(messages.size() - 1)).encode())
+                .hasMore(hasMore)
+                .build();
     }
-}
\ No newline at end of file
+}
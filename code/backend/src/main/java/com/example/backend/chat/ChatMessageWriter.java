@@ -0,0 +1,22 @@
+package com.example.backend.chat;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Persistence step of the send path. The future completes once the message is durable
+ * enough to acknowledge and deliver.
+ */
+public interface ChatMessageWriter {
+    CompletableFuture<ChatMessage> submit(ChatMessage message);
+
+    // A message acknowledged under this client message id that is not in the history store yet
+    default Optional<ChatMessage> findPending(String senderId, String clientMessageId) {
+        return Optional.empty();
+    }
+
+    // Highest seq of the chat among acknowledged messages not in the history store yet, 0 when none
+    default long lastPendingSeq(String chatId) {
+        return 0;
+    }
+}
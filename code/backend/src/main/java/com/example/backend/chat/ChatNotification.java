@@ -1,10 +1,13 @@
 package com.example.backend.chat;
 
+import com.example.backend.chat.enums.NotificationType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -14,4 +17,17 @@ public class ChatNotification {
     private String senderId;
     private String recipientId;
     private String content;
+    // Lets the recipient spot a missed notification and delta-sync the gap
+    private Long seq;
+    // Only set for group messages, whose recipientId is the room as well
+    private String roomId;
+    private List<String> attachmentIds;
+    // Null for a new message; set when this updates a message the client already has
+    private NotificationType type;
+    // Version of the message after an EDITED or DELETED update; older updates can be ignored
+    private Long version;
+    // Only set on a REACTION update: who added (delta 1) or removed (delta -1) which emoji
+    private String reaction;
+    private String reactorId;
+    private Integer reactionDelta;
 }
@@ -0,0 +1,62 @@
+package com.example.backend.chat;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Hands out per-chat sequence numbers from a Redis counter, so every node agrees on the order.
+ * If the counter is missing (first message, or Redis lost it) it is seeded from the highest
+ * sequence number already stored in Mongo or still waiting in the writer, such as journal
+ * entries not replayed yet.
+ *
+ * <p>Each seq comes with the message's timestamp, read from the Redis clock in the same call
+ * and strictly increasing within the chat. History is paged by (timestamp, id) while the Redis
+ * history tier is ordered by seq; this keeps the two orders the same.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatSequenceService {
+
+    private static final String KEY_PREFIX = "chat:seq:";
+    private static final String TIMESTAMP_SUFFIX = ":ts";
+    // Increments only an existing counter, so a lost key is never silently restarted at 1
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> STAMP_EXISTING = new DefaultRedisScript<>("""
+            if redis.call('exists', KEYS[1]) == 0 then return false end
+            local seq = redis.call('incr', KEYS[1])
+            local time = redis.call('time')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local last = tonumber(redis.call('get', KEYS[2]))
+            if last and now <= last then now = last + 1 end
+            redis.call('set', KEYS[2], string.format('%d', now))
+            return {seq, now}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ChatHistoryStore historyStore;
+    private final ChatMessageWriter messageWriter;
+
+    public record Stamp(long seq, Date timestamp) {
+    }
+
+    public Stamp next(String chatId) {
+        String key = KEY_PREFIX + chatId;
+        List<String> keys = List.of(key, key + TIMESTAMP_SUFFIX);
+        List<?> stamp = redisTemplate.execute(STAMP_EXISTING, keys);
+        if (stamp == null) {
+            long stored = Math.max(historyStore.lastSeq(chatId), messageWriter.lastPendingSeq(chatId));
+            redisTemplate.opsForValue().setIfAbsent(key, Long.toString(stored));
+            stamp = redisTemplate.execute(STAMP_EXISTING, keys);
+            if (stamp == null) {
+                throw new IllegalStateException("Sequence counter of chat " + chatId + " disappeared while seeding");
+            }
+        }
+        return new Stamp(((Number) stamp.get(0)).longValue(), new Date(((Number) stamp.get(1)).longValue()));
+    }
+}
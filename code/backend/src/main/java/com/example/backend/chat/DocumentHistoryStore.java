@@ -0,0 +1,143 @@
+package com.example.backend.chat;
+
+import com.mongodb.bulk.BulkWriteError;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * One Mongo document per message, read through the keyset queries in {@link ChatMessageRepository}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.chat.storage.layout", havingValue = "document", matchIfMissing = true)
+public class DocumentHistoryStore implements ChatHistoryStore {
+
+    private final MongoTemplate mongoTemplate;
+    private final ChatMessageRepository repository;
+
+    @Value("${app.chat.export.cursor-batch-size:1000}")
+    private int cursorBatchSize;
+
+    @Override
+    public Set<Integer> insert(List<ChatMessage> messages) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class);
+            bulk.insert(messages);
+            bulk.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            // Unordered mode still inserts everything except the reported indexes
+            return e.getErrors().stream()
+                    .map(BulkWriteError::getIndex)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    @Override
+    public List<ChatMessage> findLatest(String chatId, int limit) {
+        return repository.findLatest(chatId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<ChatMessage> findBefore(String chatId, MessageCursor cursor, int limit) {
+        return repository.findBefore(chatId, cursor.getTimestamp(), cursor.getId(), PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<ChatMessage> findAfter(String chatId, MessageCursor cursor, int limit) {
+        return repository.findAfter(chatId, cursor.getTimestamp(), cursor.getId(), PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<ChatMessage> findAfterSeq(String chatId, long seq, int limit) {
+        return repository.findAfterSeq(chatId, seq, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public long lastSeq(String chatId) {
+        return repository.findTopByChatIdOrderBySeqDesc(chatId)
+                .map(ChatMessage::getSeq)
+                .orElse(0L);
+    }
+
+    @Override
+    public List<ChatMessage> findAllById(Collection<String> ids) {
+        return repository.findAllById(ids);
+    }
+
+    @Override
+    public Optional<ChatMessage> findByClientMessageId(String senderId, String clientMessageId) {
+        return Optional.ofNullable(mongoTemplate.findOne(Query.query(Criteria.where("senderId").is(senderId)
+                .and("clientMessageId").is(clientMessageId)), ChatMessage.class));
+    }
+
+    @Override
+    public Optional<ChatMessage> applyPatch(MessagePatch patch) {
+        Query query = Query.query(Criteria.where("_id").is(patch.getMessageId())
+                .and("senderId").is(patch.getSenderId())
+                .and("version").is(patch.previousVersion())
+                .and("deletedAt").is(null));
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, patch.update(""),
+                FindAndModifyOptions.options().returnNew(true), ChatMessage.class));
+    }
+
+    @Override
+    public Optional<ChatMessage> react(ReactionChange change) {
+        ChatMessage updated = mongoTemplate.findAndModify(Query.query(change.guard()), change.update(""),
+                FindAndModifyOptions.options().returnNew(true), ChatMessage.class);
+        if (updated != null && change.emptied(updated)) {
+            ChatMessage cleaned = mongoTemplate.findAndModify(Query.query(change.emptiedGuard()), change.cleanup(""),
+                    FindAndModifyOptions.options().returnNew(true), ChatMessage.class);
+            // Null when someone reacted with the emoji again in between
+            if (cleaned != null) {
+                updated = cleaned;
+            }
+        }
+        return Optional.ofNullable(updated);
+    }
+
+    @Override
+    public Stream<ChatMessage> streamChat(String chatId, Long afterSeq, Date since) {
+        return mongoTemplate.stream(chatQuery(chatId, afterSeq, since), ChatMessage.class);
+    }
+
+    @Override
+    public Stream<ChatMessage> streamAll() {
+        Query query = new Query().with(Sort.by("_id")).cursorBatchSize(cursorBatchSize);
+        query.fields().include("chatId", "content", "contentCodec", "compressedContent");
+        return mongoTemplate.stream(query, ChatMessage.class);
+    }
+
+    Query chatQuery(String chatId, Long afterSeq, Date since) {
+        Criteria criteria = Criteria.where("chatId").is(chatId);
+        Sort sort;
+        if (afterSeq != null) {
+            criteria = criteria.and("seq").gt(afterSeq);
+            sort = Sort.by("seq");
+        } else {
+            if (since != null) {
+                criteria = criteria.and("timestamp").gte(since);
+            }
+            sort = Sort.by("timestamp", "_id");
+        }
+        return Query.query(criteria).with(sort).cursorBatchSize(cursorBatchSize);
+    }
+}
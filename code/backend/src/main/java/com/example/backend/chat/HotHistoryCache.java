@@ -0,0 +1,402 @@
+package com.example.backend.chat;
+
+import com.example.backend.shared.cache.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-node hot tier for chat history: the most recent {@code messagesPerChat} messages of each
+ * recently read chat. Chats are only admitted by a read; after that every saved message is
+ * appended. Least recently used chats are evicted once either {@code maxChats} or the global
+ * {@code memoryBudgetBytes} is exceeded.
+ *
+ * <p>Every append or patch is published on a Redis channel as {@code "<node> <chatId>"} and the
+ * other nodes drop that chat, to reload it on its next read. A lost message is bounded by
+ * {@code ttlMs}, after which a buffer is reloaded regardless.
+ *
+ * <p>Lookups return rows newest first, the same shape as {@link ChatMessageRepository#findLatest},
+ * and only hit when the buffer can answer the whole request.
+ */
+@Slf4j
+@Component
+public class HotHistoryCache implements MessageListener {
+
+    // Matches the (timestamp, _id) index order; hex ObjectIds sort like the ObjectIds themselves
+    public static final Comparator<ChatMessage> HISTORY_ORDER = Comparator
+            .comparing(ChatMessage::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ChatMessage::getId);
+
+    // Rough per-message heap cost on top of the strings themselves
+    private static final int MESSAGE_OVERHEAD_BYTES = 96;
+
+    private final int messagesPerChat;
+    private final int maxChats;
+    private final long memoryBudgetBytes;
+    private final long ttlNanos;
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final LongSupplier clock;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+    // Concurrent misses on one chat share a single load
+    private final SingleFlight<String, List<ChatMessage>> loads;
+
+    // Access-ordered, so iteration starts at the least recently used chat
+    private final LinkedHashMap<String, RecentMessages> chats = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    @Autowired
+    public HotHistoryCache(MeterRegistry meterRegistry,
+                           StringRedisTemplate redisTemplate,
+                           @Value("${app.chat.hot-history.channel:chat:hot-history}") String channel,
+                           @Value("${app.chat.hot-history.messages-per-chat:100}") int messagesPerChat,
+                           @Value("${app.chat.hot-history.max-chats:10000}") int maxChats,
+                           @Value("${app.chat.hot-history.memory-budget-bytes:67108864}") long memoryBudgetBytes,
+                           @Value("${app.chat.hot-history.ttl-ms:300000}") long ttlMs) {
+        this(meterRegistry, redisTemplate, channel, messagesPerChat, maxChats, memoryBudgetBytes, ttlMs,
+                System::nanoTime);
+    }
+
+    HotHistoryCache(MeterRegistry meterRegistry, StringRedisTemplate redisTemplate, String channel,
+                    int messagesPerChat, int maxChats, long memoryBudgetBytes, long ttlMs, LongSupplier clock) {
+        this.messagesPerChat = messagesPerChat;
+        this.maxChats = maxChats;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.clock = clock;
+        this.hits = Counter.builder("chat.history.hot.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.history.hot.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("chat.history.hot.evictions").register(meterRegistry);
+        this.invalidations = Counter.builder("chat.history.hot.invalidations").register(meterRegistry);
+        this.loads = new SingleFlight<>("chat.history.hot", meterRegistry);
+        Gauge.builder("chat.history.hot.bytes", this, HotHistoryCache::usedBytes).register(meterRegistry);
+        Gauge.builder("chat.history.hot.chats", this, HotHistoryCache::chatCount).register(meterRegistry);
+    }
+
+    /**
+     * Adds a stored message to its chat's buffer if that chat is resident.
+     */
+    public void append(ChatMessage message) {
+        synchronized (this) {
+            RecentMessages recent = chats.get(message.getChatId());
+            if (recent != null) {
+                usedBytes += recent.add(slim(message));
+                enforceLimits(message.getChatId());
+            }
+        }
+        publish(message.getChatId());
+    }
+
+    /**
+     * Swaps an edited, deleted or reacted-to message into its chat's buffer, if the chat is resident, instead
+     * of dropping the buffer. A message older than the buffer is not in it and needs no patch.
+     */
+    public void patch(ChatMessage message) {
+        synchronized (this) {
+            RecentMessages recent = chats.get(message.getChatId());
+            if (recent != null) {
+                usedBytes += recent.replace(slim(message));
+                enforceLimits(message.getChatId());
+            }
+        }
+        publish(message.getChatId());
+    }
+
+    /**
+     * Drops a chat changed on another node; its next read loads it again.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ", 2);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        synchronized (this) {
+            RecentMessages recent = chats.remove(parts[1]);
+            if (recent != null) {
+                usedBytes -= recent.bytes();
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * The newest {@code count} messages, newest first. On a miss the chat is loaded with
+     * {@code loader}, which must return the newest n messages newest first.
+     */
+    public List<ChatMessage> latest(String chatId, int count, IntFunction<List<ChatMessage>> loader) {
+        Optional<List<ChatMessage>> hot = lookup(chatId, count, null);
+        record(hot);
+        if (hot.isPresent()) {
+            return hot.get();
+        }
+        if (count > messagesPerChat) {
+            return loader.apply(count);
+        }
+        prime(chatId, loader);
+        return lookup(chatId, count, null).orElseGet(() -> loader.apply(count));
+    }
+
+    /**
+     * Up to {@code count} messages older than the cursor, newest first, if the buffer holds them all.
+     */
+    public Optional<List<ChatMessage>> before(String chatId, MessageCursor cursor, int count) {
+        Optional<List<ChatMessage>> hot = lookup(chatId, count, cursor);
+        record(hot);
+        return hot;
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int chatCount() {
+        return chats.size();
+    }
+
+    private synchronized Optional<List<ChatMessage>> lookup(String chatId, int count, MessageCursor before) {
+        RecentMessages recent = chats.get(chatId);
+        if (recent != null && recent.loaded && clock.getAsLong() - recent.residentSince > ttlNanos) {
+            chats.remove(chatId);
+            usedBytes -= recent.bytes();
+            recent = null;
+        }
+        return Optional.ofNullable(recent == null ? null : recent.newestFirst(count, before));
+    }
+
+    private void record(Optional<List<ChatMessage>> lookup) {
+        (lookup.isPresent() ? hits : misses).increment();
+    }
+
+    private void prime(String chatId, IntFunction<List<ChatMessage>> loader) {
+        RecentMessages recent;
+        synchronized (this) {
+            // Registered before loading so that messages saved meanwhile are not lost
+            recent = chats.computeIfAbsent(chatId, id -> new RecentMessages(messagesPerChat, clock.getAsLong()));
+        }
+        List<ChatMessage> loaded = loads.load(chatId, () -> loader.apply(messagesPerChat));
+        synchronized (this) {
+            // Evicted meanwhile, or primed already by another caller of the same load
+            if (chats.get(chatId) != recent || recent.loaded) {
+                return;
+            }
+            for (ChatMessage message : loaded) {
+                usedBytes += recent.add(slim(message));
+            }
+            recent.markLoaded(loaded.size() >= messagesPerChat);
+            enforceLimits(chatId);
+        }
+    }
+
+    private void publish(String chatId) {
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + " " + chatId);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to the buffer TTL
+            log.warn("Failed to publish hot history change for chat {}", chatId, e);
+        }
+    }
+
+    private void enforceLimits(String keep) {
+        Iterator<Map.Entry<String, RecentMessages>> eldest = chats.entrySet().iterator();
+        while ((chats.size() > maxChats || usedBytes > memoryBudgetBytes) && eldest.hasNext()) {
+            Map.Entry<String, RecentMessages> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            usedBytes -= entry.getValue().bytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    // Same fields as a history page from Mongo
+    private static ChatMessage slim(ChatMessage message) {
+        return ChatMessage.builder()
+                .id(message.getId())
+                .senderId(message.getSenderId())
+                .recipientId(message.getRecipientId())
+                .content(message.getContentCodec() == null ? message.getContent() : null)
+                .timestamp(message.getTimestamp())
+                .seq(message.getSeq())
+                .clientMessageId(message.getClientMessageId())
+                .attachmentIds(message.getAttachmentIds())
+                .version(message.getVersion())
+                .editedAt(message.getEditedAt())
+                .deletedAt(message.getDeletedAt())
+                .reactions(message.getReactions())
+                .reactionsVersion(message.getReactionsVersion())
+                // Large bodies stay compressed in memory and are decoded when a page is rendered
+                .contentCodec(message.getContentCodec())
+                .compressedContent(message.getCompressedContent())
+                .build();
+    }
+
+    // A compressed body is decoded once for this read, into a copy, so the buffer stays compressed
+    private static ChatMessage decoded(ChatMessage message) {
+        if (message.getContentCodec() == null) {
+            return message;
+        }
+        ChatMessage copy = slim(message);
+        copy.setContent(message.getContent());
+        copy.setContentCodec(null);
+        copy.setCompressedContent(null);
+        return copy;
+    }
+
+    static long estimateBytes(ChatMessage message) {
+        return MESSAGE_OVERHEAD_BYTES + 2L * (length(message.getId()) + length(message.getSenderId())
+                + length(message.getRecipientId()))
+                + (message.getCompressedContent() != null
+                ? message.getCompressedContent().length
+                : 2L * length(message.getContent()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * Bounded, ordered buffer of one chat's most recent messages.
+     */
+    static final class RecentMessages {
+        private final int capacity;
+        private final long residentSince;
+        // Oldest first
+        private final List<ChatMessage> messages;
+        private boolean loaded;
+        // Older messages exist that are not in the buffer
+        private boolean truncated;
+        private long bytes;
+
+        RecentMessages(int capacity, long residentSince) {
+            this.capacity = capacity;
+            this.residentSince = residentSince;
+            this.messages = new ArrayList<>(capacity + 1);
+        }
+
+        /**
+         * Inserts in history order, ignoring duplicates, and returns the change in bytes.
+         */
+        long add(ChatMessage message) {
+            int index = messages.size();
+            // Saves complete roughly in order, so the slot is almost always at the tail
+            while (index > 0 && HISTORY_ORDER.compare(messages.get(index - 1), message) >= 0) {
+                if (messages.get(index - 1).getId().equals(message.getId())) {
+                    return 0;
+                }
+                index--;
+            }
+            if (index == 0 && messages.size() >= capacity) {
+                truncated = true;
+                return 0;
+            }
+            long delta = estimateBytes(message);
+            messages.add(index, message);
+            if (messages.size() > capacity) {
+                delta -= estimateBytes(messages.remove(0));
+                truncated = true;
+            }
+            bytes += delta;
+            return delta;
+        }
+
+        /**
+         * Replaces the message with the same id unless that copy is as new already, and returns
+         * the change in bytes. A message not found is added, so a patch that lands while the chat
+         * is being loaded still wins over the stale copy the load brings.
+         */
+        long replace(ChatMessage message) {
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                ChatMessage current = messages.get(i);
+                if (current.getId().equals(message.getId())) {
+                    if (!newer(message, current)) {
+                        return 0;
+                    }
+                    long delta = estimateBytes(message) - estimateBytes(current);
+                    messages.set(i, message);
+                    bytes += delta;
+                    return delta;
+                }
+            }
+            return add(message);
+        }
+
+        /**
+         * Edits bump version and reactions bump reactionsVersion, so of two copies read back from
+         * the store the later one is ahead in one and behind in neither.
+         */
+        static boolean newer(ChatMessage candidate, ChatMessage current) {
+            long version = stamp(candidate.getVersion()) - stamp(current.getVersion());
+            long reactions = stamp(candidate.getReactionsVersion()) - stamp(current.getReactionsVersion());
+            return version >= 0 && reactions >= 0 && version + reactions > 0;
+        }
+
+        private static long stamp(Long value) {
+            return value == null ? 0 : value;
+        }
+
+        void markLoaded(boolean olderMessagesExist) {
+            loaded = true;
+            truncated = truncated || olderMessagesExist;
+        }
+
+        /**
+         * Newest first, or null if the buffer cannot answer with certainty.
+         */
+        List<ChatMessage> newestFirst(int count, MessageCursor before) {
+            if (!loaded) {
+                return null;
+            }
+            int end = messages.size();
+            if (before != null) {
+                ChatMessage probe = ChatMessage.builder().timestamp(before.getTimestamp()).id(before.getId()).build();
+                while (end > 0 && HISTORY_ORDER.compare(messages.get(end - 1), probe) >= 0) {
+                    end--;
+                }
+                // A cursor older than the whole buffer points into the cold part of history
+                if (end == 0 && truncated) {
+                    return null;
+                }
+            }
+            if (end < count && truncated) {
+                return null;
+            }
+            List<ChatMessage> rows = new ArrayList<>(Math.min(count, end));
+            for (int i = end - 1; i >= 0 && rows.size() < count; i--) {
+                rows.add(decoded(messages.get(i)));
+            }
+            return rows;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.backend.chat;
+
+import com.example.backend.shared.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset position in a conversation, encoded as base64url("timestampMillis:messageId").
+ */
+@Getter
+@AllArgsConstructor
+public class MessageCursor {
+    private final Date timestamp;
+    private final String id;
+
+    public static MessageCursor of(ChatMessage message) {
+        return new MessageCursor(message.getTimestamp(), message.getId());
+    }
+
+    public static MessageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new InvalidCursorException("Malformed cursor: " + cursor);
+            }
+            long millis = Long.parseLong(raw.substring(0, separator));
+            return new MessageCursor(new Date(millis), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String raw = timestamp.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.backend.chat;
+
+import com.example.backend.chat.enums.NotificationType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+
+/**
+ * One edit or delete of a stored message. The message itself is patched in place to this
+ * version; the patches are kept as its change log.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document
+// A message has at most one patch per version
+@CompoundIndex(name = "message_version", def = "{'messageId': 1, 'version': 1}", unique = true)
+public class MessagePatch {
+    @Id
+    private String id;
+    private String messageId;
+    private String chatId;
+    private String senderId;
+    // EDITED or DELETED
+    private NotificationType type;
+    // Version the message has after this patch, starting at 1
+    private Long version;
+    // New content of an edit, null for a delete
+    private String content;
+    private Date createdAt;
+
+    // Null, matching a message that was never changed, before the first patch
+    public Long previousVersion() {
+        return version == 1 ? null : version - 1;
+    }
+
+    /**
+     * The update that brings a stored message to this version; {@code prefix} addresses the
+     * message inside its document, e.g. {@code "messages.$."} in a bucket.
+     */
+    public Update update(String prefix) {
+        Update update = new Update()
+                .set(prefix + "version", version)
+                // Patched bodies are stored uncompressed; edits are rare next to reads
+                .unset(prefix + "contentCodec")
+                .unset(prefix + "compressedContent");
+        if (type == NotificationType.DELETED) {
+            return update.set(prefix + "deletedAt", createdAt)
+                    .unset(prefix + "content")
+                    .unset(prefix + "attachmentIds")
+                    .unset(prefix + "reactions")
+                    .unset(prefix + "reactors");
+        }
+        return update.set(prefix + "content", content)
+                .set(prefix + "editedAt", createdAt);
+    }
+}
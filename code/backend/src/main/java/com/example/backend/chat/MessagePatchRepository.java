@@ -0,0 +1,6 @@
+package com.example.backend.chat;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface MessagePatchRepository extends MongoRepository<MessagePatch, String> {
+}
@@ -0,0 +1,69 @@
+package com.example.backend.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * One user adding or removing one emoji on a message. Applied as a single atomic update whose
+ * guard is the emoji's reactor set, so a repeated add or remove matches nothing and changes nothing.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReactionChange {
+    private String messageId;
+    private String userId;
+    private String emoji;
+    private boolean add;
+
+    public int delta() {
+        return add ? 1 : -1;
+    }
+
+    // Matches the message, relative to the message itself, only if the change would do something
+    public Criteria guard() {
+        Criteria reactor = Criteria.where("_id").is(messageId)
+                .and("deletedAt").is(null)
+                .and(reactorsField(""));
+        return add ? reactor.ne(userId) : reactor.is(userId);
+    }
+
+    /**
+     * {@code prefix} addresses the message inside its document, e.g. {@code "messages.$."} in a bucket.
+     */
+    public Update update(String prefix) {
+        Update update = new Update()
+                .inc(countField(prefix), delta())
+                .inc(prefix + "reactionsVersion", 1);
+        return add ? update.addToSet(reactorsField(prefix), userId) : update.pull(reactorsField(prefix), userId);
+    }
+
+    // After the last reactor left, the emoji is dropped rather than kept at zero
+    public boolean emptied(ChatMessage message) {
+        return !add && message.getReactions() != null && message.getReactions().getOrDefault(emoji, 0L) <= 0;
+    }
+
+    public Criteria emptiedGuard() {
+        return Criteria.where("_id").is(messageId).and(countField("")).lte(0);
+    }
+
+    public Update cleanup(String prefix) {
+        return new Update()
+                .unset(countField(prefix))
+                .unset(reactorsField(prefix))
+                .inc(prefix + "reactionsVersion", 1);
+    }
+
+    private String countField(String prefix) {
+        return prefix + "reactions." + emoji;
+    }
+
+    private String reactorsField(String prefix) {
+        return prefix + "reactors." + emoji;
+    }
+}
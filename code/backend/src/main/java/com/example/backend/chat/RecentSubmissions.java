@@ -0,0 +1,97 @@
+package com.example.backend.chat;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-node window of recent submissions by (senderId, clientMessageId). A retry that lands here
+ * is answered with the first submission's future, in flight or done, instead of writing again.
+ * Entries leave after {@code windowMs} or once more than {@code maxEntries} are held, oldest
+ * first; retries older than that fall through to the unique index.
+ */
+@Component
+public class RecentSubmissions {
+
+    private final long windowNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Counter duplicates;
+
+    // Insertion-ordered, so expiry only ever looks at the head
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+
+    @Autowired
+    public RecentSubmissions(MeterRegistry meterRegistry,
+                             @Value("${app.chat.dedup.window-ms:600000}") long windowMs,
+                             @Value("${app.chat.dedup.max-entries:100000}") int maxEntries) {
+        this(meterRegistry, windowMs, maxEntries, System::nanoTime);
+    }
+
+    RecentSubmissions(MeterRegistry meterRegistry, long windowMs, int maxEntries, LongSupplier clock) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.duplicates = Counter.builder("chat.dedup.duplicates")
+                .description("Retried submissions answered without a write")
+                .register(meterRegistry);
+        Gauge.builder("chat.dedup.entries", this, RecentSubmissions::size).register(meterRegistry);
+    }
+
+    /**
+     * Registers {@code submission} for the key, or returns the future already registered for it.
+     */
+    public synchronized CompletableFuture<ChatMessage> claim(String senderId, String clientMessageId,
+                                                             CompletableFuture<ChatMessage> submission) {
+        long now = clock.getAsLong();
+        expire(now);
+        Key key = new Key(senderId, clientMessageId);
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            duplicates.increment();
+            return existing.submission();
+        }
+        entries.put(key, new Entry(submission, now));
+        return null;
+    }
+
+    // A failed submission must not be replayed to its retries
+    public synchronized void release(String senderId, String clientMessageId, CompletableFuture<ChatMessage> submission) {
+        Key key = new Key(senderId, clientMessageId);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.submission() == submission) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void expire(long now) {
+        Iterator<Map.Entry<Key, Entry>> oldest = entries.entrySet().iterator();
+        while (oldest.hasNext()) {
+            Entry entry = oldest.next().getValue();
+            if (entries.size() < maxEntries && now - entry.createdAt() < windowNanos) {
+                return;
+            }
+            oldest.remove();
+        }
+    }
+
+    private record Key(String senderId, String clientMessageId) {
+    }
+
+    private record Entry(CompletableFuture<ChatMessage> submission, long createdAt) {
+    }
+}
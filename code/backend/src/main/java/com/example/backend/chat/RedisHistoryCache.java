@@ -0,0 +1,408 @@
+package com.example.backend.chat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Shared, write-through tier for recent chat history, between the per-node {@link HotHistoryCache}
+ * and Mongo. Each chat is a sorted set of its newest {@code maxMessages} messages scored by
+ * {@code seq}, which {@link ChatSequenceService} hands out in the same order as the (timestamp, id)
+ * history cursor, next to a state key:
+ * <ul>
+ *     <li>{@code pending:<token>} - being loaded from Mongo by the holder of the token, appends are
+ *     accepted but reads miss; expires after {@code loadWaitMs}, and a load that takes longer is
+ *     not written</li>
+ *     <li>{@code full} - the set holds the whole conversation</li>
+ *     <li>{@code partial} - older messages exist that are not in the set</li>
+ * </ul>
+ * A chat is loaded on its first read, by one node: a read that finds the chat pending waits up to
+ * {@code loadWaitMs} for that load instead of reading Mongo too. From then on every saved message
+ * is upserted by seq and the set trimmed, so a new message costs one small script call instead of
+ * rebuilding the history.
+ * Edits, deletes and reactions replace the member at their seq in place, and only with a newer copy.
+ * Appends are pipelined from a background thread so the write path never waits on Redis.
+ */
+@Slf4j
+@Component
+public class RedisHistoryCache {
+
+    private static final String KEY_PREFIX = "chat:history:";
+    private static final String STATE_SUFFIX = ":state";
+    private static final int APPEND_BATCH = 256;
+    private static final long LOAD_POLL_MS = 20;
+
+    private static final byte[] APPEND_SCRIPT = ("""
+            local state = redis.call('get', KEYS[2])
+            if not state then return 0 end
+            redis.call('zremrangebyscore', KEYS[1], ARGV[1], ARGV[1])
+            redis.call('zadd', KEYS[1], ARGV[1], ARGV[2])
+            local removed = redis.call('zremrangebyrank', KEYS[1], 0, -(tonumber(ARGV[3]) + 1))
+            if removed > 0 and state == 'full' then redis.call('set', KEYS[2], 'partial', 'KEEPTTL') end
+            redis.call('pexpire', KEYS[1], ARGV[4])
+            -- A pending claim keeps its short expiry, so an abandoned load frees the chat
+            if string.sub(state, 1, 8) ~= 'pending:' then redis.call('pexpire', KEYS[2], ARGV[4]) end
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    // A member that is missing from a loaded chat is older than the set and stays out of it. While
+    // the chat is pending the patched copy is added, and the load then keeps it over its stale read.
+    private static final byte[] PATCH_SCRIPT = ("""
+            local state = redis.call('get', KEYS[2])
+            if not state then return 0 end
+            local rows = redis.call('zrangebyscore', KEYS[1], ARGV[1], ARGV[1])
+            if #rows == 0 and string.sub(state, 1, 8) ~= 'pending:' then return 0 end
+            if #rows > 0 then
+                local current = cjson.decode(rows[1])
+                local version = tonumber(ARGV[3]) - (type(current.version) == 'number' and current.version or 0)
+                local reactions = tonumber(ARGV[4])
+                        - (type(current.reactionsVersion) == 'number' and current.reactionsVersion or 0)
+                if version < 0 or reactions < 0 or version + reactions == 0 then return 0 end
+                redis.call('zremrangebyscore', KEYS[1], ARGV[1], ARGV[1])
+            end
+            redis.call('zadd', KEYS[1], ARGV[1], ARGV[2])
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    // Members left by an abandoned load missed the patches made since, so they are dropped
+    private static final RedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('exists', KEYS[2]) == 1 then return 0 end
+            redis.call('del', KEYS[1])
+            redis.call('set', KEYS[2], ARGV[1], 'PX', ARGV[2])
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[2]) ~= ARGV[1] then return 0 end
+            return redis.call('del', KEYS[1], KEYS[2])
+            """, Long.class);
+
+    // Written only while the claim is still this load's
+    private static final RedisScript<Long> PRIME_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[2]) ~= ARGV[1] then return 0 end
+            for i = 5, #ARGV, 2 do
+                if redis.call('zcount', KEYS[1], ARGV[i], ARGV[i]) == 0 then
+                    redis.call('zadd', KEYS[1], ARGV[i], ARGV[i + 1])
+                end
+            end
+            local state = ARGV[2]
+            if redis.call('zremrangebyrank', KEYS[1], 0, -(tonumber(ARGV[3]) + 1)) > 0 then state = 'partial' end
+            redis.call('set', KEYS[2], state, 'PX', ARGV[4])
+            redis.call('pexpire', KEYS[1], ARGV[4])
+            return 1
+            """, Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_SCRIPT = new DefaultRedisScript<>("""
+            local state = redis.call('get', KEYS[2])
+            if state ~= 'full' and state ~= 'partial' then return false end
+            local rows = redis.call('zrevrange', KEYS[1], 0, tonumber(ARGV[1]) - 1)
+            if state == 'partial' and #rows < tonumber(ARGV[1]) then return false end
+            return rows
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int maxMessages;
+    private final long ttlMillis;
+    private final long loadWaitMs;
+    private final BlockingQueue<ChatMessage> pendingAppends;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter droppedAppends;
+
+    private volatile boolean running;
+    private Thread appender;
+
+    public RedisHistoryCache(StringRedisTemplate redisTemplate,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.chat.redis-history.max-messages:200}") int maxMessages,
+                             @Value("${app.chat.redis-history.ttl-minutes:60}") long ttlMinutes,
+                             @Value("${app.chat.redis-history.queue-capacity:10000}") int queueCapacity,
+                             @Value("${app.chat.redis-history.load-wait-ms:2000}") long loadWaitMs) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.maxMessages = maxMessages;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.loadWaitMs = loadWaitMs;
+        this.pendingAppends = new ArrayBlockingQueue<>(queueCapacity);
+        this.hits = Counter.builder("chat.history.redis.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("chat.history.redis.requests").tag("result", "miss").register(meterRegistry);
+        this.droppedAppends = Counter.builder("chat.history.redis.appends.dropped").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        appender = new Thread(this::runAppender, "chat-history-redis-appender");
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        appender.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Queues a stored message for the chat's set; ignored by Redis unless the chat is loaded.
+     */
+    public void append(ChatMessage message) {
+        if (message.getSeq() == null) {
+            return;
+        }
+        if (!pendingAppends.offer(message)) {
+            // A missed append would leave a loaded chat with a hole, so drop the chat instead
+            droppedAppends.increment();
+            invalidate(message.getChatId());
+        }
+    }
+
+    /**
+     * Queues an edited, deleted or reacted-to message to replace its stored copy; goes through the same queue
+     * as appends, so it cannot overtake the append of the message itself.
+     */
+    public void patch(ChatMessage message) {
+        append(message);
+    }
+
+    /**
+     * The newest {@code count} messages, newest first. On a miss the chat is loaded with
+     * {@code loader}, which must return the newest n messages newest first.
+     */
+    public List<ChatMessage> latest(String chatId, int count, IntFunction<List<ChatMessage>> loader) {
+        List<ChatMessage> cached = read(chatId, count);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        if (count > maxMessages) {
+            return loader.apply(count);
+        }
+        // Appends that land while Mongo is being read are kept, and the load never overwrites them
+        String token = "pending:" + UUID.randomUUID();
+        Long claimed = claim(chatId, token);
+        if (Long.valueOf(0).equals(claimed)) {
+            // Another node is loading the chat; its result serves this read too
+            List<ChatMessage> loadedElsewhere = awaitLoad(chatId, count);
+            if (loadedElsewhere != null) {
+                return loadedElsewhere;
+            }
+            // That load was abandoned and its claim has expired by now
+            claimed = claim(chatId, token);
+        }
+        if (!Long.valueOf(1).equals(claimed)) {
+            return loader.apply(count);
+        }
+        List<ChatMessage> loaded;
+        try {
+            loaded = loader.apply(maxMessages);
+        } catch (RuntimeException e) {
+            release(chatId, token);
+            throw e;
+        }
+        prime(chatId, token, loaded);
+        return loaded.subList(0, Math.min(count, loaded.size()));
+    }
+
+    // 1 if claimed, 0 if another load holds the chat, null when Redis cannot be asked
+    private Long claim(String chatId, String token) {
+        try {
+            return redisTemplate.execute(CLAIM_SCRIPT, List.of(historyKey(chatId), stateKey(chatId)),
+                    token, Long.toString(Math.max(1, loadWaitMs)));
+        } catch (RuntimeException e) {
+            log.warn("Could not claim Redis history of chat {}", chatId, e);
+            return null;
+        }
+    }
+
+    // Frees the chat for the next reader at once, rather than when the claim expires
+    private void release(String chatId, String token) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(historyKey(chatId), stateKey(chatId)), token);
+        } catch (RuntimeException e) {
+            log.warn("Could not release Redis history of chat {}", chatId, e);
+        }
+    }
+
+    // Null once loadWaitMs passes, e.g. when the loading node died; the chat is then loaded here
+    private List<ChatMessage> awaitLoad(String chatId, int count) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(loadWaitMs);
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(LOAD_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            List<ChatMessage> cached = read(chatId, count);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    public void invalidate(String chatId) {
+        try {
+            redisTemplate.delete(List.of(historyKey(chatId), stateKey(chatId)));
+        } catch (RuntimeException e) {
+            log.warn("Could not invalidate Redis history of chat {}", chatId, e);
+        }
+    }
+
+    private List<ChatMessage> read(String chatId, int count) {
+        try {
+            List<?> rows = redisTemplate.execute(READ_SCRIPT, List.of(historyKey(chatId), stateKey(chatId)),
+                    Integer.toString(count));
+            if (rows == null) {
+                return null;
+            }
+            List<ChatMessage> messages = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                messages.add(objectMapper.readValue((String) row, ChatMessage.class));
+            }
+            return messages;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not read Redis history of chat {}", chatId, e);
+            return null;
+        }
+    }
+
+    private void prime(String chatId, String token, List<ChatMessage> loaded) {
+        // Legacy messages without a seq cannot be placed in the set
+        if (loaded.stream().anyMatch(message -> message.getSeq() == null)) {
+            release(chatId, token);
+            return;
+        }
+        List<String> args = new ArrayList<>(4 + loaded.size() * 2);
+        args.add(token);
+        args.add(loaded.size() < maxMessages ? "full" : "partial");
+        args.add(Integer.toString(maxMessages));
+        args.add(Long.toString(ttlMillis));
+        try {
+            for (ChatMessage message : loaded) {
+                args.add(Long.toString(message.getSeq()));
+                args.add(serialize(message));
+            }
+            redisTemplate.execute(PRIME_SCRIPT, List.of(historyKey(chatId), stateKey(chatId)), args.toArray());
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not load Redis history of chat {}", chatId, e);
+            release(chatId, token);
+        }
+    }
+
+    private void runAppender() {
+        List<ChatMessage> batch = new ArrayList<>(APPEND_BATCH);
+        while (running || !pendingAppends.isEmpty()) {
+            try {
+                ChatMessage first = pendingAppends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pendingAppends.drainTo(batch, APPEND_BATCH - 1);
+                flushAppends(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushAppends(List<ChatMessage> batch) {
+        try {
+            List<byte[]> payloads = new ArrayList<>(batch.size());
+            for (ChatMessage message : batch) {
+                payloads.add(serialize(message).getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] max = bytes(maxMessages);
+            byte[] ttl = bytes(ttlMillis);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    appendOne(connection, batch.get(i), payloads.get(i), max, ttl);
+                }
+                return null;
+            });
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not append {} messages to Redis history", batch.size(), e);
+            batch.stream().map(ChatMessage::getChatId).distinct().forEach(this::invalidate);
+        }
+    }
+
+    private void appendOne(RedisConnection connection, ChatMessage message, byte[] payload, byte[] max, byte[] ttl) {
+        // Only patched messages carry a version; see HotHistoryCache for how two copies are ordered
+        if (message.getVersion() != null || message.getReactionsVersion() != null) {
+            connection.scriptingCommands().eval(PATCH_SCRIPT, ReturnType.INTEGER, 2,
+                    historyKey(message.getChatId()).getBytes(StandardCharsets.UTF_8),
+                    stateKey(message.getChatId()).getBytes(StandardCharsets.UTF_8),
+                    bytes(message.getSeq()), payload, bytes(stamp(message.getVersion())),
+                    bytes(stamp(message.getReactionsVersion())));
+            return;
+        }
+        connection.scriptingCommands().eval(APPEND_SCRIPT, ReturnType.INTEGER, 2,
+                historyKey(message.getChatId()).getBytes(StandardCharsets.UTF_8),
+                stateKey(message.getChatId()).getBytes(StandardCharsets.UTF_8),
+                bytes(message.getSeq()), payload, max, ttl);
+    }
+
+    // Same fields as a history page from Mongo
+    private String serialize(ChatMessage message) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(ChatMessage.builder()
+                .id(message.getId())
+                .senderId(message.getSenderId())
+                .recipientId(message.getRecipientId())
+                .content(message.getContent())
+                .timestamp(message.getTimestamp())
+                .seq(message.getSeq())
+                .attachmentIds(message.getAttachmentIds())
+                .version(message.getVersion())
+                .editedAt(message.getEditedAt())
+                .deletedAt(message.getDeletedAt())
+                .reactions(message.getReactions())
+                .reactionsVersion(message.getReactionsVersion())
+                .build());
+    }
+
+    private static long stamp(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static byte[] bytes(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String historyKey(String chatId) {
+        return KEY_PREFIX + chatId;
+    }
+
+    private static String stateKey(String chatId) {
+        return KEY_PREFIX + chatId + STATE_SUFFIX;
+    }
+}
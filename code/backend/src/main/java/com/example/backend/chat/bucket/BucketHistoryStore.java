@@ -0,0 +1,382 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.HotHistoryCache;
+import com.example.backend.chat.MessageCursor;
+import com.example.backend.chat.MessagePatch;
+import com.example.backend.chat.ReactionChange;
+import com.example.backend.chat.codec.CompressContentCallback;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Packs each chat's messages into {@link MessageBucket}s of up to {@code capacity} messages.
+ * A batch costs one {@code $push} upsert per chat into any bucket with room, and a history page
+ * reads the one or two buckets covering it instead of one scattered document per message.
+ * Messages with a clientMessageId first take a {@link MessageClaim}, one bulk insert per batch.
+ */
+@Component
+@ConditionalOnProperty(name = "app.chat.storage.layout", havingValue = "bucket")
+public class BucketHistoryStore implements ChatHistoryStore {
+
+    private static final Comparator<ChatMessage> SEQ_ORDER = Comparator.comparing(ChatMessage::getSeq);
+    // Sorts after any hex ObjectId, so a probe at a bucket's last timestamp covers all its messages
+    private static final String MAX_ID = "\uffff";
+    // Buckets are large, so history reads pull them in small batches
+    private static final int READ_BATCH = 4;
+
+    private final MongoTemplate mongoTemplate;
+    private final CompressContentCallback compressor;
+    private final int capacity;
+    private final int streamBatchSize;
+
+    public BucketHistoryStore(MongoTemplate mongoTemplate,
+                              CompressContentCallback compressor,
+                              @Value("${app.chat.storage.bucket-capacity:200}") int capacity,
+                              @Value("${app.chat.storage.stream-batch-size:16}") int streamBatchSize,
+                              @Value("${app.chat.journal.enabled:false}") boolean journalEnabled) {
+        if (journalEnabled) {
+            // The journal replays into one document per message
+            throw new IllegalStateException("app.chat.journal.enabled cannot be combined with app.chat.storage.layout=bucket");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.compressor = compressor;
+        this.capacity = capacity;
+        this.streamBatchSize = streamBatchSize;
+    }
+
+    @Override
+    public Set<Integer> insert(List<ChatMessage> messages) {
+        Set<Integer> failed = new HashSet<>(claim(messages));
+        Map<String, List<Integer>> byChat = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (!failed.contains(i)) {
+                byChat.computeIfAbsent(messages.get(i).getChatId(), chatId -> new ArrayList<>()).add(i);
+            }
+        }
+        if (byChat.isEmpty()) {
+            return failed;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageBucket.class);
+        // Message indexes behind each upsert, to map failed operations back to messages
+        List<List<Integer>> operations = new ArrayList<>();
+        byChat.forEach((chatId, indexes) -> {
+            for (int from = 0; from < indexes.size(); from += capacity) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + capacity, indexes.size()));
+                bulk.upsert(bucketWithRoom(chatId, chunk.size()), append(chunk.stream().map(messages::get).toList()));
+                operations.add(chunk);
+            }
+        });
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            Set<Integer> notPushed = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                notPushed.addAll(operations.get(error.getIndex()));
+            }
+            release(messages, notPushed);
+            failed.addAll(notPushed);
+        } catch (RuntimeException e) {
+            release(messages, byChat.values().stream().flatMap(List::stream).collect(Collectors.toSet()));
+            throw e;
+        }
+        return failed;
+    }
+
+    // Indexes of the messages whose clientMessageId is claimed already, or could not be claimed
+    private Set<Integer> claim(List<ChatMessage> messages) {
+        List<Integer> claiming = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i).getClientMessageId() != null) {
+                claiming.add(i);
+            }
+        }
+        if (claiming.isEmpty()) {
+            return Set.of();
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageClaim.class);
+        claiming.forEach(i -> bulk.insert(MessageClaim.of(messages.get(i))));
+        try {
+            bulk.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .map(error -> claiming.get(error.getIndex()))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    // Frees the claims of messages that were not stored, so that their resend is not refused
+    private void release(List<ChatMessage> messages, Set<Integer> indexes) {
+        List<String> ids = indexes.stream()
+                .map(messages::get)
+                .filter(message -> message.getClientMessageId() != null)
+                .map(ChatMessage::getId)
+                .toList();
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), MessageClaim.class);
+        }
+    }
+
+    @Override
+    public List<ChatMessage> findLatest(String chatId, int limit) {
+        Query query = Query.query(Criteria.where("chatId").is(chatId))
+                .with(Sort.by(Sort.Direction.DESC, "lastTimestamp"));
+        return read(query, HotHistoryCache.HISTORY_ORDER.reversed(), BucketHistoryStore::lastProbe,
+                message -> true, limit);
+    }
+
+    @Override
+    public List<ChatMessage> findBefore(String chatId, MessageCursor cursor, int limit) {
+        ChatMessage probe = probe(cursor.getTimestamp(), cursor.getId());
+        Query query = Query.query(Criteria.where("chatId").is(chatId).and("firstTimestamp").lte(cursor.getTimestamp()))
+                .with(Sort.by(Sort.Direction.DESC, "lastTimestamp"));
+        return read(query, HotHistoryCache.HISTORY_ORDER.reversed(), BucketHistoryStore::lastProbe,
+                message -> HotHistoryCache.HISTORY_ORDER.compare(message, probe) < 0, limit);
+    }
+
+    @Override
+    public List<ChatMessage> findAfter(String chatId, MessageCursor cursor, int limit) {
+        ChatMessage probe = probe(cursor.getTimestamp(), cursor.getId());
+        Query query = Query.query(Criteria.where("chatId").is(chatId).and("lastTimestamp").gte(cursor.getTimestamp()))
+                .with(Sort.by("firstTimestamp"));
+        return read(query, HotHistoryCache.HISTORY_ORDER, BucketHistoryStore::firstProbe,
+                message -> HotHistoryCache.HISTORY_ORDER.compare(message, probe) > 0, limit);
+    }
+
+    @Override
+    public List<ChatMessage> findAfterSeq(String chatId, long seq, int limit) {
+        return read(seqQuery(chatId, seq), SEQ_ORDER, BucketHistoryStore::seqProbe, afterSeq(seq), limit);
+    }
+
+    @Override
+    public long lastSeq(String chatId) {
+        Query query = Query.query(Criteria.where("chatId").is(chatId).and("maxSeq").ne(null))
+                .with(Sort.by(Sort.Direction.DESC, "maxSeq"));
+        query.fields().include("maxSeq");
+        MessageBucket bucket = mongoTemplate.findOne(query, MessageBucket.class);
+        return bucket == null ? 0 : bucket.getMaxSeq();
+    }
+
+    @Override
+    public List<ChatMessage> findAllById(Collection<String> ids) {
+        Set<String> wanted = new HashSet<>(ids);
+        List<ChatMessage> found = new ArrayList<>();
+        for (MessageBucket bucket : mongoTemplate.find(Query.query(Criteria.where("messages._id").in(wanted)), MessageBucket.class)) {
+            for (ChatMessage message : bucket.getMessages()) {
+                if (wanted.contains(message.getId())) {
+                    message.setChatId(bucket.getChatId());
+                    found.add(message);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<ChatMessage> findByClientMessageId(String senderId, String clientMessageId) {
+        Query query = Query.query(Criteria.where("messages").elemMatch(
+                Criteria.where("senderId").is(senderId).and("clientMessageId").is(clientMessageId)));
+        MessageBucket bucket = mongoTemplate.findOne(query, MessageBucket.class);
+        if (bucket == null) {
+            return Optional.empty();
+        }
+        return bucket.getMessages().stream()
+                .filter(message -> senderId.equals(message.getSenderId())
+                        && clientMessageId.equals(message.getClientMessageId()))
+                .findFirst()
+                .map(message -> {
+                    message.setChatId(bucket.getChatId());
+                    return message;
+                });
+    }
+
+    @Override
+    public Optional<ChatMessage> applyPatch(MessagePatch patch) {
+        // The positional operator patches the element the $elemMatch guard matched
+        Query query = Query.query(Criteria.where("messages").elemMatch(Criteria.where("_id").is(patch.getMessageId())
+                .and("senderId").is(patch.getSenderId())
+                .and("version").is(patch.previousVersion())
+                .and("deletedAt").is(null)));
+        MessageBucket bucket = mongoTemplate.findAndModify(query, patch.update("messages.$."),
+                FindAndModifyOptions.options().returnNew(true), MessageBucket.class);
+        return messageOf(bucket, patch.getMessageId());
+    }
+
+    @Override
+    public Optional<ChatMessage> react(ReactionChange change) {
+        MessageBucket bucket = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("messages").elemMatch(change.guard())), change.update("messages.$."),
+                FindAndModifyOptions.options().returnNew(true), MessageBucket.class);
+        Optional<ChatMessage> updated = messageOf(bucket, change.getMessageId());
+        if (updated.isPresent() && change.emptied(updated.get())) {
+            MessageBucket cleaned = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("messages").elemMatch(change.emptiedGuard())), change.cleanup("messages.$."),
+                    FindAndModifyOptions.options().returnNew(true), MessageBucket.class);
+            // Empty when someone reacted with the emoji again in between
+            Optional<ChatMessage> after = messageOf(cleaned, change.getMessageId());
+            if (after.isPresent()) {
+                return after;
+            }
+        }
+        return updated;
+    }
+
+    private static Optional<ChatMessage> messageOf(MessageBucket bucket, String messageId) {
+        if (bucket == null) {
+            return Optional.empty();
+        }
+        return bucket.getMessages().stream()
+                .filter(message -> messageId.equals(message.getId()))
+                .findFirst()
+                .map(message -> {
+                    message.setChatId(bucket.getChatId());
+                    return message;
+                });
+    }
+
+    @Override
+    public Stream<ChatMessage> streamChat(String chatId, Long afterSeq, Date since) {
+        if (afterSeq != null) {
+            return merged(seqQuery(chatId, afterSeq), SEQ_ORDER, BucketHistoryStore::seqProbe, afterSeq(afterSeq),
+                    streamBatchSize);
+        }
+        Criteria criteria = Criteria.where("chatId").is(chatId);
+        if (since != null) {
+            criteria = criteria.and("lastTimestamp").gte(since);
+        }
+        Query query = Query.query(criteria).with(Sort.by("firstTimestamp"));
+        Predicate<ChatMessage> filter = since == null
+                ? message -> true
+                : message -> message.getTimestamp() != null && !message.getTimestamp().before(since);
+        return merged(query, HotHistoryCache.HISTORY_ORDER, BucketHistoryStore::firstProbe, filter, streamBatchSize);
+    }
+
+    @Override
+    public Stream<ChatMessage> streamAll() {
+        Query query = new Query().cursorBatchSize(streamBatchSize);
+        Stream<MessageBucket> buckets = mongoTemplate.stream(query, MessageBucket.class);
+        return buckets.flatMap(bucket -> bucket.getMessages().stream()
+                .map(message -> {
+                    message.setChatId(bucket.getChatId());
+                    return message;
+                }));
+    }
+
+    private Query bucketWithRoom(String chatId, int incoming) {
+        return Query.query(Criteria.where("chatId").is(chatId).and("count").lte(capacity - incoming));
+    }
+
+    // The upsert creates the bucket when no bucket of the chat has room
+    private Update append(List<ChatMessage> chunk) {
+        List<ChatMessage> stored = chunk.stream()
+                .map(message -> slim(compressor.onBeforeConvert(message, "messageBucket")))
+                .toList();
+        Update update = new Update()
+                .push("messages").each(stored.toArray())
+                .inc("count", stored.size());
+        stored.stream().map(ChatMessage::getTimestamp).filter(Objects::nonNull).min(Date::compareTo)
+                .ifPresent(first -> update.min("firstTimestamp", first));
+        stored.stream().map(ChatMessage::getTimestamp).filter(Objects::nonNull).max(Date::compareTo)
+                .ifPresent(last -> update.max("lastTimestamp", last));
+        stored.stream().map(ChatMessage::getSeq).filter(Objects::nonNull).min(Long::compareTo)
+                .ifPresent(min -> update.min("minSeq", min));
+        stored.stream().map(ChatMessage::getSeq).filter(Objects::nonNull).max(Long::compareTo)
+                .ifPresent(max -> update.max("maxSeq", max));
+        return update;
+    }
+
+    private Query seqQuery(String chatId, long seq) {
+        return Query.query(Criteria.where("chatId").is(chatId).and("maxSeq").gt(seq))
+                .with(Sort.by("minSeq"));
+    }
+
+    private static Predicate<ChatMessage> afterSeq(long seq) {
+        return message -> message.getSeq() != null && message.getSeq() > seq;
+    }
+
+    private List<ChatMessage> read(Query query, Comparator<ChatMessage> order,
+                                   Function<MessageBucket, ChatMessage> lead,
+                                   Predicate<ChatMessage> filter, int limit) {
+        try (Stream<ChatMessage> messages = merged(query, order, lead, filter, READ_BATCH)) {
+            return messages.limit(limit).toList();
+        }
+    }
+
+    private Stream<ChatMessage> merged(Query query, Comparator<ChatMessage> order,
+                                       Function<MessageBucket, ChatMessage> lead,
+                                       Predicate<ChatMessage> filter, int batchSize) {
+        Stream<MessageBucket> buckets = mongoTemplate.stream(query.cursorBatchSize(batchSize), MessageBucket.class);
+        Iterator<ChatMessage> iterator = new BucketMergeIterator(buckets.iterator(), order, lead, filter);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(buckets::close);
+    }
+
+    static ChatMessage slim(ChatMessage message) {
+        return ChatMessage.builder()
+                .id(message.getId())
+                .senderId(message.getSenderId())
+                .recipientId(message.getRecipientId())
+                .content(message.getContentCodec() == null ? message.getContent() : null)
+                .timestamp(message.getTimestamp())
+                .seq(message.getSeq())
+                .clientMessageId(message.getClientMessageId())
+                .attachmentIds(message.getAttachmentIds())
+                .version(message.getVersion())
+                .editedAt(message.getEditedAt())
+                .deletedAt(message.getDeletedAt())
+                .reactions(message.getReactions())
+                .reactors(message.getReactors())
+                .reactionsVersion(message.getReactionsVersion())
+                .contentCodec(message.getContentCodec())
+                .compressedContent(message.getCompressedContent())
+                .build();
+    }
+
+    private static ChatMessage probe(Date timestamp, String id) {
+        return ChatMessage.builder().timestamp(timestamp).id(id).build();
+    }
+
+    private static ChatMessage lastProbe(MessageBucket bucket) {
+        return probe(bucket.getLastTimestamp(), MAX_ID);
+    }
+
+    private static ChatMessage firstProbe(MessageBucket bucket) {
+        return probe(bucket.getFirstTimestamp(), "");
+    }
+
+    private static ChatMessage seqProbe(MessageBucket bucket) {
+        return ChatMessage.builder().seq(bucket.getMinSeq()).build();
+    }
+}
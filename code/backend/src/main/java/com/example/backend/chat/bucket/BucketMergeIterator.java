@@ -0,0 +1,65 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatMessage;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Yields the messages of a sequence of buckets in {@code order}, even where bucket ranges overlap.
+ * Buckets must arrive sorted by their lead, the first message they could yield in that order. A
+ * buffered message is only released once it sorts before the next bucket's lead, so at most the
+ * overlapping buckets are held in memory.
+ */
+class BucketMergeIterator implements Iterator<ChatMessage> {
+
+    private final Iterator<MessageBucket> buckets;
+    private final Comparator<ChatMessage> order;
+    private final Function<MessageBucket, ChatMessage> lead;
+    private final Predicate<ChatMessage> filter;
+    private final PriorityQueue<ChatMessage> buffer;
+    private MessageBucket next;
+
+    BucketMergeIterator(Iterator<MessageBucket> buckets,
+                        Comparator<ChatMessage> order,
+                        Function<MessageBucket, ChatMessage> lead,
+                        Predicate<ChatMessage> filter) {
+        this.buckets = buckets;
+        this.order = order;
+        this.lead = lead;
+        this.filter = filter;
+        this.buffer = new PriorityQueue<>(order);
+        this.next = buckets.hasNext() ? buckets.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (true) {
+            if (!buffer.isEmpty() && (next == null || order.compare(buffer.peek(), lead.apply(next)) < 0)) {
+                return true;
+            }
+            if (next == null) {
+                return false;
+            }
+            for (ChatMessage message : next.getMessages()) {
+                if (filter.test(message)) {
+                    message.setChatId(next.getChatId());
+                    buffer.add(message);
+                }
+            }
+            next = buckets.hasNext() ? buckets.next() : null;
+        }
+    }
+
+    @Override
+    public ChatMessage next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.poll();
+    }
+}
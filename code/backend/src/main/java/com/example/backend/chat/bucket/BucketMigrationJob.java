@@ -0,0 +1,123 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds the buckets of every chat from the per-message collection, streaming it in chat and
+ * timestamp order so only one bucket is held at a time. Run it while the document layout is still
+ * live, then switch {@code app.chat.storage.layout} to {@code bucket}; a chat's existing buckets are
+ * replaced, so running it again before the switch picks up messages written in the meantime.
+ * Each bucket's clientMessageIds are claimed too, so resends of migrated messages stay deduplicated.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.chat.storage.bucket-migration.enabled", havingValue = "true")
+public class BucketMigrationJob implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.chat.storage.layout:document}")
+    private String layout;
+
+    @Value("${app.chat.storage.bucket-capacity:200}")
+    private int capacity;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if ("bucket".equals(layout)) {
+            // Buckets are live, replacing them would drop messages only they hold
+            log.error("Bucket migration skipped: it must run while app.chat.storage.layout=document");
+            return;
+        }
+        Thread thread = new Thread(this::migrate, "bucket-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void migrate() {
+        Query query = new Query().with(Sort.by("chatId", "timestamp", "_id")).cursorBatchSize(1000);
+        long messages = 0;
+        long chats = 0;
+        String chatId = null;
+        List<ChatMessage> pending = new ArrayList<>(capacity);
+        try (Stream<ChatMessage> stream = mongoTemplate.stream(query, ChatMessage.class)) {
+            Iterator<ChatMessage> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                ChatMessage message = iterator.next();
+                if (!message.getChatId().equals(chatId)) {
+                    flush(chatId, pending);
+                    chatId = message.getChatId();
+                    mongoTemplate.remove(Query.query(Criteria.where("chatId").is(chatId)), MessageBucket.class);
+                    chats++;
+                }
+                pending.add(BucketHistoryStore.slim(message));
+                if (pending.size() == capacity) {
+                    flush(chatId, pending);
+                }
+                messages++;
+            }
+            flush(chatId, pending);
+            log.info("Migrated {} messages of {} chats into buckets", messages, chats);
+        } catch (RuntimeException e) {
+            log.error("Bucket migration stopped after {} messages", messages, e);
+        }
+    }
+
+    private void flush(String chatId, List<ChatMessage> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        claim(pending);
+        mongoTemplate.insert(bucket(chatId, pending));
+        pending.clear();
+    }
+
+    // Upserts, so a rerun finds the claims of the previous run in place
+    private void claim(List<ChatMessage> messages) {
+        List<ChatMessage> claiming = messages.stream().filter(message -> message.getClientMessageId() != null).toList();
+        if (claiming.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageClaim.class);
+        for (ChatMessage message : claiming) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(message.getId())), new Update()
+                    .setOnInsert("senderId", message.getSenderId())
+                    .setOnInsert("clientMessageId", message.getClientMessageId()));
+        }
+        bulk.execute();
+    }
+
+    static MessageBucket bucket(String chatId, List<ChatMessage> messages) {
+        List<Long> seqs = messages.stream().map(ChatMessage::getSeq).filter(Objects::nonNull).toList();
+        return MessageBucket.builder()
+                .chatId(chatId)
+                .count(messages.size())
+                // The stream is in timestamp order, so the ends of the list are the bounds
+                .firstTimestamp(messages.get(0).getTimestamp())
+                .lastTimestamp(messages.get(messages.size() - 1).getTimestamp())
+                .minSeq(seqs.stream().min(Long::compareTo).orElse(null))
+                .maxSeq(seqs.stream().max(Long::compareTo).orElse(null))
+                .messages(new ArrayList<>(messages))
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Up to {@code app.chat.storage.bucket-capacity} messages of one chat in a single document. The
+ * bounds are kept up to date by every append, so range reads pick buckets without unpacking them.
+ * Concurrent appends can open buckets whose ranges overlap; readers merge across them.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document
+@CompoundIndex(name = "chat_last_timestamp", def = "{'chatId': 1, 'lastTimestamp': -1}")
+@CompoundIndex(name = "chat_first_timestamp", def = "{'chatId': 1, 'firstTimestamp': 1}")
+@CompoundIndex(name = "chat_min_seq", def = "{'chatId': 1, 'minSeq': 1}")
+@CompoundIndex(name = "chat_max_seq", def = "{'chatId': 1, 'maxSeq': -1}")
+// Looks up search hits by message id
+@CompoundIndex(name = "message_id", def = "{'messages._id': 1}")
+// Finds retried submissions; not unique, as a unique multikey index cannot see duplicates inside one
+// bucket. MessageClaim enforces uniqueness instead.
+@CompoundIndex(name = "message_client_id", def = "{'messages.senderId': 1, 'messages.clientMessageId': 1}", sparse = true)
+public class MessageBucket {
+    @Id
+    private String id;
+    private String chatId;
+    private int count;
+    private Date firstTimestamp;
+    private Date lastTimestamp;
+    private Long minSeq;
+    private Long maxSeq;
+    // Stored without chatId, in append order
+    private List<ChatMessage> messages;
+}
@@ -0,0 +1,33 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A sender's clientMessageId, claimed for one bucketed message before it is pushed. A unique
+ * multikey index on the buckets cannot see two copies inside one bucket, so the uniqueness the
+ * document layout gets from its index is enforced on these one-per-message documents instead.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document
+@CompoundIndex(name = "sender_client_message_id", def = "{'senderId': 1, 'clientMessageId': 1}", unique = true)
+public class MessageClaim {
+    // The id of the message holding the claim
+    @Id
+    private String messageId;
+    private String senderId;
+    private String clientMessageId;
+
+    static MessageClaim of(ChatMessage message) {
+        return new MessageClaim(message.getId(), message.getSenderId(), message.getClientMessageId());
+    }
+}
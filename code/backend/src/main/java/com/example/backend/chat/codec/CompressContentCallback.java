@@ -0,0 +1,76 @@
+package com.example.backend.chat.codec;
+
+import com.example.backend.chat.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compresses large message bodies on their way into Mongo. Runs for every write of a
+ * {@link ChatMessage}, including the bulk inserts and journal replays, and hands Mongo a
+ * compressed copy so the caller's message keeps its plain content.
+ */
+@Component
+public class CompressContentCallback implements BeforeConvertCallback<ChatMessage> {
+
+    private final ContentCodec codec;
+    private final int minBytes;
+    private final double maxRatio;
+    private final Counter compressed;
+    private final DistributionSummary savedBytes;
+
+    public CompressContentCallback(MeterRegistry meterRegistry,
+                                   @Value("${app.chat.compression.codec:DEFLATE_DICT_V1}") ContentCodec codec,
+                                   @Value("${app.chat.compression.min-bytes:1024}") int minBytes,
+                                   @Value("${app.chat.compression.max-ratio:0.9}") double maxRatio) {
+        this.codec = codec;
+        this.minBytes = minBytes;
+        this.maxRatio = maxRatio;
+        this.compressed = Counter.builder("chat.compression.messages").register(meterRegistry);
+        this.savedBytes = DistributionSummary.builder("chat.compression.saved.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ChatMessage onBeforeConvert(ChatMessage message, String collection) {
+        String content = message.getContent();
+        if (message.getContentCodec() != null || content == null || content.length() < minBytes / 4) {
+            return message;
+        }
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        if (plain.length < minBytes) {
+            return message;
+        }
+        byte[] encoded = codec.encode(content);
+        // Incompressible bodies, e.g. pasted base64, are not worth a decode on every read
+        if (encoded.length > plain.length * maxRatio) {
+            return message;
+        }
+        compressed.increment();
+        savedBytes.record(plain.length - encoded.length);
+        return ChatMessage.builder()
+                .id(message.getId())
+                .chatId(message.getChatId())
+                .senderId(message.getSenderId())
+                .recipientId(message.getRecipientId())
+                .timestamp(message.getTimestamp())
+                .seq(message.getSeq())
+                .clientMessageId(message.getClientMessageId())
+                .attachmentIds(message.getAttachmentIds())
+                .version(message.getVersion())
+                .editedAt(message.getEditedAt())
+                .deletedAt(message.getDeletedAt())
+                .reactions(message.getReactions())
+                .reactors(message.getReactors())
+                .reactionsVersion(message.getReactionsVersion())
+                .contentCodec(codec)
+                .compressedContent(encoded)
+                .build();
+    }
+}
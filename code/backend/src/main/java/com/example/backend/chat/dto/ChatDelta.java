@@ -0,0 +1,23 @@
+package com.example.backend.chat.dto;
+
+import com.example.backend.chat.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatDelta {
+    private String peerId;
+    // Ordered by seq with no gaps after the requested position
+    private List<ChatMessage> messages;
+    // Position to send next time; unchanged when nothing new arrived
+    private long lastSeq;
+    // Whether to ask again straight away for the rest of the gap
+    private boolean hasMore;
+}
@@ -0,0 +1,29 @@
+package com.example.backend.chat.dto;
+
+import com.example.backend.chat.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessagePage {
+    // Oldest first, ready to render
+    private List<ChatMessage> messages;
+    // Pass as "before" to load older messages, null when the page is empty
+    private String beforeCursor;
+    // Pass as "after" to load newer messages, null when the page is empty
+    private String afterCursor;
+    // Whether more messages exist in the direction that was paged
+    private boolean hasMore;
+
+    public static ChatMessagePage empty() {
+        return new ChatMessagePage(new ArrayList<>(), null, null, false);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.backend.chat.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSyncRequest {
+    @NotBlank(message = "User id is required")
+    private String userId;
+
+    // Peer id -> last sequence number the client has for that conversation
+    @NotNull(message = "Sync positions are required")
+    private Map<String, Long> since;
+
+    // Maximum messages returned per conversation
+    private Integer limit;
+}
@@ -0,0 +1,19 @@
+package com.example.backend.chat.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EditMessageRequest {
+    @NotBlank(message = "Content is required")
+    private String content;
+
+    // Version the client last saw; when given, a newer stored version is a conflict
+    private Long version;
+}
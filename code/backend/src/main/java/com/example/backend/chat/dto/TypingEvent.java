@@ -0,0 +1,17 @@
+package com.example.backend.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TypingEvent {
+    private String senderId;
+    private String recipientId;
+    // true while the sender is typing, false once they stopped or cleared the input
+    private boolean typing;
+}
@@ -0,0 +1,12 @@
+package com.example.backend.chat.enums;
+
+public enum NotificationType {
+    // Image previews for the message's attachmentIds can now be fetched
+    PREVIEWS_READY,
+    // The message's content was replaced
+    EDITED,
+    // The message is now a tombstone without content or attachments
+    DELETED,
+    // Someone added or removed a reaction on the message
+    REACTION
+}
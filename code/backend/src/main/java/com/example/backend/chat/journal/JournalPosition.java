@@ -0,0 +1,27 @@
+package com.example.backend.chat.journal;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Byte position in the journal: a segment number and an offset inside that segment.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class JournalPosition implements Comparable<JournalPosition> {
+    private final long segment;
+    private final int offset;
+
+    public JournalPosition(long segment, int offset) {
+        this.segment = segment;
+        this.offset = offset;
+    }
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.backend.chat.journal;
+
+import com.example.backend.chat.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class JournalReadResult {
+    private final List<ChatMessage> messages;
+    // Where the next read should start; checkpoint this once the messages are stored
+    private final JournalPosition next;
+}
@@ -0,0 +1,244 @@
+package com.example.backend.chat.journal;
+
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatMessageWriter;
+import com.example.backend.shared.exceptions.MessageWriteRejectedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Journal durability mode: a message is acknowledged as soon as it is appended to the local
+ * {@link MessageJournal}, and a background replayer copies journal entries into Mongo and
+ * checkpoints its progress. Anything past the checkpoint is replayed again after a restart,
+ * so replays are idempotent upserts keyed by the pre-assigned message id.
+ *
+ * <p>A replay cannot take back an ack, so a resent clientMessageId is refused before the append:
+ * against the entries still waiting for replay, kept in memory, and against Mongo.
+ *
+ * <p>History reads may briefly lag behind delivery while the replayer catches up.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.chat.journal.enabled", havingValue = "true")
+public class JournalingMessageWriter implements ChatMessageWriter {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long MAX_BACKOFF_MS = 5000;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MessageJournal journal;
+    private final MongoTemplate mongoTemplate;
+    private final ChatHistoryStore historyStore;
+    private final int replayBatchSize;
+    private final Counter replayed;
+    private final Counter dropped;
+    private final Timer replayLatency;
+
+    // Acked but not replayed yet, by message id and by (senderId, clientMessageId)
+    private final Map<String, ChatMessage> pending = new ConcurrentHashMap<>();
+    private final Map<ClientKey, ChatMessage> pendingByClientId = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread replayer;
+
+    public JournalingMessageWriter(MongoTemplate mongoTemplate,
+                                   ChatHistoryStore historyStore,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.chat.journal.directory:./data/journal}") Path directory,
+                                   @Value("${app.chat.journal.segment-size-bytes:67108864}") int segmentSize,
+                                   @Value("${app.chat.journal.force-writes:false}") boolean forceWrites,
+                                   @Value("${app.chat.journal.replay-batch-size:500}") int replayBatchSize) throws IOException {
+        this.journal = new MessageJournal(directory, segmentSize, forceWrites, objectMapper);
+        this.mongoTemplate = mongoTemplate;
+        this.historyStore = historyStore;
+        this.replayBatchSize = replayBatchSize;
+        this.replayed = Counter.builder("chat.journal.replayed")
+                .description("Journal entries copied into Mongo")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("chat.journal.dropped")
+                .description("Acked journal entries the unique index refused on replay")
+                .register(meterRegistry);
+        this.replayLatency = Timer.builder("chat.journal.replay.latency")
+                .description("Time to store one replayed batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // Entries past the checkpoint were acked before the restart and still count as pending
+        JournalReadResult batch = journal.read(journal.readCheckpoint(), replayBatchSize);
+        while (!batch.getMessages().isEmpty()) {
+            batch.getMessages().forEach(this::track);
+            batch = journal.read(batch.getNext(), replayBatchSize);
+        }
+        running = true;
+        replayer = new Thread(this::runReplayer, "chat-journal-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(replayer);
+        replayer.join(TimeUnit.SECONDS.toMillis(10));
+        journal.close();
+    }
+
+    @Override
+    public CompletableFuture<ChatMessage> submit(ChatMessage message) {
+        // The id must be stable across replays for the upsert to be idempotent
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+        ClientKey key = ClientKey.of(message);
+        if (key != null) {
+            if (pendingByClientId.putIfAbsent(key, message) != null) {
+                return rejected();
+            }
+            if (isStored(key)) {
+                pendingByClientId.remove(key, message);
+                return rejected();
+            }
+        }
+        // Tracked before the append, so the replayer never forgets an entry before it is tracked
+        pending.put(message.getId(), message);
+        try {
+            journal.append(message);
+        } catch (RuntimeException e) {
+            forget(message);
+            return CompletableFuture.failedFuture(e);
+        }
+        LockSupport.unpark(replayer);
+        return CompletableFuture.completedFuture(message);
+    }
+
+    @Override
+    public Optional<ChatMessage> findPending(String senderId, String clientMessageId) {
+        return Optional.ofNullable(pendingByClientId.get(new ClientKey(senderId, clientMessageId)));
+    }
+
+    @Override
+    public long lastPendingSeq(String chatId) {
+        // Only asked when the Redis counter is missing or a sync meets an old gap, so a scan is fine
+        return pending.values().stream()
+                .filter(message -> chatId.equals(message.getChatId()) && message.getSeq() != null)
+                .mapToLong(ChatMessage::getSeq)
+                .max()
+                .orElse(0);
+    }
+
+    private boolean isStored(ClientKey key) {
+        try {
+            return historyStore.findByClientMessageId(key.senderId(), key.clientMessageId()).isPresent();
+        } catch (RuntimeException e) {
+            // Acking without Mongo is the point of the journal; the replay drops a resend that slips through
+            log.warn("Could not check {} for an earlier copy, accepting it", key, e);
+            return false;
+        }
+    }
+
+    private static CompletableFuture<ChatMessage> rejected() {
+        return CompletableFuture.failedFuture(new MessageWriteRejectedException("Message was already submitted"));
+    }
+
+    private void track(ChatMessage message) {
+        pending.put(message.getId(), message);
+        ClientKey key = ClientKey.of(message);
+        if (key != null) {
+            pendingByClientId.putIfAbsent(key, message);
+        }
+    }
+
+    // Replayed entries are read back from disk, so they are matched by id rather than identity
+    private void forget(ChatMessage message) {
+        pending.remove(message.getId());
+        ClientKey key = ClientKey.of(message);
+        if (key != null) {
+            pendingByClientId.computeIfPresent(key,
+                    (k, tracked) -> message.getId().equals(tracked.getId()) ? null : tracked);
+        }
+    }
+
+    private void runReplayer() {
+        JournalPosition position = journal.readCheckpoint();
+        long backoffMs = 100;
+        while (running) {
+            try {
+                JournalReadResult batch = journal.read(position, replayBatchSize);
+                if (batch.getMessages().isEmpty()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                replayLatency.record(() -> store(batch.getMessages()));
+                batch.getMessages().forEach(this::forget);
+                journal.checkpoint(batch.getNext());
+                replayed.increment(batch.getMessages().size());
+                position = batch.getNext();
+                backoffMs = 100;
+            } catch (RuntimeException e) {
+                // Entries stay in the journal; retry the same batch once Mongo recovers
+                log.warn("Journal replay failed at {}, retrying in {} ms", position, backoffMs, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void store(List<ChatMessage> messages) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class);
+        for (ChatMessage message : messages) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(message.getId())), message,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // A resent clientMessageId under a new _id that got past the check in submit, acked by
+            // another node or while Mongo was unreachable: the first copy wins, drop this one.
+            // Anything else fails the batch so that it is retried.
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+            dropped.increment(e.getErrors().size());
+            log.warn("Journal replay dropped resent messages {}", e.getErrors().stream()
+                    .map(error -> messages.get(error.getIndex()).getId())
+                    .toList());
+        }
+    }
+
+    private record ClientKey(String senderId, String clientMessageId) {
+        static ClientKey of(ChatMessage message) {
+            return message.getClientMessageId() == null
+                    ? null
+                    : new ClientKey(message.getSenderId(), message.getClientMessageId());
+        }
+    }
+}
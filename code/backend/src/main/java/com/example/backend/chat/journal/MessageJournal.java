@@ -0,0 +1,261 @@
+package com.example.backend.chat.journal;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.shared.exceptions.MessageWriteRejectedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of chat messages stored in fixed-size memory-mapped segment files.
+ *
+ * <p>Each record is {@code [int length][int crc32][json payload]}. A length of {@code -1}
+ * means the rest of the segment is unused and the log continues in the next segment; a
+ * length of {@code 0} marks the end of written data, since new segments are zero-filled.
+ * The length is written last, so a record torn by a crash fails the scan on recovery and
+ * everything from it onwards is discarded.
+ *
+ * <p>A single writer appends under the instance lock. Readers may run concurrently and only
+ * ever see data up to the published {@link #writePosition()}.
+ */
+@Slf4j
+public class MessageJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int ROLL_MARKER = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceWrites;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+
+    private long activeSegment;
+    private MappedByteBuffer activeBuffer;
+    private volatile JournalPosition writePosition;
+
+    public MessageJournal(Path directory, int segmentSize, boolean forceWrites, ObjectMapper objectMapper) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceWrites = forceWrites;
+        this.objectMapper = objectMapper;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    public synchronized JournalPosition append(ChatMessage message) {
+        byte[] payload = serialize(message);
+        int recordSize = HEADER_BYTES + payload.length;
+        // Always leave room for a roll marker behind the record
+        if (recordSize + 4 > segmentSize) {
+            throw new MessageWriteRejectedException("Message of " + payload.length + " bytes does not fit in a journal segment");
+        }
+        int offset = writePosition.getOffset();
+        if (offset + recordSize + 4 > segmentSize) {
+            activeBuffer.putInt(offset, ROLL_MARKER);
+            force(offset, 4);
+            openSegment(activeSegment + 1);
+            offset = 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        activeBuffer.putInt(offset + 4, (int) crc.getValue());
+        activeBuffer.put(offset + HEADER_BYTES, payload);
+        activeBuffer.putInt(offset, payload.length);
+        force(offset, recordSize);
+
+        writePosition = new JournalPosition(activeSegment, offset + recordSize);
+        return writePosition;
+    }
+
+    public JournalPosition writePosition() {
+        return writePosition;
+    }
+
+    public JournalReadResult read(JournalPosition from, int maxMessages) {
+        JournalPosition end = writePosition;
+        List<ChatMessage> messages = new ArrayList<>();
+        long segment = from.getSegment();
+        int offset = from.getOffset();
+        while (messages.size() < maxMessages && new JournalPosition(segment, offset).compareTo(end) < 0) {
+            ByteBuffer buffer = segmentBuffer(segment);
+            int length = offset + 4 <= segmentSize ? buffer.getInt(offset) : ROLL_MARKER;
+            if (length == ROLL_MARKER) {
+                segment++;
+                offset = 0;
+                continue;
+            }
+            messages.add(readRecord(buffer, segment, offset, length));
+            offset += HEADER_BYTES + length;
+        }
+        return new JournalReadResult(messages, new JournalPosition(segment, offset));
+    }
+
+    public JournalPosition readCheckpoint() {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return new JournalPosition(firstSegment(), 0);
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            return new JournalPosition(buffer.getLong(), buffer.getInt());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records that everything before {@code position} is stored elsewhere and drops segments
+     * that are no longer needed.
+     */
+    public void checkpoint(JournalPosition position) {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(12).putLong(position.getSegment()).putInt(position.getOffset());
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (long segment : listSegments()) {
+                if (segment < position.getSegment()) {
+                    segments.remove(segment);
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        activeBuffer.force();
+        segments.clear();
+    }
+
+    private void recover() throws IOException {
+        List<Long> existing = listSegments();
+        if (existing.isEmpty()) {
+            openSegment(0);
+            return;
+        }
+        long last = existing.get(existing.size() - 1);
+        openSegment(last);
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = activeBuffer.getInt(offset);
+            if (length == ROLL_MARKER) {
+                openSegment(last + 1);
+                return;
+            }
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentSize || !checksumMatches(activeBuffer, offset, length)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        // Wipe a torn tail so a later, shorter record can never be followed by stale bytes
+        for (int i = offset; i < segmentSize; i++) {
+            activeBuffer.put(i, (byte) 0);
+        }
+        writePosition = new JournalPosition(last, offset);
+        log.info("Recovered message journal at {}", writePosition);
+    }
+
+    private void openSegment(long segment) {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segments.put(segment, buffer);
+            activeSegment = segment;
+            activeBuffer = buffer;
+            writePosition = new JournalPosition(segment, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer segmentBuffer(long segment) {
+        return segments.computeIfAbsent(segment, id -> {
+            try (FileChannel channel = FileChannel.open(segmentPath(id), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ChatMessage readRecord(ByteBuffer buffer, long segment, int offset, int length) {
+        if (length <= 0 || !checksumMatches(buffer, offset, length)) {
+            throw new IllegalStateException("Corrupt journal record at segment " + segment + " offset " + offset);
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_BYTES, payload);
+        try {
+            return objectMapper.readValue(payload, ChatMessage.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean checksumMatches(ByteBuffer buffer, int offset, int length) {
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return buffer.getInt(offset + 4) == (int) crc.getValue();
+    }
+
+    private byte[] serialize(ChatMessage message) {
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void force(int offset, int length) {
+        if (forceWrites) {
+            activeBuffer.force(offset, length);
+        }
+    }
+
+    private long firstSegment() {
+        List<Long> existing = listSegments();
+        return existing.isEmpty() ? activeSegment : existing.get(0);
+    }
+
+    private List<Long> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+}
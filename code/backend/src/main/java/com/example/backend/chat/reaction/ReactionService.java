@@ -0,0 +1,92 @@
+package com.example.backend.chat.reaction;
+
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.HotHistoryCache;
+import com.example.backend.chat.ReactionChange;
+import com.example.backend.chat.RedisHistoryCache;
+import com.example.backend.shared.exceptions.InvalidReactionException;
+import com.example.backend.shared.exceptions.MessageNotFoundException;
+import com.example.backend.shared.exceptions.MessageVersionConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Emoji reactions kept on the message itself: a counter per emoji next to the set of users behind
+ * it. History pages read the counters with the messages, so showing reactions costs no extra query,
+ * and a change is one atomic update followed by an in-place patch of the cached copies.
+ */
+@Service
+public class ReactionService {
+
+    private final ChatHistoryStore historyStore;
+    private final HotHistoryCache hotHistory;
+    private final RedisHistoryCache redisHistory;
+    private final int maxEmojiLength;
+    private final int maxKinds;
+    private final Counter applied;
+    private final Counter repeated;
+
+    public ReactionService(ChatHistoryStore historyStore,
+                           HotHistoryCache hotHistory,
+                           RedisHistoryCache redisHistory,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.chat.reactions.max-emoji-length:16}") int maxEmojiLength,
+                           @Value("${app.chat.reactions.max-kinds:20}") int maxKinds) {
+        this.historyStore = historyStore;
+        this.hotHistory = hotHistory;
+        this.redisHistory = redisHistory;
+        this.maxEmojiLength = maxEmojiLength;
+        this.maxKinds = maxKinds;
+        this.applied = Counter.builder("chat.reactions.changes").tag("result", "applied").register(meterRegistry);
+        this.repeated = Counter.builder("chat.reactions.changes").tag("result", "repeated").register(meterRegistry);
+    }
+
+    /**
+     * Adds or removes userId's emoji on a message of the chat. Returns the updated message, or
+     * empty if the user had already reacted that way and nothing changed.
+     */
+    public Optional<ChatMessage> react(String chatId, String messageId, String userId, String emoji, boolean add) {
+        validate(emoji);
+        ChatMessage current = historyStore.findAllById(List.of(messageId)).stream()
+                .filter(message -> chatId.equals(message.getChatId()))
+                .findFirst()
+                .orElseThrow(() -> new MessageNotFoundException("Message not found"));
+        if (current.getDeletedAt() != null) {
+            throw new MessageVersionConflictException("Message was deleted");
+        }
+        // Bounds the document; checked against the copy just read, so a race can overshoot slightly
+        if (add && current.getReactions() != null && !current.getReactions().containsKey(emoji)
+                && current.getReactions().size() >= maxKinds) {
+            throw new InvalidReactionException("A message can have at most " + maxKinds + " different reactions");
+        }
+        ReactionChange change = ReactionChange.builder()
+                .messageId(messageId)
+                .userId(userId)
+                .emoji(emoji)
+                .add(add)
+                .build();
+        Optional<ChatMessage> updated = historyStore.react(change);
+        if (updated.isEmpty()) {
+            repeated.increment();
+            return Optional.empty();
+        }
+        applied.increment();
+        hotHistory.patch(updated.get());
+        redisHistory.patch(updated.get());
+        return updated;
+    }
+
+    // The emoji becomes a field name in Mongo, so path and operator characters are refused
+    private void validate(String emoji) {
+        if (emoji == null || emoji.isBlank() || emoji.length() > maxEmojiLength
+                || emoji.contains(".") || emoji.contains("$")) {
+            throw new InvalidReactionException("Invalid reaction");
+        }
+    }
+}
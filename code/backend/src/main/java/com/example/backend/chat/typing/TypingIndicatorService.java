@@ -0,0 +1,145 @@
+package com.example.backend.chat.typing;
+
+import com.example.backend.chat.dto.TypingEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Typing indicators kept purely in memory. Clients may report every keystroke; per (sender, recipient)
+ * pair only the transitions between typing and stopped are forwarded, at most one per {@code windowMs}.
+ * A transition that arrives inside the window is held and sent by the ticker once the window is over,
+ * so the recipient always ends up on the latest state. A sender that goes quiet for {@code expiryMs}
+ * is treated as stopped, and idle pairs are dropped from memory.
+ */
+@Slf4j
+@Service
+public class TypingIndicatorService {
+
+    private static final String DESTINATION = "/queue/typing";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long windowMs;
+    private final long expiryMs;
+    private final LongSupplier clock;
+    private final Map<PairKey, PairState> pairs = new ConcurrentHashMap<>();
+    private final Counter received;
+    private final Counter forwarded;
+
+    @Autowired
+    public TypingIndicatorService(SimpMessagingTemplate messagingTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.chat.typing.window-ms:1000}") long windowMs,
+                                  @Value("${app.chat.typing.expiry-ms:5000}") long expiryMs) {
+        this(messagingTemplate, meterRegistry, windowMs, expiryMs, System::currentTimeMillis);
+    }
+
+    TypingIndicatorService(SimpMessagingTemplate messagingTemplate, MeterRegistry meterRegistry,
+                           long windowMs, long expiryMs, LongSupplier clock) {
+        this.messagingTemplate = messagingTemplate;
+        this.windowMs = windowMs;
+        this.expiryMs = expiryMs;
+        this.clock = clock;
+        this.received = Counter.builder("chat.typing.received")
+                .description("Typing events sent by clients")
+                .register(meterRegistry);
+        this.forwarded = Counter.builder("chat.typing.forwarded")
+                .description("Typing transitions delivered to recipients")
+                .register(meterRegistry);
+        Gauge.builder("chat.typing.pairs", pairs, Map::size)
+                .description("Sender/recipient pairs with live typing state")
+                .register(meterRegistry);
+    }
+
+    public void onTyping(TypingEvent event) {
+        received.increment();
+        long now = clock.getAsLong();
+        boolean[] send = new boolean[1];
+        // Per-key atomic against the ticker, which may be dropping this pair at the same time
+        pairs.compute(new PairKey(event.getSenderId(), event.getRecipientId()), (key, state) -> {
+            PairState current = state != null ? state : new PairState();
+            current.desired = event.isTyping();
+            if (event.isTyping()) {
+                current.lastActivity = now;
+            }
+            send[0] = current.due(now, windowMs);
+            if (send[0]) {
+                current.markSent(now);
+            }
+            return current;
+        });
+        if (send[0]) {
+            forward(event.getSenderId(), event.getRecipientId(), event.isTyping());
+        }
+    }
+
+    // The message itself tells the recipient the sender stopped, so the pending state is dropped silently
+    public void onMessageSent(String senderId, String recipientId) {
+        pairs.remove(new PairKey(senderId, recipientId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.typing.tick-ms:250}")
+    public void tick() {
+        long now = clock.getAsLong();
+        for (PairKey key : pairs.keySet()) {
+            boolean[] send = new boolean[2];
+            pairs.computeIfPresent(key, (k, state) -> {
+                if (state.desired && now - state.lastActivity >= expiryMs) {
+                    state.desired = false;
+                }
+                if (state.due(now, windowMs)) {
+                    state.markSent(now);
+                    send[0] = true;
+                    send[1] = state.sent;
+                    return state;
+                }
+                // Settled on stopped and out of the window: nothing left to hold back
+                boolean idle = !state.sent && !state.desired && now - state.lastSent >= windowMs;
+                return idle ? null : state;
+            });
+            if (send[0]) {
+                forward(key.senderId(), key.recipientId(), send[1]);
+            }
+        }
+    }
+
+    private void forward(String senderId, String recipientId, boolean typing) {
+        forwarded.increment();
+        try {
+            messagingTemplate.convertAndSendToUser(recipientId, DESTINATION,
+                    TypingEvent.builder().senderId(senderId).recipientId(recipientId).typing(typing).build());
+        } catch (RuntimeException e) {
+            log.debug("Dropped typing indicator from {} to {}", senderId, recipientId, e);
+        }
+    }
+
+    private record PairKey(String senderId, String recipientId) {
+    }
+
+    private static final class PairState {
+        // What the recipient was last told, and what it should be told
+        private boolean sent;
+        private boolean desired;
+        private long lastSent = Long.MIN_VALUE / 2;
+        private long lastActivity;
+
+        boolean due(long now, long windowMs) {
+            return desired != sent && now - lastSent >= windowMs;
+        }
+
+        void markSent(long now) {
+            sent = desired;
+            lastSent = now;
+        }
+    }
+}
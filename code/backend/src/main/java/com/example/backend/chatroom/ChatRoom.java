@@ -5,8 +5,17 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One document per pair of users, keyed by the canonical chat id, so the unique _id index is what
+ * makes concurrent creation idempotent. Rooms created before that are two documents, one per
+ * direction, with senderId and recipientId set and a generated id.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -15,7 +24,13 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class ChatRoom {
     @Id
     private String id;
+    @Indexed
     private String chatId;
+    // Both user ids in sorted order; finds a user's chats
+    @Indexed
+    private List<String> participants;
+    // Legacy rooms only
     private String senderId;
     private String recipientId;
+    private Date createdAt;
 }
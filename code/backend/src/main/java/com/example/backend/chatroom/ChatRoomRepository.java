@@ -1,9 +1,12 @@
 package com.example.backend.chatroom;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
-import java.util.Optional;
+import java.util.List;
 
 public interface ChatRoomRepository extends MongoRepository<ChatRoom, String> {
-    Optional<ChatRoom> findBySenderIdAndRecipientId(String senderId, String recipientId);
+    // Current rooms list the user as a participant, legacy rooms have one document per direction
+    @Query("{ '$or': [ { 'participants': ?0 }, { 'senderId': ?0 } ] }")
+    List<ChatRoom> findByParticipant(String userId);
 }
@@ -1,56 +1,139 @@
 package com.example.backend.chatroom;
 
-
-import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
+import com.example.backend.shared.bloom.ExistenceFilter;
+import com.example.backend.shared.bloom.ExistenceFilters;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+/**
+ * Resolves the chat id of a pair of users. The id is derived from the two user ids in sorted order,
+ * so both directions agree without asking Mongo; the room document is upserted under that id the
+ * first time this node sends in the chat, and remembered so later sends skip the write too.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class ChatRoomService {
 
-    private final ChatRoomRepository chatRoomRepository;
-    @Cacheable(value = "chatRoom", key = "#senderId + '-' + #recipientId + '-' + #createNewRoomIfNotExists")
-    public Optional<String> getChatRoomId(
-            String senderId,
-            String recipientId,
-            boolean createNewRoomIfNotExists
-    ) {
-        return chatRoomRepository
-                .findBySenderIdAndRecipientId(senderId, recipientId)
-                .map(ChatRoom::getChatId)
-                .or(() -> {
-                    if(createNewRoomIfNotExists) {
-                        var chatId = createChatId(senderId, recipientId);
-                        return Optional.of(chatId);
-                    }
-
-                    return  Optional.empty();
-                });
-    }
-
-    private String createChatId(String senderId, String recipientId) {
-        var chatId = String.format("%s_%s", senderId, recipientId);
-
-        ChatRoom senderRecipient = ChatRoom
-                .builder()
-                .chatId(chatId)
-                .senderId(senderId)
-                .recipientId(recipientId)
-                .build();
-
-        ChatRoom recipientSender = ChatRoom
-                .builder()
-                .chatId(chatId)
-                .senderId(recipientId)
-                .recipientId(senderId)
-                .build();
-
-        chatRoomRepository.save(senderRecipient);
-        chatRoomRepository.save(recipientSender);
-
-        return chatId;
+    private final MongoTemplate mongoTemplate;
+    private final ExistenceFilters existenceFilters;
+    private final int maxKnownRooms;
+
+    // Canonical id -> chat id of every legacy room; differs from the key when the first sender sorts
+    // last. Loaded once: no new legacy rooms are ever created, so every node holds the same map.
+    private final Map<String, String> legacyChatIds = new ConcurrentHashMap<>();
+    // Access-ordered, so the least recently used room is dropped first
+    private final LinkedHashMap<String, Boolean> knownRooms = new LinkedHashMap<>(16, 0.75f, true);
+    // Every stored chat id; a room it rules out is answered without asking Mongo
+    private ExistenceFilter roomFilter;
+
+    public ChatRoomService(MongoTemplate mongoTemplate,
+                           ExistenceFilters existenceFilters,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.chatroom.known-rooms-max:100000}") int maxKnownRooms) {
+        this.mongoTemplate = mongoTemplate;
+        this.existenceFilters = existenceFilters;
+        this.maxKnownRooms = maxKnownRooms;
+        Gauge.builder("chatroom.known", this, ChatRoomService::knownRoomCount).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void loadLegacyRooms() {
+        Query query = Query.query(Criteria.where("senderId").exists(true));
+        query.fields().include("chatId", "senderId", "recipientId");
+        try (Stream<ChatRoom> rooms = mongoTemplate.stream(query, ChatRoom.class)) {
+            rooms.forEach(room -> {
+                legacyChatIds.put(canonicalChatId(room.getSenderId(), room.getRecipientId()), room.getChatId());
+            });
+        }
+        log.info("Loaded {} legacy chat ids", legacyChatIds.size());
+        roomFilter = existenceFilters.register("chatRooms", this::streamChatIds);
+    }
+
+    private Stream<String> streamChatIds() {
+        Query query = new Query();
+        query.fields().include("chatId");
+        return mongoTemplate.stream(query, ChatRoom.class).map(ChatRoom::getChatId).filter(Objects::nonNull);
+    }
+
+    // Same for both orders of the pair
+    public static String canonicalChatId(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) <= 0
+                ? String.format("%s_%s", userId, otherUserId)
+                : String.format("%s_%s", otherUserId, userId);
+    }
+
+    // Computed in memory; says nothing about whether the room exists
+    public String chatIdOf(String senderId, String recipientId) {
+        String canonical = canonicalChatId(senderId, recipientId);
+        return legacyChatIds.getOrDefault(canonical, canonical);
+    }
+
+    public Optional<String> getChatRoomId(String senderId, String recipientId, boolean createNewRoomIfNotExists) {
+        String canonical = canonicalChatId(senderId, recipientId);
+        String legacyChatId = legacyChatIds.get(canonical);
+        if (legacyChatId != null) {
+            return Optional.of(legacyChatId);
+        }
+        String chatId = canonical;
+        if (isKnown(chatId)) {
+            return Optional.of(chatId);
+        }
+        if (createNewRoomIfNotExists) {
+            create(chatId, senderId, recipientId);
+        } else if (!roomFilter.mightContain(chatId)
+                || !mongoTemplate.exists(Query.query(Criteria.where("chatId").is(chatId)), ChatRoom.class)) {
+            return Optional.empty();
+        }
+        remember(chatId);
+        return Optional.of(chatId);
+    }
+
+    private void create(String chatId, String senderId, String recipientId) {
+        List<String> participants = senderId.compareTo(recipientId) <= 0
+                ? List.of(senderId, recipientId)
+                : List.of(recipientId, senderId);
+        Update update = new Update()
+                .setOnInsert("chatId", chatId)
+                .setOnInsert("participants", participants)
+                .setOnInsert("createdAt", new Date());
+        try {
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(chatId)), update, ChatRoom.class);
+        } catch (DuplicateKeyException e) {
+            // Both users sent first at the same moment; the other upsert created the room
+        }
+        roomFilter.add(chatId);
+    }
+
+    private synchronized boolean isKnown(String chatId) {
+        return knownRooms.get(chatId) != null;
+    }
+
+    private synchronized void remember(String chatId) {
+        knownRooms.put(chatId, Boolean.TRUE);
+        if (knownRooms.size() > maxKnownRooms) {
+            knownRooms.remove(knownRooms.keySet().iterator().next());
+        }
+    }
+
+    public synchronized int knownRoomCount() {
+        return knownRooms.size();
     }
 }
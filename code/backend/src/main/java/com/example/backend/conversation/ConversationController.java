@@ -0,0 +1,24 @@
+package com.example.backend.conversation;
+
+import com.example.backend.conversation.dto.ConversationPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+@Controller
+@RequiredArgsConstructor
+public class ConversationController {
+
+    private final ConversationService conversationService;
+
+    // The user's direct chats, most recently active first, with last message preview and unread badge
+    @GetMapping("/conversations/{userId}")
+    public ResponseEntity<ConversationPage> findConversations(@PathVariable String userId,
+                                                              @RequestParam(required = false) String before,
+                                                              @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(conversationService.findConversations(userId, before, limit));
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.backend.conversation;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.MessageCursor;
+import com.example.backend.conversation.dto.ConversationPage;
+import com.example.backend.conversation.dto.ConversationSummary;
+import com.example.backend.unread.UnreadCounterService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each user's direct conversations, most recently active first, kept in Redis as the messages
+ * are stored: a sorted set of peers scored by last message time, and a hash of peer to a summary
+ * of that last message. A page is one script call that also picks up the unread badges, so the
+ * list costs one round trip however many conversations it shows. Group rooms are not listed here;
+ * keeping them would mean a write per member for every group message.
+ */
+@Slf4j
+@Service
+public class ConversationService {
+
+    private static final String KEY_PREFIX = "conversations:";
+    private static final String LAST_SUFFIX = ":last";
+    private static final int UPDATE_BATCH = 256;
+
+    // KEYS: sender's set and hash, then recipient's; ARGV: timestamp, senderId, recipientId, summary.
+    // An older message arriving late does not replace a newer one.
+    private static final String TOUCH_SCRIPT = """
+            local function touch(set, last, peer)
+                local current = redis.call('zscore', set, peer)
+                if current and tonumber(current) > tonumber(ARGV[1]) then return end
+                redis.call('zadd', set, ARGV[1], peer)
+                redis.call('hset', last, peer, ARGV[4])
+            end
+            touch(KEYS[1], KEYS[2], ARGV[3])
+            touch(KEYS[3], KEYS[4], ARGV[2])
+            return 1
+            """;
+
+    // KEYS: set, summaries, unread counts; ARGV: max score, last peer already returned at that
+    // score (or ''), count. Equal scores come in reverse peer order, so those at or above the
+    // cursor's peer were on the previous page. Returns flat (peer, score, summary, unread) rows.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PAGE_SCRIPT = new DefaultRedisScript<>("""
+            local skip = 0
+            if ARGV[2] ~= '' then
+                for _, peer in ipairs(redis.call('zrevrangebyscore', KEYS[1], ARGV[1], ARGV[1])) do
+                    if peer >= ARGV[2] then skip = skip + 1 end
+                end
+            end
+            local rows = redis.call('zrevrangebyscore', KEYS[1], ARGV[1], '-inf', 'WITHSCORES', 'LIMIT', skip, tonumber(ARGV[3]))
+            local result = {}
+            if #rows == 0 then return result end
+            local peers = {}
+            for i = 1, #rows, 2 do peers[#peers + 1] = rows[i] end
+            local summaries = redis.call('hmget', KEYS[2], unpack(peers))
+            local unread = redis.call('hmget', KEYS[3], unpack(peers))
+            for i, peer in ipairs(peers) do
+                result[#result + 1] = peer
+                result[#result + 1] = rows[i * 2]
+                result[#result + 1] = summaries[i] or ''
+                result[#result + 1] = unread[i] or '0'
+            end
+            return result
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final UnreadCounterService unreadCounters;
+    private final ObjectMapper compactMapper;
+    private final int previewLength;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final BlockingQueue<ChatMessage> pendingUpdates;
+    private final Counter droppedUpdates;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public ConversationService(StringRedisTemplate redisTemplate,
+                               UnreadCounterService unreadCounters,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.conversations.preview-length:100}") int previewLength,
+                               @Value("${app.conversations.default-page-size:30}") int defaultPageSize,
+                               @Value("${app.conversations.max-page-size:100}") int maxPageSize,
+                               @Value("${app.conversations.queue-capacity:10000}") int queueCapacity) {
+        this.redisTemplate = redisTemplate;
+        this.unreadCounters = unreadCounters;
+        // The peer is the hash field and unread comes from the badges, so neither is stored
+        this.compactMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.previewLength = previewLength;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.pendingUpdates = new ArrayBlockingQueue<>(queueCapacity);
+        this.droppedUpdates = Counter.builder("conversations.updates.dropped")
+                .description("Stored messages that did not reach the conversation lists")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "conversation-list-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Queues a stored direct message for both participants' lists.
+     */
+    public void record(ChatMessage saved) {
+        if (!pendingUpdates.offer(saved)) {
+            // The list catches up with the next message in the conversation
+            droppedUpdates.increment();
+        }
+    }
+
+    public ConversationPage findConversations(String userId, String before, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        String maxScore = "+inf";
+        String afterPeer = "";
+        if (before != null) {
+            MessageCursor cursor = MessageCursor.decode(before);
+            maxScore = Long.toString(cursor.getTimestamp().getTime());
+            afterPeer = cursor.getId();
+        }
+        // One row more than the page tells whether there is a next page
+        List<?> rows = redisTemplate.execute(PAGE_SCRIPT,
+                List.of(setKey(userId), lastKey(userId), UnreadCounterService.key(userId)),
+                maxScore, afterPeer, Integer.toString(pageSize + 1));
+        if (rows == null || rows.isEmpty()) {
+            return ConversationPage.empty();
+        }
+
+        Map<String, Long> unflushed = unreadCounters.unflushed(userId);
+        List<ConversationSummary> conversations = new ArrayList<>();
+        for (int i = 0; i + 3 < rows.size() && conversations.size() < pageSize; i += 4) {
+            String peerId = (String) rows.get(i);
+            long unread = Long.parseLong((String) rows.get(i + 3)) + unflushed.getOrDefault(peerId, 0L);
+            ConversationSummary summary = parse((String) rows.get(i + 2));
+            summary.setPeerId(peerId);
+            summary.setUnread(Math.max(0, unread));
+            // The score is what the cursor pages by
+            summary.setLastTimestamp(new Date((long) Double.parseDouble((String) rows.get(i + 1))));
+            conversations.add(summary);
+        }
+        String nextCursor = null;
+        if (rows.size() > pageSize * 4) {
+            ConversationSummary last = conversations.get(conversations.size() - 1);
+            nextCursor = new MessageCursor(last.getLastTimestamp(), last.getPeerId()).encode();
+        }
+        return new ConversationPage(conversations, nextCursor);
+    }
+
+    private ConversationSummary parse(String json) {
+        if (json.isEmpty()) {
+            return new ConversationSummary();
+        }
+        try {
+            return compactMapper.readValue(json, ConversationSummary.class);
+        } catch (IOException e) {
+            log.warn("Unreadable conversation summary {}", json, e);
+            return new ConversationSummary();
+        }
+    }
+
+    private void runWriter() {
+        List<ChatMessage> batch = new ArrayList<>(UPDATE_BATCH);
+        while (running || !pendingUpdates.isEmpty()) {
+            try {
+                ChatMessage first = pendingUpdates.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pendingUpdates.drainTo(batch, UPDATE_BATCH - 1);
+                flushUpdates(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void flushUpdates(List<ChatMessage> batch) {
+        try {
+            List<byte[]> summaries = new ArrayList<>(batch.size());
+            for (ChatMessage message : batch) {
+                summaries.add(compactMapper.writeValueAsBytes(summary(message)));
+            }
+            byte[] script = TOUCH_SCRIPT.getBytes(StandardCharsets.UTF_8);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    ChatMessage message = batch.get(i);
+                    connection.scriptingCommands().eval(script, ReturnType.INTEGER, 4,
+                            bytes(setKey(message.getSenderId())),
+                            bytes(lastKey(message.getSenderId())),
+                            bytes(setKey(message.getRecipientId())),
+                            bytes(lastKey(message.getRecipientId())),
+                            bytes(Long.toString(message.getTimestamp().getTime())),
+                            bytes(message.getSenderId()),
+                            bytes(message.getRecipientId()),
+                            summaries.get(i));
+                }
+                return null;
+            });
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not update conversation lists for {} messages", batch.size(), e);
+            droppedUpdates.increment(batch.size());
+        }
+    }
+
+    private ConversationSummary summary(ChatMessage message) {
+        return ConversationSummary.builder()
+                .chatId(message.getChatId())
+                .lastMessageId(message.getId())
+                .lastSenderId(message.getSenderId())
+                .preview(preview(message.getContent()))
+                .lastTimestamp(message.getTimestamp())
+                .lastSeq(message.getSeq())
+                .build();
+    }
+
+    private String preview(String content) {
+        if (content == null || content.length() <= previewLength) {
+            return content;
+        }
+        int end = previewLength;
+        // Never split a surrogate pair
+        if (Character.isHighSurrogate(content.charAt(end - 1))) {
+            end--;
+        }
+        return content.substring(0, end);
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private static String setKey(String userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String lastKey(String userId) {
+        return KEY_PREFIX + userId + LAST_SUFFIX;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.backend.conversation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationPage {
+    // Most recently active first
+    private List<ConversationSummary> conversations;
+    // Pass as "before" to load the next page, null when there is none
+    private String nextCursor;
+
+    public static ConversationPage empty() {
+        return new ConversationPage(new ArrayList<>(), null);
+    }
+}
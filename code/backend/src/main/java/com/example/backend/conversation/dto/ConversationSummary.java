@@ -0,0 +1,24 @@
+package com.example.backend.conversation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ConversationSummary {
+    private String peerId;
+    private String chatId;
+    private String lastMessageId;
+    private String lastSenderId;
+    // First characters of the last message, see app.conversations.preview-length
+    private String preview;
+    private Date lastTimestamp;
+    private Long lastSeq;
+    private long unread;
+}
@@ -0,0 +1,77 @@
+package com.example.backend.group;
+
+import com.example.backend.attachment.AttachmentService;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatMessageService;
+import com.example.backend.chat.dto.ChatMessagePage;
+import com.example.backend.chat.dto.EditMessageRequest;
+import com.example.backend.chat.enums.NotificationType;
+import com.example.backend.chat.reaction.ReactionService;
+import com.example.backend.shared.exceptions.NotGroupMemberException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@RequiredArgsConstructor
+public class GroupChatService {
+
+    private final GroupRoomService groupRoomService;
+    private final GroupMembershipService membershipService;
+    private final GroupFanoutService fanoutService;
+    private final ChatMessageService chatMessageService;
+    private final AttachmentService attachmentService;
+    private final ReactionService reactionService;
+
+    // The message's recipientId names the room; the room id doubles as its chat id
+    public CompletableFuture<ChatMessage> send(ChatMessage chatMessage) {
+        GroupRoom room = groupRoomService.findRoom(chatMessage.getRecipientId());
+        if (!membershipService.isMember(room.getId(), chatMessage.getSenderId())) {
+            throw new NotGroupMemberException("Sender is not a member of this group");
+        }
+        // Unread badges are not kept per member: that would be a write per member per message
+        return chatMessageService.append(room.getId(), chatMessage)
+                .thenApply(saved -> {
+                    fanoutService.deliver(room, saved);
+                    if (saved.getAttachmentIds() != null && !saved.getAttachmentIds().isEmpty()) {
+                        attachmentService.previewsReady(saved.getAttachmentIds())
+                                .thenAccept(ready -> {
+                                    if (!ready.isEmpty()) {
+                                        fanoutService.deliverPreviews(room, saved, ready);
+                                    }
+                                });
+                    }
+                    return saved;
+                });
+    }
+
+    public ChatMessage edit(String roomId, String messageId, String senderId, EditMessageRequest request) {
+        GroupRoom room = groupRoomService.findRoom(roomId);
+        ChatMessage patched = chatMessageService.edit(room.getId(), messageId, senderId, request);
+        fanoutService.deliverChange(room, patched, NotificationType.EDITED);
+        return patched;
+    }
+
+    public ChatMessage delete(String roomId, String messageId, String senderId, Long version) {
+        GroupRoom room = groupRoomService.findRoom(roomId);
+        ChatMessage patched = chatMessageService.delete(room.getId(), messageId, senderId, version);
+        fanoutService.deliverChange(room, patched, NotificationType.DELETED);
+        return patched;
+    }
+
+    public Optional<ChatMessage> react(String roomId, String messageId, String userId, String emoji, boolean add) {
+        GroupRoom room = groupRoomService.findRoom(roomId);
+        if (!membershipService.isMember(room.getId(), userId)) {
+            throw new NotGroupMemberException("User is not a member of this group");
+        }
+        Optional<ChatMessage> updated = reactionService.react(room.getId(), messageId, userId, emoji, add);
+        updated.ifPresent(message -> fanoutService.deliverReaction(room, message, userId, emoji, add));
+        return updated;
+    }
+
+    public ChatMessagePage findMessages(String roomId, String before, String after, Integer limit) {
+        return chatMessageService.findByChatId(groupRoomService.findRoom(roomId).getId(), before, after, limit);
+    }
+}
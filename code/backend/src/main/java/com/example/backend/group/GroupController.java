@@ -0,0 +1,116 @@
+package com.example.backend.group;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.dto.ChatMessagePage;
+import com.example.backend.chat.dto.EditMessageRequest;
+import com.example.backend.group.dto.CreateGroupRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.security.Principal;
+import java.util.List;
+
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class GroupController {
+
+    private final GroupRoomService groupRoomService;
+    private final GroupMembershipService membershipService;
+    private final GroupChatService groupChatService;
+
+    // recipientId carries the room id; delivery mode follows the room's broadcast flag
+    @MessageMapping("/group.chat")
+    public void processGroupMessage(@Payload ChatMessage chatMessage) {
+        groupChatService.send(chatMessage)
+                .exceptionally(ex -> {
+                    log.error("Failed to persist group message from {} to room {}",
+                            chatMessage.getSenderId(), chatMessage.getRecipientId(), ex);
+                    return null;
+                });
+    }
+
+    @PostMapping("/groups")
+    public ResponseEntity<GroupRoom> createGroup(@Valid @RequestBody CreateGroupRequest request) {
+        return ResponseEntity.ok(groupRoomService.create(request));
+    }
+
+    // Clients subscribe to /topic/rooms/{roomId} when broadcast is set, else rely on their own queue
+    @GetMapping("/groups/{roomId}")
+    public ResponseEntity<GroupRoom> findGroup(@PathVariable String roomId) {
+        return ResponseEntity.ok(groupRoomService.findRoom(roomId));
+    }
+
+    @GetMapping("/groups/user/{userId}")
+    public ResponseEntity<List<String>> findGroupsOfUser(@PathVariable String userId) {
+        return ResponseEntity.ok(membershipService.roomsOf(userId));
+    }
+
+    @PostMapping("/groups/{roomId}/members/{userId}")
+    public ResponseEntity<GroupRoom> addMember(@PathVariable String roomId, @PathVariable String userId) {
+        return ResponseEntity.ok(groupRoomService.addMember(roomId, userId));
+    }
+
+    @DeleteMapping("/groups/{roomId}/members/{userId}")
+    public ResponseEntity<GroupRoom> removeMember(@PathVariable String roomId, @PathVariable String userId) {
+        return ResponseEntity.ok(groupRoomService.removeMember(roomId, userId));
+    }
+
+    @GetMapping("/groups/{roomId}/messages")
+    public ResponseEntity<ChatMessagePage> findGroupMessages(@PathVariable String roomId,
+                                                             @RequestParam(required = false) String before,
+                                                             @RequestParam(required = false) String after,
+                                                             @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(groupChatService.findMessages(roomId, before, after, limit));
+    }
+
+    // Changes are made as the authenticated user, and only the original sender may edit or delete;
+    // other members get an EDITED or DELETED update
+    @PutMapping("/groups/{roomId}/messages/{messageId}")
+    public ResponseEntity<ChatMessage> editGroupMessage(@PathVariable String roomId,
+                                                        @PathVariable String messageId,
+                                                        @Valid @RequestBody EditMessageRequest request,
+                                                        Principal principal) {
+        return ResponseEntity.ok(groupChatService.edit(roomId, messageId, principal.getName(), request));
+    }
+
+    @DeleteMapping("/groups/{roomId}/messages/{messageId}")
+    public ResponseEntity<ChatMessage> deleteGroupMessage(@PathVariable String roomId,
+                                                          @PathVariable String messageId,
+                                                          @RequestParam(required = false) Long version,
+                                                          Principal principal) {
+        return ResponseEntity.ok(groupChatService.delete(roomId, messageId, principal.getName(), version));
+    }
+
+    @PutMapping("/groups/{roomId}/messages/{messageId}/reactions/{emoji}")
+    public ResponseEntity<ChatMessage> addGroupReaction(@PathVariable String roomId,
+                                                        @PathVariable String messageId,
+                                                        @PathVariable String emoji,
+                                                        Principal principal) {
+        return groupChatService.react(roomId, messageId, principal.getName(), emoji, true)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @DeleteMapping("/groups/{roomId}/messages/{messageId}/reactions/{emoji}")
+    public ResponseEntity<ChatMessage> removeGroupReaction(@PathVariable String roomId,
+                                                           @PathVariable String messageId,
+                                                           @PathVariable String emoji,
+                                                           Principal principal) {
+        return groupChatService.react(roomId, messageId, principal.getName(), emoji, false)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.backend.group;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatNotification;
+import com.example.backend.chat.enums.NotificationType;
+import com.example.backend.inbox.OfflineInbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Delivers a saved group message. Small rooms keep per-user delivery to each member's
+ * {@code /queue/messages}, so clients see one inbox and offline members find it in their
+ * {@link OfflineInbox}. Broadcast rooms publish once to {@code /topic/rooms/{roomId}} and the
+ * broker hands that one message to every subscriber, instead of the server resolving and
+ * converting one send per member; members who were away catch up from room history.
+ */
+@Service
+public class GroupFanoutService {
+
+    public static final String TOPIC_PREFIX = "/topic/rooms/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GroupMembershipService membershipService;
+    private final OfflineInbox offlineInbox;
+    private final Timer topicFanout;
+    private final Timer queueFanout;
+
+    public GroupFanoutService(SimpMessagingTemplate messagingTemplate,
+                              GroupMembershipService membershipService,
+                              OfflineInbox offlineInbox,
+                              MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.membershipService = membershipService;
+        this.offlineInbox = offlineInbox;
+        this.topicFanout = fanoutTimer(meterRegistry, "topic");
+        this.queueFanout = fanoutTimer(meterRegistry, "queue");
+    }
+
+    public void deliver(GroupRoom room, ChatMessage saved) {
+        deliver(room, saved.getSenderId(), notification(room, saved).build());
+    }
+
+    public void deliverPreviews(GroupRoom room, ChatMessage saved, List<String> attachmentIds) {
+        deliver(room, saved.getSenderId(), notification(room, saved)
+                .content(null)
+                .attachmentIds(attachmentIds)
+                .type(NotificationType.PREVIEWS_READY)
+                .build());
+    }
+
+    // EDITED or DELETED; the sender already has the patched message from the request
+    public void deliverChange(GroupRoom room, ChatMessage patched, NotificationType type) {
+        deliver(room, patched.getSenderId(), notification(room, patched)
+                .type(type)
+                .version(patched.getVersion())
+                .build());
+    }
+
+    // Members apply the delta to their copy; the reactor already has the updated message
+    public void deliverReaction(GroupRoom room, ChatMessage updated, String userId, String emoji, boolean add) {
+        deliver(room, userId, notification(room, updated)
+                .content(null)
+                .attachmentIds(null)
+                .type(NotificationType.REACTION)
+                .reaction(emoji)
+                .reactorId(userId)
+                .reactionDelta(add ? 1 : -1)
+                .build());
+    }
+
+    private void deliver(GroupRoom room, String senderId, ChatNotification notification) {
+        if (room.isBroadcast()) {
+            topicFanout.record(() -> messagingTemplate.convertAndSend(TOPIC_PREFIX + room.getId(), notification));
+            return;
+        }
+        queueFanout.record(() -> membershipService.members(room.getId()).stream()
+                .filter(memberId -> !memberId.equals(senderId))
+                .forEach(memberId -> offlineInbox.deliver(memberId, notification)));
+    }
+
+    private static ChatNotification.ChatNotificationBuilder notification(GroupRoom room, ChatMessage saved) {
+        return ChatNotification.builder()
+                .id(saved.getId())
+                .senderId(saved.getSenderId())
+                .recipientId(room.getId())
+                .roomId(room.getId())
+                .content(saved.getContent())
+                .seq(saved.getSeq())
+                .attachmentIds(saved.getAttachmentIds());
+    }
+
+    private static Timer fanoutTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("chat.group.fanout")
+                .description("Time to hand one group message to the broker")
+                .tag("mode", mode)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
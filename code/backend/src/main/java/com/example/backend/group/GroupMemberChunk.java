@@ -0,0 +1,32 @@
+package com.example.backend.group;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Up to {@code app.group.member-chunk-size} member ids of one room in a single document: a room
+ * of tens of thousands of members is a few dozen small documents rather than one per membership
+ * or one array past the document size limit.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document
+@CompoundIndex(name = "room_count", def = "{'roomId': 1, 'count': 1}")
+// Membership checks and the rooms of one user
+@CompoundIndex(name = "member_room", def = "{'memberIds': 1, 'roomId': 1}")
+public class GroupMemberChunk {
+    @Id
+    private String id;
+    private String roomId;
+    private int count;
+    private List<String> memberIds;
+}
@@ -0,0 +1,69 @@
+package com.example.backend.group;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chunked membership storage. Adding a member is one {@code $push} upsert into any chunk of the
+ * room with room to spare; removing one is a {@code $pull} from the chunk holding it.
+ */
+@Service
+public class GroupMembershipService {
+
+    private final MongoTemplate mongoTemplate;
+    private final int chunkSize;
+
+    public GroupMembershipService(MongoTemplate mongoTemplate,
+                                  @Value("${app.group.member-chunk-size:1000}") int chunkSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    // False when the user already was a member
+    public boolean add(String roomId, String userId) {
+        if (isMember(roomId, userId)) {
+            return false;
+        }
+        Query query = new Query(Criteria.where("roomId").is(roomId).and("count").lt(chunkSize));
+        Update update = new Update().push("memberIds", userId).inc("count", 1);
+        mongoTemplate.upsert(query, update, GroupMemberChunk.class);
+        return true;
+    }
+
+    // False when the user was not a member
+    public boolean remove(String roomId, String userId) {
+        Query query = new Query(Criteria.where("roomId").is(roomId).and("memberIds").is(userId));
+        Update update = new Update().pull("memberIds", userId).inc("count", -1);
+        return mongoTemplate.updateFirst(query, update, GroupMemberChunk.class).getModifiedCount() > 0;
+    }
+
+    public boolean isMember(String roomId, String userId) {
+        return mongoTemplate.exists(
+                new Query(Criteria.where("memberIds").is(userId).and("roomId").is(roomId)),
+                GroupMemberChunk.class);
+    }
+
+    public List<String> members(String roomId) {
+        Query query = new Query(Criteria.where("roomId").is(roomId));
+        query.fields().include("memberIds");
+        // A concurrent double add can land the same id in two chunks
+        Set<String> members = new LinkedHashSet<>();
+        mongoTemplate.find(query, GroupMemberChunk.class)
+                .forEach(chunk -> members.addAll(chunk.getMemberIds()));
+        return new ArrayList<>(members);
+    }
+
+    public List<String> roomsOf(String userId) {
+        return mongoTemplate.findDistinct(new Query(Criteria.where("memberIds").is(userId)),
+                "roomId", GroupMemberChunk.class, String.class);
+    }
+}
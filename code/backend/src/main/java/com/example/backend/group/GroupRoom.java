@@ -0,0 +1,31 @@
+package com.example.backend.group;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A multi-member room. Members live in {@link GroupMemberChunk}s, so this document stays small
+ * however large the room grows.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document
+public class GroupRoom {
+    @Id
+    private String id;
+    private String name;
+    private String ownerId;
+    private long memberCount;
+    // Set once the room outgrows per-user delivery and never cleared, so clients don't flip
+    // between the topic and their own queue as members come and go around the threshold
+    private boolean broadcast;
+    private Date createdAt;
+}
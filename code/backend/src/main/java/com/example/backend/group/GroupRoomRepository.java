@@ -0,0 +1,6 @@
+package com.example.backend.group;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface GroupRoomRepository extends MongoRepository<GroupRoom, String> {
+}
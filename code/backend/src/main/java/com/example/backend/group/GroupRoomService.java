@@ -0,0 +1,83 @@
+package com.example.backend.group;
+
+import com.example.backend.group.dto.CreateGroupRequest;
+import com.example.backend.shared.exceptions.GroupRoomNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+
+@Service
+public class GroupRoomService {
+
+    private final GroupRoomRepository groupRoomRepository;
+    private final GroupMembershipService membershipService;
+    private final MongoTemplate mongoTemplate;
+    private final long broadcastThreshold;
+
+    public GroupRoomService(GroupRoomRepository groupRoomRepository,
+                            GroupMembershipService membershipService,
+                            MongoTemplate mongoTemplate,
+                            @Value("${app.group.broadcast-threshold:100}") long broadcastThreshold) {
+        this.groupRoomRepository = groupRoomRepository;
+        this.membershipService = membershipService;
+        this.mongoTemplate = mongoTemplate;
+        this.broadcastThreshold = broadcastThreshold;
+    }
+
+    public GroupRoom create(CreateGroupRequest request) {
+        GroupRoom room = groupRoomRepository.save(GroupRoom.builder()
+                .name(request.getName())
+                .ownerId(request.getOwnerId())
+                .createdAt(new Date())
+                .build());
+        addMember(room.getId(), request.getOwnerId());
+        request.getMemberIds().forEach(memberId -> addMember(room.getId(), memberId));
+        return findRoom(room.getId());
+    }
+
+    public GroupRoom findRoom(String roomId) {
+        return groupRoomRepository.findById(roomId)
+                .orElseThrow(() -> new GroupRoomNotFoundException("Group room not found"));
+    }
+
+    public GroupRoom addMember(String roomId, String userId) {
+        if (!groupRoomRepository.existsById(roomId)) {
+            throw new GroupRoomNotFoundException("Group room not found");
+        }
+        if (!membershipService.add(roomId, userId)) {
+            return findRoom(roomId);
+        }
+        GroupRoom room = adjustMemberCount(roomId, 1);
+        if (!room.isBroadcast() && room.getMemberCount() > broadcastThreshold) {
+            mongoTemplate.updateFirst(byId(roomId), new Update().set("broadcast", true), GroupRoom.class);
+            room.setBroadcast(true);
+        }
+        return room;
+    }
+
+    public GroupRoom removeMember(String roomId, String userId) {
+        if (!membershipService.remove(roomId, userId)) {
+            return findRoom(roomId);
+        }
+        return adjustMemberCount(roomId, -1);
+    }
+
+    private GroupRoom adjustMemberCount(String roomId, int delta) {
+        GroupRoom room = mongoTemplate.findAndModify(byId(roomId), new Update().inc("memberCount", delta),
+                FindAndModifyOptions.options().returnNew(true), GroupRoom.class);
+        if (room == null) {
+            throw new GroupRoomNotFoundException("Group room not found");
+        }
+        return room;
+    }
+
+    private static Query byId(String roomId) {
+        return new Query(Criteria.where("_id").is(roomId));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.backend.group.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CreateGroupRequest {
+    @NotBlank
+    private String name;
+    @NotBlank
+    private String ownerId;
+    // Initial members besides the owner
+    @Builder.Default
+    private List<String> memberIds = new ArrayList<>();
+}
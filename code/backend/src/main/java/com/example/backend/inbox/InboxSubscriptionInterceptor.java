@@ -0,0 +1,78 @@
+package com.example.backend.inbox;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Keeps {@link PresenceRegistry} in step with queue subscriptions. It acts after the broker has
+ * handled each frame: a backlog drained any earlier would go out before the subscription exists
+ * and be dropped.
+ */
+@Component
+public class InboxSubscriptionInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String USER_PREFIX = "/user/";
+
+    private final PresenceRegistry presence;
+    // Looked up lazily: the inbox needs the messaging template, which needs this interceptor's config
+    private final ObjectProvider<OfflineInbox> offlineInbox;
+
+    public InboxSubscriptionInterceptor(PresenceRegistry presence, ObjectProvider<OfflineInbox> offlineInbox) {
+        this.presence = presence;
+        this.offlineInbox = offlineInbox;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof AbstractBrokerMessageHandler)) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        SimpMessageType type = accessor.getMessageType();
+        String sessionId = accessor.getSessionId();
+        if (type == null || sessionId == null) {
+            return;
+        }
+        switch (type) {
+            case SUBSCRIBE -> {
+                String userId = queueOwner(accessor.getDestination(), accessor.getUser());
+                if (userId != null && accessor.getSubscriptionId() != null) {
+                    presence.subscribed(userId, sessionId, accessor.getSubscriptionId());
+                    offlineInbox.getObject().requestDrain(userId);
+                }
+            }
+            case UNSUBSCRIBE -> {
+                if (accessor.getSubscriptionId() != null) {
+                    presence.unsubscribed(sessionId, accessor.getSubscriptionId());
+                }
+            }
+            case DISCONNECT -> presence.disconnected(sessionId);
+            default -> {
+            }
+        }
+    }
+
+    // Clients subscribe to /user/{userId}/queue/messages, or /user/queue/messages when authenticated
+    static String queueOwner(String destination, Principal principal) {
+        if (destination == null) {
+            return null;
+        }
+        if (destination.equals("/user" + OfflineInbox.DESTINATION)) {
+            return principal != null ? principal.getName() : null;
+        }
+        if (!destination.startsWith(USER_PREFIX) || !destination.endsWith(OfflineInbox.DESTINATION)) {
+            return null;
+        }
+        String owner = destination.substring(USER_PREFIX.length(), destination.length() - OfflineInbox.DESTINATION.length());
+        return owner.isEmpty() || owner.contains("/") ? null : owner;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.backend.inbox;
+
+import com.example.backend.chat.ChatNotification;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user Redis list of notifications that could not be delivered because the recipient had no
+ * queue subscription on this node. When the user subscribes again the backlog is sent in frames
+ * of up to {@code batchSize} notifications each, as a JSON array on the usual
+ * {@code /user/{userId}/queue/messages}. Appends and drains run in order on one background thread,
+ * so neither the write path nor the inbound channel waits on Redis.
+ */
+@Slf4j
+@Component
+public class OfflineInbox {
+
+    public static final String DESTINATION = "/queue/messages";
+    private static final String KEY_PREFIX = "inbox:";
+    private static final int WORK_BATCH = 256;
+
+    // Pops up to ARGV[1] of the oldest notifications in one round trip
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> POP_SCRIPT = new DefaultRedisScript<>("""
+            local rows = redis.call('lrange', KEYS[1], 0, tonumber(ARGV[1]) - 1)
+            if #rows > 0 then redis.call('ltrim', KEYS[1], #rows, -1) end
+            return rows
+            """, List.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final PresenceRegistry presence;
+    private final ObjectMapper compactMapper;
+    private final int maxMessages;
+    private final long ttlMillis;
+    private final int batchSize;
+    private final BlockingQueue<Work> work;
+    private final Counter stored;
+    private final Counter dropped;
+    private final DistributionSummary drainFrames;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public OfflineInbox(SimpMessagingTemplate messagingTemplate,
+                        StringRedisTemplate redisTemplate,
+                        PresenceRegistry presence,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.inbox.max-messages:1000}") int maxMessages,
+                        @Value("${app.inbox.ttl-days:14}") long ttlDays,
+                        @Value("${app.inbox.drain-batch-size:100}") int batchSize,
+                        @Value("${app.inbox.queue-capacity:10000}") int queueCapacity) {
+        this.messagingTemplate = messagingTemplate;
+        this.redisTemplate = redisTemplate;
+        this.presence = presence;
+        // Stored entries skip null fields; most notifications have no roomId
+        this.compactMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.maxMessages = maxMessages;
+        this.ttlMillis = TimeUnit.DAYS.toMillis(ttlDays);
+        this.batchSize = batchSize;
+        this.work = new ArrayBlockingQueue<>(queueCapacity);
+        this.stored = Counter.builder("inbox.stored").description("Notifications kept for offline users").register(meterRegistry);
+        this.dropped = Counter.builder("inbox.dropped").description("Notifications lost to a full work queue").register(meterRegistry);
+        this.drainFrames = DistributionSummary.builder("inbox.drain.frame.size")
+                .description("Notifications per drained frame")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runWorker, "offline-inbox-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Sends to the user's queue when they are subscribed on this node, else keeps it for later.
+     */
+    public void deliver(String userId, ChatNotification notification) {
+        if (presence.isOnline(userId)) {
+            messagingTemplate.convertAndSendToUser(userId, DESTINATION, notification);
+            return;
+        }
+        enqueue(new Work(userId, notification));
+    }
+
+    // Called once the broker has registered the user's queue subscription
+    public void requestDrain(String userId) {
+        enqueue(new Work(userId, null));
+    }
+
+    private void enqueue(Work item) {
+        if (!work.offer(item)) {
+            // History still has the message; the client picks it up on its next sync
+            dropped.increment();
+            log.warn("Offline inbox queue is full, dropped work for {}", item.userId());
+        }
+    }
+
+    private void runWorker() {
+        List<Work> batch = new ArrayList<>(WORK_BATCH);
+        while (running || !work.isEmpty()) {
+            try {
+                Work first = work.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                work.drainTo(batch, WORK_BATCH - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Offline inbox batch of {} failed", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void process(List<Work> batch) {
+        List<Work> appends = batch.stream().filter(item -> item.notification() != null).toList();
+        if (!appends.isEmpty()) {
+            store(appends);
+        }
+        // Drain everyone who asked, and anyone who came online while their notification was queued
+        Set<String> drains = new LinkedHashSet<>();
+        for (Work item : batch) {
+            if (item.notification() == null || presence.isOnline(item.userId())) {
+                drains.add(item.userId());
+            }
+        }
+        drains.forEach(this::drain);
+    }
+
+    private void store(List<Work> appends) {
+        List<byte[]> rows = new ArrayList<>(appends.size());
+        for (Work item : appends) {
+            try {
+                rows.add(compactMapper.writeValueAsBytes(item.notification()));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize notification", e);
+            }
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisListCommands lists = connection.listCommands();
+            for (int i = 0; i < appends.size(); i++) {
+                byte[] key = key(appends.get(i).userId());
+                lists.rPush(key, rows.get(i));
+                lists.lTrim(key, -maxMessages, -1);
+                connection.keyCommands().pExpire(key, ttlMillis);
+            }
+            return null;
+        });
+        stored.increment(appends.size());
+    }
+
+    private void drain(String userId) {
+        // Stop as soon as the user is gone again, leaving the rest for their next subscription
+        while (presence.isOnline(userId)) {
+            List<?> rows = redisTemplate.execute(POP_SCRIPT, List.of(KEY_PREFIX + userId), Integer.toString(batchSize));
+            if (rows == null || rows.isEmpty()) {
+                return;
+            }
+            List<ChatNotification> frame = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                try {
+                    frame.add(compactMapper.readValue((String) row, ChatNotification.class));
+                } catch (JsonProcessingException e) {
+                    log.warn("Skipping unreadable inbox entry for {}", userId, e);
+                }
+            }
+            drainFrames.record(frame.size());
+            messagingTemplate.convertAndSendToUser(userId, DESTINATION, frame);
+            if (rows.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private static byte[] key(String userId) {
+        return (KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    record Work(String userId, ChatNotification notification) {
+    }
+}
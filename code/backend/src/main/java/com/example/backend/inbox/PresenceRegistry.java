@@ -0,0 +1,55 @@
+package com.example.backend.inbox;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which users hold a live subscription to their message queue on this node. The simple broker
+ * is per node as well, so a user known here is exactly a user this node can deliver to.
+ */
+@Component
+public class PresenceRegistry {
+
+    // userId -> "sessionId/subscriptionId" of each live queue subscription
+    private final Map<String, Set<String>> subscriptionsByUser = new ConcurrentHashMap<>();
+    // sessionId -> subscriptionId -> userId, to undo unsubscribes and disconnects
+    private final Map<String, Map<String, String>> usersBySession = new ConcurrentHashMap<>();
+
+    public void subscribed(String userId, String sessionId, String subscriptionId) {
+        usersBySession.computeIfAbsent(sessionId, s -> new ConcurrentHashMap<>()).put(subscriptionId, userId);
+        subscriptionsByUser.compute(userId, (u, keys) -> {
+            Set<String> live = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            live.add(sessionId + "/" + subscriptionId);
+            return live;
+        });
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = usersBySession.get(sessionId);
+        String userId = subscriptions == null ? null : subscriptions.remove(subscriptionId);
+        if (userId != null) {
+            release(userId, sessionId + "/" + subscriptionId);
+        }
+    }
+
+    public void disconnected(String sessionId) {
+        Map<String, String> subscriptions = usersBySession.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.forEach((subscriptionId, userId) -> release(userId, sessionId + "/" + subscriptionId));
+        }
+    }
+
+    public boolean isOnline(String userId) {
+        return subscriptionsByUser.containsKey(userId);
+    }
+
+    private void release(String userId, String key) {
+        subscriptionsByUser.computeIfPresent(userId, (u, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
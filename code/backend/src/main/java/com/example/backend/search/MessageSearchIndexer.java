@@ -0,0 +1,128 @@
+package com.example.backend.search;
+
+import com.example.backend.chat.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizes saved messages off the write path and appends one small postings segment per
+ * (term, chat) for every batch. Segments are never updated in place, so indexing is a plain
+ * bulk insert; the merger compacts them later and duplicates are harmless to search.
+ */
+@Slf4j
+@Component
+public class MessageSearchIndexer {
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+    private final BlockingQueue<ChatMessage> queue;
+    private final Counter indexed;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public MessageSearchIndexer(MongoTemplate mongoTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.search.index.batch-size:500}") int batchSize,
+                                @Value("${app.search.index.queue-capacity:10000}") int queueCapacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.indexed = Counter.builder("search.index.messages").register(meterRegistry);
+        this.dropped = Counter.builder("search.index.dropped").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "search-indexer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public void index(ChatMessage message) {
+        if (!queue.offer(message)) {
+            // The reindex job picks these up again
+            dropped.increment();
+            log.warn("Search index queue is full, message {} was not indexed", message.getId());
+        }
+    }
+
+    /**
+     * Writes the postings for {@code messages} on the calling thread.
+     */
+    public void indexNow(List<ChatMessage> messages) {
+        List<SearchPosting> postings = toPostings(messages);
+        if (!postings.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SearchPosting.class);
+            bulk.insert(postings);
+            bulk.execute();
+        }
+        indexed.increment(messages.size());
+    }
+
+    static List<SearchPosting> toPostings(List<ChatMessage> messages) {
+        // term -> chatId -> message ids, sorted so each segment is ascending
+        Map<String, Map<String, List<String>>> terms = new TreeMap<>();
+        for (ChatMessage message : messages) {
+            if (message.getId() == null || message.getChatId() == null) {
+                continue;
+            }
+            for (String term : MessageTokenizer.tokenize(message.getContent())) {
+                terms.computeIfAbsent(term, t -> new TreeMap<>())
+                        .computeIfAbsent(message.getChatId(), c -> new ArrayList<>())
+                        .add(message.getId());
+            }
+        }
+        List<SearchPosting> postings = new ArrayList<>();
+        terms.forEach((term, chats) -> chats.forEach((chatId, ids) -> {
+            ids.sort(null);
+            postings.add(SearchPosting.of(term, chatId, ids));
+        }));
+        return postings;
+    }
+
+    private void run() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                indexNow(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Indexing {} messages failed", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
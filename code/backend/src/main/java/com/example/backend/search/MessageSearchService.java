@@ -0,0 +1,208 @@
+package com.example.backend.search;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chatroom.ChatRoom;
+import com.example.backend.chatroom.ChatRoomRepository;
+import com.example.backend.search.dto.SearchResultPage;
+import com.example.backend.shared.exceptions.InvalidSearchQueryException;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.LiteralOperators;
+import org.springframework.data.mongodb.core.aggregation.SetOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+@Service
+@RequiredArgsConstructor
+public class MessageSearchService {
+
+    // Segments hold up to app.search.merge.segment-size ids, so they are fetched a few at a time
+    private static final int SEGMENT_BATCH = 8;
+
+    private final MongoTemplate mongoTemplate;
+    private final ChatRoomRepository chatRoomRepository;
+    private final ChatHistoryStore historyStore;
+
+    @Value("${app.search.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.search.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.search.max-terms:8}")
+    private int maxTerms;
+
+    @Value("${app.search.verify-batch-size:1000}")
+    private int verifyBatchSize;
+
+    /**
+     * Messages in the user's chats containing every term of {@code query}, newest first.
+     * {@code before} is the {@code nextCursor} of the previous page.
+     */
+    public SearchResultPage search(String userId, String query, String before, Integer limit) {
+        List<String> terms = new ArrayList<>(MessageTokenizer.tokenize(query));
+        if (terms.isEmpty()) {
+            throw new InvalidSearchQueryException("Search query has no searchable terms");
+        }
+        if (terms.size() > maxTerms) {
+            throw new InvalidSearchQueryException("Search query has more than " + maxTerms + " terms");
+        }
+        if (before != null && !ObjectId.isValid(before)) {
+            throw new InvalidSearchQueryException("Malformed search cursor");
+        }
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+
+        Set<String> chatIds = chatRoomRepository.findByParticipant(userId).stream()
+                .map(ChatRoom::getChatId)
+                .collect(Collectors.toSet());
+        if (chatIds.isEmpty()) {
+            return SearchResultPage.empty();
+        }
+
+        List<String> matches = matchingIds(terms, chatIds, before, pageSize + 1);
+        boolean hasMore = matches.size() > pageSize;
+        if (hasMore) {
+            matches = matches.subList(0, pageSize);
+        }
+        if (matches.isEmpty()) {
+            return SearchResultPage.empty();
+        }
+
+        Map<String, ChatMessage> byId = new HashMap<>();
+        historyStore.findAllById(matches).forEach(message -> byId.put(message.getId(), message));
+        List<ChatMessage> messages = matches.stream()
+                .map(byId::get)
+                // Postings are append-only, so tombstones and edits that dropped a term are filtered out here
+                .filter(message -> message != null && message.getDeletedAt() == null
+                        && MessageTokenizer.tokenize(message.getContent()).containsAll(terms))
+                .toList();
+        return SearchResultPage.builder()
+                .messages(messages)
+                .nextCursor(matches.get(matches.size() - 1))
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Ids in every term's postings, newest first, at most limit of them. Only the rarest term's
+     * postings are read, newest segment first; its ids are checked against the other terms in
+     * batches, server side, and reading stops once no older segment can improve the page.
+     */
+    private List<String> matchingIds(List<String> terms, Set<String> chatIds, String before, int limit) {
+        Map<String, Long> sizes = termSizes(terms, chatIds);
+        if (sizes.size() < terms.size()) {
+            return List.of();
+        }
+        List<String> byRarity = terms.stream().sorted(Comparator.comparingLong(sizes::get)).toList();
+        List<String> others = byRarity.subList(1, byRarity.size());
+
+        // Newest first, trimmed to limit, so last() is the oldest id that still makes the page
+        TreeSet<String> matches = new TreeSet<>(Comparator.reverseOrder());
+        Set<String> candidates = new HashSet<>();
+        for (Query query : segmentQueries(byRarity.get(0), chatIds, before)) {
+            try (Stream<SearchPosting> stream = mongoTemplate.stream(query, SearchPosting.class)) {
+                Iterator<SearchPosting> segments = stream.iterator();
+                while (segments.hasNext()) {
+                    SearchPosting segment = segments.next();
+                    String floor = matches.size() < limit ? null : matches.last();
+                    // Bounded segments come newest first: once one ends below the page, all later ones do
+                    if (floor != null && segment.getMaxId() != null && segment.getMaxId().compareTo(floor) < 0) {
+                        break;
+                    }
+                    for (String id : segment.getMessageIds()) {
+                        if ((before == null || id.compareTo(before) < 0) && (floor == null || id.compareTo(floor) > 0)) {
+                            candidates.add(id);
+                        }
+                    }
+                    if (candidates.size() >= verifyBatchSize) {
+                        verify(candidates, others, chatIds, matches, limit);
+                    }
+                }
+            }
+        }
+        verify(candidates, others, chatIds, matches, limit);
+        return new ArrayList<>(matches);
+    }
+
+    // Segments without id bounds first, as they cannot be skipped, then bounded ones newest first
+    private static List<Query> segmentQueries(String term, Set<String> chatIds, String before) {
+        Query unbounded = Query.query(Criteria.where("term").is(term).and("chatId").in(chatIds).and("maxId").is(null));
+        Criteria criteria = Criteria.where("term").is(term).and("chatId").in(chatIds).and("maxId").ne(null);
+        if (before != null) {
+            criteria = criteria.and("minId").lt(before);
+        }
+        Query bounded = Query.query(criteria).with(Sort.by(Sort.Direction.DESC, "maxId"));
+        for (Query query : List.of(unbounded, bounded)) {
+            query.fields().include("messageIds", "maxId");
+            query.cursorBatchSize(SEGMENT_BATCH);
+        }
+        return List.of(unbounded, bounded);
+    }
+
+    // Postings per term across the chats; a term missing from the result has none
+    private Map<String, Long> termSizes(List<String> terms, Set<String> chatIds) {
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where("term").in(terms).and("chatId").in(chatIds)),
+                group("term").sum("size").as("size"));
+        return mongoTemplate.aggregate(aggregation, SearchPosting.class, TermSize.class).getMappedResults().stream()
+                .collect(Collectors.toMap(TermSize::getId, TermSize::getSize));
+    }
+
+    // Moves the candidates found in every other term into matches, keeping the newest limit
+    private void verify(Set<String> candidates, List<String> others, Set<String> chatIds,
+                        TreeSet<String> matches, int limit) {
+        Set<String> survivors = new HashSet<>(candidates);
+        candidates.clear();
+        for (int i = 0; i < others.size() && !survivors.isEmpty(); i++) {
+            survivors = postedIn(others.get(i), chatIds, survivors);
+        }
+        matches.addAll(survivors);
+        while (matches.size() > limit) {
+            matches.pollLast();
+        }
+    }
+
+    // The subset of ids in the term's postings; only the intersection leaves Mongo
+    private Set<String> postedIn(String term, Set<String> chatIds, Set<String> ids) {
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where("term").is(term).and("chatId").in(chatIds).and("messageIds").in(ids)),
+                project().and(SetOperators.arrayAsSet("messageIds")
+                        .intersects(LiteralOperators.valueOf(ids).asLiteral())).as("hits"));
+        Set<String> posted = new HashSet<>();
+        mongoTemplate.aggregate(aggregation, SearchPosting.class, PostingHits.class)
+                .forEach(segment -> posted.addAll(segment.getHits()));
+        return posted;
+    }
+
+    @Data
+    static class TermSize {
+        private String id;
+        private long size;
+    }
+
+    @Data
+    static class PostingHits {
+        private List<String> hits;
+    }
+}
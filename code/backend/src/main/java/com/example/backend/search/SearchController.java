@@ -0,0 +1,33 @@
+package com.example.backend.search;
+
+import com.example.backend.search.dto.SearchResultPage;
+import com.example.backend.shared.exceptions.HistoryAccessForbiddenException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.security.Principal;
+
+@Controller
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final MessageSearchService searchService;
+
+    @GetMapping("/search")
+    public ResponseEntity<SearchResultPage> search(
+            @RequestParam String userId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) Integer limit,
+            Principal principal
+    ) {
+        // Only the signed-in user's own conversations are searched
+        if (principal == null || !principal.getName().equals(userId)) {
+            throw new HistoryAccessForbiddenException("Only the signed-in user's conversations can be searched");
+        }
+        return ResponseEntity.ok(searchService.search(userId, query, before, limit));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.backend.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * One segment of the postings list for a term within a chat. Indexing appends small segments;
+ * {@link SearchSegmentMerger} folds them into larger ones in the background. Searches read
+ * segments newest first by {@code maxId} and skip those entirely past their cursor by {@code minId}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document
+@CompoundIndex(name = "term_chat_max", def = "{'term': 1, 'chatId': 1, 'maxId': -1}")
+public class SearchPosting {
+    @Id
+    private String id;
+    private String term;
+    private String chatId;
+    // Message ids ascending, which is also the order they were written in
+    private List<String> messageIds;
+    private int size;
+    // First and last of messageIds; unset on segments written before they were introduced
+    private String minId;
+    private String maxId;
+
+    // ids must be ascending
+    static SearchPosting of(String term, String chatId, List<String> ids) {
+        return SearchPosting.builder()
+                .term(term)
+                .chatId(chatId)
+                .messageIds(ids)
+                .size(ids.size())
+                .minId(ids.get(0))
+                .maxId(ids.get(ids.size() - 1))
+                .build();
+    }
+}
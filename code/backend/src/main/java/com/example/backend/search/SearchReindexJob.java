@@ -0,0 +1,64 @@
+package com.example.backend.search;
+
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chat.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streams the whole message collection through the indexer on startup, for the first deploy of
+ * search or after the index was dropped. Runs beside live indexing; the duplicate postings this
+ * produces are folded away by {@link SearchSegmentMerger}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.search.reindex-on-startup", havingValue = "true")
+public class SearchReindexJob implements ApplicationRunner {
+
+    private final ChatHistoryStore historyStore;
+    private final MessageSearchIndexer indexer;
+
+    @Value("${app.search.index.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(this::reindex, "search-reindex");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void reindex() {
+        long count = 0;
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        try (Stream<ChatMessage> stream = historyStore.streamAll()) {
+            Iterator<ChatMessage> messages = stream.iterator();
+            while (messages.hasNext()) {
+                batch.add(messages.next());
+                if (batch.size() == batchSize) {
+                    indexer.indexNow(batch);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                indexer.indexNow(batch);
+                count += batch.size();
+            }
+            log.info("Reindexed {} messages for search", count);
+        } catch (RuntimeException e) {
+            log.error("Search reindex stopped after {} messages", count, e);
+        }
+    }
+}
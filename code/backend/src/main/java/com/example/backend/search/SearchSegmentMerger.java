@@ -0,0 +1,123 @@
+package com.example.backend.search;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Periodically folds the small segments written by {@link MessageSearchIndexer} into segments of
+ * up to {@code segmentSize} ids per (term, chat), dropping duplicates left by reindexing. New
+ * segments are written before the old ones are removed, so a concurrent search never misses ids.
+ */
+@Slf4j
+@Component
+public class SearchSegmentMerger {
+
+    private final MongoTemplate mongoTemplate;
+    private final int segmentSize;
+    private final int groupsPerRun;
+    private volatile boolean boundsBackfilled;
+
+    public SearchSegmentMerger(MongoTemplate mongoTemplate,
+                               @Value("${app.search.merge.segment-size:5000}") int segmentSize,
+                               @Value("${app.search.merge.groups-per-run:500}") int groupsPerRun) {
+        this.mongoTemplate = mongoTemplate;
+        this.segmentSize = segmentSize;
+        this.groupsPerRun = groupsPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.merge.interval-ms:60000}")
+    public void mergeSegments() {
+        if (!boundsBackfilled) {
+            backfillBounds();
+        }
+        // Full segments are left alone; only (term, chat) pairs with several open segments are merged
+        Aggregation aggregation = newAggregation(
+                match(Criteria.where("size").lt(segmentSize)),
+                group("term", "chatId").count().as("segments"),
+                match(Criteria.where("segments").gt(1)),
+                limit(groupsPerRun));
+        int merged = 0;
+        for (MergeGroup group : mongoTemplate.aggregate(aggregation, SearchPosting.class, MergeGroup.class)) {
+            try {
+                merge(group.getId().getTerm(), group.getId().getChatId());
+                merged++;
+            } catch (RuntimeException e) {
+                log.warn("Merging search segments for term {} in chat {} failed",
+                        group.getId().getTerm(), group.getId().getChatId(), e);
+            }
+        }
+        if (merged > 0) {
+            log.debug("Merged search segments for {} terms", merged);
+        }
+    }
+
+    // Segments written before minId/maxId existed; full ones are never merged, so set them in place
+    void backfillBounds() {
+        AggregationUpdate bounds = AggregationUpdate.update()
+                .set("minId").toValue(AccumulatorOperators.Min.minOf("messageIds"))
+                .set("maxId").toValue(AccumulatorOperators.Max.maxOf("messageIds"));
+        try {
+            long updated = mongoTemplate.updateMulti(Query.query(Criteria.where("maxId").exists(false)),
+                    bounds, SearchPosting.class).getModifiedCount();
+            boundsBackfilled = true;
+            if (updated > 0) {
+                log.info("Set id bounds on {} search segments", updated);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Setting id bounds on search segments failed, retrying next run", e);
+        }
+    }
+
+    void merge(String term, String chatId) {
+        Query query = Query.query(Criteria.where("term").is(term).and("chatId").is(chatId).and("size").lt(segmentSize));
+        List<SearchPosting> segments = mongoTemplate.find(query, SearchPosting.class);
+        if (segments.size() < 2) {
+            return;
+        }
+        TreeSet<String> ids = new TreeSet<>();
+        segments.forEach(segment -> ids.addAll(segment.getMessageIds()));
+
+        List<SearchPosting> merged = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(Math.min(ids.size(), segmentSize));
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() == segmentSize) {
+                merged.add(SearchPosting.of(term, chatId, chunk));
+                chunk = new ArrayList<>(segmentSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            merged.add(SearchPosting.of(term, chatId, chunk));
+        }
+        mongoTemplate.insertAll(merged);
+        List<String> oldIds = segments.stream().map(SearchPosting::getId).toList();
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(oldIds)), SearchPosting.class);
+    }
+
+    @Data
+    static class MergeGroup {
+        private GroupKey id;
+        private int segments;
+    }
+
+    @Data
+    static class GroupKey {
+        private String term;
+        private String chatId;
+    }
+}
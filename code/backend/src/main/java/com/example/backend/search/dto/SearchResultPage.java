@@ -0,0 +1,26 @@
+package com.example.backend.search.dto;
+
+import com.example.backend.chat.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResultPage {
+    // Newest first
+    private List<ChatMessage> messages;
+    // Pass as "before" to load older matches, null when there are none
+    private String nextCursor;
+    private boolean hasMore;
+
+    public static SearchResultPage empty() {
+        return new SearchResultPage(new ArrayList<>(), null, false);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.backend.shared.bloom;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Answers "definitely absent" for values that were never stored, so callers can skip the query.
+ * Built by streaming every stored value from {@code source}; values stored later are added on this
+ * node and announced to the others. A "might exist" answer still needs the query.
+ */
+public class ExistenceFilter {
+
+    private final String name;
+    private final Supplier<Stream<String>> source;
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final Consumer<String> announcements;
+    private final Counter absent;
+    private final Counter maybe;
+
+    private volatile ScalableBloomFilter current;
+    // Bumped on every drop, so a rebuild that overlapped one is not installed
+    private final AtomicLong drops = new AtomicLong();
+    // Set while rebuilding, so values added meanwhile land in the replacement too
+    private volatile ScalableBloomFilter building;
+
+    ExistenceFilter(String name, Supplier<Stream<String>> source, long initialCapacity, double falsePositiveRate,
+                    Consumer<String> announcements, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.source = source;
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.announcements = announcements;
+        this.absent = Counter.builder("bloom.lookups").tag("filter", name).tag("result", "absent")
+                .register(meterRegistry);
+        this.maybe = Counter.builder("bloom.lookups").tag("filter", name).tag("result", "maybe")
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean mightContain(String value) {
+        ScalableBloomFilter filter = current;
+        // Not built yet, or dropped: every value might exist
+        if (filter != null && !filter.mightContain(value)) {
+            absent.increment();
+            return false;
+        }
+        maybe.increment();
+        return true;
+    }
+
+    // Call once the value is stored
+    public void add(String value) {
+        addLocal(value);
+        announcements.accept(value);
+    }
+
+    void addLocal(String value) {
+        ScalableBloomFilter filter = current;
+        if (filter != null) {
+            filter.add(value);
+        }
+        ScalableBloomFilter replacement = building;
+        if (replacement != null) {
+            replacement.add(value);
+        }
+    }
+
+    // Additions may have been missed; answers "might exist" until rebuilt
+    void drop() {
+        drops.incrementAndGet();
+        current = null;
+    }
+
+    synchronized void rebuild() {
+        long dropsBefore = drops.get();
+        ScalableBloomFilter replacement = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        building = replacement;
+        try (Stream<String> values = source.get()) {
+            values.forEach(replacement::add);
+            if (drops.get() == dropsBefore) {
+                current = replacement;
+            }
+        } finally {
+            building = null;
+        }
+    }
+}
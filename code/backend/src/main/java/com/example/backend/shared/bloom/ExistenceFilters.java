@@ -0,0 +1,172 @@
+package com.example.backend.shared.bloom;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Owns the {@link ExistenceFilter}s of this node. Additions are published on a Redis channel as
+ * {@code "<filter> <value>"} so every node's copy stays a superset of the stored values.
+ *
+ * <p>That only holds while this node hears the channel, so the node sends itself a probe on it
+ * every {@code subscriptionCheckMs}. Filters are first built when a probe comes back, so nothing
+ * stored after the build can be missed. If probes stop coming back, the filters are dropped and
+ * answer "might exist" until the next returning probe rebuilds them. Each filter is also rebuilt
+ * periodically. Rebuilds stream whole collections, so the periodic ones run on their own thread
+ * rather than holding up the shared {@code @Scheduled} one.
+ */
+@Slf4j
+@Component
+public class ExistenceFilters implements MessageListener {
+
+    // Never a filter name; "<PROBE> <node>" is this node checking that it hears the channel
+    private static final String PROBE = "_probe";
+    // Probes missed in a row before the channel counts as lost
+    private static final int MISSED_PROBES = 3;
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String channel;
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final long subscriptionCheckMs;
+    private final long rebuildIntervalMs;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, ExistenceFilter> filters = new ConcurrentHashMap<>();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile long lastProbeNanos;
+    private ScheduledExecutorService rebuilder;
+
+    public ExistenceFilters(StringRedisTemplate redisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.bloom.channel:bloom:add}") String channel,
+                            @Value("${app.bloom.initial-capacity:100000}") long initialCapacity,
+                            @Value("${app.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${app.bloom.subscription-check-ms:1000}") long subscriptionCheckMs,
+                            @Value("${app.bloom.rebuild-interval-ms:3600000}") long rebuildIntervalMs) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.channel = channel;
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.subscriptionCheckMs = subscriptionCheckMs;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bloom-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(this::checkSubscription, 0, subscriptionCheckMs, TimeUnit.MILLISECONDS);
+        rebuilder.scheduleWithFixedDelay(this::rebuildAll, rebuildIntervalMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the filter, built from {@code source} before returning if this node hears the
+     * channel already, and otherwise as soon as it does. Until then it answers "might exist".
+     */
+    public ExistenceFilter register(String name, Supplier<Stream<String>> source) {
+        ExistenceFilter filter = new ExistenceFilter(name, source, initialCapacity, falsePositiveRate,
+                value -> publish(name, value), meterRegistry);
+        // Registered first, so additions heard from now on reach it and a concurrent first build sees it
+        filters.put(name, filter);
+        if (subscribed.get()) {
+            filter.rebuild();
+        }
+        return filter;
+    }
+
+    public void rebuildAll() {
+        // Built while not hearing the channel, a filter could miss additions made elsewhere
+        if (!subscribed.get()) {
+            return;
+        }
+        for (ExistenceFilter filter : filters.values()) {
+            try {
+                filter.rebuild();
+            } catch (RuntimeException e) {
+                // The previous filter stays in use
+                log.warn("Failed to rebuild existence filter {}", filter.getName(), e);
+            }
+        }
+    }
+
+    void checkSubscription() {
+        long silentNanos = System.nanoTime() - lastProbeNanos;
+        if (subscribed.get() && silentNanos > MISSED_PROBES * TimeUnit.MILLISECONDS.toNanos(subscriptionCheckMs)
+                && subscribed.compareAndSet(true, false)) {
+            filters.values().forEach(ExistenceFilter::drop);
+            log.warn("Stopped hearing {}; existence filters answer \"might exist\" until it is back", channel);
+        }
+        try {
+            redisTemplate.convertAndSend(channel, PROBE + " " + nodeId);
+        } catch (RuntimeException e) {
+            // Missed probes are what tells the filters to stand down
+            log.debug("Failed to publish existence filter probe", e);
+        }
+    }
+
+    private void probeReturned() {
+        lastProbeNanos = System.nanoTime();
+        if (subscribed.compareAndSet(false, true)) {
+            // Additions reach this node from here on, so a build from the source misses none. The
+            // container dispatches each message on its own thread, so other listeners do not wait
+            rebuildAll();
+        }
+    }
+
+    private void publish(String name, String value) {
+        try {
+            redisTemplate.convertAndSend(channel, name + " " + value);
+        } catch (RuntimeException e) {
+            // Other nodes pick the value up at their next rebuild
+            log.warn("Failed to publish addition to existence filter {}", name, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ", 2);
+        if (parts.length < 2) {
+            return;
+        }
+        if (PROBE.equals(parts[0])) {
+            if (nodeId.equals(parts[1])) {
+                probeReturned();
+            }
+            return;
+        }
+        ExistenceFilter filter = filters.get(parts[0]);
+        if (filter != null) {
+            filter.addLocal(parts[1]);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.backend.shared.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-heap map with a per-entry time to live. Reads take no lock: each entry only records
+ * when it was last read. Once {@code maxSize} is exceeded a put drops the least recently read of a
+ * small sample of entries, so eviction is approximately LRU; expired entries are dropped when read
+ * or sampled.
+ */
+final class LocalCache {
+
+    // Entries looked at per eviction; enough for a close approximation at a fixed cost
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    LocalCache(LocalCacheSpec spec, LongSupplier clock) {
+        this.ttlNanos = spec.ttl().toNanos();
+        this.maxSize = spec.maxSize();
+        this.clock = clock;
+    }
+
+    Object get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (now - entry.storedAt >= ttlNanos) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.readAt = now;
+        return entry.value;
+    }
+
+    void put(String key, Object value) {
+        if (maxSize <= 0 || value == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        entries.put(key, new Entry(value, now));
+        // Concurrent puts may each evict, so the map can dip just under maxSize but not stay over it
+        while (entries.size() > maxSize) {
+            evictOne(key, now);
+        }
+    }
+
+    void evict(String key) {
+        entries.remove(key);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evictOne(String keep, long now) {
+        Map.Entry<String, Entry> victim = null;
+        Iterator<Map.Entry<String, Entry>> sample = entries.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && sample.hasNext(); i++) {
+            Map.Entry<String, Entry> candidate = sample.next();
+            if (candidate.getKey().equals(keep)) {
+                continue;
+            }
+            if (now - candidate.getValue().storedAt >= ttlNanos) {
+                victim = candidate;
+                break;
+            }
+            if (victim == null || candidate.getValue().readAt < victim.getValue().readAt) {
+                victim = candidate;
+            }
+        }
+        if (victim == null) {
+            // Nothing but the entry just put; a concurrent clear or evict got there first
+            return;
+        }
+        entries.remove(victim.getKey(), victim.getValue());
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long storedAt;
+        // Racy on purpose: any recent read time is good enough to rank entries
+        private volatile long readAt;
+
+        private Entry(Object value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+            this.readAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.backend.shared.cache;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Time to live and entry bound of one in-process cache. A max size of 0 turns the local level off.
+ */
+public record LocalCacheSpec(Duration ttl, int maxSize) {
+
+    /**
+     * Parses {@code name=ttl/maxSize} pairs separated by commas, e.g. {@code connectedUsers=5s/1}.
+     */
+    public static Map<String, LocalCacheSpec> parse(String specs) {
+        Map<String, LocalCacheSpec> parsed = new HashMap<>();
+        if (specs == null || specs.isBlank()) {
+            return parsed;
+        }
+        for (String spec : specs.split(",")) {
+            String[] nameAndValue = spec.trim().split("=", 2);
+            String[] ttlAndSize = nameAndValue.length == 2 ? nameAndValue[1].split("/", 2) : new String[0];
+            if (ttlAndSize.length != 2) {
+                throw new IllegalArgumentException("Malformed local cache spec: " + spec);
+            }
+            parsed.put(nameAndValue[0].trim(), new LocalCacheSpec(
+                    DurationStyle.detectAndParse(ttlAndSize[0].trim()), Integer.parseInt(ttlAndSize[1].trim())));
+        }
+        return parsed;
+    }
+}
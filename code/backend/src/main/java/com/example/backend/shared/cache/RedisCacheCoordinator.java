@@ -0,0 +1,89 @@
+package com.example.backend.shared.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-node side of a cache load: a short Redis lease so only one node recomputes an entry at a
+ * time, and the remaining TTL of an entry for early refresh. Entry keys follow the default
+ * {@code "<cache>::<key>"} prefix of the Redis cache manager.
+ */
+@Slf4j
+public class RedisCacheCoordinator {
+
+    // Handed out when leases are off; releasing it is a no-op
+    static final String NO_LEASE = "";
+
+    // Deletes the lease only if this node still holds it
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final long leaseMs;
+
+    public RedisCacheCoordinator(StringRedisTemplate redisTemplate, long leaseMs) {
+        this.redisTemplate = redisTemplate;
+        this.leaseMs = leaseMs;
+    }
+
+    public long leaseMs() {
+        return leaseMs;
+    }
+
+    /**
+     * A token to release later, {@link #NO_LEASE} when leases are off or Redis cannot be asked, or
+     * null when another node holds the lease.
+     */
+    public String tryLease(String cacheName, String key) {
+        if (leaseMs <= 0) {
+            return NO_LEASE;
+        }
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = redisTemplate.opsForValue()
+                    .setIfAbsent(leaseKey(cacheName, key), token, leaseMs, TimeUnit.MILLISECONDS);
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        } catch (RuntimeException e) {
+            log.warn("Could not take load lease for {} in cache {}", key, cacheName, e);
+            return NO_LEASE;
+        }
+    }
+
+    public void release(String cacheName, String key, String token) {
+        if (token == null || NO_LEASE.equals(token)) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(cacheName, key)), token);
+        } catch (RuntimeException e) {
+            // The lease expires on its own
+            log.warn("Could not release load lease for {} in cache {}", key, cacheName, e);
+        }
+    }
+
+    /**
+     * Milliseconds the entry has left, or a negative value when it has no expiry or is gone.
+     */
+    public long remainingTtlMillis(String cacheName, String key) {
+        try {
+            Long ttl = redisTemplate.getExpire(cacheName + "::" + key, TimeUnit.MILLISECONDS);
+            return ttl == null ? -1 : ttl;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static String leaseKey(String cacheName, String key) {
+        return "cache:lease:" + cacheName + "::" + key;
+    }
+}
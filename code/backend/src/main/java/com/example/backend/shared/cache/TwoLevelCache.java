@@ -0,0 +1,223 @@
+package com.example.backend.shared.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link LocalCache} in front of a remote cache. Reads try the local level first and fill it from
+ * the remote one; writes go to both and then announce the key, so other nodes drop their local copy.
+ * Local values are shared between callers, not copied, and must be treated as read-only.
+ */
+public class TwoLevelCache implements Cache {
+
+    private static final long LEASE_POLL_MS = 20;
+
+    private final Cache remote;
+    private final LocalCache local;
+    // Receives the changed key, or null when the whole cache was cleared
+    private final Consumer<String> invalidations;
+    private final SingleFlight<String, Object> loads;
+    private final RedisCacheCoordinator coordinator;
+    private final double earlyRefreshBeta;
+    private final LongSupplier clock;
+    private final DoubleSupplier random;
+    private final Counter localHits;
+    private final Counter localMisses;
+
+    // Duration of this node's latest recompute; how far ahead of expiry an early refresh may start
+    private volatile long recomputeNanos;
+
+    TwoLevelCache(Cache remote, LocalCache local, Consumer<String> invalidations, RedisCacheCoordinator coordinator,
+                  double earlyRefreshBeta, LongSupplier clock, DoubleSupplier random, MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.local = local;
+        this.invalidations = invalidations;
+        this.loads = new SingleFlight<>(remote.getName(), meterRegistry);
+        this.coordinator = coordinator;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.clock = clock;
+        this.random = random;
+        this.localHits = Counter.builder("cache.local.gets")
+                .tag("cache", remote.getName()).tag("result", "hit")
+                .register(meterRegistry);
+        this.localMisses = Counter.builder("cache.local.gets")
+                .tag("cache", remote.getName()).tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return remote.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = local.get(localKey);
+        if (value != null) {
+            localHits.increment();
+            return new SimpleValueWrapper(value);
+        }
+        localMisses.increment();
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null) {
+            local.put(localKey, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * The {@code @Cacheable(sync = true)} path. Concurrent misses on this node share one load;
+     * across nodes a lease lets one node recompute while the others keep serving the current value
+     * or wait for the new one. An entry nearing expiry is recomputed early, with a probability that
+     * grows as expiry approaches, so a hot key is refreshed before every caller misses at once.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = local.get(localKey);
+        if (value != null) {
+            localHits.increment();
+            return (T) value;
+        }
+        localMisses.increment();
+        return (T) loads.load(localKey, () -> loadThrough(key, localKey, valueLoader));
+    }
+
+    private Object loadThrough(Object key, String localKey, Callable<?> valueLoader) {
+        ValueWrapper cached = remote.get(key);
+        Object current = cached == null ? null : cached.get();
+        if (current != null && !refreshEarly(localKey)) {
+            local.put(localKey, current);
+            return current;
+        }
+        String lease = coordinator.tryLease(getName(), localKey);
+        if (lease == null) {
+            // Another node is recomputing
+            Object published = current != null ? current : awaitRemote(key);
+            if (published != null) {
+                local.put(localKey, published);
+                return published;
+            }
+        }
+        try {
+            return recompute(key, valueLoader);
+        } finally {
+            coordinator.release(getName(), localKey, lease);
+        }
+    }
+
+    private Object recompute(Object key, Callable<?> valueLoader) {
+        long start = clock.getAsLong();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        recomputeNanos = clock.getAsLong() - start;
+        // Null values are not cached in Redis
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    // Probabilistic early expiration: refresh once recompute time * beta * -ln(rand) covers the remaining TTL
+    private boolean refreshEarly(String localKey) {
+        long delta = recomputeNanos;
+        if (earlyRefreshBeta <= 0 || delta <= 0) {
+            return false;
+        }
+        long remainingMs = coordinator.remainingTtlMillis(getName(), localKey);
+        if (remainingMs < 0) {
+            return false;
+        }
+        double gap = delta * earlyRefreshBeta * -Math.log(1 - random.getAsDouble());
+        return gap >= TimeUnit.MILLISECONDS.toNanos(remainingMs);
+    }
+
+    // Polls for the lease holder's value until its lease would have run out
+    private Object awaitRemote(Object key) {
+        long deadline = clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(coordinator.leaseMs());
+        while (clock.getAsLong() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            ValueWrapper cached = remote.get(key);
+            if (cached != null && cached.get() != null) {
+                return cached.get();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        String localKey = localKey(key);
+        local.put(localKey, value);
+        invalidations.accept(localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        local.evict(localKey);
+        invalidations.accept(localKey);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.clear();
+        invalidations.accept(null);
+    }
+
+    // Another node changed the key; the remote level already has its value
+    void evictLocal(String localKey) {
+        local.evict(localKey);
+    }
+
+    void clearLocal() {
+        local.clear();
+    }
+
+    int localSize() {
+        return local.size();
+    }
+
+    // The same form on every node, so it can travel in an invalidation message
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.backend.shared.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Wraps every cache of the remote {@link CacheManager} in a {@link TwoLevelCache}. Changes are
+ * published on a Redis channel as {@code "<node> <cache>[ <key>]"} and every other node drops the
+ * key, or the whole cache, from its local level. A lost message is bounded by the local TTL.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private final CacheManager remote;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String channel;
+    private final LocalCacheSpec defaults;
+    private final Map<String, LocalCacheSpec> specs;
+    private final RedisCacheCoordinator coordinator;
+    private final double earlyRefreshBeta;
+    private final LongSupplier clock;
+    private final DoubleSupplier random;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentHashMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remote,
+                                StringRedisTemplate redisTemplate,
+                                MeterRegistry meterRegistry,
+                                String channel,
+                                LocalCacheSpec defaults,
+                                Map<String, LocalCacheSpec> specs,
+                                RedisCacheCoordinator coordinator,
+                                double earlyRefreshBeta) {
+        this(remote, redisTemplate, meterRegistry, channel, defaults, specs, coordinator, earlyRefreshBeta,
+                System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    TwoLevelCacheManager(CacheManager remote, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                         String channel, LocalCacheSpec defaults, Map<String, LocalCacheSpec> specs,
+                         RedisCacheCoordinator coordinator, double earlyRefreshBeta,
+                         LongSupplier clock, DoubleSupplier random) {
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.channel = channel;
+        this.defaults = defaults;
+        this.specs = specs;
+        this.coordinator = coordinator;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::create);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache create(String name) {
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        LocalCache local = new LocalCache(specs.getOrDefault(name, defaults), clock);
+        return new TwoLevelCache(remoteCache, local, key -> publish(name, key), coordinator, earlyRefreshBeta,
+                clock, random, meterRegistry);
+    }
+
+    private void publish(String cacheName, String key) {
+        String body = key == null ? nodeId + " " + cacheName : nodeId + " " + cacheName + " " + key;
+        try {
+            redisTemplate.convertAndSend(channel, body);
+        } catch (RuntimeException e) {
+            // Other nodes fall back to their local TTL
+            log.warn("Failed to publish invalidation for cache {}", cacheName, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ", 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts.length == 2) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(parts[2]);
+        }
+    }
+}
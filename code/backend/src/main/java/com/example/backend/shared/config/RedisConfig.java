@@ -1,6 +1,12 @@
 package com.example.backend.shared.config;
 
-import org.springframework.cache.CacheManager;
+import com.example.backend.chat.HotHistoryCache;
+import com.example.backend.shared.bloom.ExistenceFilters;
+import com.example.backend.shared.cache.LocalCacheSpec;
+import com.example.backend.shared.cache.RedisCacheCoordinator;
+import com.example.backend.shared.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,6 +14,9 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -25,11 +34,39 @@ public class RedisConfig {
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
     }
+    // In-heap level in front of Redis; see TwoLevelCacheManager
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory){
-        return RedisCacheManager.builder(redisConnectionFactory)
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${app.cache.invalidation-channel:cache:invalidate}") String channel,
+                                             @Value("${app.cache.local.default-ttl:30s}") Duration defaultTtl,
+                                             @Value("${app.cache.local.default-max-size:10000}") int defaultMaxSize,
+                                             @Value("${app.cache.local.specs:}") String specs,
+                                             @Value("${app.cache.load.lease-ms:3000}") long leaseMs,
+                                             @Value("${app.cache.load.early-refresh-beta:1.0}") double earlyRefreshBeta){
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(cacheConfiguration())
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, meterRegistry, channel,
+                new LocalCacheSpec(defaultTtl, defaultMaxSize), LocalCacheSpec.parse(specs),
+                new RedisCacheCoordinator(stringRedisTemplate, leaseMs), earlyRefreshBeta);
+    }
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       ExistenceFilters existenceFilters,
+                                                                       HotHistoryCache hotHistory,
+                                                                       @Value("${app.cache.invalidation-channel:cache:invalidate}") String cacheChannel,
+                                                                       @Value("${app.bloom.channel:bloom:add}") String bloomChannel,
+                                                                       @Value("${app.chat.hot-history.channel:chat:hot-history}") String hotHistoryChannel){
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheChannel));
+        container.addMessageListener(existenceFilters, new ChannelTopic(bloomChannel));
+        container.addMessageListener(hotHistory, new ChannelTopic(hotHistoryChannel));
+        return container;
     }
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory){
@@ -1,6 +1,7 @@
 package com.example.backend.shared.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -13,6 +14,8 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns("*") // Allows all origins, necessary for local dev setup (localhost:3000 to localhost:8080)
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                // Read by clients resuming downloads of attachments
+                .exposedHeaders(HttpHeaders.ETAG, HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES)
                 .allowCredentials(true);
     }
 }
\ No newline at end of file
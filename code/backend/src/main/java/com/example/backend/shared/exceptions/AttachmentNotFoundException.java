@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class AttachmentNotFoundException extends RuntimeException {
+    public AttachmentNotFoundException(String message) {
+        super(message);
+    }
+}
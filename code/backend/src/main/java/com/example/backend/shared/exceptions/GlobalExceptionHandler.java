@@ -31,4 +31,88 @@ public class GlobalExceptionHandler {
                 .status(HttpStatus.NOT_FOUND)
                 .body(chatRoomNotFoundException.getMessage());
     }
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleException(InvalidCursorException invalidCursorException) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(invalidCursorException.getMessage());
+    }
+    @ExceptionHandler(InvalidSyncRequestException.class)
+    public ResponseEntity<String> handleException(InvalidSyncRequestException invalidSyncRequestException) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(invalidSyncRequestException.getMessage());
+    }
+    @ExceptionHandler(InvalidSearchQueryException.class)
+    public ResponseEntity<String> handleException(InvalidSearchQueryException invalidSearchQueryException) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(invalidSearchQueryException.getMessage());
+    }
+    @ExceptionHandler(GroupRoomNotFoundException.class)
+    public ResponseEntity<String> handleException(GroupRoomNotFoundException groupRoomNotFoundException) {
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(groupRoomNotFoundException.getMessage());
+    }
+    @ExceptionHandler(NotGroupMemberException.class)
+    public ResponseEntity<String> handleException(NotGroupMemberException notGroupMemberException) {
+        return ResponseEntity
+                .status(HttpStatus.FORBIDDEN)
+                .body(notGroupMemberException.getMessage());
+    }
+    @ExceptionHandler(AttachmentNotFoundException.class)
+    public ResponseEntity<String> handleException(AttachmentNotFoundException attachmentNotFoundException) {
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(attachmentNotFoundException.getMessage());
+    }
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<String> handleException(InvalidUploadException invalidUploadException) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(invalidUploadException.getMessage());
+    }
+    @ExceptionHandler(UploadOffsetMismatchException.class)
+    public ResponseEntity<String> handleException(UploadOffsetMismatchException uploadOffsetMismatchException) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(uploadOffsetMismatchException.getMessage());
+    }
+    @ExceptionHandler(MessageNotFoundException.class)
+    public ResponseEntity<String> handleException(MessageNotFoundException messageNotFoundException) {
+        return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(messageNotFoundException.getMessage());
+    }
+    @ExceptionHandler(MessageChangeForbiddenException.class)
+    public ResponseEntity<String> handleException(MessageChangeForbiddenException messageChangeForbiddenException) {
+        return ResponseEntity
+                .status(HttpStatus.FORBIDDEN)
+                .body(messageChangeForbiddenException.getMessage());
+    }
+    @ExceptionHandler(HistoryAccessForbiddenException.class)
+    public ResponseEntity<String> handleException(HistoryAccessForbiddenException historyAccessForbiddenException) {
+        return ResponseEntity
+                .status(HttpStatus.FORBIDDEN)
+                .body(historyAccessForbiddenException.getMessage());
+    }
+    @ExceptionHandler(MessageVersionConflictException.class)
+    public ResponseEntity<String> handleException(MessageVersionConflictException messageVersionConflictException) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(messageVersionConflictException.getMessage());
+    }
+    @ExceptionHandler(InvalidReactionException.class)
+    public ResponseEntity<String> handleException(InvalidReactionException invalidReactionException) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(invalidReactionException.getMessage());
+    }
+    @ExceptionHandler(MessageWriterBusyException.class)
+    public ResponseEntity<String> handleException(MessageWriterBusyException messageWriterBusyException) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(messageWriterBusyException.getMessage());
+    }
 }
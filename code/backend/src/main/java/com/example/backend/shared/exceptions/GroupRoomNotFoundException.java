@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class GroupRoomNotFoundException extends RuntimeException {
+    public GroupRoomNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class HistoryAccessForbiddenException extends RuntimeException {
+    public HistoryAccessForbiddenException(String message) {
+        super(message);
+    }
+}
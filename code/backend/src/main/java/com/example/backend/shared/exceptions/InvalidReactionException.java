@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class InvalidReactionException extends RuntimeException {
+    public InvalidReactionException(String message) {
+        super(message);
+    }
+}
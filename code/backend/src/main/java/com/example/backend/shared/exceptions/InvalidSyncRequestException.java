@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class InvalidSyncRequestException extends RuntimeException {
+    public InvalidSyncRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class InvalidUploadException extends RuntimeException {
+    public InvalidUploadException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class MessageChangeForbiddenException extends RuntimeException {
+    public MessageChangeForbiddenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class MessageNotFoundException extends RuntimeException {
+    public MessageNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class MessageVersionConflictException extends RuntimeException {
+    public MessageVersionConflictException(String message) {
+        super(message);
+    }
+}
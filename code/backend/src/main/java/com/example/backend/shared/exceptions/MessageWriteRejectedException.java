@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class MessageWriteRejectedException extends RuntimeException {
+    public MessageWriteRejectedException(String message) {
+        super(message);
+    }
+}
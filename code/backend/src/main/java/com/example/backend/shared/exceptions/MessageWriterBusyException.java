@@ -0,0 +1,8 @@
+package com.example.backend.shared.exceptions;
+
+// Backpressure: the message was never handed to the store, so retrying later is safe
+public class MessageWriterBusyException extends RuntimeException {
+    public MessageWriterBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class NotGroupMemberException extends RuntimeException {
+    public NotGroupMemberException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.shared.exceptions;
+
+public class UploadOffsetMismatchException extends RuntimeException {
+    public UploadOffsetMismatchException(String message) {
+        super(message);
+    }
+}
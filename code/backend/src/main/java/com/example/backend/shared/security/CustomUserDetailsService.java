@@ -1,5 +1,6 @@
 package com.example.backend.shared.security;
 
+import com.example.backend.user.KnownUsernames;
 import com.example.backend.user.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,9 +13,13 @@ import org.springframework.stereotype.Service;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final KnownUsernames knownUsernames;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (!knownUsernames.mightExist(username)) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(
                         "User not found with username: " + username
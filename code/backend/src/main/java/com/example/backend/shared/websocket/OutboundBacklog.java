@@ -0,0 +1,192 @@
+package com.example.backend.shared.websocket;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Per-session view of what the broker has handed to a WebSocket session but the socket has not
+ * taken yet. Frames are counted in on the client outbound channel (see {@link SlowConsumerInterceptor})
+ * and counted out by a session decorator as each write completes; the difference is the session's
+ * backlog inside Spring's send buffer. Frames the protocol handler writes on its own are not
+ * counted in, so the figure can run slightly low, never high.
+ */
+@Slf4j
+@Component
+public class OutboundBacklog {
+
+    private final Map<String, SessionBacklog> sessions = new ConcurrentHashMap<>();
+    private final DistributionSummary sessionBytes;
+    // Told after each completed write of a session that is holding back conflated updates
+    private volatile Consumer<SessionBacklog> drainListener = backlog -> { };
+
+    public OutboundBacklog(MeterRegistry meterRegistry) {
+        this.sessionBytes = DistributionSummary.builder("websocket.session.buffered.bytes")
+                .description("Buffered outbound bytes per session, sampled")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.buffered.bytes", this, OutboundBacklog::totalBytes)
+                .description("Outbound bytes buffered across all sessions")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.buffered.max.bytes", this, OutboundBacklog::maxBytes)
+                .description("Largest outbound backlog of any one session")
+                .register(meterRegistry);
+    }
+
+    // Registered through WebSocketTransportRegistration#addDecoratorFactory
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionBacklog backlog = new SessionBacklog(session, OutboundBacklog.this::drained);
+                sessions.put(session.getId(), backlog);
+                super.afterConnectionEstablished(backlog.counting);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    void onDrain(Consumer<SessionBacklog> listener) {
+        this.drainListener = listener;
+    }
+
+    private void drained(SessionBacklog backlog) {
+        drainListener.accept(backlog);
+    }
+
+    SessionBacklog get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.outbound.sample-interval-ms:5000}")
+    public void sample() {
+        sessions.values().forEach(backlog -> sessionBytes.record(backlog.bytes()));
+    }
+
+    double totalBytes() {
+        return sessions.values().stream().mapToLong(SessionBacklog::bytes).sum();
+    }
+
+    double maxBytes() {
+        return sessions.values().stream().mapToLong(SessionBacklog::bytes).max().orElse(0);
+    }
+
+    static final class SessionBacklog {
+        private final WebSocketSession session;
+        private final WebSocketSession counting;
+        // Sizes of frames counted in, oldest first, so each completed write subtracts its own frame
+        private final Queue<Integer> inFlight = new ConcurrentLinkedQueue<>();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        // Latest held-back update per conflation key, replayed once the backlog clears
+        private final Map<String, Message<?>> conflated = new ConcurrentHashMap<>();
+        private final Consumer<SessionBacklog> drained;
+        private volatile MessageChannel outboundChannel;
+
+        SessionBacklog(WebSocketSession session, Consumer<SessionBacklog> drained) {
+            this.session = session;
+            this.drained = drained;
+            this.counting = new WebSocketSessionDecorator(session) {
+                @Override
+                public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                    try {
+                        super.sendMessage(message);
+                    } finally {
+                        sent();
+                    }
+                }
+            };
+        }
+
+        String id() {
+            return session.getId();
+        }
+
+        void queued(int size, MessageChannel channel) {
+            outboundChannel = channel;
+            inFlight.add(size);
+            bytes.addAndGet(size);
+        }
+
+        private void sent() {
+            Integer size = inFlight.poll();
+            if (size != null) {
+                bytes.addAndGet(-size);
+            }
+            if (!conflated.isEmpty()) {
+                drained.accept(this);
+            }
+        }
+
+        long bytes() {
+            return bytes.get();
+        }
+
+        int messages() {
+            return inFlight.size();
+        }
+
+        void hold(String key, Message<?> message) {
+            conflated.put(key, message);
+        }
+
+        // Removes and returns the held updates, for sending through the outbound channel again
+        List<Message<?>> releaseHeld() {
+            List<Message<?>> held = new ArrayList<>(conflated.size());
+            for (String key : List.copyOf(conflated.keySet())) {
+                Message<?> message = conflated.remove(key);
+                if (message != null) {
+                    held.add(message);
+                }
+            }
+            return held;
+        }
+
+        MessageChannel outboundChannel() {
+            return outboundChannel;
+        }
+
+        boolean isClosing() {
+            return closing.get();
+        }
+
+        // Closes the underlying socket once; Spring's buffer is bypassed so a full buffer can't block it
+        void close(CloseStatus status) {
+            if (!closing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                session.close(status);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Closing slow session {} failed", session.getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.backend.shared.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Outbound policy for sessions whose socket is not keeping up. Once a session's backlog passes
+ * the soft limits:
+ * <ul>
+ *     <li>typing indicators are dropped, they are stale by the time they would arrive</li>
+ *     <li>presence updates are conflated to the latest one per user and sent when the backlog clears</li>
+ *     <li>everything else is still queued, until the hard limits are reached and the session is
+ *     closed with {@link #SLOW_CONSUMER}; the client reconnects, drains its offline inbox and
+ *     syncs the rest with {@code POST /messages/sync}</li>
+ * </ul>
+ * Spring's own send time and buffer limits stay in place behind this as the last resort.
+ */
+@Slf4j
+@Component
+public class SlowConsumerInterceptor implements ChannelInterceptor {
+
+    public static final CloseStatus SLOW_CONSUMER =
+            new CloseStatus(4008, "Slow consumer: reconnect, then POST /messages/sync from your last seq");
+
+    private static final String TYPING_SUFFIX = "/queue/typing";
+
+    enum Kind { TYPING, PRESENCE, OTHER }
+
+    private final OutboundBacklog outboundBacklog;
+    private final ObjectMapper objectMapper;
+    private final List<String> presenceDestinations;
+    private final long softBytes;
+    private final int softMessages;
+    private final long maxBytes;
+    private final int maxMessages;
+    private final Counter dropped;
+    private final Counter conflated;
+    private final Counter disconnected;
+
+    public SlowConsumerInterceptor(OutboundBacklog outboundBacklog,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.websocket.outbound.presence-destinations:/topic/public}") List<String> presenceDestinations,
+                                   @Value("${app.websocket.outbound.soft-limit-bytes:65536}") long softBytes,
+                                   @Value("${app.websocket.outbound.soft-limit-messages:100}") int softMessages,
+                                   @Value("${app.websocket.outbound.max-bytes:524288}") long maxBytes,
+                                   @Value("${app.websocket.outbound.max-messages:1000}") int maxMessages) {
+        this.outboundBacklog = outboundBacklog;
+        this.objectMapper = objectMapper;
+        this.presenceDestinations = presenceDestinations;
+        this.softBytes = softBytes;
+        this.softMessages = softMessages;
+        this.maxBytes = maxBytes;
+        this.maxMessages = maxMessages;
+        this.dropped = policyCounter(meterRegistry, "dropped");
+        this.conflated = policyCounter(meterRegistry, "conflated");
+        this.disconnected = policyCounter(meterRegistry, "disconnected");
+        outboundBacklog.onDrain(this::replayConflated);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        OutboundBacklog.SessionBacklog backlog = outboundBacklog.get(SimpMessageHeaderAccessor.getSessionId(headers));
+        if (backlog == null) {
+            return message;
+        }
+        if (backlog.isClosing()) {
+            return null;
+        }
+        int size = message.getPayload() instanceof byte[] payload ? payload.length : 0;
+        // Connection control frames always go out
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            backlog.queued(size, channel);
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        Kind kind = classify(destination);
+        if (isCongested(backlog)) {
+            switch (kind) {
+                case TYPING -> {
+                    dropped.increment();
+                    return null;
+                }
+                case PRESENCE -> {
+                    backlog.hold(conflationKey(destination, message), message);
+                    conflated.increment();
+                    return null;
+                }
+                default -> {
+                    if (backlog.bytes() + size > maxBytes || backlog.messages() + 1 > maxMessages) {
+                        disconnected.increment();
+                        log.info("Closing slow session {} with {} bytes in {} frames buffered",
+                                backlog.id(), backlog.bytes(), backlog.messages());
+                        backlog.close(SLOW_CONSUMER);
+                        return null;
+                    }
+                }
+            }
+        }
+        backlog.queued(size, channel);
+        return message;
+    }
+
+    Kind classify(String destination) {
+        if (destination == null) {
+            return Kind.OTHER;
+        }
+        if (destination.endsWith(TYPING_SUFFIX) || destination.startsWith(TYPING_SUFFIX + "-user")) {
+            return Kind.TYPING;
+        }
+        return presenceDestinations.contains(destination) ? Kind.PRESENCE : Kind.OTHER;
+    }
+
+    private boolean isCongested(OutboundBacklog.SessionBacklog backlog) {
+        return backlog.bytes() >= softBytes || backlog.messages() >= softMessages;
+    }
+
+    // Presence payloads are users; only the latest state of each user matters
+    private String conflationKey(String destination, Message<?> message) {
+        if (message.getPayload() instanceof byte[] payload) {
+            try {
+                JsonNode username = objectMapper.readTree(payload).get("username");
+                if (username != null) {
+                    return destination + "|" + username.asText();
+                }
+            } catch (IOException e) {
+                log.debug("Presence payload on {} is not JSON, conflating by destination", destination);
+            }
+        }
+        return destination;
+    }
+
+    private void replayConflated(OutboundBacklog.SessionBacklog backlog) {
+        MessageChannel channel = backlog.outboundChannel();
+        if (channel == null || backlog.isClosing() || isCongested(backlog)) {
+            return;
+        }
+        backlog.releaseHeld().forEach(channel::send);
+    }
+
+    private static Counter policyCounter(MeterRegistry meterRegistry, String action) {
+        return Counter.builder("websocket.outbound.policy")
+                .description("Outbound frames handled by the slow-consumer policy")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.backend.unread;
+
+import com.example.backend.unread.dto.ReadAck;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import java.util.Map;
+
+@Controller
+@RequiredArgsConstructor
+public class UnreadController {
+
+    private final UnreadCounterService unreadCounterService;
+
+    // Sent by a client when it shows a conversation, clearing that badge
+    @MessageMapping("/chat.read")
+    public void markRead(@Payload ReadAck ack) {
+        unreadCounterService.reset(ack.getUserId(), ack.getPeerId());
+    }
+
+    // Every badge of the user in one call, keyed by peer; conversations with nothing unread are left out
+    @GetMapping("/unread/{userId}")
+    public ResponseEntity<Map<String, Long>> findUnreadCounts(@PathVariable String userId) {
+        return ResponseEntity.ok(unreadCounterService.counts(userId));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.backend.unread;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Unread badges per (recipient, peer). Saves only bump an in-memory counter; a scheduled flush
+ * moves the accumulated deltas into one Redis hash per recipient with a single pipelined round
+ * trip, so a burst of messages costs one {@code HINCRBY} per conversation rather than per message.
+ * Reads add this node's unflushed deltas to the Redis totals.
+ */
+@Slf4j
+@Service
+public class UnreadCounterService {
+
+    private static final String KEY_PREFIX = "unread:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Counter flushedDeltas;
+    // Increments share the read lock; only swapping in a fresh map takes the write lock
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<String, Map<String, Long>> pending = new ConcurrentHashMap<>();
+    private volatile Map<String, Map<String, Long>> flushing = new ConcurrentHashMap<>();
+
+    public UnreadCounterService(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.flushedDeltas = Counter.builder("unread.flush.deltas")
+                .description("Counter deltas written to Redis")
+                .register(meterRegistry);
+    }
+
+    public void increment(String recipientId, String peerId) {
+        add(recipientId, peerId, 1);
+    }
+
+    private void add(String recipientId, String peerId, long delta) {
+        swapLock.readLock().lock();
+        try {
+            pending.computeIfAbsent(recipientId, r -> new ConcurrentHashMap<>()).merge(peerId, delta, Long::sum);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public void reset(String recipientId, String peerId) {
+        // Deltas not yet in Redis are for messages the reader has now seen
+        swapLock.readLock().lock();
+        try {
+            removeFrom(pending, recipientId, peerId);
+            removeFrom(flushing, recipientId, peerId);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        redisTemplate.opsForHash().delete(key(recipientId), peerId);
+    }
+
+    public Map<String, Long> counts(String recipientId) {
+        Map<String, Long> counts = new HashMap<>();
+        redisTemplate.opsForHash().entries(key(recipientId))
+                .forEach((peerId, count) -> counts.put((String) peerId, Long.parseLong((String) count)));
+        unflushed(recipientId).forEach((peerId, delta) -> counts.merge(peerId, delta, Long::sum));
+        counts.values().removeIf(count -> count <= 0);
+        return counts;
+    }
+
+    // Deltas this node holds that are not in Redis yet, to add to totals read from key(recipientId)
+    public Map<String, Long> unflushed(String recipientId) {
+        Map<String, Long> deltas = new HashMap<>();
+        addTo(deltas, flushing.get(recipientId));
+        addTo(deltas, pending.get(recipientId));
+        return deltas;
+    }
+
+    // Redis hash of peerId -> flushed unread count
+    public static String key(String recipientId) {
+        return KEY_PREFIX + recipientId;
+    }
+
+    @Scheduled(fixedDelayString = "${app.unread.flush-interval-ms:500}")
+    public void flush() {
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Map<String, Map<String, Long>> batch = flushing;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                batch.forEach((recipientId, deltas) -> {
+                    byte[] key = key(recipientId).getBytes(StandardCharsets.UTF_8);
+                    deltas.forEach((peerId, delta) -> connection.hashCommands()
+                            .hIncrBy(key, peerId.getBytes(StandardCharsets.UTF_8), delta));
+                });
+                return null;
+            });
+            flushedDeltas.increment(batch.values().stream().mapToInt(Map::size).sum());
+        } catch (RuntimeException e) {
+            log.warn("Could not flush unread counters, retrying with the next flush", e);
+            batch.forEach((recipientId, deltas) -> deltas.forEach((peerId, delta) -> add(recipientId, peerId, delta)));
+        } finally {
+            flushing = new ConcurrentHashMap<>();
+        }
+    }
+
+    private static void removeFrom(Map<String, Map<String, Long>> counters, String recipientId, String peerId) {
+        Map<String, Long> deltas = counters.get(recipientId);
+        if (deltas != null) {
+            deltas.remove(peerId);
+        }
+    }
+
+    private static void addTo(Map<String, Long> counts, Map<String, Long> deltas) {
+        if (deltas != null) {
+            deltas.forEach((peerId, delta) -> counts.merge(peerId, delta, Long::sum));
+        }
+    }
+}
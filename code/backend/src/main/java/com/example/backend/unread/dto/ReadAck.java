@@ -0,0 +1,15 @@
+package com.example.backend.unread.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadAck {
+    // The reader, whose badge is cleared
+    private String userId;
+    // The conversation that was read, as the reader sees it
+    private String peerId;
+}
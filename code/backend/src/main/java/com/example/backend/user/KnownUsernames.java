@@ -0,0 +1,49 @@
+package com.example.backend.user;
+
+import com.example.backend.shared.bloom.ExistenceFilter;
+import com.example.backend.shared.bloom.ExistenceFilters;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Existence filter over registered usernames, so lookups of names nobody has are answered without
+ * a query. The filter only rules a name out while this node hears every addition; see
+ * {@link ExistenceFilters}.
+ */
+@Component
+@RequiredArgsConstructor
+public class KnownUsernames {
+
+    private final ExistenceFilters existenceFilters;
+    private final MongoTemplate mongoTemplate;
+
+    private ExistenceFilter filter;
+
+    @PostConstruct
+    public void load() {
+        filter = existenceFilters.register("usernames", this::streamUsernames);
+    }
+
+    public boolean mightExist(String username) {
+        return username != null && filter.mightContain(username);
+    }
+
+    // Call once the user is stored
+    public void added(String username) {
+        if (username != null) {
+            filter.add(username);
+        }
+    }
+
+    private Stream<String> streamUsernames() {
+        Query query = new Query();
+        query.fields().include("username");
+        return mongoTemplate.stream(query, User.class).map(User::getUsername).filter(Objects::nonNull);
+    }
+}
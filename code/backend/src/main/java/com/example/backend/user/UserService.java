@@ -2,6 +2,7 @@ package com.example.backend.user;
 
 import com.example.backend.user.enums.Status;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
@@ -13,10 +14,15 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository repository;
+    private final KnownUsernames knownUsernames;
 
+    // Status changes alter the connected list; the eviction also reaches other nodes' local caches
+    @CacheEvict(value = "connectedUsers", allEntries = true)
     public void saveUser(User user) {
         // Check if user already exists
-        Optional<User> existingUser = repository.findByUsername(user.getUsername());
+        Optional<User> existingUser = knownUsernames.mightExist(user.getUsername())
+                ? repository.findByUsername(user.getUsername())
+                : Optional.empty();
 
         if (existingUser.isPresent()) {
             // Update existing user (e.g., update status to ONLINE)
@@ -29,8 +35,10 @@ public class UserService {
 
         // Insert new user
         repository.save(user);
+        knownUsernames.added(user.getUsername());
     }
 
+    @CacheEvict(value = "connectedUsers", allEntries = true)
     public void disconnect(User user) {
         var storedUser = repository.findById(user.getId()).orElse(null);
         if (storedUser != null) {
@@ -38,7 +46,8 @@ public class UserService {
             repository.save(storedUser);
         }
     }
-    @Cacheable(value = "connectedUsers")
+    // sync: concurrent misses share one query; see TwoLevelCache
+    @Cacheable(value = "connectedUsers", sync = true)
     public List<User> findConnectedUsers() {
         return repository.findAllByStatus(Status.ONLINE);
     }
@@ -0,0 +1,115 @@
+package com.example.backend.attachment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttachmentControllerTest {
+
+    @Mock
+    private AttachmentService attachmentService;
+
+    @InjectMocks
+    private AttachmentController attachmentController;
+
+    private Attachment attachment;
+
+    @BeforeEach
+    void setUp() {
+        attachment = Attachment.builder()
+                .id("att1")
+                .fileName("photo.png")
+                .contentType("image/png")
+                .size(100)
+                .sha256("abc123")
+                .build();
+        when(attachmentService.findCompleted("att1")).thenReturn(attachment);
+    }
+
+    @Test
+    void downloadAttachment_ShouldServeWholeFileWithStrongEtag() throws Exception {
+        // Act
+        ResponseEntity<StreamingResponseBody> response =
+                attachmentController.downloadAttachment("att1", new HttpHeaders());
+        response.getBody().writeTo(new ByteArrayOutputStream());
+
+        // Assert
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(100, response.getHeaders().getContentLength());
+        verify(attachmentService).transfer(eq(attachment), eq(0L), eq(100L), any());
+    }
+
+    @Test
+    void downloadAttachment_ShouldServePartialContent_ForSingleRange() throws Exception {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=10-19");
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = attachmentController.downloadAttachment("att1", headers);
+        response.getBody().writeTo(new ByteArrayOutputStream());
+
+        // Assert
+        assertEquals(206, response.getStatusCode().value());
+        assertEquals("bytes 10-19/100", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10, response.getHeaders().getContentLength());
+        verify(attachmentService).transfer(eq(attachment), eq(10L), eq(10L), any());
+    }
+
+    @Test
+    void downloadAttachment_ShouldReturnNotModified_WhenEtagMatches() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"abc123\"");
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = attachmentController.downloadAttachment("att1", headers);
+
+        // Assert
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void downloadAttachment_ShouldIgnoreRange_WhenIfRangeIsStale() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=10-19");
+        headers.set(HttpHeaders.IF_RANGE, "\"old\"");
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = attachmentController.downloadAttachment("att1", headers);
+
+        // Assert
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(100, response.getHeaders().getContentLength());
+    }
+
+    @Test
+    void downloadAttachment_ShouldReturn416_WhenRangeIsPastTheEnd() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=200-300");
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = attachmentController.downloadAttachment("att1", headers);
+
+        // Assert
+        assertEquals(416, response.getStatusCode().value());
+        assertEquals("bytes */100", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.backend.attachment;
+
+import com.example.backend.attachment.dto.CreateUploadRequest;
+import com.example.backend.attachment.dto.UploadStatus;
+import com.example.backend.shared.exceptions.AttachmentNotFoundException;
+import com.example.backend.shared.exceptions.InvalidUploadException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttachmentServiceTest {
+
+    private static final String ID = "65a000000000000000000001";
+
+    @Mock
+    private AttachmentRepository attachmentRepository;
+
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    private AttachmentService attachmentService;
+
+    @BeforeEach
+    void setUp() {
+        attachmentService = new AttachmentService(attachmentRepository, blobStore, thumbnailService, 1000);
+    }
+
+    @Test
+    void start_ShouldRejectFilesOverTheLimit() {
+        // Arrange
+        CreateUploadRequest request = CreateUploadRequest.builder()
+                .uploaderId("userA").fileName("big.bin").size(1001).build();
+
+        // Act & Assert
+        assertThrows(InvalidUploadException.class, () -> attachmentService.start(request));
+        verifyNoInteractions(attachmentRepository);
+    }
+
+    @Test
+    void start_ShouldDefaultContentTypeToOctetStream() {
+        // Arrange
+        when(attachmentRepository.save(any(Attachment.class))).thenAnswer(invocation -> {
+            Attachment attachment = invocation.getArgument(0);
+            attachment.setId(ID);
+            return attachment;
+        });
+
+        // Act
+        UploadStatus status = attachmentService.start(CreateUploadRequest.builder()
+                .uploaderId("userA").fileName("a.bin").size(10).build());
+
+        // Assert
+        assertEquals(ID, status.getId());
+        assertEquals(0, status.getReceived());
+        verify(attachmentRepository).save(argThat(a -> "application/octet-stream".equals(a.getContentType())));
+    }
+
+    @Test
+    void append_ShouldOnlyReportProgress_WhenUploadIsPartial() throws Exception {
+        // Arrange
+        Attachment pending = Attachment.builder().id(ID).size(10).build();
+        InputStream body = new ByteArrayInputStream(new byte[4]);
+        when(attachmentRepository.findById(ID)).thenReturn(Optional.of(pending));
+        when(blobStore.append(ID, 0, body, 10)).thenReturn(4L);
+
+        // Act
+        UploadStatus status = attachmentService.append(ID, 0, body);
+
+        // Assert
+        assertEquals(4, status.getReceived());
+        assertFalse(status.isComplete());
+        verify(blobStore, never()).commit(anyString());
+        verify(attachmentRepository, never()).save(any());
+    }
+
+    @Test
+    void append_ShouldCommitBlobAndRecordHash_WhenLastChunkArrives() throws Exception {
+        // Arrange
+        Attachment pending = Attachment.builder().id(ID).size(10).build();
+        InputStream body = new ByteArrayInputStream(new byte[6]);
+        when(attachmentRepository.findById(ID)).thenReturn(Optional.of(pending));
+        when(blobStore.append(ID, 4, body, 10)).thenReturn(10L);
+        when(blobStore.commit(ID)).thenReturn("abc123");
+        when(attachmentRepository.save(pending)).thenReturn(pending);
+
+        // Act
+        UploadStatus status = attachmentService.append(ID, 4, body);
+
+        // Assert
+        assertTrue(status.isComplete());
+        assertEquals("abc123", pending.getSha256());
+        assertNotNull(pending.getCompletedAt());
+        verify(thumbnailService, times(1)).previews(pending);
+    }
+
+    @Test
+    void append_ShouldBeNoOp_WhenUploadIsAlreadyComplete() throws Exception {
+        // Arrange
+        Attachment done = Attachment.builder().id(ID).size(10).sha256("abc123").build();
+        when(attachmentRepository.findById(ID)).thenReturn(Optional.of(done));
+
+        // Act
+        UploadStatus status = attachmentService.append(ID, 10, new ByteArrayInputStream(new byte[0]));
+
+        // Assert
+        assertTrue(status.isComplete());
+        assertEquals(10, status.getReceived());
+        verifyNoInteractions(blobStore);
+    }
+
+    @Test
+    void findCompleted_ShouldThrow_WhileStillUploading() {
+        // Arrange
+        when(attachmentRepository.findById(ID)).thenReturn(Optional.of(Attachment.builder().id(ID).size(10).build()));
+
+        // Act & Assert
+        assertThrows(AttachmentNotFoundException.class, () -> attachmentService.findCompleted(ID));
+    }
+
+    @Test
+    void previewsReady_ShouldReturnOnlyImagesWhosePreviewsRendered() {
+        // Arrange
+        Attachment photo = Attachment.builder().id("photo").contentType("image/png").sha256("a").build();
+        Attachment broken = Attachment.builder().id("broken").contentType("image/jpeg").sha256("b").build();
+        Attachment document = Attachment.builder().id("doc").contentType("application/pdf").sha256("c").build();
+        List<String> ids = List.of("photo", "broken", "doc");
+        when(attachmentRepository.findAllById(ids)).thenReturn(List.of(photo, broken, document));
+        when(thumbnailService.previews(photo)).thenReturn(CompletableFuture.completedFuture(true));
+        when(thumbnailService.previews(broken)).thenReturn(CompletableFuture.completedFuture(false));
+
+        // Act
+        List<String> ready = attachmentService.previewsReady(ids).join();
+
+        // Assert
+        assertEquals(List.of("photo"), ready);
+        verify(thumbnailService, never()).previews(document);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.backend.attachment;
+
+import com.example.backend.shared.exceptions.InvalidUploadException;
+import com.example.backend.shared.exceptions.UploadOffsetMismatchException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    // sha256("hello world")
+    private static final String HELLO_SHA = "b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9";
+
+    @TempDir
+    Path root;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        blobStore = new BlobStore(root, meterRegistry);
+    }
+
+    @Test
+    void append_ShouldResumeFromReceivedOffset() throws Exception {
+        // Act
+        long first = blobStore.append(id(1), 0, stream("hello "), 11);
+        long second = blobStore.append(id(1), blobStore.received(id(1)), stream("world"), 11);
+
+        // Assert
+        assertEquals(6, first);
+        assertEquals(11, second);
+        assertEquals(HELLO_SHA, blobStore.commit(id(1)));
+        assertEquals("hello world", Files.readString(blobStore.blob(HELLO_SHA)));
+    }
+
+    @Test
+    void append_ShouldRejectChunk_WhenOffsetDoesNotMatch() throws Exception {
+        // Arrange
+        blobStore.append(id(1), 0, stream("hello "), 11);
+
+        // Act & Assert
+        assertThrows(UploadOffsetMismatchException.class, () -> blobStore.append(id(1), 3, stream("world"), 11));
+        assertEquals(6, blobStore.received(id(1)));
+    }
+
+    @Test
+    void append_ShouldDiscardChunk_WhenUploadExceedsDeclaredSize() throws Exception {
+        // Arrange
+        blobStore.append(id(1), 0, stream("hello "), 11);
+
+        // Act & Assert
+        assertThrows(InvalidUploadException.class, () -> blobStore.append(id(1), 6, stream("world!!"), 11));
+        assertEquals(6, blobStore.received(id(1)));
+    }
+
+    @Test
+    void commit_ShouldKeepOneBlob_WhenContentIsUploadedTwice() throws Exception {
+        // Arrange
+        blobStore.append(id(1), 0, stream("hello world"), 11);
+        blobStore.append(id(2), 0, stream("hello world"), 11);
+
+        // Act
+        String first = blobStore.commit(id(1));
+        String second = blobStore.commit(id(2));
+
+        // Assert
+        assertEquals(first, second);
+        assertEquals(0, blobStore.received(id(2)));
+        try (var blobs = Files.walk(root.resolve("blobs"))) {
+            assertEquals(1, blobs.filter(Files::isRegularFile).count());
+        }
+        assertEquals(1.0, meterRegistry.get("attachment.blob.deduplicated").counter().count());
+    }
+
+    @Test
+    void transfer_ShouldCopyRequestedRange() throws Exception {
+        // Arrange
+        blobStore.append(id(1), 0, stream("hello world"), 11);
+        String sha = blobStore.commit(id(1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        blobStore.transfer(sha, 6, 5, out);
+
+        // Assert
+        assertEquals("world", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void append_ShouldRejectIdsOutsideTheUploadNamespace() {
+        // Act & Assert
+        assertThrows(InvalidUploadException.class, () -> blobStore.append("../../etc/passwd", 0, stream("x"), 1));
+    }
+
+    private static String id(int n) {
+        return String.format("%024x", n);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
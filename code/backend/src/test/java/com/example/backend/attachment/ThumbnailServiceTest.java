@@ -0,0 +1,108 @@
+package com.example.backend.attachment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailServiceTest {
+
+    @TempDir
+    Path root;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BlobStore blobStore;
+    private ThumbnailService thumbnailService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        blobStore = new BlobStore(root, meterRegistry);
+        thumbnailService = new ThumbnailService(blobStore, meterRegistry, root, List.of(32, 128), 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        thumbnailService.stop();
+    }
+
+    @Test
+    void previews_ShouldRenderEverySizeOnce_PerContentHash() throws Exception {
+        // Arrange
+        Attachment first = store(png(400, 200), "0001");
+        Attachment second = store(png(400, 200), "0002");
+
+        // Act
+        assertTrue(thumbnailService.previews(first).join());
+        assertTrue(thumbnailService.previews(second).join());
+
+        // Assert
+        BufferedImage large = ImageIO.read(thumbnailService.thumbnail(first.getSha256(), 128).toFile());
+        BufferedImage small = ImageIO.read(thumbnailService.thumbnail(first.getSha256(), 32).toFile());
+        assertEquals(128, large.getWidth());
+        assertEquals(64, large.getHeight());
+        assertEquals(32, small.getWidth());
+        assertEquals(1, meterRegistry.get("attachment.thumbnail.render").timer().count());
+    }
+
+    @Test
+    void previews_ShouldNotUpscaleSmallImages() throws Exception {
+        // Arrange
+        Attachment icon = store(png(20, 10), "0001");
+
+        // Act
+        thumbnailService.previews(icon).join();
+
+        // Assert
+        assertEquals(20, ImageIO.read(thumbnailService.thumbnail(icon.getSha256(), 128).toFile()).getWidth());
+    }
+
+    @Test
+    void previews_ShouldCompleteFalse_ForUndecodableImage() throws Exception {
+        // Arrange
+        Attachment corrupt = store("not an image".getBytes(), "0001");
+
+        // Act & Assert
+        assertFalse(thumbnailService.previews(corrupt).join());
+        assertFalse(Files.exists(thumbnailService.thumbnail(corrupt.getSha256(), 32)));
+    }
+
+    @Test
+    void previews_ShouldSkipNonImages() {
+        // Arrange
+        Attachment document = Attachment.builder().id("doc").contentType("application/pdf").sha256("abc").build();
+
+        // Act & Assert
+        assertFalse(thumbnailService.previews(document).join());
+        assertEquals(0, meterRegistry.get("attachment.thumbnail.render").timer().count());
+    }
+
+    private Attachment store(byte[] content, String suffix) throws Exception {
+        String uploadId = "00000000000000000000" + suffix;
+        blobStore.append(uploadId, 0, new ByteArrayInputStream(content), content.length);
+        return Attachment.builder()
+                .id(uploadId)
+                .contentType("image/png")
+                .size(content.length)
+                .sha256(blobStore.commit(uploadId))
+                .build();
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
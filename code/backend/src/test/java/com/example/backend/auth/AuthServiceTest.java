@@ -7,6 +7,7 @@ import com.example.backend.auth.dto.TokenPair;
 import com.example.backend.shared.exceptions.UserExistsException;
 import com.example.backend.shared.exceptions.UserNotFoundException;
 import com.example.backend.shared.jwt.JwtService;
+import com.example.backend.user.KnownUsernames;
 import com.example.backend.user.User;
 import com.example.backend.user.UserRepository;
 import com.example.backend.user.enums.Role;
@@ -46,6 +47,9 @@ class AuthServiceTest {
     @Mock
     private UserDetailsService userDetailsService;
 
+    @Mock
+    private KnownUsernames knownUsernames;
+
     @InjectMocks
     private AuthService authService;
 
@@ -55,6 +59,7 @@ class AuthServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(knownUsernames.mightExist(anyString())).thenReturn(true);
         registerRequest = RegisterRequest.builder()
                 .fullName("John Doe")
                 .username("johndoe")
@@ -1,5 +1,17 @@
 package com.example.backend.chat;
 
+import com.example.backend.attachment.AttachmentService;
+import com.example.backend.chat.dto.ChatMessagePage;
+import com.example.backend.chat.dto.ChatSyncRequest;
+import com.example.backend.chat.dto.ChatSyncResponse;
+import com.example.backend.chat.dto.EditMessageRequest;
+import com.example.backend.chat.dto.TypingEvent;
+import com.example.backend.chat.enums.NotificationType;
+import com.example.backend.chat.reaction.ReactionService;
+import com.example.backend.chat.typing.TypingIndicatorService;
+import com.example.backend.inbox.OfflineInbox;
+import com.example.backend.shared.exceptions.HistoryAccessForbiddenException;
+import com.example.backend.shared.exceptions.MessageChangeForbiddenException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,13 +19,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -21,11 +40,23 @@ import static org.mockito.Mockito.*;
 class ChatControllerTest {
 
     @Mock
-    private SimpMessagingTemplate messagingTemplate;
+    private OfflineInbox offlineInbox;
 
     @Mock
     private ChatMessageService chatMessageService;
 
+    @Mock
+    private ChatExportService chatExportService;
+
+    @Mock
+    private TypingIndicatorService typingIndicatorService;
+
+    @Mock
+    private AttachmentService attachmentService;
+
+    @Mock
+    private ReactionService reactionService;
+
     @InjectMocks
     private ChatController chatController;
 
@@ -50,6 +81,7 @@ class ChatControllerTest {
                 .recipientId("userB")
                 .content("Test message")
                 .timestamp(incomingMessage.getTimestamp())
+                .seq(3L)
                 .build();
     }
 
@@ -61,11 +93,10 @@ class ChatControllerTest {
     void processMessage_ShouldSaveMessageAndSendNotificationToRecipient() {
         // Arrange
         // Mock the service call to return the saved message
-        when(chatMessageService.save(incomingMessage)).thenReturn(savedMessage);
+        when(chatMessageService.save(incomingMessage)).thenReturn(CompletableFuture.completedFuture(savedMessage));
 
-        // Captors for SimpMessagingTemplate arguments
+        // Captors for OfflineInbox arguments
         ArgumentCaptor<String> userCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> destinationCaptor = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<ChatNotification> notificationCaptor = ArgumentCaptor.forClass(ChatNotification.class);
 
         // Act
@@ -75,16 +106,14 @@ class ChatControllerTest {
         // 1. Verify that chatMessageService.save was called once
         verify(chatMessageService, times(1)).save(incomingMessage);
 
-        // 2. Verify messagingTemplate.convertAndSendToUser was called once
-        verify(messagingTemplate, times(1)).convertAndSendToUser(
+        // 2. Verify offlineInbox.deliver was called once; it sends now or keeps it for later
+        verify(offlineInbox, times(1)).deliver(
                 userCaptor.capture(),
-                destinationCaptor.capture(),
                 notificationCaptor.capture()
         );
 
-        // 3. Check the arguments passed to convertAndSendToUser
+        // 3. Check the recipient passed to deliver
         assertEquals(savedMessage.getRecipientId(), userCaptor.getValue(), "Should send to the recipient ID");
-        assertEquals("/queue/messages", destinationCaptor.getValue(), "Should send to the private queue");
 
         // 4. Check the payload (ChatNotification) content
         ChatNotification notification = notificationCaptor.getValue();
@@ -92,6 +121,57 @@ class ChatControllerTest {
         assertEquals(savedMessage.getSenderId(), notification.getSenderId());
         assertEquals(savedMessage.getRecipientId(), notification.getRecipientId());
         assertEquals(savedMessage.getContent(), notification.getContent());
+        assertEquals(savedMessage.getSeq(), notification.getSeq());
+
+        // 5. The sent message supersedes any pending typing indicator
+        verify(typingIndicatorService, times(1)).onMessageSent("userA", "userB");
+    }
+
+    @Test
+    void processMessage_ShouldSendPreviewUpdateToBothSides_WhenImagePreviewsAreReady() {
+        // Arrange
+        savedMessage.setAttachmentIds(List.of("att1", "doc1"));
+        when(chatMessageService.save(incomingMessage)).thenReturn(CompletableFuture.completedFuture(savedMessage));
+        when(attachmentService.previewsReady(List.of("att1", "doc1"))).thenReturn(CompletableFuture.completedFuture(List.of("att1")));
+
+        // Act
+        chatController.processMessage(incomingMessage);
+
+        // Assert
+        ArgumentCaptor<ChatNotification> notifications = ArgumentCaptor.forClass(ChatNotification.class);
+        verify(offlineInbox, times(2)).deliver(eq("userB"), notifications.capture());
+        verify(offlineInbox, times(1)).deliver(eq("userA"), any(ChatNotification.class));
+        ChatNotification update = notifications.getAllValues().get(1);
+        assertEquals(NotificationType.PREVIEWS_READY, update.getType());
+        assertEquals(List.of("att1"), update.getAttachmentIds());
+        assertEquals("msg123", update.getId());
+        assertNull(notifications.getAllValues().get(0).getType());
+    }
+
+    @Test
+    void processTyping_ShouldHandOffToTypingServiceWithoutPersisting() {
+        // Arrange
+        TypingEvent event = TypingEvent.builder().senderId("userA").recipientId("userB").typing(true).build();
+
+        // Act
+        chatController.processTyping(event);
+
+        // Assert
+        verify(typingIndicatorService, times(1)).onTyping(event);
+        verifyNoInteractions(chatMessageService, offlineInbox);
+    }
+
+    @Test
+    void processMessage_ShouldNotNotifyRecipient_WhenSaveFails() {
+        // Arrange
+        when(chatMessageService.save(incomingMessage))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("mongo down")));
+
+        // Act
+        chatController.processMessage(incomingMessage);
+
+        // Assert
+        verify(offlineInbox, never()).deliver(anyString(), any());
     }
 
     // ------------------------------------------
@@ -103,23 +183,205 @@ class ChatControllerTest {
         // Arrange
         String sender = "userA";
         String recipient = "userB";
-        List<ChatMessage> mockMessages = List.of(savedMessage);
+        ChatMessagePage mockPage = ChatMessagePage.builder()
+                .messages(List.of(savedMessage))
+                .build();
 
         // Mock the service call
-        when(chatMessageService.findChatMessages(sender, recipient)).thenReturn(mockMessages);
+        when(chatMessageService.findChatMessages(sender, recipient, null, null, null)).thenReturn(mockPage);
 
         // Act
-        ResponseEntity<List<ChatMessage>> responseEntity = chatController.findChatMessages(sender, recipient);
+        ResponseEntity<ChatMessagePage> responseEntity = chatController.findChatMessages(sender, recipient, null, null, null, () -> sender);
 
         // Assert
         // 1. Verify that chatMessageService.findChatMessages was called once
-        verify(chatMessageService, times(1)).findChatMessages(sender, recipient);
+        verify(chatMessageService, times(1)).findChatMessages(sender, recipient, null, null, null);
 
         // 2. Verify the HTTP status code is OK (200)
         assertEquals(200, responseEntity.getStatusCodeValue());
 
-        // 3. Verify the body contains the list of messages
+        // 3. Verify the body contains the page of messages
         assertTrue(responseEntity.hasBody());
-        assertEquals(mockMessages, responseEntity.getBody());
+        assertEquals(mockPage, responseEntity.getBody());
+    }
+
+    @Test
+    void findChatMessages_ShouldPassCursorAndLimitThrough() {
+        // Arrange
+        ChatMessagePage mockPage = ChatMessagePage.empty();
+        when(chatMessageService.findChatMessages("userA", "userB", "cursor", null, 20)).thenReturn(mockPage);
+
+        // Act
+        ResponseEntity<ChatMessagePage> responseEntity = chatController.findChatMessages("userA", "userB", "cursor", null, 20, () -> "userA");
+
+        // Assert
+        verify(chatMessageService, times(1)).findChatMessages("userA", "userB", "cursor", null, 20);
+        assertEquals(mockPage, responseEntity.getBody());
+    }
+
+    @Test
+    void findChatMessages_ShouldRefuse_WhenPathNamesAnotherUser() {
+        // Act & Assert
+        assertThrows(HistoryAccessForbiddenException.class,
+                () -> chatController.findChatMessages("userB", "userC", null, null, null, () -> "userA"));
+        verifyNoInteractions(chatMessageService);
+    }
+
+    @Test
+    void syncChatMessages_ShouldRefuse_WhenBodyNamesAnotherUser() {
+        // Arrange
+        ChatSyncRequest request = ChatSyncRequest.builder()
+                .userId("userB")
+                .since(Map.of("userC", 0L))
+                .build();
+
+        // Act & Assert
+        assertThrows(HistoryAccessForbiddenException.class, () -> chatController.syncChatMessages(request, () -> "userA"));
+        verifyNoInteractions(chatMessageService);
+    }
+
+    @Test
+    void syncChatMessages_ShouldReturnDeltaFromService() {
+        // Arrange
+        ChatSyncRequest request = ChatSyncRequest.builder()
+                .userId("userA")
+                .since(Map.of("userB", 2L))
+                .build();
+        ChatSyncResponse mockResponse = new ChatSyncResponse(List.of());
+        when(chatMessageService.sync(request)).thenReturn(mockResponse);
+
+        // Act
+        ResponseEntity<ChatSyncResponse> responseEntity = chatController.syncChatMessages(request, () -> "userA");
+
+        // Assert
+        verify(chatMessageService, times(1)).sync(request);
+        assertEquals(200, responseEntity.getStatusCodeValue());
+        assertEquals(mockResponse, responseEntity.getBody());
+    }
+
+    @Test
+    void editMessage_ShouldReturnPatchedMessageAndNotifyBothSides() {
+        // Arrange
+        EditMessageRequest request = EditMessageRequest.builder().content("Edited").version(0L).build();
+        savedMessage.setContent("Edited");
+        savedMessage.setVersion(1L);
+        when(chatMessageService.chatIdOf("userA", "userB")).thenReturn("userA_userB");
+        when(chatMessageService.edit("userA_userB", "msg123", "userA", request)).thenReturn(savedMessage);
+
+        // Act
+        ResponseEntity<ChatMessage> response = chatController.editMessage("userA", "userB", "msg123", request, () -> "userA");
+
+        // Assert
+        assertEquals(savedMessage, response.getBody());
+        ArgumentCaptor<ChatNotification> notifications = ArgumentCaptor.forClass(ChatNotification.class);
+        verify(offlineInbox, times(1)).deliver(eq("userB"), notifications.capture());
+        verify(offlineInbox, times(1)).deliver(eq("userA"), eq(notifications.getValue()));
+        ChatNotification update = notifications.getValue();
+        assertEquals(NotificationType.EDITED, update.getType());
+        assertEquals(1L, update.getVersion());
+        assertEquals("Edited", update.getContent());
+        assertEquals(3L, update.getSeq());
+    }
+
+    @Test
+    void deleteMessage_ShouldSendTombstoneWithoutContent() {
+        // Arrange
+        ChatMessage tombstone = ChatMessage.builder().id("msg123").chatId("userA_userB").senderId("userA")
+                .recipientId("userB").seq(3L).version(2L).deletedAt(new Date()).build();
+        when(chatMessageService.chatIdOf("userA", "userB")).thenReturn("userA_userB");
+        when(chatMessageService.delete("userA_userB", "msg123", "userA", 1L)).thenReturn(tombstone);
+
+        // Act
+        ResponseEntity<ChatMessage> response = chatController.deleteMessage("userA", "userB", "msg123", 1L, () -> "userA");
+
+        // Assert
+        assertEquals(tombstone, response.getBody());
+        ArgumentCaptor<ChatNotification> notifications = ArgumentCaptor.forClass(ChatNotification.class);
+        verify(offlineInbox, times(2)).deliver(anyString(), notifications.capture());
+        ChatNotification update = notifications.getValue();
+        assertEquals(NotificationType.DELETED, update.getType());
+        assertNull(update.getContent());
+        assertEquals(2L, update.getVersion());
+    }
+
+    @Test
+    void editMessage_ShouldRefuse_WhenPathNamesAnotherSender() {
+        // Arrange
+        EditMessageRequest request = EditMessageRequest.builder().content("Edited").version(0L).build();
+
+        // Act & Assert
+        assertThrows(MessageChangeForbiddenException.class,
+                () -> chatController.editMessage("userA", "userB", "msg123", request, () -> "userB"));
+        verifyNoInteractions(chatMessageService, offlineInbox);
+    }
+
+    @Test
+    void addReaction_ShouldSendSmallDeltaToBothParticipants() {
+        // Arrange
+        savedMessage.setReactions(Map.of("👍", 1L));
+        when(chatMessageService.chatIdOf("userB", "userA")).thenReturn("userA_userB");
+        when(reactionService.react("userA_userB", "msg123", "userB", "👍", true)).thenReturn(Optional.of(savedMessage));
+
+        // Act
+        ResponseEntity<ChatMessage> response = chatController.addReaction("userB", "userA", "msg123", "👍", () -> "userB");
+
+        // Assert
+        assertEquals(savedMessage, response.getBody());
+        ArgumentCaptor<ChatNotification> notifications = ArgumentCaptor.forClass(ChatNotification.class);
+        verify(offlineInbox, times(1)).deliver(eq("userA"), notifications.capture());
+        verify(offlineInbox, times(1)).deliver(eq("userB"), any(ChatNotification.class));
+        ChatNotification update = notifications.getValue();
+        assertEquals(NotificationType.REACTION, update.getType());
+        assertEquals("👍", update.getReaction());
+        assertEquals("userB", update.getReactorId());
+        assertEquals(1, update.getReactionDelta());
+        assertNull(update.getContent());
+    }
+
+    @Test
+    void removeReaction_ShouldAnswerNoContentAndStayQuiet_WhenNothingChanged() {
+        // Arrange
+        when(chatMessageService.chatIdOf("userB", "userA")).thenReturn("userA_userB");
+        when(reactionService.react("userA_userB", "msg123", "userB", "👍", false)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<ChatMessage> response = chatController.removeReaction("userB", "userA", "msg123", "👍", () -> "userB");
+
+        // Assert
+        assertEquals(204, response.getStatusCodeValue());
+        verifyNoInteractions(offlineInbox);
+    }
+
+    @Test
+    void addReaction_ShouldRefuse_WhenPathNamesAnotherUser() {
+        // Act & Assert
+        assertThrows(MessageChangeForbiddenException.class,
+                () -> chatController.addReaction("userB", "userA", "msg123", "👍", () -> "userC"));
+        verifyNoInteractions(reactionService, offlineInbox);
+    }
+
+    @Test
+    void exportChatMessages_ShouldStreamGzipAttachment_WhenRequested() {
+        // Arrange
+        StreamingResponseBody body = out -> { };
+        when(chatExportService.export("userA", "userB", 7L, null, true)).thenReturn(body);
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response =
+                chatController.exportChatMessages("userA", "userB", 7L, null, true, () -> "userA");
+
+        // Assert
+        assertEquals(body, response.getBody());
+        assertEquals(MediaType.parseMediaType("application/gzip"), response.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"userA_userB.ndjson.gz\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    @Test
+    void exportChatMessages_ShouldRefuse_WhenPathNamesAnotherUser() {
+        // Act & Assert
+        assertThrows(HistoryAccessForbiddenException.class,
+                () -> chatController.exportChatMessages("userB", "userC", null, null, false, () -> "userA"));
+        verifyNoInteractions(chatExportService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package com.example.backend.chat;
+
+import com.example.backend.chatroom.ChatRoomService;
+import com.example.backend.shared.exceptions.ChatRoomNotFoundException;
+import com.example.backend.shared.exceptions.InvalidCursorException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatExportServiceTest {
+
+    @Mock
+    private ChatHistoryStore historyStore;
+
+    @Mock
+    private ChatRoomService chatRoomService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ChatExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ChatExportService(historyStore, chatRoomService, objectMapper);
+        ReflectionTestUtils.setField(exportService, "bufferBytes", 16);
+    }
+
+    @Test
+    void export_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        when(chatRoomService.getChatRoomId("userA", "userB", false)).thenReturn(Optional.of("userA_userB"));
+        when(historyStore.streamChat("userA_userB", null, null))
+                .thenReturn(Stream.of(message("m1", 1), message("m2", 2)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        exportService.export("userA", "userB", null, null, false).writeTo(out);
+
+        // Assert
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, lines.size());
+        assertEquals("m2", objectMapper.readValue(lines.get(1), ChatMessage.class).getId());
+    }
+
+    @Test
+    void export_ShouldGzipOutput_WhenRequested() throws Exception {
+        // Arrange
+        when(chatRoomService.getChatRoomId("userA", "userB", false)).thenReturn(Optional.of("userA_userB"));
+        when(historyStore.streamChat("userA_userB", null, null)).thenReturn(Stream.of(message("m1", 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        StreamingResponseBody body = exportService.export("userA", "userB", null, null, true);
+        body.writeTo(out);
+
+        // Assert
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("m1", objectMapper.readValue(text.trim(), ChatMessage.class).getId());
+        }
+    }
+
+    @Test
+    void export_ShouldThrow_WhenBothResumePointsGiven() {
+        // Act & Assert
+        assertThrows(InvalidCursorException.class,
+                () -> exportService.export("userA", "userB", 1L, new Date(), false));
+        verifyNoInteractions(historyStore);
+    }
+
+    @Test
+    void export_ShouldThrow_WhenChatRoomDoesNotExist() {
+        // Arrange
+        when(chatRoomService.getChatRoomId("userA", "userB", false)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ChatRoomNotFoundException.class,
+                () -> exportService.export("userA", "userB", null, null, false));
+    }
+
+    private ChatMessage message(String id, long seq) {
+        return ChatMessage.builder()
+                .id(id)
+                .chatId("userA_userB")
+                .senderId("userA")
+                .recipientId("userB")
+                .content("hello " + id)
+                .timestamp(new Date(seq * 1000))
+                .seq(seq)
+                .build();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.backend.chat;
+
+import com.example.backend.shared.exceptions.MessageWriterBusyException;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatMessageBatchWriterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChatHistoryStore store;
+    private ChatMessageBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new DocumentHistoryStore(mongoTemplate, mock(ChatMessageRepository.class));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class)).thenReturn(bulkOperations);
+        // Long linger so that every message submitted below lands in one batch
+        writer = new ChatMessageBatchWriter(store, meterRegistry, 3, 500, 10, 100, 2);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    void submit_ShouldGroupMessagesIntoOneBulkInsert_WhenBatchFills() {
+        // Act
+        List<CompletableFuture<ChatMessage>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(writer.submit(ChatMessage.builder().content("m" + i).build()));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Assert
+        verify(bulkOperations, times(1)).insert(argThat((List<?> batch) -> batch.size() == 3));
+        verify(bulkOperations, times(1)).execute();
+        futures.forEach(future -> assertNotNull(future.join().getId()));
+        assertEquals(1, meterRegistry.get("chat.write.batch.size").summary().count());
+        assertEquals(3.0, meterRegistry.get("chat.write.batch.size").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("chat.write.flush.latency").timer().count());
+    }
+
+    @Test
+    void submit_ShouldFlushPartialBatch_WhenLingerExpires() {
+        // Act
+        ChatMessage saved = writer.submit(ChatMessage.builder().content("alone").build()).join();
+
+        // Assert
+        assertEquals("alone", saved.getContent());
+        verify(bulkOperations, times(1)).insert(argThat((List<?> batch) -> batch.size() == 1));
+    }
+
+    @Test
+    void submit_ShouldCompleteOffTheFlusherThread() {
+        // Act
+        String completedOn = writer.submit(ChatMessage.builder().content("m").build())
+                .thenApply(saved -> Thread.currentThread().getName())
+                .join();
+
+        // Assert
+        assertTrue(completedOn.startsWith("chat-write-completion-"), completedOn);
+    }
+
+    @Test
+    void submit_ShouldFail_WhenWriterIsStopped() throws InterruptedException {
+        // Arrange
+        CompletableFuture<ChatMessage> queued = writer.submit(ChatMessage.builder().content("queued").build());
+        writer.stop();
+
+        // Act
+        CompletableFuture<ChatMessage> future = writer.submit(ChatMessage.builder().content("late").build());
+
+        // Assert
+        assertEquals("queued", queued.join().getContent());
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(MessageWriterBusyException.class, exception.getCause());
+    }
+
+    @Test
+    void submit_ShouldFailOnlyRejectedMessages_WhenBulkInsertPartiallyFails() {
+        // Arrange
+        BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+        MongoBulkWriteException cause = mock(MongoBulkWriteException.class);
+        when(cause.getWriteErrors()).thenReturn(List.of(error));
+        BulkOperationException partialFailure = new BulkOperationException("partial", cause);
+        when(bulkOperations.execute()).thenThrow(partialFailure);
+
+        // Act
+        List<CompletableFuture<ChatMessage>> futures = List.of(
+                writer.submit(ChatMessage.builder().content("ok").build()),
+                writer.submit(ChatMessage.builder().content("dup").build()),
+                writer.submit(ChatMessage.builder().content("ok too").build())
+        );
+
+        // Assert
+        assertEquals("ok", futures.get(0).join().getContent());
+        assertThrows(CompletionException.class, () -> futures.get(1).join());
+        assertEquals("ok too", futures.get(2).join().getContent());
+    }
+
+    @Test
+    void submit_ShouldFailWholeBatch_WhenMongoIsUnavailable() {
+        // Arrange
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("mongo down"));
+
+        // Act
+        CompletableFuture<ChatMessage> future = writer.submit(ChatMessage.builder().content("lost").build());
+
+        // Assert
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void submit_ShouldReject_WhenQueueIsFull() throws InterruptedException {
+        // Arrange
+        // Hold the flusher inside execute() so the queue backs up behind it
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return null;
+        });
+        ChatMessageBatchWriter smallWriter = new ChatMessageBatchWriter(store, meterRegistry, 1, 0, 1, 10, 1);
+        smallWriter.start();
+        try {
+            smallWriter.submit(ChatMessage.builder().content("in flight").build());
+            assertTrue(flushing.await(5, TimeUnit.SECONDS));
+            smallWriter.submit(ChatMessage.builder().content("queued").build());
+
+            // Act
+            CompletableFuture<ChatMessage> rejected = smallWriter.submit(ChatMessage.builder().content("overflow").build());
+
+            // Assert
+            CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+            assertInstanceOf(MessageWriterBusyException.class, exception.getCause());
+        } finally {
+            release.countDown();
+            smallWriter.stop();
+        }
+    }
+}
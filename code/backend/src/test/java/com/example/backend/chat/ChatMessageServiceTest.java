@@ -1,19 +1,42 @@
 package com.example.backend.chat;
 
+import com.example.backend.chat.dto.ChatDelta;
+import com.example.backend.chat.dto.ChatMessagePage;
+import com.example.backend.chat.dto.ChatSyncRequest;
+import com.example.backend.chat.dto.ChatSyncResponse;
+import com.example.backend.chat.dto.EditMessageRequest;
+import com.example.backend.chat.enums.NotificationType;
 import com.example.backend.chatroom.ChatRoomService;
+import com.example.backend.conversation.ConversationService;
+import com.example.backend.search.MessageSearchIndexer;
 import com.example.backend.shared.exceptions.ChatRoomNotFoundException;
+import com.example.backend.shared.exceptions.InvalidCursorException;
+import com.example.backend.shared.exceptions.InvalidSyncRequestException;
+import com.example.backend.shared.exceptions.MessageChangeForbiddenException;
+import com.example.backend.shared.exceptions.MessageVersionConflictException;
+import com.example.backend.shared.exceptions.MessageWriteRejectedException;
+import com.example.backend.shared.exceptions.MessageWriterBusyException;
+import com.example.backend.unread.UnreadCounterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,11 +45,40 @@ import static org.mockito.Mockito.*;
 class ChatMessageServiceTest {
 
     @Mock
-    private ChatMessageRepository repository;
+    private ChatHistoryStore historyStore;
 
     @Mock
     private ChatRoomService chatRoomService;
 
+    @Mock
+    private ChatMessageWriter messageWriter;
+
+    @Mock
+    private ChatSequenceService sequenceService;
+
+    // Smaller than the default page, so history reads in these tests go to the store
+    @Spy
+    private HotHistoryCache hotHistory = new HotHistoryCache(new SimpleMeterRegistry(),
+            mock(StringRedisTemplate.class), "chat:hot-history", 2, 10, 1 << 20, 60_000);
+
+    @Mock
+    private RedisHistoryCache redisHistory;
+
+    @Mock
+    private MessageSearchIndexer searchIndexer;
+
+    @Mock
+    private UnreadCounterService unreadCounters;
+
+    @Mock
+    private ConversationService conversations;
+
+    @Mock
+    private MessagePatchRepository patchRepository;
+
+    @Spy
+    private RecentSubmissions recentSubmissions = new RecentSubmissions(new SimpleMeterRegistry(), 60_000, 100);
+
     @InjectMocks
     private ChatMessageService chatMessageService;
 
@@ -37,6 +89,17 @@ class ChatMessageServiceTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(chatMessageService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(chatMessageService, "maxPageSize", 3);
+        ReflectionTestUtils.setField(chatMessageService, "maxSyncChats", 2);
+        ReflectionTestUtils.setField(chatMessageService, "gapGraceMs", 5000L);
+        // The Redis tier always misses, so reads fall through to the store
+        lenient().when(redisHistory.latest(anyString(), anyInt(), any()))
+                .thenAnswer(invocation -> invocation.<IntFunction<List<ChatMessage>>>getArgument(2)
+                        .apply(invocation.getArgument(1)));
+        lenient().when(sequenceService.next(anyString()))
+                .thenAnswer(invocation -> new ChatSequenceService.Stamp(1L, new Date()));
+
         chatMessage = ChatMessage.builder()
                 .senderId(senderId)
                 .recipientId(recipientId)
@@ -51,20 +114,21 @@ class ChatMessageServiceTest {
         // Mock ChatRoomService to return a chatId and ensure it's called with createNewRoomIfNotExists=true
         when(chatRoomService.getChatRoomId(senderId, recipientId, true))
                 .thenReturn(Optional.of(chatId));
-        when(repository.save(any(ChatMessage.class))).thenReturn(chatMessage);
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
 
         // ArgumentCaptor to check the message saved
         ArgumentCaptor<ChatMessage> messageCaptor = ArgumentCaptor.forClass(ChatMessage.class);
 
         // Act
-        ChatMessage savedMsg = chatMessageService.save(chatMessage);
+        ChatMessage savedMsg = chatMessageService.save(chatMessage).join();
 
         // Assert
         // 1. Verify ChatRoomService was called correctly
         verify(chatRoomService, times(1)).getChatRoomId(senderId, recipientId, true);
 
-        // 2. Verify repository.save was called
-        verify(repository, times(1)).save(messageCaptor.capture());
+        // 2. Verify the message was handed to the group-commit writer
+        verify(messageWriter, times(1)).submit(messageCaptor.capture());
 
         // 3. Verify the chatId was set on the message before saving
         assertEquals(chatId, messageCaptor.getValue().getChatId());
@@ -82,57 +146,514 @@ class ChatMessageServiceTest {
         // The code throws ChatRoomNotFoundException (not NoSuchElementException)
         assertThrows(ChatRoomNotFoundException.class, () -> chatMessageService.save(chatMessage));
 
-        // Verify repository.save was never called
-        verify(repository, never()).save(any(ChatMessage.class));
+        // Verify nothing was queued for writing
+        verify(messageWriter, never()).submit(any(ChatMessage.class));
+    }
+
+    @Test
+    void save_ShouldStampServerTimestamp_EvenWhenClientSentOne() {
+        // Arrange
+        Date skewed = new Date(System.currentTimeMillis() + 3_600_000);
+        Date stamped = new Date();
+        chatMessage.setTimestamp(skewed);
+        when(chatRoomService.getChatRoomId(senderId, recipientId, true))
+                .thenReturn(Optional.of(chatId));
+        when(sequenceService.next(chatId)).thenReturn(new ChatSequenceService.Stamp(42L, stamped));
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        // Act
+        ChatMessage savedMsg = chatMessageService.save(chatMessage).join();
+
+        // Assert
+        // The timestamp handed out with the seq, not the client's
+        assertSame(stamped, savedMsg.getTimestamp());
     }
 
     @Test
-    void findChatMessages_ShouldReturnMessages_WhenChatIdExists() {
+    void save_ShouldAssignNextSequenceNumberOfTheChat() {
         // Arrange
-        List<ChatMessage> mockMessages = List.of(
-                ChatMessage.builder().chatId(chatId).content("m1").build(),
-                ChatMessage.builder().chatId(chatId).content("m2").build()
-        );
-        // Mock ChatRoomService to return existing chatId
+        when(chatRoomService.getChatRoomId(senderId, recipientId, true))
+                .thenReturn(Optional.of(chatId));
+        when(sequenceService.next(chatId)).thenReturn(new ChatSequenceService.Stamp(42L, new Date()));
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        // Act
+        ChatMessage savedMsg = chatMessageService.save(chatMessage).join();
+
+        // Assert
+        assertEquals(42L, savedMsg.getSeq());
+    }
+
+    @Test
+    void findChatMessages_ShouldReturnLatestPageOldestFirst_WhenNoCursorGiven() {
+        // Arrange
+        // The store returns newest first, plus one extra row that signals another page
+        List<ChatMessage> rows = List.of(message("m3", 3000), message("m2", 2000), message("m1", 1000));
         when(chatRoomService.getChatRoomId(senderId, recipientId, false))
                 .thenReturn(Optional.of(chatId));
-        // Mock repository to return the messages
-        when(repository.findByChatId(chatId)).thenReturn(mockMessages);
+        when(historyStore.findLatest(eq(chatId), anyInt())).thenReturn(rows);
 
         // Act
-        List<ChatMessage> result = chatMessageService.findChatMessages(senderId, recipientId);
+        ChatMessagePage page = chatMessageService.findChatMessages(senderId, recipientId, null, null, null);
 
         // Assert
         // 1. Verify ChatRoomService was called correctly (with create=false)
         verify(chatRoomService, times(1)).getChatRoomId(senderId, recipientId, false);
 
-        // 2. Verify repository.findByChatId was called
-        verify(repository, times(1)).findByChatId(chatId);
+        // 2. Verify the default page size plus the look-ahead row was requested
+        verify(historyStore, times(1)).findLatest(chatId, 3);
+
+        // 3. Verify the page is trimmed, in chronological order, with cursors at both ends
+        assertEquals(List.of("m2", "m3"), page.getMessages().stream().map(ChatMessage::getId).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(new MessageCursor(new Date(2000), "m2").encode(), page.getBeforeCursor());
+        assertEquals(new MessageCursor(new Date(3000), "m3").encode(), page.getAfterCursor());
+    }
+
+    @Test
+    void save_ShouldUpdateHistorySearchAndUnread_OnceWritten() {
+        // Arrange
+        when(chatRoomService.getChatRoomId(senderId, recipientId, true))
+                .thenReturn(Optional.of(chatId));
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        // Act
+        chatMessageService.save(chatMessage).join();
+
+        // Assert
+        verify(hotHistory, times(1)).append(chatMessage);
+        verify(redisHistory, times(1)).append(chatMessage);
+        verify(searchIndexer, times(1)).index(chatMessage);
+        verify(unreadCounters, times(1)).increment(recipientId, senderId);
+        verify(conversations, times(1)).record(chatMessage);
+    }
+
+    @Test
+    void save_ShouldReturnFirstSubmission_WhenClientMessageIdIsResent() {
+        // Arrange
+        when(chatRoomService.getChatRoomId(senderId, recipientId, true)).thenReturn(Optional.of(chatId));
+        CompletableFuture<ChatMessage> pendingWrite = new CompletableFuture<>();
+        when(messageWriter.submit(any(ChatMessage.class))).thenReturn(pendingWrite);
+        chatMessage.setClientMessageId("c1");
+        ChatMessage resend = ChatMessage.builder()
+                .senderId(senderId).recipientId(recipientId).content("Hello").clientMessageId("c1").build();
+
+        // Act
+        CompletableFuture<ChatMessage> first = chatMessageService.save(chatMessage);
+        CompletableFuture<ChatMessage> retry = chatMessageService.save(resend);
+        pendingWrite.complete(chatMessage);
+
+        // Assert
+        assertSame(chatMessage, retry.join());
+        assertSame(first.join(), retry.join());
+        verify(messageWriter, times(1)).submit(any(ChatMessage.class));
+        verify(sequenceService, times(1)).next(chatId);
+        verify(unreadCounters, times(1)).increment(recipientId, senderId);
+    }
+
+    @Test
+    void save_ShouldReturnStoredCopy_WhenUniqueIndexRejectsResend() {
+        // Arrange
+        ChatMessage stored = ChatMessage.builder().id("m1").chatId(chatId).senderId(senderId).clientMessageId("c1").build();
+        when(chatRoomService.getChatRoomId(senderId, recipientId, true)).thenReturn(Optional.of(chatId));
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenReturn(CompletableFuture.failedFuture(new MessageWriteRejectedException("Message was rejected by the store")));
+        when(historyStore.findByClientMessageId(senderId, "c1")).thenReturn(Optional.of(stored));
+        chatMessage.setClientMessageId("c1");
+
+        // Act
+        ChatMessage saved = chatMessageService.save(chatMessage).join();
+
+        // Assert
+        assertSame(stored, saved);
+        verifyNoInteractions(unreadCounters);
+    }
+
+    @Test
+    void save_ShouldNotLookUpStoredCopy_WhenWriterIsBusy() {
+        // Arrange
+        when(chatRoomService.getChatRoomId(senderId, recipientId, true)).thenReturn(Optional.of(chatId));
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenReturn(CompletableFuture.failedFuture(new MessageWriterBusyException("Message write queue is full")));
+        chatMessage.setClientMessageId("c1");
+
+        // Act
+        CompletableFuture<ChatMessage> saved = chatMessageService.save(chatMessage);
+
+        // Assert
+        CompletionException exception = assertThrows(CompletionException.class, saved::join);
+        assertInstanceOf(MessageWriterBusyException.class, exception.getCause());
+        verify(historyStore, never()).findByClientMessageId(anyString(), anyString());
+    }
+
+    @Test
+    void save_ShouldWriteAgain_WhenFirstSubmissionFailed() {
+        // Arrange
+        when(chatRoomService.getChatRoomId(senderId, recipientId, true)).thenReturn(Optional.of(chatId));
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("mongo down")))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+        chatMessage.setClientMessageId("c1");
+
+        // Act
+        CompletableFuture<ChatMessage> failed = chatMessageService.save(chatMessage);
+        ChatMessage retried = chatMessageService.save(chatMessage).join();
+
+        // Assert
+        CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertSame(chatMessage, retried);
+        verify(historyStore, never()).findByClientMessageId(anyString(), anyString());
+        verify(messageWriter, times(2)).submit(any(ChatMessage.class));
+    }
+
+    @Test
+    void append_ShouldStoreUnderGivenChatIdWithoutUnreadCounters() {
+        // Arrange
+        when(sequenceService.next("room1")).thenReturn(new ChatSequenceService.Stamp(9L, new Date()));
+        when(messageWriter.submit(any(ChatMessage.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        // Act
+        ChatMessage saved = chatMessageService.append("room1", chatMessage).join();
+
+        // Assert
+        assertEquals("room1", saved.getChatId());
+        assertEquals(9L, saved.getSeq());
+        verifyNoInteractions(chatRoomService, unreadCounters, conversations);
+        verify(hotHistory, times(1)).append(chatMessage);
+    }
+
+    @Test
+    void findChatMessages_ShouldServeLatestPageFromHotHistory_WhenChatIsHot() {
+        // Arrange
+        ReflectionTestUtils.setField(chatMessageService, "defaultPageSize", 1);
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        when(historyStore.findLatest(eq(chatId), anyInt()))
+                .thenReturn(List.of(message("m2", 2000), message("m1", 1000)));
+        chatMessageService.findChatMessages(senderId, recipientId, null, null, null);
+
+        // Act
+        ChatMessagePage page = chatMessageService.findChatMessages(senderId, recipientId, null, null, null);
+
+        // Assert
+        // Only the first read, which loaded the chat into the hot tier, reached Mongo
+        verify(historyStore, times(1)).findLatest(eq(chatId), anyInt());
+        assertEquals(List.of("m2"), page.getMessages().stream().map(ChatMessage::getId).toList());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void findChatMessages_ShouldQueryOlderMessages_WhenBeforeCursorGiven() {
+        // Arrange
+        String before = new MessageCursor(new Date(2000), "m2").encode();
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        when(historyStore.findBefore(eq(chatId), any(MessageCursor.class), anyInt()))
+                .thenReturn(List.of(message("m1", 1000)));
+
+        // Act
+        ChatMessagePage page = chatMessageService.findChatMessages(senderId, recipientId, before, null, 10);
+
+        // Assert
+        ArgumentCaptor<MessageCursor> cursorCaptor = ArgumentCaptor.forClass(MessageCursor.class);
+        // The requested limit is capped at the configured maximum
+        verify(historyStore, times(1)).findBefore(eq(chatId), cursorCaptor.capture(), eq(4));
+        assertEquals(new Date(2000), cursorCaptor.getValue().getTimestamp());
+        assertEquals("m2", cursorCaptor.getValue().getId());
+        assertEquals(1, page.getMessages().size());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void findChatMessages_ShouldQueryNewerMessagesInOrder_WhenAfterCursorGiven() {
+        // Arrange
+        String after = new MessageCursor(new Date(1000), "m1").encode();
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        when(historyStore.findAfter(eq(chatId), argThat(cursor -> "m1".equals(cursor.getId())), anyInt()))
+                .thenReturn(List.of(message("m2", 2000), message("m3", 3000)));
+
+        // Act
+        ChatMessagePage page = chatMessageService.findChatMessages(senderId, recipientId, null, after, null);
+
+        // Assert
+        assertEquals(List.of("m2", "m3"), page.getMessages().stream().map(ChatMessage::getId).toList());
+        assertFalse(page.isHasMore());
+    }
 
-        // 3. Verify the list size and content
-        assertEquals(2, result.size());
-        assertEquals(mockMessages, result);
+    @Test
+    void findChatMessages_ShouldThrowException_WhenCursorIsMalformed() {
+        // Arrange
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+
+        // Act & Assert
+        assertThrows(InvalidCursorException.class,
+                () -> chatMessageService.findChatMessages(senderId, recipientId, "not-a-cursor", null, null));
+    }
+
+    @Test
+    void findChatMessages_ShouldThrowException_WhenBothCursorsGiven() {
+        // Act & Assert
+        assertThrows(InvalidCursorException.class,
+                () -> chatMessageService.findChatMessages(senderId, recipientId, "a", "b", null));
+        verifyNoInteractions(historyStore);
     }
 
     @Test
-    void findChatMessages_ShouldReturnEmptyList_WhenChatIdDoesNotExist() {
+    void findChatMessages_ShouldReturnEmptyPage_WhenChatIdDoesNotExist() {
         // Arrange
         // Mock ChatRoomService to return empty Optional
         when(chatRoomService.getChatRoomId(senderId, recipientId, false))
                 .thenReturn(Optional.empty());
 
         // Act
-        List<ChatMessage> result = chatMessageService.findChatMessages(senderId, recipientId);
+        ChatMessagePage page = chatMessageService.findChatMessages(senderId, recipientId, null, null, null);
 
         // Assert
         // 1. Verify ChatRoomService was called correctly (with create=false)
         verify(chatRoomService, times(1)).getChatRoomId(senderId, recipientId, false);
 
-        // 2. Verify repository.findByChatId was never called
-        verify(repository, never()).findByChatId(anyString());
+        // 2. Verify the store was never queried
+        verifyNoInteractions(historyStore);
+
+        // 3. Verify the result is an empty page
+        assertTrue(page.getMessages().isEmpty());
+        assertEquals(ArrayList.class, page.getMessages().getClass());
+        assertNull(page.getBeforeCursor());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void sync_ShouldReturnOnlyMessagesAfterClientPosition() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        when(historyStore.findAfterSeq(eq(chatId), eq(5L), anyInt()))
+                .thenReturn(List.of(sequenced("m6", 6, now), sequenced("m7", 7, now)));
+        ChatSyncRequest request = ChatSyncRequest.builder()
+                .userId(senderId)
+                .since(Map.of(recipientId, 5L))
+                .build();
+
+        // Act
+        ChatSyncResponse response = chatMessageService.sync(request);
+
+        // Assert
+        assertEquals(1, response.getChats().size());
+        ChatDelta delta = response.getChats().get(0);
+        assertEquals(recipientId, delta.getPeerId());
+        assertEquals(List.of("m6", "m7"), delta.getMessages().stream().map(ChatMessage::getId).toList());
+        assertEquals(7L, delta.getLastSeq());
+        assertFalse(delta.isHasMore());
+    }
+
+    @Test
+    void sync_ShouldStopAtFreshGap_SoInFlightMessagesAreNotSkipped() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        // seq 7 has not been persisted yet
+        when(historyStore.findAfterSeq(eq(chatId), eq(5L), anyInt()))
+                .thenReturn(List.of(sequenced("m6", 6, now), sequenced("m8", 8, now)));
+
+        // Act
+        ChatDelta delta = chatMessageService.sync(ChatSyncRequest.builder()
+                .userId(senderId)
+                .since(Map.of(recipientId, 5L))
+                .build()).getChats().get(0);
+
+        // Assert
+        assertEquals(List.of("m6"), delta.getMessages().stream().map(ChatMessage::getId).toList());
+        assertEquals(6L, delta.getLastSeq());
+        assertTrue(delta.isHasMore());
+    }
+
+    @Test
+    void sync_ShouldSkipStaleGap_LeftByFailedWrite() {
+        // Arrange
+        long old = System.currentTimeMillis() - 60_000;
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        when(historyStore.findAfterSeq(eq(chatId), eq(5L), anyInt()))
+                .thenReturn(List.of(sequenced("m6", 6, old), sequenced("m8", 8, old)));
+
+        // Act
+        ChatDelta delta = chatMessageService.sync(ChatSyncRequest.builder()
+                .userId(senderId)
+                .since(Map.of(recipientId, 5L))
+                .build()).getChats().get(0);
+
+        // Assert
+        assertEquals(List.of("m6", "m8"), delta.getMessages().stream().map(ChatMessage::getId).toList());
+        assertEquals(8L, delta.getLastSeq());
+    }
+
+    @Test
+    void sync_ShouldStopAtStaleGap_WhileWriterStillHoldsTheMissingMessage() {
+        // Arrange
+        long old = System.currentTimeMillis() - 60_000;
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        when(historyStore.findAfterSeq(eq(chatId), eq(5L), anyInt()))
+                .thenReturn(List.of(sequenced("m6", 6, old), sequenced("m8", 8, old)));
+        // seq 7 was acked from the journal and is not in the store yet
+        when(messageWriter.lastPendingSeq(chatId)).thenReturn(7L);
+
+        // Act
+        ChatDelta delta = chatMessageService.sync(ChatSyncRequest.builder()
+                .userId(senderId)
+                .since(Map.of(recipientId, 5L))
+                .build()).getChats().get(0);
+
+        // Assert
+        assertEquals(List.of("m6"), delta.getMessages().stream().map(ChatMessage::getId).toList());
+        assertEquals(6L, delta.getLastSeq());
+        assertTrue(delta.isHasMore());
+    }
+
+    @Test
+    void sync_ShouldKeepPosition_WhenNothingNew() {
+        // Arrange
+        when(chatRoomService.getChatRoomId(senderId, recipientId, false))
+                .thenReturn(Optional.of(chatId));
+        when(historyStore.findAfterSeq(eq(chatId), eq(9L), anyInt())).thenReturn(List.of());
+
+        // Act
+        ChatDelta delta = chatMessageService.sync(ChatSyncRequest.builder()
+                .userId(senderId)
+                .since(Map.of(recipientId, 9L))
+                .build()).getChats().get(0);
+
+        // Assert
+        assertTrue(delta.getMessages().isEmpty());
+        assertEquals(9L, delta.getLastSeq());
+    }
+
+    @Test
+    void sync_ShouldThrowException_WhenTooManyChatsRequested() {
+        // Arrange
+        ChatSyncRequest request = ChatSyncRequest.builder()
+                .userId(senderId)
+                .since(Map.of("p1", 0L, "p2", 0L, "p3", 0L))
+                .build();
+
+        // Act & Assert
+        assertThrows(InvalidSyncRequestException.class, () -> chatMessageService.sync(request));
+        verifyNoInteractions(historyStore);
+    }
+
+    @Test
+    void edit_ShouldPersistPatchAndPatchCachesInPlace() {
+        // Arrange
+        ChatMessage stored = sequenced("m1", 4, 1000);
+        stored.setChatId(chatId);
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+        ChatMessage patched = sequenced("m1", 4, 1000);
+        patched.setChatId(chatId);
+        patched.setContent("fixed");
+        patched.setVersion(1L);
+        when(historyStore.applyPatch(any(MessagePatch.class))).thenReturn(Optional.of(patched));
+
+        // Act
+        ChatMessage result = chatMessageService.edit(chatId, "m1", senderId,
+                EditMessageRequest.builder().content("fixed").version(0L).build());
+
+        // Assert
+        assertEquals(patched, result);
+        ArgumentCaptor<MessagePatch> patchCaptor = ArgumentCaptor.forClass(MessagePatch.class);
+        verify(patchRepository, times(1)).insert(patchCaptor.capture());
+        MessagePatch patch = patchCaptor.getValue();
+        assertEquals(NotificationType.EDITED, patch.getType());
+        assertEquals(1L, patch.getVersion());
+        assertNull(patch.previousVersion());
+        assertEquals("fixed", patch.getContent());
+        verify(hotHistory, times(1)).patch(patched);
+        verify(redisHistory, times(1)).patch(patched);
+        verify(redisHistory, never()).invalidate(anyString());
+        verify(searchIndexer, times(1)).index(patched);
+        verify(conversations, times(1)).record(patched);
+    }
+
+    @Test
+    void edit_ShouldRejectAnyoneButTheSender() {
+        // Arrange
+        ChatMessage stored = sequenced("m1", 4, 1000);
+        stored.setChatId(chatId);
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
 
-        // 3. Verify the result is an empty list
-        assertTrue(result.isEmpty());
-        assertEquals(ArrayList.class, result.getClass());
+        // Act & Assert
+        assertThrows(MessageChangeForbiddenException.class, () -> chatMessageService.edit(chatId, "m1", recipientId,
+                EditMessageRequest.builder().content("not mine").build()));
+        verify(historyStore, never()).applyPatch(any());
+        verifyNoInteractions(patchRepository);
+    }
+
+    @Test
+    void delete_ShouldConflict_WhenClientVersionIsStale() {
+        // Arrange
+        ChatMessage stored = sequenced("m1", 4, 1000);
+        stored.setChatId(chatId);
+        stored.setVersion(2L);
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+
+        // Act & Assert
+        assertThrows(MessageVersionConflictException.class, () -> chatMessageService.delete(chatId, "m1", senderId, 1L));
+        verify(historyStore, never()).applyPatch(any());
+    }
+
+    @Test
+    void delete_ShouldConflictWithoutPersistingPatch_WhenConcurrentChangeWins() {
+        // Arrange
+        ChatMessage stored = sequenced("m1", 4, 1000);
+        stored.setChatId(chatId);
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+        when(historyStore.applyPatch(any(MessagePatch.class))).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(MessageVersionConflictException.class, () -> chatMessageService.delete(chatId, "m1", senderId, null));
+        verifyNoInteractions(patchRepository, redisHistory);
+    }
+
+    @Test
+    void delete_ShouldLeaveConversationListAlone_ForGroupMessages() {
+        // Arrange
+        ChatMessage stored = ChatMessage.builder().id("m1").chatId("room1").senderId(senderId).recipientId("room1")
+                .content("oops").timestamp(new Date(1000)).seq(9L).build();
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+        ChatMessage tombstone = ChatMessage.builder().id("m1").chatId("room1").senderId(senderId).recipientId("room1")
+                .timestamp(new Date(1000)).seq(9L).version(1L).deletedAt(new Date()).build();
+        when(historyStore.applyPatch(any(MessagePatch.class))).thenReturn(Optional.of(tombstone));
+
+        // Act
+        ChatMessage result = chatMessageService.delete("room1", "m1", senderId, null);
+
+        // Assert
+        assertNull(result.getContent());
+        verify(redisHistory, times(1)).patch(tombstone);
+        verifyNoInteractions(conversations, searchIndexer);
+    }
+
+    private ChatMessage sequenced(String id, long seq, long timestamp) {
+        ChatMessage message = message(id, timestamp);
+        message.setSeq(seq);
+        return message;
+    }
+
+    private ChatMessage message(String id, long timestamp) {
+        return ChatMessage.builder()
+                .id(id)
+                .senderId(senderId)
+                .recipientId(recipientId)
+                .content(id)
+                .timestamp(new Date(timestamp))
+                .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.example.backend.chat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatSequenceServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ChatHistoryStore historyStore;
+
+    @Mock
+    private ChatMessageWriter messageWriter;
+
+    @InjectMocks
+    private ChatSequenceService sequenceService;
+
+    private final String chatId = "userA_userB";
+    private final String key = "chat:seq:userA_userB";
+    private final List<String> keys = List.of(key, "chat:seq:userA_userB:ts");
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void next_ShouldIncrementExistingCounter() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(keys))).thenReturn(List.of(8L, 1_700_000_000_123L));
+
+        // Act
+        ChatSequenceService.Stamp stamp = sequenceService.next(chatId);
+
+        // Assert
+        assertEquals(8L, stamp.seq());
+        assertEquals(new Date(1_700_000_000_123L), stamp.timestamp());
+        verifyNoInteractions(historyStore);
+        verify(valueOperations, never()).setIfAbsent(anyString(), anyString());
+    }
+
+    @Test
+    void next_ShouldSeedFromStoredMessages_WhenCounterIsMissing() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(keys)))
+                .thenReturn(null)
+                .thenReturn(List.of(42L, 1_700_000_000_123L));
+        when(historyStore.lastSeq(chatId)).thenReturn(41L);
+
+        // Act
+        ChatSequenceService.Stamp stamp = sequenceService.next(chatId);
+
+        // Assert
+        assertEquals(42L, stamp.seq());
+        verify(valueOperations, times(1)).setIfAbsent(key, "41");
+    }
+
+    @Test
+    void next_ShouldStartAtOne_ForNewChat() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(keys)))
+                .thenReturn(null)
+                .thenReturn(List.of(1L, 1_700_000_000_123L));
+        when(historyStore.lastSeq(chatId)).thenReturn(0L);
+
+        // Act
+        ChatSequenceService.Stamp stamp = sequenceService.next(chatId);
+
+        // Assert
+        assertEquals(1L, stamp.seq());
+        verify(valueOperations, times(1)).setIfAbsent(key, "0");
+    }
+
+    @Test
+    void next_ShouldSeedPastUnreplayedMessages_WhenWriterHoldsNewerOnes() {
+        // Arrange
+        // Redis lost the counter while journal entries up to seq 45 still wait for replay
+        when(redisTemplate.execute(any(RedisScript.class), eq(keys)))
+                .thenReturn(null)
+                .thenReturn(List.of(46L, 1_700_000_000_123L));
+        when(historyStore.lastSeq(chatId)).thenReturn(41L);
+        when(messageWriter.lastPendingSeq(chatId)).thenReturn(45L);
+
+        // Act
+        ChatSequenceService.Stamp stamp = sequenceService.next(chatId);
+
+        // Assert
+        assertEquals(46L, stamp.seq());
+        verify(valueOperations, times(1)).setIfAbsent(key, "45");
+    }
+
+    @Test
+    void next_ShouldFail_WhenCounterDisappearsWhileSeeding() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), eq(keys))).thenReturn(null);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> sequenceService.next(chatId));
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.backend.chat;
+
+import com.example.backend.chat.enums.NotificationType;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentHistoryStoreTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ChatMessageRepository repository;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @InjectMocks
+    private DocumentHistoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "cursorBatchSize", 2);
+    }
+
+    @Test
+    void insert_ShouldReportRejectedIndexes_WhenBulkInsertPartiallyFails() {
+        // Arrange
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class)).thenReturn(bulkOperations);
+        MongoBulkWriteException cause = mock(MongoBulkWriteException.class);
+        when(cause.getWriteErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)));
+        BulkOperationException partialFailure = new BulkOperationException("partial", cause);
+        when(bulkOperations.execute()).thenThrow(partialFailure);
+
+        // Act
+        Set<Integer> failed = store.insert(List.of(new ChatMessage(), new ChatMessage()));
+
+        // Assert
+        assertEquals(Set.of(1), failed);
+    }
+
+    @Test
+    void chatQuery_ShouldResumeAfterSeqInSeqOrder() {
+        // Act
+        Query query = store.chatQuery("userA_userB", 41L, null);
+
+        // Assert
+        assertEquals(41L, query.getQueryObject().get("seq", Document.class).get("$gt"));
+        assertEquals(List.of("seq"), List.copyOf(query.getSortObject().keySet()));
+    }
+
+    @Test
+    void chatQuery_ShouldResumeFromTimestampInTimestampOrder() {
+        // Act
+        Query query = store.chatQuery("userA_userB", null, new Date(5000));
+
+        // Assert
+        assertEquals(new Date(5000), query.getQueryObject().get("timestamp", Document.class).get("$gte"));
+        assertEquals(List.of("timestamp", "_id"), List.copyOf(query.getSortObject().keySet()));
+    }
+
+    @Test
+    void applyPatch_ShouldUpdateOnlyTheSendersUndeletedMessageAtThePreviousVersion() {
+        // Arrange
+        ChatMessage patched = ChatMessage.builder().id("m1").version(3L).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ChatMessage.class))).thenReturn(patched);
+        MessagePatch patch = MessagePatch.builder()
+                .messageId("m1").senderId("userA").type(NotificationType.EDITED)
+                .version(3L).content("fixed").createdAt(new Date(5000)).build();
+
+        // Act
+        Optional<ChatMessage> result = store.applyPatch(patch);
+
+        // Assert
+        assertEquals(Optional.of(patched), result);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(ChatMessage.class));
+        Document guard = query.getValue().getQueryObject();
+        assertEquals("m1", guard.get("_id"));
+        assertEquals("userA", guard.get("senderId"));
+        assertEquals(2L, guard.get("version"));
+        assertTrue(guard.containsKey("deletedAt"));
+        assertNull(guard.get("deletedAt"));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals("fixed", set.get("content"));
+        assertEquals(3L, set.get("version"));
+        assertEquals(new Date(5000), set.get("editedAt"));
+        assertTrue(update.getValue().getUpdateObject().get("$unset", Document.class).containsKey("compressedContent"));
+    }
+
+    @Test
+    void applyPatch_ShouldClearContentAndAttachments_WhenDeleting() {
+        // Arrange
+        MessagePatch patch = MessagePatch.builder()
+                .messageId("m1").senderId("userA").type(NotificationType.DELETED)
+                .version(1L).createdAt(new Date(5000)).build();
+
+        // Act
+        Optional<ChatMessage> result = store.applyPatch(patch);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(ChatMessage.class));
+        // A first patch matches messages that were never versioned
+        assertNull(query.getValue().getQueryObject().get("version"));
+        Document unset = update.getValue().getUpdateObject().get("$unset", Document.class);
+        assertTrue(unset.containsKey("content"));
+        assertTrue(unset.containsKey("attachmentIds"));
+        assertEquals(new Date(5000), update.getValue().getUpdateObject().get("$set", Document.class).get("deletedAt"));
+    }
+
+    @Test
+    void react_ShouldIncrementCounterGuardedByReactorSet() {
+        // Arrange
+        ChatMessage updated = ChatMessage.builder().id("m1").reactions(Map.of("👍", 2L)).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ChatMessage.class))).thenReturn(updated);
+        ReactionChange change = ReactionChange.builder().messageId("m1").userId("userB").emoji("👍").add(true).build();
+
+        // Act
+        Optional<ChatMessage> result = store.react(change);
+
+        // Assert
+        assertEquals(Optional.of(updated), result);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).findAndModify(query.capture(), update.capture(),
+                any(FindAndModifyOptions.class), eq(ChatMessage.class));
+        assertEquals("userB", query.getValue().getQueryObject().get("reactors.👍", Document.class).get("$ne"));
+        Document inc = update.getValue().getUpdateObject().get("$inc", Document.class);
+        assertEquals(1, inc.get("reactions.👍"));
+        assertEquals(1, inc.get("reactionsVersion"));
+        assertEquals("userB", update.getValue().getUpdateObject().get("$addToSet", Document.class).get("reactors.👍"));
+    }
+
+    @Test
+    void react_ShouldDropEmoji_WhenLastReactorLeaves() {
+        // Arrange
+        ChatMessage emptied = ChatMessage.builder().id("m1").reactions(Map.of("👍", 0L)).reactionsVersion(4L).build();
+        ChatMessage cleaned = ChatMessage.builder().id("m1").reactions(Map.of()).reactionsVersion(5L).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ChatMessage.class))).thenReturn(emptied, cleaned);
+        ReactionChange change = ReactionChange.builder().messageId("m1").userId("userB").emoji("👍").add(false).build();
+
+        // Act
+        Optional<ChatMessage> result = store.react(change);
+
+        // Assert
+        assertEquals(Optional.of(cleaned), result);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), update.capture(),
+                any(FindAndModifyOptions.class), eq(ChatMessage.class));
+        assertEquals("userB", update.getAllValues().get(0).getUpdateObject().get("$pull", Document.class).get("reactors.👍"));
+        assertTrue(update.getAllValues().get(1).getUpdateObject().get("$unset", Document.class).containsKey("reactions.👍"));
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.backend.chat;
+
+import com.example.backend.chat.codec.ContentCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class HotHistoryCacheTest {
+
+    private static final String CHANNEL = "chat:hot-history";
+
+    private SimpleMeterRegistry meterRegistry;
+    private StringRedisTemplate redisTemplate;
+    private AtomicLong clock;
+    private HotHistoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        redisTemplate = mock(StringRedisTemplate.class);
+        clock = new AtomicLong();
+        cache = cache(3, 2, 1 << 20);
+    }
+
+    private HotHistoryCache cache(int messagesPerChat, int maxChats, long memoryBudgetBytes) {
+        return new HotHistoryCache(meterRegistry, redisTemplate, CHANNEL, messagesPerChat, maxChats,
+                memoryBudgetBytes, 60_000, clock::get);
+    }
+
+    @Test
+    void onMessage_ShouldDropChat_WhenAnotherNodeAppendedToIt() {
+        // Arrange
+        // Both nodes on one channel, each hearing its own messages as well
+        HotHistoryCache otherNode = cache(3, 2, 1 << 20);
+        doAnswer(invocation -> {
+            DefaultMessage message = new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    invocation.<String>getArgument(1).getBytes(StandardCharsets.UTF_8));
+            cache.onMessage(message, null);
+            otherNode.onMessage(message, null);
+            return 1L;
+        }).when(redisTemplate).convertAndSend(eq(CHANNEL), anyString());
+        cache.latest("chat1", 2, count -> List.of(message("chat1", "m1", 1000)));
+        otherNode.latest("chat1", 2, count -> List.of(message("chat1", "m1", 1000)));
+
+        // Act
+        otherNode.append(message("chat1", "m2", 2000));
+
+        // Assert
+        assertEquals(0, cache.chatCount());
+        assertEquals(0, cache.usedBytes());
+        assertEquals(List.of("m2", "m1"), ids(cache.latest("chat1", 2,
+                count -> List.of(message("chat1", "m2", 2000), message("chat1", "m1", 1000)))));
+        assertEquals(List.of("m2", "m1"), ids(otherNode.latest("chat1", 2, count -> fail("Chat should be resident"))));
+        assertEquals(1.0, meterRegistry.get("chat.history.hot.invalidations").counter().count());
+    }
+
+    @Test
+    void latest_ShouldReload_WhenBufferOutlivedTtl() {
+        // Arrange
+        cache.latest("chat1", 1, count -> List.of(message("chat1", "m1", 1000)));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        List<ChatMessage> rows = cache.latest("chat1", 1, count -> {
+            loads.incrementAndGet();
+            return List.of(message("chat1", "m1-edited-elsewhere", 1000));
+        });
+
+        // Assert
+        assertEquals(List.of("m1-edited-elsewhere"), ids(rows));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void latest_ShouldLoadColdChatOnceAndThenServeFromMemory() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        IntFunction<List<ChatMessage>> loader = count -> {
+            loads.incrementAndGet();
+            return List.of(message("chat1", "m2", 2000), message("chat1", "m1", 1000));
+        };
+
+        // Act
+        List<ChatMessage> first = cache.latest("chat1", 2, loader);
+        List<ChatMessage> second = cache.latest("chat1", 2, loader);
+
+        // Assert
+        assertEquals(List.of("m2", "m1"), ids(first));
+        assertEquals(List.of("m2", "m1"), ids(second));
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("chat.history.hot.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("chat.history.hot.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void latest_ShouldShareOneLoad_WhenConcurrentReadersMissSameChat() throws Exception {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IntFunction<List<ChatMessage>> loader = count -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(message("chat1", "m2", 2000), message("chat1", "m1", 1000));
+        };
+        CompletableFuture<List<ChatMessage>> first = CompletableFuture.supplyAsync(() -> cache.latest("chat1", 2, loader));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<List<ChatMessage>> second = CompletableFuture.supplyAsync(() -> cache.latest("chat1", 2, loader));
+        while (meterRegistry.get("cache.single-flight.coalesced").counter().count() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // Assert
+        assertEquals(List.of("m2", "m1"), ids(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("m2", "m1"), ids(second.get(5, TimeUnit.SECONDS)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void append_ShouldKeepOnlyMostRecentMessagesOfResidentChat() {
+        // Arrange
+        cache.latest("chat1", 1, count -> List.of());
+
+        // Act
+        for (int i = 1; i <= 5; i++) {
+            cache.append(message("chat1", "m" + i, i * 1000L));
+        }
+
+        // Assert
+        assertEquals(List.of("m5", "m4", "m3"), ids(cache.latest("chat1", 3, count -> fail("should be hot"))));
+        // Asking past what the buffer holds must not pretend the history ends there
+        assertEquals(4, cache.latest("chat1", 4, count -> {
+            List<ChatMessage> fromMongo = new ArrayList<>();
+            for (int i = 5; i > 1; i--) {
+                fromMongo.add(message("chat1", "m" + i, i * 1000L));
+            }
+            return fromMongo;
+        }).size());
+    }
+
+    @Test
+    void append_ShouldIgnoreChatsThatAreNotResident() {
+        // Act
+        cache.append(message("chat1", "m1", 1000));
+
+        // Assert
+        assertEquals(0, cache.chatCount());
+        assertEquals(0, cache.usedBytes());
+    }
+
+    @Test
+    void append_ShouldOrderOutOfOrderCompletionsAndDropDuplicates() {
+        // Arrange
+        cache.latest("chat1", 1, count -> List.of());
+
+        // Act
+        cache.append(message("chat1", "m2", 2000));
+        cache.append(message("chat1", "m1", 1000));
+        cache.append(message("chat1", "m2", 2000));
+
+        // Assert
+        assertEquals(List.of("m2", "m1"), ids(cache.latest("chat1", 3, count -> fail("should be hot"))));
+    }
+
+    @Test
+    void patch_ShouldReplaceMessageInPlace_AndIgnoreOlderVersions() {
+        // Arrange
+        cache.latest("chat1", 1, count -> List.of(message("chat1", "m2", 2000), message("chat1", "m1", 1000)));
+        ChatMessage edited = message("chat1", "m1", 1000);
+        edited.setContent("a much longer body than the original one");
+        edited.setVersion(2L);
+        ChatMessage stale = message("chat1", "m1", 1000);
+        stale.setContent("stale");
+        stale.setVersion(1L);
+        long before = cache.usedBytes();
+
+        // Act
+        cache.patch(edited);
+        cache.patch(stale);
+
+        // Assert
+        List<ChatMessage> rows = cache.latest("chat1", 3, count -> fail("should be hot"));
+        assertEquals(List.of("m2", "m1"), ids(rows));
+        assertEquals("a much longer body than the original one", rows.get(1).getContent());
+        assertEquals(2L, rows.get(1).getVersion());
+        assertTrue(cache.usedBytes() > before);
+    }
+
+    @Test
+    void patch_ShouldKeepLaterCopy_WhenEditAndReactionArriveOutOfOrder() {
+        // Arrange
+        cache.latest("chat1", 1, count -> List.of(message("chat1", "m1", 1000)));
+        ChatMessage reacted = message("chat1", "m1", 1000);
+        reacted.setContent("edited");
+        reacted.setVersion(1L);
+        reacted.setReactionsVersion(1L);
+        ChatMessage editedOnly = message("chat1", "m1", 1000);
+        editedOnly.setContent("edited");
+        editedOnly.setVersion(1L);
+
+        // Act
+        cache.patch(reacted);
+        cache.patch(editedOnly);
+
+        // Assert
+        ChatMessage row = cache.latest("chat1", 1, count -> fail("should be hot")).get(0);
+        assertEquals(1L, row.getReactionsVersion());
+    }
+
+    @Test
+    void patch_ShouldIgnoreChatsThatAreNotResident() {
+        // Act
+        ChatMessage edited = message("chat1", "m1", 1000);
+        edited.setVersion(1L);
+        cache.patch(edited);
+
+        // Assert
+        assertEquals(0, cache.chatCount());
+        assertEquals(0, cache.usedBytes());
+    }
+
+    @Test
+    void before_ShouldServeOlderPageFromBuffer_OrMissWhenItReachesColdHistory() {
+        // Arrange
+        cache.latest("chat1", 3, count -> List.of(
+                message("chat1", "m4", 4000), message("chat1", "m3", 3000), message("chat1", "m2", 2000)));
+        MessageCursor cursor = new MessageCursor(new Date(4000), "m4");
+
+        // Act
+        Optional<List<ChatMessage>> hot = cache.before("chat1", cursor, 2);
+        Optional<List<ChatMessage>> cold = cache.before("chat1", cursor, 3);
+
+        // Assert
+        assertEquals(List.of("m3", "m2"), ids(hot.orElseThrow()));
+        assertTrue(cold.isEmpty());
+    }
+
+    @Test
+    void latest_ShouldEvictLeastRecentlyUsedChat_WhenChatLimitExceeded() {
+        // Arrange
+        cache.latest("chat1", 1, count -> List.of(message("chat1", "a", 1000)));
+        cache.latest("chat2", 1, count -> List.of(message("chat2", "b", 1000)));
+        // Touch chat1 so chat2 becomes the eldest
+        cache.latest("chat1", 1, count -> fail("should be hot"));
+
+        // Act
+        cache.latest("chat3", 1, count -> List.of(message("chat3", "c", 1000)));
+
+        // Assert
+        assertEquals(2, cache.chatCount());
+        AtomicInteger reloads = new AtomicInteger();
+        cache.latest("chat2", 1, count -> {
+            reloads.incrementAndGet();
+            return List.of(message("chat2", "b", 1000));
+        });
+        assertEquals(1, reloads.get());
+        // chat2 was evicted by chat3, and coming back it evicted chat1
+        assertEquals(2.0, meterRegistry.get("chat.history.hot.evictions").counter().count());
+    }
+
+    @Test
+    void latest_ShouldStayWithinMemoryBudget() {
+        // Arrange
+        long oneMessage = HotHistoryCache.estimateBytes(message("chat1", "m1", 1000));
+        cache = cache(3, 100, oneMessage * 2);
+
+        // Act
+        cache.latest("chat1", 1, count -> List.of(message("chat1", "m1", 1000)));
+        cache.latest("chat2", 1, count -> List.of(message("chat2", "m1", 1000)));
+        cache.latest("chat3", 1, count -> List.of(message("chat3", "m1", 1000)));
+
+        // Assert
+        assertTrue(cache.usedBytes() <= oneMessage * 2);
+        assertEquals(2, cache.chatCount());
+    }
+
+    @Test
+    void latest_ShouldHandOutDecodedCopies_AndKeepBufferCompressed() {
+        // Arrange
+        String content = "log line ".repeat(200);
+        ChatMessage compressed = message("chat1", "m1", 1000);
+        compressed.setContent(null);
+        compressed.setContentCodec(ContentCodec.DEFLATE_DICT_V1);
+        compressed.setCompressedContent(ContentCodec.DEFLATE_DICT_V1.encode(content));
+        cache.latest("chat1", 1, count -> List.of(compressed));
+        long bytes = cache.usedBytes();
+
+        // Act
+        ChatMessage first = cache.latest("chat1", 1, count -> fail("Chat should be resident")).get(0);
+        ChatMessage second = cache.latest("chat1", 1, count -> fail("Chat should be resident")).get(0);
+
+        // Assert
+        assertEquals(content, first.getContent());
+        assertNull(first.getContentCodec());
+        assertNotSame(first, second);
+        assertEquals(bytes, cache.usedBytes());
+    }
+
+    private ChatMessage message(String chatId, String id, long timestamp) {
+        return ChatMessage.builder()
+                .id(id)
+                .chatId(chatId)
+                .senderId("userA")
+                .recipientId("userB")
+                .content("content of " + id)
+                .timestamp(new Date(timestamp))
+                .build();
+    }
+
+    private List<String> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).toList();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.backend.chat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentSubmissionsTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final RecentSubmissions submissions =
+            new RecentSubmissions(new SimpleMeterRegistry(), 1000, 3, now::get);
+
+    @Test
+    void claim_ShouldReturnEarlierSubmission_ForSameSenderAndClientId() {
+        // Arrange
+        CompletableFuture<ChatMessage> first = new CompletableFuture<>();
+        submissions.claim("userA", "c1", first);
+
+        // Act & Assert
+        assertSame(first, submissions.claim("userA", "c1", new CompletableFuture<>()));
+        assertNull(submissions.claim("userB", "c1", new CompletableFuture<>()), "Ids are scoped per sender");
+    }
+
+    @Test
+    void claim_ShouldForgetEntries_OlderThanWindow() {
+        // Arrange
+        submissions.claim("userA", "c1", new CompletableFuture<>());
+
+        // Act
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        // Assert
+        assertNull(submissions.claim("userA", "c1", new CompletableFuture<>()));
+    }
+
+    @Test
+    void claim_ShouldEvictOldest_WhenFull() {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            submissions.claim("userA", "c" + i, new CompletableFuture<>());
+        }
+
+        // Act & Assert
+        assertEquals(3, submissions.size());
+        assertNull(submissions.claim("userA", "c0", new CompletableFuture<>()));
+    }
+
+    @Test
+    void release_ShouldOnlyDropTheSubmissionThatFailed() {
+        // Arrange
+        CompletableFuture<ChatMessage> first = new CompletableFuture<>();
+        submissions.claim("userA", "c1", first);
+
+        // Act
+        submissions.release("userA", "c1", new CompletableFuture<>());
+
+        // Assert
+        assertSame(first, submissions.claim("userA", "c1", new CompletableFuture<>()));
+        submissions.release("userA", "c1", first);
+        assertEquals(0, submissions.size());
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.backend.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisHistoryCacheTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String chatId = "userA_userB";
+    private final List<String> keys = List.of("chat:history:userA_userB", "chat:history:userA_userB:state");
+
+    private RedisHistoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RedisHistoryCache(redisTemplate, objectMapper, new SimpleMeterRegistry(), 3, 60, 100, 500);
+    }
+
+    @Test
+    void latest_ShouldServeFromRedis_WhenChatIsLoaded() throws Exception {
+        // Arrange
+        List<String> rows = List.of(json(message("m2", 2)), json(message("m1", 1)));
+        doReturn(rows).when(redisTemplate).execute(anyScript(), eq(keys), eq("2"));
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        List<ChatMessage> latest = cache.latest(chatId, 2, count -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        // Assert
+        assertEquals(List.of("m2", "m1"), latest.stream().map(ChatMessage::getId).toList());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void latest_ShouldLoadAndPrimeChat_OnMiss() {
+        // Arrange
+        givenClaims(1L);
+        List<Integer> requested = new ArrayList<>();
+
+        // Act
+        List<ChatMessage> latest = cache.latest(chatId, 2, count -> {
+            requested.add(count);
+            return List.of(message("m2", 2), message("m1", 1));
+        });
+
+        // Assert
+        // 1. The chat is claimed before Mongo is read, so concurrent appends are kept, and only for
+        //    about as long as other readers wait for the load
+        String token = claimToken();
+
+        // 2. The whole per-chat window was loaded and written as the full history, under that claim
+        assertEquals(List.of(3), requested);
+        verify(redisTemplate, times(1)).execute(anyScript(), eq(keys),
+                eq(token), eq("full"), eq("3"), eq("3600000"), eq("2"), anyString(), eq("1"), anyString());
+        verify(redisTemplate, never()).execute(anyScript(), eq(keys), startsWith("pending:"));
+        assertEquals(List.of("m2", "m1"), latest.stream().map(ChatMessage::getId).toList());
+    }
+
+    @Test
+    void latest_ShouldWaitForOtherNodesLoad_WhenChatIsPending() throws Exception {
+        // Arrange
+        RedisHistoryCache waitingCache = new RedisHistoryCache(redisTemplate, objectMapper, new SimpleMeterRegistry(), 3, 60, 100, 1000);
+        doReturn(0L).when(redisTemplate).execute(anyScript(), eq(keys), startsWith("pending:"), eq("1000"));
+        List<String> rows = List.of(json(message("m2", 2)), json(message("m1", 1)));
+        doReturn(null, rows).when(redisTemplate).execute(anyScript(), eq(keys), eq("2"));
+
+        // Act
+        List<ChatMessage> latest = waitingCache.latest(chatId, 2, count -> fail("loaded from Mongo twice"));
+
+        // Assert
+        assertEquals(List.of("m2", "m1"), latest.stream().map(ChatMessage::getId).toList());
+    }
+
+    @Test
+    void latest_ShouldReadMongoWithoutPriming_WhenOtherLoadOutlivesTheWait() {
+        // Arrange
+        RedisHistoryCache waitingCache = new RedisHistoryCache(redisTemplate, objectMapper, new SimpleMeterRegistry(), 3, 60, 100, 50);
+        doReturn(0L).when(redisTemplate).execute(anyScript(), eq(keys), startsWith("pending:"), eq("50"));
+        List<Integer> requested = new ArrayList<>();
+
+        // Act
+        List<ChatMessage> latest = waitingCache.latest(chatId, 2, count -> {
+            requested.add(count);
+            return List.of(message("m2", 2), message("m1", 1));
+        });
+
+        // Assert
+        assertEquals(2, latest.size());
+        assertEquals(List.of(2), requested);
+        // Claimed once more after the wait, in case the other load was abandoned
+        verify(redisTemplate, times(2)).execute(anyScript(), eq(keys), startsWith("pending:"), eq("50"));
+        verify(redisTemplate, never()).execute(anyScript(), eq(keys), startsWith("pending:"));
+    }
+
+    @Test
+    void latest_ShouldReleaseClaim_WhenMessagesHaveNoSeq() {
+        // Arrange
+        givenClaims(1L);
+
+        // Act
+        List<ChatMessage> latest = cache.latest(chatId, 1, count -> List.of(message("m1", null)));
+
+        // Assert
+        assertEquals(1, latest.size());
+        String token = claimToken();
+        verify(redisTemplate, times(1)).execute(anyScript(), eq(keys), eq(token));
+    }
+
+    @Test
+    void latest_ShouldReleaseClaim_WhenLoadFails() {
+        // Arrange
+        givenClaims(1L);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> cache.latest(chatId, 1, count -> {
+            throw new IllegalStateException("mongo down");
+        }));
+
+        // Assert
+        String token = claimToken();
+        verify(redisTemplate, times(1)).execute(anyScript(), eq(keys), eq(token));
+    }
+
+    @Test
+    void latest_ShouldReleaseClaim_WhenPrimingFails() {
+        // Arrange
+        givenClaims(1L);
+        doThrow(new IllegalStateException("redis down")).when(redisTemplate).execute(anyScript(), eq(keys),
+                startsWith("pending:"), eq("full"), eq("3"), eq("3600000"), eq("1"), anyString());
+
+        // Act
+        List<ChatMessage> latest = cache.latest(chatId, 1, count -> List.of(message("m1", 1)));
+
+        // Assert
+        assertEquals(1, latest.size());
+        String token = claimToken();
+        verify(redisTemplate, times(1)).execute(anyScript(), eq(keys), eq(token));
+    }
+
+    @Test
+    void latest_ShouldBypassRedis_WhenMoreMessagesRequestedThanKept() {
+        // Arrange
+        doReturn(null).when(redisTemplate).execute(anyScript(), eq(keys), eq("5"));
+        List<Integer> requested = new ArrayList<>();
+
+        // Act
+        cache.latest(chatId, 5, count -> {
+            requested.add(count);
+            return List.of();
+        });
+
+        // Assert
+        assertEquals(List.of(5), requested);
+        verify(redisTemplate, never()).execute(anyScript(), eq(keys), startsWith("pending:"), anyString());
+    }
+
+    @Test
+    void append_ShouldPipelineQueuedMessages() throws Exception {
+        // Arrange
+        cache.start();
+
+        // Act
+        cache.append(message("m1", 1));
+        cache.append(message("m2", 2));
+        cache.stop();
+
+        // Assert
+        verify(redisTemplate, atLeastOnce()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void patch_ShouldReplaceMemberAtItsSeq_GuardedByVersion() throws Exception {
+        // Arrange
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisScriptingCommands scriptingCommands = mock(RedisScriptingCommands.class);
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return null;
+        });
+        ChatMessage deleted = message("m1", 4);
+        deleted.setContent(null);
+        deleted.setVersion(2L);
+        deleted.setDeletedAt(new Date(2000));
+        cache.start();
+
+        // Act
+        cache.patch(deleted);
+        cache.stop();
+
+        // Assert
+        ArgumentCaptor<byte[]> script = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<byte[][]> keysAndArgs = ArgumentCaptor.forClass(byte[][].class);
+        verify(scriptingCommands, times(1)).eval(script.capture(), eq(ReturnType.INTEGER), eq(2), keysAndArgs.capture());
+        assertTrue(new String(script.getValue(), StandardCharsets.UTF_8).contains("cjson.decode"));
+        List<String> values = Arrays.stream(keysAndArgs.getValue())
+                .map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+                .toList();
+        assertEquals(List.of(keys.get(0), keys.get(1), "4"), values.subList(0, 3));
+        ChatMessage stored = objectMapper.readValue(values.get(3), ChatMessage.class);
+        assertNull(stored.getContent());
+        assertEquals(new Date(2000), stored.getDeletedAt());
+        assertEquals("2", values.get(4));
+    }
+
+    @Test
+    void append_ShouldIgnoreMessagesWithoutSeq() throws Exception {
+        // Arrange
+        cache.start();
+
+        // Act
+        cache.append(message("m1", null));
+        cache.stop();
+
+        // Assert
+        verifyNoInteractions(redisTemplate);
+    }
+
+    private ChatMessage message(String id, Integer seq) {
+        return ChatMessage.builder()
+                .id(id)
+                .chatId(chatId)
+                .senderId("userA")
+                .recipientId("userB")
+                .content("hi " + id)
+                .timestamp(new Date(1000))
+                .seq(seq == null ? null : seq.longValue())
+                .build();
+    }
+
+    private String json(ChatMessage message) throws Exception {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private void givenClaims(Long result) {
+        doReturn(result).when(redisTemplate).execute(anyScript(), eq(keys), startsWith("pending:"), eq("500"));
+    }
+
+    private String claimToken() {
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, times(1)).execute(anyScript(), eq(keys), token.capture(), eq("500"));
+        return token.getValue();
+    }
+
+    private static <T> RedisScript<T> anyScript() {
+        return any();
+    }
+}
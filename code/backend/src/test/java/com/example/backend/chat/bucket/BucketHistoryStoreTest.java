@@ -0,0 +1,206 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.MessageCursor;
+import com.example.backend.chat.codec.CompressContentCallback;
+import com.example.backend.chat.codec.ContentCodec;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BucketHistoryStoreTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private BucketHistoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        CompressContentCallback compressor =
+                new CompressContentCallback(new SimpleMeterRegistry(), ContentCodec.DEFLATE_DICT_V1, 1024, 0.9);
+        store = new BucketHistoryStore(mongoTemplate, compressor, 2, 16, false);
+    }
+
+    @Test
+    void insert_ShouldPushEachChatIntoABucketWithRoom() {
+        // Arrange
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageBucket.class)).thenReturn(bulkOperations);
+        List<ChatMessage> batch = List.of(
+                message("m1", "chat1", 1000, 1),
+                message("m2", "chat2", 1500, 1),
+                message("m3", "chat1", 2000, 2),
+                message("m4", "chat1", 3000, 3));
+
+        // Act
+        store.insert(batch);
+
+        // Assert
+        // chat1 has three messages and buckets hold two, so it takes two upserts
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(3)).upsert(queries.capture(), updates.capture());
+        Document firstQuery = queries.getAllValues().get(0).getQueryObject();
+        assertEquals("chat1", firstQuery.get("chatId"));
+        assertEquals(0, firstQuery.get("count", Document.class).get("$lte"));
+        Document firstUpdate = updates.getAllValues().get(0).getUpdateObject();
+        assertEquals(2, firstUpdate.get("$inc", Document.class).get("count"));
+        assertEquals(new Date(1000), firstUpdate.get("$min", Document.class).get("firstTimestamp"));
+        assertEquals(2L, firstUpdate.get("$max", Document.class).get("maxSeq"));
+    }
+
+    @Test
+    void insert_ShouldNotMutateCallerMessages() {
+        // Arrange
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageBucket.class)).thenReturn(bulkOperations);
+        ChatMessage message = message("m1", "chat1", 1000, 1);
+
+        // Act
+        store.insert(List.of(message));
+
+        // Assert
+        assertEquals("chat1", message.getChatId());
+    }
+
+    @Test
+    void insert_ShouldRejectMessage_WhoseClientMessageIdIsClaimed() {
+        // Arrange
+        BulkOperationException duplicate = bulkFailure(1);
+        BulkOperations claims = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageClaim.class)).thenReturn(claims);
+        when(claims.execute()).thenThrow(duplicate);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageBucket.class)).thenReturn(bulkOperations);
+        ChatMessage first = resend(message("m1", "chat1", 1000, 1), "c1");
+        ChatMessage resent = resend(message("m2", "chat1", 2000, 2), "c1");
+
+        // Act
+        Set<Integer> rejected = store.insert(List.of(first, resent));
+
+        // Assert
+        // The second copy never reaches a bucket, even though both would fit in one
+        assertEquals(Set.of(1), rejected);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(any(Query.class), updates.capture());
+        assertEquals(1, updates.getValue().getUpdateObject().get("$inc", Document.class).get("count"));
+    }
+
+    @Test
+    void insert_ShouldReleaseClaims_WhenPushFails() {
+        // Arrange
+        BulkOperationException pushFailed = bulkFailure(0);
+        BulkOperations claims = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageClaim.class)).thenReturn(claims);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageBucket.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(pushFailed);
+
+        // Act
+        Set<Integer> rejected = store.insert(List.of(resend(message("m1", "chat1", 1000, 1), "c1")));
+
+        // Assert
+        assertEquals(Set.of(0), rejected);
+        ArgumentCaptor<Query> released = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(released.capture(), eq(MessageClaim.class));
+        assertEquals(List.of("m1"), released.getValue().getQueryObject().get("_id", Document.class).get("$in"));
+    }
+
+    @Test
+    void findLatest_ShouldMergeOverlappingBucketsNewestFirst() {
+        // Arrange
+        // Sorted by last timestamp, newest first, as the query asks
+        MessageBucket newer = bucket("chat1", message("m2", null, 2000, 2), message("m4", null, 4000, 4));
+        MessageBucket older = bucket("chat1", message("m1", null, 1000, 1), message("m3", null, 3000, 3));
+        when(mongoTemplate.stream(any(Query.class), eq(MessageBucket.class))).thenReturn(Stream.of(newer, older));
+
+        // Act
+        List<ChatMessage> latest = store.findLatest("chat1", 3);
+
+        // Assert
+        assertEquals(List.of("m4", "m3", "m2"), latest.stream().map(ChatMessage::getId).toList());
+        assertEquals("chat1", latest.get(0).getChatId());
+    }
+
+    @Test
+    void findBefore_ShouldOnlyReturnMessagesOlderThanCursor() {
+        // Arrange
+        MessageBucket bucket = bucket("chat1", message("m1", null, 1000, 1), message("m2", null, 2000, 2));
+        when(mongoTemplate.stream(any(Query.class), eq(MessageBucket.class))).thenReturn(Stream.of(bucket));
+
+        // Act
+        List<ChatMessage> older = store.findBefore("chat1", new MessageCursor(new Date(2000), "m2"), 5);
+
+        // Assert
+        assertEquals(List.of("m1"), older.stream().map(ChatMessage::getId).toList());
+    }
+
+    @Test
+    void findAfterSeq_ShouldSkipMessagesWithoutSeq() {
+        // Arrange
+        MessageBucket bucket = bucket("chat1", message("legacy", null, 500, null),
+                message("m1", null, 1000, 1), message("m2", null, 2000, 2));
+        bucket.setMinSeq(1L);
+        when(mongoTemplate.stream(any(Query.class), eq(MessageBucket.class))).thenReturn(Stream.of(bucket));
+
+        // Act
+        List<ChatMessage> delta = store.findAfterSeq("chat1", 1, 5);
+
+        // Assert
+        assertEquals(List.of("m2"), delta.stream().map(ChatMessage::getId).toList());
+    }
+
+    @Test
+    void constructor_ShouldRefuseJournal() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new BucketHistoryStore(mongoTemplate, null, 2, 16, true));
+    }
+
+    private static BulkOperationException bulkFailure(int index) {
+        MongoBulkWriteException cause = mock(MongoBulkWriteException.class);
+        when(cause.getWriteErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), index)));
+        return new BulkOperationException("rejected", cause);
+    }
+
+    private static ChatMessage resend(ChatMessage message, String clientMessageId) {
+        message.setSenderId("userA");
+        message.setClientMessageId(clientMessageId);
+        return message;
+    }
+
+    private MessageBucket bucket(String chatId, ChatMessage... messages) {
+        return BucketMigrationJob.bucket(chatId, List.of(messages));
+    }
+
+    private ChatMessage message(String id, String chatId, long millis, Integer seq) {
+        return ChatMessage.builder()
+                .id(id)
+                .chatId(chatId)
+                .content("hello")
+                .timestamp(new Date(millis))
+                .seq(seq == null ? null : seq.longValue())
+                .build();
+    }
+}
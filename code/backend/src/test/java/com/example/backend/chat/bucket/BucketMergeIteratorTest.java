@@ -0,0 +1,65 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.HotHistoryCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BucketMergeIteratorTest {
+
+    @Test
+    void next_ShouldYieldMessagesInOrder_WhenBucketRangesOverlap() {
+        // Arrange
+        // Two buckets filled concurrently: their timestamp ranges interleave
+        MessageBucket first = bucket(message("a", 1000), message("c", 3000));
+        MessageBucket second = bucket(message("b", 2000), message("d", 4000));
+        BucketMergeIterator iterator = new BucketMergeIterator(List.of(first, second).iterator(),
+                HotHistoryCache.HISTORY_ORDER,
+                bucket -> ChatMessage.builder().timestamp(bucket.getFirstTimestamp()).id("").build(),
+                message -> true);
+
+        // Act
+        List<String> ids = new ArrayList<>();
+        iterator.forEachRemaining(message -> ids.add(message.getId()));
+
+        // Assert
+        assertEquals(List.of("a", "b", "c", "d"), ids);
+    }
+
+    @Test
+    void next_ShouldRestoreChatIdAndApplyFilter() {
+        // Arrange
+        BucketMergeIterator iterator = new BucketMergeIterator(List.of(bucket(message("a", 1000), message("b", 2000))).iterator(),
+                HotHistoryCache.HISTORY_ORDER,
+                bucket -> ChatMessage.builder().timestamp(bucket.getFirstTimestamp()).id("").build(),
+                message -> !message.getId().equals("a"));
+
+        // Act
+        ChatMessage only = iterator.next();
+
+        // Assert
+        assertEquals("b", only.getId());
+        assertEquals("userA_userB", only.getChatId());
+        assertFalse(iterator.hasNext());
+    }
+
+    private MessageBucket bucket(ChatMessage... messages) {
+        List<ChatMessage> list = new ArrayList<>(List.of(messages));
+        return MessageBucket.builder()
+                .chatId("userA_userB")
+                .count(list.size())
+                .firstTimestamp(list.get(0).getTimestamp())
+                .lastTimestamp(list.get(list.size() - 1).getTimestamp())
+                .messages(list)
+                .build();
+    }
+
+    private ChatMessage message(String id, long millis) {
+        return ChatMessage.builder().id(id).timestamp(new Date(millis)).build();
+    }
+}
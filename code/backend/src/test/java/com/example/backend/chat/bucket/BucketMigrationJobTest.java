@@ -0,0 +1,64 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BucketMigrationJobTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private BucketMigrationJob job;
+
+    @Test
+    void migrate_ShouldPackEachChatIntoFullBuckets() {
+        // Arrange
+        ReflectionTestUtils.setField(job, "capacity", 2);
+        when(mongoTemplate.stream(any(Query.class), eq(ChatMessage.class))).thenReturn(Stream.of(
+                message("m1", "chat1", 1000, 1L),
+                message("m2", "chat1", 2000, 2L),
+                message("m3", "chat1", 3000, 3L),
+                message("m4", "chat2", 1500, null)));
+
+        // Act
+        job.migrate();
+
+        // Assert
+        // 1. Each chat's old buckets are replaced
+        verify(mongoTemplate, times(2)).remove(any(Query.class), eq(MessageBucket.class));
+
+        // 2. chat1 fills one bucket and starts another, chat2 gets its own
+        ArgumentCaptor<MessageBucket> buckets = ArgumentCaptor.forClass(MessageBucket.class);
+        verify(mongoTemplate, times(3)).insert(buckets.capture());
+        MessageBucket full = buckets.getAllValues().get(0);
+        assertEquals("chat1", full.getChatId());
+        assertEquals(2, full.getCount());
+        assertEquals(new Date(1000), full.getFirstTimestamp());
+        assertEquals(new Date(2000), full.getLastTimestamp());
+        assertEquals(1L, full.getMinSeq());
+        assertEquals(2L, full.getMaxSeq());
+        assertNull(full.getMessages().get(0).getChatId());
+        assertNull(buckets.getAllValues().get(2).getMaxSeq());
+    }
+
+    private ChatMessage message(String id, String chatId, long millis, Long seq) {
+        return ChatMessage.builder().id(id).chatId(chatId).content("hi").timestamp(new Date(millis)).seq(seq).build();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.backend.chat.bucket;
+
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatMessageRepository;
+import com.example.backend.chat.DocumentHistoryStore;
+import com.example.backend.chat.MessageCursor;
+import com.example.backend.chat.codec.CompressContentCallback;
+import com.example.backend.chat.codec.ContentCodec;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * One document per message against bucketed messages, on the same workload: interleaved batches
+ * written the way the batch writer does, then latest pages, older pages at random depth and
+ * delta syncs, plus what each layout takes on disk including indexes and claims. Needs a Mongo to
+ * write a throwaway database to, {@code -Dbenchmark.mongodb.uri} (default localhost); skipped
+ * without one. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class StorageLayoutBenchmarkTest {
+
+    private static final int CHATS = 50;
+    private static final int MESSAGES_PER_CHAT = 2_000;
+    private static final int BATCH = 100;
+    private static final int PAGE = 50;
+    private static final int BUCKET_CAPACITY = 200;
+    private static final int WARMUP = 50;
+    private static final int SAMPLES = 500;
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private CompressContentCallback compressor;
+
+    @BeforeEach
+    void setUp() {
+        String uri = System.getProperty("benchmark.mongodb.uri", "mongodb://localhost:27017");
+        client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(2, TimeUnit.SECONDS))
+                .build());
+        mongoTemplate = new MongoTemplate(client, "layout_benchmark_" + System.currentTimeMillis());
+        try {
+            mongoTemplate.executeCommand(new Document("ping", 1));
+        } catch (RuntimeException e) {
+            client.close();
+            client = null;
+            Assumptions.abort("No Mongo at " + uri);
+        }
+        compressor = new CompressContentCallback(new SimpleMeterRegistry(), ContentCodec.DEFLATE_DICT_V1, 1024, 0.9);
+        // As in the application: compression on every write, indexes from the annotations
+        mongoTemplate.setEntityCallbacks(EntityCallbacks.create(compressor));
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> type : List.of(ChatMessage.class, MessageBucket.class, MessageClaim.class)) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            resolver.resolveIndexFor(type).forEach(indexOps::ensureIndex);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            mongoTemplate.getDb().drop();
+            client.close();
+        }
+    }
+
+    @Test
+    void layouts_ByOperation() {
+        ChatMessageRepository repository = new MongoRepositoryFactory(mongoTemplate).getRepository(ChatMessageRepository.class);
+        ChatHistoryStore documents = new DocumentHistoryStore(mongoTemplate, repository);
+        ChatHistoryStore buckets = new BucketHistoryStore(mongoTemplate, compressor, BUCKET_CAPACITY, 16, false);
+
+        System.out.printf("%n%-9s %12s %13s %13s %11s %9s %10s%n",
+                "layout", "insert msg/s", "latest p50 ms", "before p50 ms", "sync p50 ms", "data MiB", "index MiB");
+        report("document", documents, List.of(ChatMessage.class));
+        report("bucket", buckets, List.of(MessageBucket.class, MessageClaim.class));
+    }
+
+    private void report(String layout, ChatHistoryStore store, List<Class<?>> collections) {
+        List<ChatMessage> workload = workload();
+        long start = System.nanoTime();
+        for (int from = 0; from < workload.size(); from += BATCH) {
+            List<ChatMessage> batch = workload.subList(from, Math.min(from + BATCH, workload.size()));
+            assertEquals(0, store.insert(batch).size());
+        }
+        double insertRate = workload.size() / ((System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(7);
+        double latest = p50Millis(() -> assertEquals(PAGE, store.findLatest(chat(random.nextInt(CHATS)), PAGE).size()));
+        double before = p50Millis(() -> {
+            String chatId = chat(random.nextInt(CHATS));
+            // A cursor somewhere in the chat, as when scrolling back through older pages
+            ChatMessage anchor = workload.get((random.nextInt(MESSAGES_PER_CHAT - PAGE) + PAGE) * CHATS
+                    + Integer.parseInt(chatId.substring(4)));
+            store.findBefore(chatId, MessageCursor.of(anchor), PAGE);
+        });
+        double sync = p50Millis(() -> store.findAfterSeq(chat(random.nextInt(CHATS)),
+                random.nextInt(MESSAGES_PER_CHAT - PAGE), PAGE));
+
+        System.out.printf("%-9s %12.0f %13.3f %13.3f %11.3f %9.1f %10.1f%n", layout, insertRate, latest, before, sync,
+                mebibytes(collections, stats -> stats.get("size", Number.class).longValue()),
+                mebibytes(collections, stats -> stats.get("totalIndexSize", Number.class).longValue()));
+    }
+
+    // Chats interleaved, so every batch holds messages of many chats, like the batch writer's
+    private static List<ChatMessage> workload() {
+        Random random = new Random(42);
+        long base = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30);
+        List<ChatMessage> messages = new ArrayList<>(CHATS * MESSAGES_PER_CHAT);
+        for (int seq = 1; seq <= MESSAGES_PER_CHAT; seq++) {
+            for (int chat = 0; chat < CHATS; chat++) {
+                messages.add(ChatMessage.builder()
+                        .id(new ObjectId().toHexString())
+                        .chatId(chat(chat))
+                        .senderId(seq % 2 == 0 ? "alice" + chat : "bob" + chat)
+                        .recipientId(seq % 2 == 0 ? "bob" + chat : "alice" + chat)
+                        .content(content(random))
+                        .timestamp(new Date(base + seq * 60_000L + chat))
+                        .seq((long) seq)
+                        .clientMessageId(new ObjectId().toHexString())
+                        .build());
+            }
+        }
+        return messages;
+    }
+
+    // Mostly short lines, now and then a pasted block large enough to be compressed
+    private static String content(Random random) {
+        if (random.nextInt(50) == 0) {
+            return "2024-05-01T12:00:00Z ERROR request failed with status 500 after retries\n".repeat(20 + random.nextInt(40));
+        }
+        String[] words = {"ok", "see", "you", "tomorrow", "meeting", "at", "the", "office", "thanks", "sounds", "good"};
+        StringBuilder text = new StringBuilder();
+        for (int i = 0, n = 3 + random.nextInt(20); i < n; i++) {
+            text.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return text.toString().trim();
+    }
+
+    private static String chat(int index) {
+        return "chat" + index;
+    }
+
+    private double mebibytes(List<Class<?>> collections, ToLongFunction<Document> field) {
+        long bytes = 0;
+        for (Class<?> type : collections) {
+            bytes += field.applyAsLong(mongoTemplate.executeCommand(
+                    new Document("collStats", mongoTemplate.getCollectionName(type))));
+        }
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static double p50Millis(Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] nanos = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[SAMPLES / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.backend.chat.codec;
+
+import com.example.backend.chat.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressContentCallbackTest {
+
+    private final CompressContentCallback callback =
+            new CompressContentCallback(new SimpleMeterRegistry(), ContentCodec.DEFLATE_DICT_V1, 1024, 0.9);
+
+    @Test
+    void onBeforeConvert_ShouldLeaveSmallMessagesAlone() {
+        // Arrange
+        ChatMessage message = message("short and sweet");
+
+        // Act & Assert
+        assertSame(message, callback.onBeforeConvert(message, "chatMessage"));
+    }
+
+    @Test
+    void onBeforeConvert_ShouldStoreCompressedCopy_WhenBodyIsLarge() {
+        // Arrange
+        String content = ContentCodecTest.stackTrace(40);
+        ChatMessage message = message(content);
+
+        // Act
+        ChatMessage stored = callback.onBeforeConvert(message, "chatMessage");
+
+        // Assert
+        // 1. Mongo gets only the tagged compressed body
+        assertNotSame(message, stored);
+        assertEquals(ContentCodec.DEFLATE_DICT_V1, stored.getContentCodec());
+        assertNull(storedContent(stored));
+        assertEquals("m1", stored.getId());
+        assertEquals(7L, stored.getSeq());
+
+        // 2. Reading it back decodes lazily, once, and the caller's message is untouched
+        assertEquals(content, stored.getContent());
+        assertSame(stored.getContent(), stored.getContent());
+        assertEquals(content, storedContent(message));
+    }
+
+    @Test
+    void onBeforeConvert_ShouldKeepBodyPlain_WhenSavingIsBelowRatio() {
+        // Arrange
+        // Base64 of random bytes only shrinks to about three quarters
+        CompressContentCallback strict =
+                new CompressContentCallback(new SimpleMeterRegistry(), ContentCodec.DEFLATE_DICT_V1, 1024, 0.5);
+        byte[] noise = new byte[4096];
+        new Random(42).nextBytes(noise);
+        ChatMessage message = message(Base64.getEncoder().encodeToString(noise));
+
+        // Act & Assert
+        assertSame(message, strict.onBeforeConvert(message, "chatMessage"));
+    }
+
+    private ChatMessage message(String content) {
+        return ChatMessage.builder()
+                .id("m1")
+                .chatId("userA_userB")
+                .senderId("userA")
+                .recipientId("userB")
+                .content(content)
+                .timestamp(new Date())
+                .seq(7L)
+                .build();
+    }
+
+    // The stored field, bypassing the decoding getter
+    private static Object storedContent(ChatMessage message) {
+        return ReflectionTestUtils.getField(message, "content");
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.backend.chat.codec;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compression ratio and CPU per body, for each codec against plain deflate without a dictionary,
+ * on the kinds of large messages that reach {@link CompressContentCallback}: pasted stack traces,
+ * logs, JSON and code, and base64 as the incompressible case. Ratio is compressed over plain
+ * bytes; times are the median of one encode or decode. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ContentCodecBenchmarkTest {
+
+    private static final int[] SIZES = {1_024, 4_096, 16_384};
+    private static final int WARMUP = 2_000;
+    private static final int SAMPLES = 2_000;
+
+    @Test
+    void ratioAndCpu_ByPayload() {
+        System.out.printf("%n%-12s %-16s %7s %8s %13s %13s%n",
+                "payload", "codec", "bytes", "ratio", "encode p50 us", "decode p50 us");
+        for (Map.Entry<String, Function<Integer, String>> payload : payloads().entrySet()) {
+            for (int size : SIZES) {
+                String content = payload.getValue().apply(size);
+                int plainBytes = content.getBytes(StandardCharsets.UTF_8).length;
+                report(payload.getKey(), "deflate", plainBytes, measure(content, ContentCodecBenchmarkTest::deflate, null));
+                for (ContentCodec codec : ContentCodec.values()) {
+                    report(payload.getKey(), codec.name(), plainBytes, measure(content, codec::encode, codec));
+                }
+            }
+        }
+    }
+
+    private static void report(String payload, String codec, int plainBytes, double[] result) {
+        System.out.printf("%-12s %-16s %7d %8.3f %13.2f %13s%n", payload, codec, plainBytes,
+                result[0] / plainBytes, result[1], Double.isNaN(result[2]) ? "-" : String.format("%.2f", result[2]));
+    }
+
+    // Compressed bytes, encode p50 and decode p50 in microseconds (NaN without a codec to decode)
+    private static double[] measure(String content, Function<String, byte[]> encoder, ContentCodec codec) {
+        byte[] encoded = encoder.apply(content);
+        if (codec != null) {
+            assertEquals(content, codec.decode(encoded));
+        }
+        double encode = p50Micros(() -> encoder.apply(content));
+        double decode = codec == null ? Double.NaN : p50Micros(() -> codec.decode(encoded));
+        return new double[] {encoded.length, encode, decode};
+    }
+
+    private static double p50Micros(Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] nanos = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[SAMPLES / 2] / 1_000.0;
+    }
+
+    private static byte[] deflate(String content) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Seeded, so every run compresses the same bodies
+    private static Map<String, Function<Integer, String>> payloads() {
+        Map<String, Function<Integer, String>> payloads = new LinkedHashMap<>();
+        payloads.put("stacktrace", size -> truncate(ContentCodecTest.stackTrace(size / 100 + 1), size));
+        payloads.put("log", size -> repeatUntil(size, (random, i) -> String.format(
+                "2024-05-%02dT12:%02d:%02d.%03dZ  INFO %d --- [nio-8080-exec-%d] c.e.backend.chat.ChatController : "
+                        + "Handled POST /api/messages in %d ms, status=200%n",
+                1 + i % 28, random.nextInt(60), random.nextInt(60), random.nextInt(1000), 4000 + random.nextInt(100),
+                1 + random.nextInt(10), random.nextInt(250))));
+        payloads.put("json", size -> "[" + repeatUntil(size, (random, i) -> String.format(
+                "{\"id\":\"%024x\",\"status\":\"%s\",\"amount\":%d.%02d,\"currency\":\"EUR\",\"createdAt\":\"2024-05-01T12:00:%02dZ\"},",
+                random.nextLong() & Long.MAX_VALUE, random.nextBoolean() ? "PAID" : "PENDING",
+                random.nextInt(10_000), random.nextInt(100), random.nextInt(60))) + "]");
+        payloads.put("code", size -> repeatUntil(size, (random, i) -> String.format("""
+                    public Optional<Order> findOrder%d(String customerId) {
+                        if (customerId == null) {
+                            throw new IllegalArgumentException("customerId must not be null");
+                        }
+                        return repository.findByCustomerIdAndStatus(customerId, Status.values()[%d]);
+                    }
+                """, i, random.nextInt(4))));
+        payloads.put("base64", size -> {
+            byte[] bytes = new byte[size * 3 / 4];
+            new Random(size).nextBytes(bytes);
+            return Base64.getEncoder().encodeToString(bytes);
+        });
+        return payloads;
+    }
+
+    private interface Line {
+        String next(Random random, int index);
+    }
+
+    private static String repeatUntil(int size, Line line) {
+        Random random = new Random(size);
+        StringBuilder text = new StringBuilder(size + 256);
+        for (int i = 0; text.length() < size; i++) {
+            text.append(line.next(random, i));
+        }
+        return truncate(text.toString(), size);
+    }
+
+    private static String truncate(String text, int size) {
+        return text.length() <= size ? text : text.substring(0, size);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.backend.chat.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCodecTest {
+
+    static String stackTrace(int frames) {
+        StringBuilder trace = new StringBuilder("java.lang.IllegalStateException: Order 1842 could not be loaded\n");
+        for (int i = 0; i < frames; i++) {
+            trace.append("\tat com.example.shop.orders.OrderService.load")
+                    .append(i % 7)
+                    .append("(OrderService.java:")
+                    .append(100 + i * 3)
+                    .append(")\n");
+            trace.append("\tat org.springframework.aop.framework.ReflectiveMethodInvocation.proceed(ReflectiveMethodInvocation.java:184)\n");
+        }
+        return trace.append("Caused by: java.io.IOException: Connection reset by peer\n").toString();
+    }
+
+    @Test
+    void encode_ShouldRoundTripUnicodeContent() {
+        // Arrange
+        String content = "Grüße 👋 " + "log line ".repeat(200);
+
+        // Act
+        byte[] encoded = ContentCodec.DEFLATE_DICT_V1.encode(content);
+
+        // Assert
+        assertEquals(content, ContentCodec.DEFLATE_DICT_V1.decode(encoded));
+    }
+
+    @Test
+    void encode_ShouldShrinkPastedStackTraces() {
+        // Arrange
+        String content = stackTrace(60);
+        int plainBytes = content.getBytes(StandardCharsets.UTF_8).length;
+
+        // Act
+        byte[] encoded = ContentCodec.DEFLATE_DICT_V1.encode(content);
+
+        // Assert
+        assertTrue(encoded.length < plainBytes / 5, "compressed " + plainBytes + " to " + encoded.length);
+    }
+
+    @Test
+    void encode_ShouldBeatPlainDeflate_OnShortBodies_ThanksToDictionary() {
+        // Arrange
+        String content = stackTrace(2);
+
+        // Act
+        byte[] withDictionary = ContentCodec.DEFLATE_DICT_V1.encode(content);
+        byte[] plain = plainDeflate(content);
+
+        // Assert
+        assertTrue(withDictionary.length < plain.length, withDictionary.length + " vs " + plain.length);
+    }
+
+    @Test
+    void decode_ShouldThrow_WhenBodyIsTruncated() {
+        // Arrange
+        byte[] encoded = ContentCodec.DEFLATE_DICT_V1.encode(stackTrace(20));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+                () -> ContentCodec.DEFLATE_DICT_V1.decode(Arrays.copyOf(encoded, encoded.length / 2)));
+    }
+
+    private static byte[] plainDeflate(String content) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(content.getBytes(StandardCharsets.UTF_8));
+        deflater.finish();
+        byte[] buffer = new byte[64 * 1024];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.backend.chat.journal;
+
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.shared.exceptions.MessageWriteRejectedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JournalingMessageWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private ChatHistoryStore historyStore;
+
+    private SimpleMeterRegistry meterRegistry;
+    private JournalingMessageWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class)).thenReturn(bulkOperations);
+        writer = newWriter();
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    void submit_ShouldAckImmediatelyAndReplayIntoMongo() {
+        // Act
+        CompletableFuture<ChatMessage> future = writer.submit(ChatMessage.builder().content("hello").build());
+
+        // Assert
+        // 1. The ack does not wait for Mongo and the id is assigned up front
+        assertTrue(future.isDone());
+        assertNotNull(future.join().getId());
+
+        // 2. The replayer upserts the message by id
+        verify(bulkOperations, timeout(5000)).replaceOne(any(Query.class), any(ChatMessage.class), any(FindAndReplaceOptions.class));
+        verify(bulkOperations, timeout(5000)).execute();
+    }
+
+    @Test
+    void replayer_ShouldReplayUncheckpointedEntriesAfterRestart() throws Exception {
+        // Arrange
+        // Mongo is down: nothing gets checkpointed before shutdown
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("mongo down"));
+        writer.submit(ChatMessage.builder().content("pending").build());
+        verify(bulkOperations, timeout(5000).atLeastOnce()).execute();
+        writer.stop();
+
+        // Act
+        BulkOperations recovered = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatMessage.class)).thenReturn(recovered);
+        writer = newWriter();
+        writer.start();
+
+        // Assert
+        verify(recovered, timeout(5000)).replaceOne(any(Query.class),
+                argThat((ChatMessage message) -> "pending".equals(message.getContent())),
+                any(FindAndReplaceOptions.class));
+        verify(recovered, timeout(5000)).execute();
+    }
+
+    @Test
+    void replayer_ShouldSkipResentMessages_RejectedByUniqueIndex() {
+        // Arrange
+        BulkWriteError duplicate = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0);
+        MongoBulkWriteException cause = mock(MongoBulkWriteException.class);
+        when(cause.getWriteErrors()).thenReturn(List.of(duplicate));
+        BulkOperationException rejected = new BulkOperationException("duplicate", cause);
+        when(bulkOperations.execute()).thenThrow(rejected);
+
+        // Act
+        writer.submit(ChatMessage.builder().senderId("userA").clientMessageId("c1").content("resent").build());
+
+        // Assert
+        // Checkpointed rather than retried forever
+        verify(bulkOperations, timeout(5000)).execute();
+        await(() -> meterRegistry.get("chat.journal.replayed").counter().count() == 1.0);
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    void submit_ShouldRejectResend_WhenFirstCopyIsStored() {
+        // Arrange
+        ChatMessage stored = ChatMessage.builder().id("m1").senderId("userA").clientMessageId("c1").build();
+        when(historyStore.findByClientMessageId("userA", "c1")).thenReturn(Optional.of(stored));
+
+        // Act
+        CompletableFuture<ChatMessage> future = writer.submit(
+                ChatMessage.builder().senderId("userA").clientMessageId("c1").content("resent").build());
+
+        // Assert
+        CompletionException thrown = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(MessageWriteRejectedException.class, thrown.getCause());
+        verify(bulkOperations, after(200).never()).execute();
+    }
+
+    @Test
+    void submit_ShouldRejectResend_WhileFirstCopyAwaitsReplay() {
+        // Arrange
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("mongo down"));
+        ChatMessage first = writer.submit(
+                ChatMessage.builder().senderId("userA").clientMessageId("c1").content("first").build()).join();
+        verify(bulkOperations, timeout(5000).atLeastOnce()).execute();
+
+        // Act
+        CompletableFuture<ChatMessage> resent = writer.submit(
+                ChatMessage.builder().senderId("userA").clientMessageId("c1").content("first").build());
+
+        // Assert
+        CompletionException thrown = assertThrows(CompletionException.class, resent::join);
+        assertInstanceOf(MessageWriteRejectedException.class, thrown.getCause());
+        assertSame(first, writer.findPending("userA", "c1").orElseThrow());
+    }
+
+    @Test
+    void findPending_ShouldForgetMessage_OnceReplayed() {
+        // Act
+        writer.submit(ChatMessage.builder().senderId("userA").clientMessageId("c1").content("hello").build());
+
+        // Assert
+        verify(bulkOperations, timeout(5000)).execute();
+        await(() -> writer.findPending("userA", "c1").isEmpty());
+    }
+
+    @Test
+    void lastPendingSeq_ShouldCountUnreplayedEntries_AfterRestart() throws Exception {
+        // Arrange
+        when(bulkOperations.execute()).thenThrow(new IllegalStateException("mongo down"));
+        writer.submit(ChatMessage.builder().chatId("userA_userB").seq(7L).content("pending").build());
+        verify(bulkOperations, timeout(5000).atLeastOnce()).execute();
+        writer.stop();
+
+        // Act
+        writer = newWriter();
+        writer.start();
+
+        // Assert
+        assertEquals(7L, writer.lastPendingSeq("userA_userB"));
+        assertEquals(0L, writer.lastPendingSeq("userA_userC"));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.onSpinWait();
+        }
+    }
+
+    private JournalingMessageWriter newWriter() throws IOException {
+        return new JournalingMessageWriter(mongoTemplate, historyStore, new ObjectMapper(), meterRegistry,
+                directory, 4096, false, 100);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.backend.chat.journal;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.shared.exceptions.MessageWriteRejectedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageJournalTest {
+
+    // Small segments so that a handful of messages forces a roll
+    private static final int SEGMENT_SIZE = 512;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MessageJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new MessageJournal(directory, SEGMENT_SIZE, false, objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void append_ShouldMakeMessagesReadableInOrder() {
+        // Arrange
+        journal.append(message("m1"));
+        journal.append(message("m2"));
+
+        // Act
+        JournalReadResult result = journal.read(journal.readCheckpoint(), 10);
+
+        // Assert
+        assertEquals(List.of("m1", "m2"), ids(result));
+        assertEquals(journal.writePosition(), result.getNext());
+        assertEquals("m1", result.getMessages().get(0).getContent());
+        assertEquals(new Date(1000), result.getMessages().get(0).getTimestamp());
+    }
+
+    @Test
+    void read_ShouldStopAtMaxMessages() {
+        // Arrange
+        journal.append(message("m1"));
+        journal.append(message("m2"));
+        journal.append(message("m3"));
+
+        // Act
+        JournalReadResult first = journal.read(journal.readCheckpoint(), 2);
+        JournalReadResult second = journal.read(first.getNext(), 2);
+
+        // Assert
+        assertEquals(List.of("m1", "m2"), ids(first));
+        assertEquals(List.of("m3"), ids(second));
+    }
+
+    @Test
+    void append_ShouldRollIntoNewSegment_WhenSegmentIsFull() {
+        // Act
+        for (int i = 0; i < 10; i++) {
+            journal.append(message("m" + i));
+        }
+
+        // Assert
+        assertTrue(journal.writePosition().getSegment() > 0);
+        JournalReadResult result = journal.read(journal.readCheckpoint(), 100);
+        assertEquals(10, result.getMessages().size());
+        assertEquals("m9", result.getMessages().get(9).getId());
+    }
+
+    @Test
+    void append_ShouldReject_WhenMessageExceedsSegment() {
+        // Arrange
+        ChatMessage huge = message("big");
+        huge.setContent("x".repeat(SEGMENT_SIZE));
+
+        // Act & Assert
+        assertThrows(MessageWriteRejectedException.class, () -> journal.append(huge));
+    }
+
+    @Test
+    void checkpoint_ShouldResumeFromLastPositionAfterRestart() throws IOException {
+        // Arrange
+        journal.append(message("m1"));
+        JournalReadResult replayed = journal.read(journal.readCheckpoint(), 1);
+        journal.checkpoint(replayed.getNext());
+        journal.append(message("m2"));
+        journal.close();
+
+        // Act
+        journal = new MessageJournal(directory, SEGMENT_SIZE, false, objectMapper);
+        JournalReadResult pending = journal.read(journal.readCheckpoint(), 10);
+
+        // Assert
+        assertEquals(List.of("m2"), ids(pending));
+    }
+
+    @Test
+    void checkpoint_ShouldDeleteFullyReplayedSegments() throws IOException {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            journal.append(message("m" + i));
+        }
+
+        // Act
+        journal.checkpoint(journal.read(journal.readCheckpoint(), 100).getNext());
+
+        // Assert
+        try (Stream<Path> files = Files.list(directory)) {
+            long segmentFiles = files.filter(path -> path.getFileName().toString().endsWith(".log")).count();
+            assertEquals(1, segmentFiles);
+        }
+    }
+
+    @Test
+    void recover_ShouldDiscardTornRecord() throws IOException {
+        // Arrange
+        journal.append(message("m1"));
+        JournalPosition afterFirst = journal.writePosition();
+        journal.append(message("m2"));
+        journal.close();
+        // Corrupt the second record's payload as if the process died mid-write
+        try (FileChannel channel = FileChannel.open(directory.resolve(String.format("segment-%020d.log", 0)),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#', '#'}), afterFirst.getOffset() + 12);
+        }
+
+        // Act
+        journal = new MessageJournal(directory, SEGMENT_SIZE, false, objectMapper);
+        journal.append(message("m3"));
+        JournalReadResult result = journal.read(journal.readCheckpoint(), 10);
+
+        // Assert
+        assertEquals(List.of("m1", "m3"), ids(result));
+    }
+
+    private ChatMessage message(String id) {
+        return ChatMessage.builder()
+                .id(id)
+                .chatId("userA_userB")
+                .senderId("userA")
+                .recipientId("userB")
+                .content(id)
+                .timestamp(new Date(1000))
+                .build();
+    }
+
+    private List<String> ids(JournalReadResult result) {
+        return result.getMessages().stream().map(ChatMessage::getId).toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.backend.chat.reaction;
+
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.HotHistoryCache;
+import com.example.backend.chat.ReactionChange;
+import com.example.backend.chat.RedisHistoryCache;
+import com.example.backend.shared.exceptions.InvalidReactionException;
+import com.example.backend.shared.exceptions.MessageNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactionServiceTest {
+
+    @Mock
+    private ChatHistoryStore historyStore;
+
+    @Mock
+    private HotHistoryCache hotHistory;
+
+    @Mock
+    private RedisHistoryCache redisHistory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReactionService reactionService;
+    private ChatMessage stored;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reactionService = new ReactionService(historyStore, hotHistory, redisHistory, meterRegistry, 16, 2);
+        stored = ChatMessage.builder().id("m1").chatId("userA_userB").senderId("userA").recipientId("userB")
+                .content("hi").timestamp(new Date(1000)).seq(4L).build();
+    }
+
+    @Test
+    void react_ShouldApplyAtomicChangeAndPatchCachedCopies() {
+        // Arrange
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+        ChatMessage updated = ChatMessage.builder().id("m1").chatId("userA_userB").seq(4L)
+                .reactions(Map.of("👍", 1L)).reactionsVersion(1L).build();
+        when(historyStore.react(any(ReactionChange.class))).thenReturn(Optional.of(updated));
+
+        // Act
+        Optional<ChatMessage> result = reactionService.react("userA_userB", "m1", "userB", "👍", true);
+
+        // Assert
+        assertEquals(Optional.of(updated), result);
+        ArgumentCaptor<ReactionChange> change = ArgumentCaptor.forClass(ReactionChange.class);
+        verify(historyStore, times(1)).react(change.capture());
+        assertEquals("userB", change.getValue().getUserId());
+        assertEquals(1, change.getValue().delta());
+        verify(hotHistory, times(1)).patch(updated);
+        verify(redisHistory, times(1)).patch(updated);
+        assertEquals(1.0, meterRegistry.get("chat.reactions.changes").tag("result", "applied").counter().count());
+    }
+
+    @Test
+    void react_ShouldLeaveCachesAlone_WhenChangeIsARepeat() {
+        // Arrange
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+        when(historyStore.react(any(ReactionChange.class))).thenReturn(Optional.empty());
+
+        // Act
+        Optional<ChatMessage> result = reactionService.react("userA_userB", "m1", "userB", "👍", false);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(hotHistory, redisHistory);
+        assertEquals(1.0, meterRegistry.get("chat.reactions.changes").tag("result", "repeated").counter().count());
+    }
+
+    @Test
+    void react_ShouldRefuseEmojiThatIsNotAFieldName() {
+        // Act & Assert
+        assertThrows(InvalidReactionException.class, () -> reactionService.react("userA_userB", "m1", "userB", "a.b", true));
+        assertThrows(InvalidReactionException.class, () -> reactionService.react("userA_userB", "m1", "userB", "$inc", true));
+        assertThrows(InvalidReactionException.class, () -> reactionService.react("userA_userB", "m1", "userB", " ", true));
+        verifyNoInteractions(historyStore);
+    }
+
+    @Test
+    void react_ShouldRefuseNewKind_WhenMessageHasTheMaximum() {
+        // Arrange
+        stored.setReactions(Map.of("👍", 3L, "🎉", 1L));
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+
+        // Act & Assert
+        assertThrows(InvalidReactionException.class, () -> reactionService.react("userA_userB", "m1", "userB", "😂", true));
+        verify(historyStore, never()).react(any());
+    }
+
+    @Test
+    void react_ShouldThrow_WhenMessageBelongsToAnotherChat() {
+        // Arrange
+        when(historyStore.findAllById(List.of("m1"))).thenReturn(List.of(stored));
+
+        // Act & Assert
+        assertThrows(MessageNotFoundException.class, () -> reactionService.react("userA_userC", "m1", "userC", "👍", true));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.backend.chat.typing;
+
+import com.example.backend.chat.dto.TypingEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TypingIndicatorServiceTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final AtomicLong now = new AtomicLong(10_000);
+    private SimpleMeterRegistry meterRegistry;
+    private TypingIndicatorService service;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new TypingIndicatorService(messagingTemplate, meterRegistry, 1000, 5000, now::get);
+    }
+
+    @Test
+    void onTyping_ShouldForwardOnlyTheFirstTransition_WhenKeystrokesRepeat() {
+        // Act
+        for (int i = 0; i < 20; i++) {
+            service.onTyping(typing(true));
+            now.addAndGet(50);
+        }
+
+        // Assert
+        assertEquals(List.of(true), forwardedStates());
+        assertEquals(20.0, meterRegistry.get("chat.typing.received").counter().count());
+        assertEquals(1.0, meterRegistry.get("chat.typing.forwarded").counter().count());
+    }
+
+    @Test
+    void tick_ShouldSendHeldStop_OnceWindowHasPassed() {
+        // Arrange
+        service.onTyping(typing(true));
+        now.addAndGet(200);
+        service.onTyping(typing(false));
+
+        // Act
+        service.tick();
+        now.addAndGet(800);
+        service.tick();
+
+        // Assert
+        assertEquals(List.of(true, false), forwardedStates());
+    }
+
+    @Test
+    void tick_ShouldCoalesceStopAndRestart_WithinOneWindow() {
+        // Arrange
+        service.onTyping(typing(true));
+        now.addAndGet(100);
+        service.onTyping(typing(false));
+        now.addAndGet(100);
+        service.onTyping(typing(true));
+
+        // Act
+        now.addAndGet(1000);
+        service.tick();
+
+        // Assert
+        assertEquals(List.of(true), forwardedStates());
+    }
+
+    @Test
+    void tick_ShouldExpireSilentSender() {
+        // Arrange
+        service.onTyping(typing(true));
+
+        // Act
+        now.addAndGet(4000);
+        service.tick();
+        now.addAndGet(1000);
+        service.tick();
+
+        // Assert
+        assertEquals(List.of(true, false), forwardedStates());
+    }
+
+    @Test
+    void tick_ShouldDropIdlePairs() {
+        // Arrange
+        service.onTyping(typing(true));
+        now.addAndGet(1000);
+        service.onTyping(typing(false));
+
+        // Act
+        now.addAndGet(1000);
+        service.tick();
+
+        // Assert
+        assertEquals(0.0, meterRegistry.get("chat.typing.pairs").gauge().value());
+    }
+
+    @Test
+    void onMessageSent_ShouldDiscardPendingStateWithoutForwarding() {
+        // Arrange
+        service.onTyping(typing(true));
+        now.addAndGet(100);
+        service.onTyping(typing(false));
+
+        // Act
+        service.onMessageSent("userA", "userB");
+        now.addAndGet(2000);
+        service.tick();
+
+        // Assert
+        assertEquals(List.of(true), forwardedStates());
+    }
+
+    private static TypingEvent typing(boolean typing) {
+        return TypingEvent.builder().senderId("userA").recipientId("userB").typing(typing).build();
+    }
+
+    private List<Boolean> forwardedStates() {
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, atLeast(0)).convertAndSendToUser(eq("userB"), eq("/queue/typing"), payloads.capture());
+        return payloads.getAllValues().stream().map(p -> ((TypingEvent) p).isTyping()).toList();
+    }
+}
@@ -1,15 +1,20 @@
 package com.example.backend.chatroom;
 
+import com.example.backend.shared.bloom.ExistenceFilter;
+import com.example.backend.shared.bloom.ExistenceFilters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
-import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -18,92 +23,123 @@ import static org.mockito.Mockito.*;
 class ChatRoomServiceTest {
 
     @Mock
-    private ChatRoomRepository chatRoomRepository;
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ExistenceFilters existenceFilters;
+
+    @Mock
+    private ExistenceFilter roomFilter;
 
-    @InjectMocks
     private ChatRoomService chatRoomService;
 
     private final String senderId = "userA";
     private final String recipientId = "userB";
     private final String expectedChatId = "userA_userB";
-    private ChatRoom existingChatRoom;
 
     @BeforeEach
     void setUp() {
-        existingChatRoom = ChatRoom.builder()
-                .chatId(expectedChatId)
-                .senderId(senderId)
-                .recipientId(recipientId)
-                .build();
+        when(existenceFilters.register(eq("chatRooms"), any())).thenReturn(roomFilter);
+        lenient().when(mongoTemplate.stream(any(Query.class), eq(ChatRoom.class))).thenReturn(Stream.empty());
+        lenient().when(roomFilter.mightContain(anyString())).thenReturn(true);
+        chatRoomService = new ChatRoomService(mongoTemplate, existenceFilters, new SimpleMeterRegistry(), 2);
+        chatRoomService.loadLegacyRooms();
+    }
+
+    @Test
+    void getChatRoomId_ShouldReturnSameIdForBothDirections_AndUpsertOnce() {
+        // Act
+        Optional<String> forward = chatRoomService.getChatRoomId(senderId, recipientId, true);
+        Optional<String> backward = chatRoomService.getChatRoomId(recipientId, senderId, true);
+
+        // Assert
+        assertEquals(Optional.of(expectedChatId), forward);
+        assertEquals(Optional.of(expectedChatId), backward);
+        verify(mongoTemplate, times(1)).upsert(any(Query.class), any(Update.class), eq(ChatRoom.class));
+        verify(roomFilter, times(1)).add(expectedChatId);
+        assertEquals(1, chatRoomService.knownRoomCount());
     }
 
     @Test
-    void getChatRoomId_ShouldReturnExistingId_WhenRoomFound() {
+    void getChatRoomId_ShouldReturnEmpty_WhenRoomMissingAndCreateIsFalse() {
         // Arrange
-        when(chatRoomRepository.findBySenderIdAndRecipientId(senderId, recipientId))
-                .thenReturn(Optional.of(existingChatRoom));
+        when(mongoTemplate.exists(any(Query.class), eq(ChatRoom.class))).thenReturn(false);
 
         // Act
-        Optional<String> result = chatRoomService.getChatRoomId(senderId, recipientId, true);
+        Optional<String> result = chatRoomService.getChatRoomId(senderId, recipientId, false);
 
         // Assert
-        assertTrue(result.isPresent());
-        assertEquals(expectedChatId, result.get());
-
-        // Verify no new room was created
-        verify(chatRoomRepository, never()).save(any(ChatRoom.class));
+        assertTrue(result.isEmpty());
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(ChatRoom.class));
+        assertEquals(0, chatRoomService.knownRoomCount());
     }
 
     @Test
-    void getChatRoomId_ShouldReturnEmpty_WhenRoomNotFoundAndCreateIsFalse() {
+    void getChatRoomId_ShouldSkipQuery_WhenFilterRulesRoomOut() {
         // Arrange
-        when(chatRoomRepository.findBySenderIdAndRecipientId(senderId, recipientId))
-                .thenReturn(Optional.empty());
+        when(roomFilter.mightContain(expectedChatId)).thenReturn(false);
 
         // Act
         Optional<String> result = chatRoomService.getChatRoomId(senderId, recipientId, false);
 
         // Assert
         assertTrue(result.isEmpty());
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(ChatRoom.class));
+    }
+
+    @Test
+    void getChatRoomId_ShouldReturnExistingId_WhenRoomExistsAndCreateIsFalse() {
+        // Arrange
+        when(mongoTemplate.exists(any(Query.class), eq(ChatRoom.class))).thenReturn(true);
 
-        // Verify findBySenderIdAndRecipientId was called, but save was not
-        verify(chatRoomRepository, times(1)).findBySenderIdAndRecipientId(senderId, recipientId);
-        verify(chatRoomRepository, never()).save(any(ChatRoom.class));
+        // Act
+        chatRoomService.getChatRoomId(recipientId, senderId, false);
+        Optional<String> result = chatRoomService.getChatRoomId(senderId, recipientId, false);
+
+        // Assert
+        assertEquals(Optional.of(expectedChatId), result);
+        verify(mongoTemplate, times(1)).exists(any(Query.class), eq(ChatRoom.class));
     }
 
     @Test
-    void getChatRoomId_ShouldCreateAndReturnNewId_WhenRoomNotFoundAndCreateIsTrue() {
+    void getChatRoomId_ShouldTreatDuplicateKeyAsExistingRoom_WhenCreationRaces() {
         // Arrange
-        when(chatRoomRepository.findBySenderIdAndRecipientId(senderId, recipientId))
-                .thenReturn(Optional.empty());
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(ChatRoom.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+
+        // Act
+        Optional<String> result = chatRoomService.getChatRoomId(senderId, recipientId, true);
+
+        // Assert
+        assertEquals(Optional.of(expectedChatId), result);
+    }
 
-        // ArgumentCaptor to capture both ChatRoom objects saved
-        ArgumentCaptor<ChatRoom> chatRoomCaptor = ArgumentCaptor.forClass(ChatRoom.class);
+    @Test
+    void getChatRoomId_ShouldUseLegacyChatId_WhenLegacyRoomWasCreatedInReverseOrder() {
+        // Arrange
+        ChatRoom legacy = ChatRoom.builder().chatId("userB_userA").senderId(recipientId).recipientId(senderId).build();
+        when(mongoTemplate.stream(any(Query.class), eq(ChatRoom.class))).thenReturn(Stream.of(legacy));
+        chatRoomService.loadLegacyRooms();
 
         // Act
         Optional<String> result = chatRoomService.getChatRoomId(senderId, recipientId, true);
 
         // Assert
-        assertTrue(result.isPresent());
-        assertEquals(expectedChatId, result.get());
-
-        // Verify that chatRoomRepository.save was called exactly twice (for A->B and B->A)
-        verify(chatRoomRepository, times(2)).save(chatRoomCaptor.capture());
-
-        // Verify the saved entities
-        List<ChatRoom> savedRooms = chatRoomCaptor.getAllValues();
-        assertEquals(2, savedRooms.size());
-
-        // Check senderRecipient mapping
-        ChatRoom sr = savedRooms.get(0);
-        assertEquals(expectedChatId, sr.getChatId());
-        assertEquals(senderId, sr.getSenderId());
-        assertEquals(recipientId, sr.getRecipientId());
-
-        // Check recipientSender mapping
-        ChatRoom rs = savedRooms.get(1);
-        assertEquals(expectedChatId, rs.getChatId());
-        assertEquals(recipientId, rs.getSenderId());
-        assertEquals(senderId, rs.getRecipientId());
+        assertEquals(Optional.of("userB_userA"), result);
+        assertEquals("userB_userA", chatRoomService.chatIdOf(senderId, recipientId));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(ChatRoom.class));
+    }
+
+    @Test
+    void getChatRoomId_ShouldForgetLeastRecentlyUsedRoom_WhenKnownRoomsAreFull() {
+        // Act
+        chatRoomService.getChatRoomId(senderId, recipientId, true);
+        chatRoomService.getChatRoomId("userC", "userD", true);
+        chatRoomService.getChatRoomId("userE", "userF", true);
+        chatRoomService.getChatRoomId(senderId, recipientId, true);
+
+        // Assert
+        assertEquals(2, chatRoomService.knownRoomCount());
+        verify(mongoTemplate, times(4)).upsert(any(Query.class), any(Update.class), eq(ChatRoom.class));
     }
-}
\ No newline at end of file
+}
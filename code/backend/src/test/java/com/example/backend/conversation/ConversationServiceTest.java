@@ -0,0 +1,139 @@
+package com.example.backend.conversation;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.MessageCursor;
+import com.example.backend.conversation.dto.ConversationPage;
+import com.example.backend.conversation.dto.ConversationSummary;
+import com.example.backend.unread.UnreadCounterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private UnreadCounterService unreadCounters;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisScriptingCommands scriptingCommands;
+
+    private ConversationService conversationService;
+
+    @BeforeEach
+    void setUp() {
+        // Writer not started: tests drive flushUpdates() directly
+        conversationService = new ConversationService(redisTemplate, unreadCounters, new ObjectMapper(),
+                new SimpleMeterRegistry(), 5, 2, 10, 100);
+    }
+
+    @Test
+    void findConversations_ShouldBuildPageFromOneScriptCall() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class),
+                eq(List.of("conversations:userA", "conversations:userA:last", "unread:userA")),
+                eq("+inf"), eq(""), eq("3")))
+                .thenReturn(List.of(
+                        "userC", "3000", "{\"chatId\":\"userA_userC\",\"lastMessageId\":\"m3\",\"preview\":\"hey\"}", "2",
+                        "userB", "2000", "{\"chatId\":\"userA_userB\",\"lastMessageId\":\"m2\"}", "0",
+                        "userD", "1000", "{\"chatId\":\"userA_userD\",\"lastMessageId\":\"m1\"}", "0"));
+        when(unreadCounters.unflushed("userA")).thenReturn(Map.of("userB", 1L));
+
+        // Act
+        ConversationPage page = conversationService.findConversations("userA", null, null);
+
+        // Assert
+        assertEquals(2, page.getConversations().size());
+        ConversationSummary first = page.getConversations().get(0);
+        assertEquals("userC", first.getPeerId());
+        assertEquals("hey", first.getPreview());
+        assertEquals(2, first.getUnread());
+        assertEquals(new Date(3000), first.getLastTimestamp());
+        assertEquals(1, page.getConversations().get(1).getUnread(), "Unflushed deltas are added");
+        assertEquals(new MessageCursor(new Date(2000), "userB").encode(), page.getNextCursor());
+    }
+
+    @Test
+    void findConversations_ShouldResumeAfterCursor() {
+        // Arrange
+        String cursor = new MessageCursor(new Date(2000), "userB").encode();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), eq("2000"), eq("userB"), eq("3")))
+                .thenReturn(List.of("userD", "1000", "", "0"));
+
+        // Act
+        ConversationPage page = conversationService.findConversations("userA", cursor, null);
+
+        // Assert
+        assertEquals(1, page.getConversations().size());
+        assertEquals("userD", page.getConversations().get(0).getPeerId());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void findConversations_ShouldReturnEmptyPage_ForUserWithoutChats() {
+        // Arrange
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any())).thenReturn(List.of());
+
+        // Act
+        ConversationPage page = conversationService.findConversations("userA", null, null);
+
+        // Assert
+        assertTrue(page.getConversations().isEmpty());
+        verifyNoInteractions(unreadCounters);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushUpdates_ShouldTouchBothParticipantsInOnePipeline() {
+        // Arrange
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return null;
+        });
+        ChatMessage message = ChatMessage.builder()
+                .id("m1").chatId("userA_userB").senderId("userA").recipientId("userB")
+                .content("a long message body").timestamp(new Date(5000)).seq(7L).build();
+
+        // Act
+        conversationService.flushUpdates(List.of(message));
+
+        // Assert
+        ArgumentCaptor<byte[][]> keysAndArgs = ArgumentCaptor.forClass(byte[][].class);
+        verify(scriptingCommands, times(1)).eval(any(byte[].class), eq(ReturnType.INTEGER), eq(4), keysAndArgs.capture());
+        List<String> values = Arrays.stream(keysAndArgs.getValue())
+                .map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+                .toList();
+        assertEquals(List.of("conversations:userA", "conversations:userA:last",
+                "conversations:userB", "conversations:userB:last", "5000", "userA", "userB"), values.subList(0, 7));
+        String summary = values.get(7);
+        assertTrue(summary.contains("\"preview\":\"a lon\""));
+        assertFalse(summary.contains("peerId"), "The peer is the hash field");
+    }
+}
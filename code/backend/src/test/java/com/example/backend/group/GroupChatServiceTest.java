@@ -0,0 +1,136 @@
+package com.example.backend.group;
+
+import com.example.backend.attachment.AttachmentService;
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatMessageService;
+import com.example.backend.chat.dto.EditMessageRequest;
+import com.example.backend.chat.enums.NotificationType;
+import com.example.backend.chat.reaction.ReactionService;
+import com.example.backend.shared.exceptions.NotGroupMemberException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupChatServiceTest {
+
+    @Mock
+    private GroupRoomService groupRoomService;
+
+    @Mock
+    private GroupMembershipService membershipService;
+
+    @Mock
+    private GroupFanoutService fanoutService;
+
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    @Mock
+    private AttachmentService attachmentService;
+
+    @Mock
+    private ReactionService reactionService;
+
+    @InjectMocks
+    private GroupChatService groupChatService;
+
+    private final GroupRoom room = GroupRoom.builder().id("room1").memberCount(3).build();
+
+    @Test
+    void send_ShouldStoreUnderRoomAndFanOut_WhenSenderIsMember() {
+        // Arrange
+        ChatMessage message = ChatMessage.builder().senderId("userA").recipientId("room1").content("hi").build();
+        when(groupRoomService.findRoom("room1")).thenReturn(room);
+        when(membershipService.isMember("room1", "userA")).thenReturn(true);
+        when(chatMessageService.append("room1", message)).thenReturn(CompletableFuture.completedFuture(message));
+
+        // Act
+        groupChatService.send(message).join();
+
+        // Assert
+        verify(fanoutService, times(1)).deliver(room, message);
+        verifyNoInteractions(attachmentService);
+    }
+
+    @Test
+    void send_ShouldFanOutPreviewUpdate_WhenImagePreviewsAreReady() {
+        // Arrange
+        ChatMessage message = ChatMessage.builder().senderId("userA").recipientId("room1")
+                .attachmentIds(List.of("att1", "att2")).build();
+        when(groupRoomService.findRoom("room1")).thenReturn(room);
+        when(membershipService.isMember("room1", "userA")).thenReturn(true);
+        when(chatMessageService.append("room1", message)).thenReturn(CompletableFuture.completedFuture(message));
+        when(attachmentService.previewsReady(List.of("att1", "att2"))).thenReturn(CompletableFuture.completedFuture(List.of("att1")));
+
+        // Act
+        groupChatService.send(message).join();
+
+        // Assert
+        verify(fanoutService, times(1)).deliverPreviews(room, message, List.of("att1"));
+    }
+
+    @Test
+    void send_ShouldReject_WhenSenderIsNotMember() {
+        // Arrange
+        ChatMessage message = ChatMessage.builder().senderId("stranger").recipientId("room1").content("hi").build();
+        when(groupRoomService.findRoom("room1")).thenReturn(room);
+        when(membershipService.isMember("room1", "stranger")).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(NotGroupMemberException.class, () -> groupChatService.send(message));
+        verifyNoInteractions(chatMessageService, fanoutService);
+    }
+
+    @Test
+    void edit_ShouldPatchUnderRoomAndFanOutChange() {
+        // Arrange
+        EditMessageRequest request = EditMessageRequest.builder().content("fixed").build();
+        ChatMessage patched = ChatMessage.builder().id("m1").senderId("userA").recipientId("room1")
+                .content("fixed").version(1L).build();
+        when(groupRoomService.findRoom("room1")).thenReturn(room);
+        when(chatMessageService.edit("room1", "m1", "userA", request)).thenReturn(patched);
+
+        // Act
+        ChatMessage result = groupChatService.edit("room1", "m1", "userA", request);
+
+        // Assert
+        assertEquals(patched, result);
+        verify(fanoutService, times(1)).deliverChange(room, patched, NotificationType.EDITED);
+    }
+
+    @Test
+    void react_ShouldFanOutDelta_WhenReactionChanged() {
+        // Arrange
+        ChatMessage updated = ChatMessage.builder().id("m1").senderId("userA").recipientId("room1").build();
+        when(groupRoomService.findRoom("room1")).thenReturn(room);
+        when(membershipService.isMember("room1", "userB")).thenReturn(true);
+        when(reactionService.react("room1", "m1", "userB", "🎉", true)).thenReturn(Optional.of(updated));
+
+        // Act
+        groupChatService.react("room1", "m1", "userB", "🎉", true);
+
+        // Assert
+        verify(fanoutService, times(1)).deliverReaction(room, updated, "userB", "🎉", true);
+    }
+
+    @Test
+    void react_ShouldReject_WhenUserIsNotMember() {
+        // Arrange
+        when(groupRoomService.findRoom("room1")).thenReturn(room);
+        when(membershipService.isMember("room1", "stranger")).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(NotGroupMemberException.class, () -> groupChatService.react("room1", "m1", "stranger", "🎉", true));
+        verifyNoInteractions(reactionService, fanoutService);
+    }
+}
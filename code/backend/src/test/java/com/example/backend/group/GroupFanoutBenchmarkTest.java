@@ -0,0 +1,213 @@
+package com.example.backend.group;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.inbox.OfflineInbox;
+import com.example.backend.inbox.PresenceRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpSubscriptionMatcher;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fan-out latency against room size, per-user queues vs the room topic, through the same
+ * simple broker and user destination handling the application runs with. Each sample is the
+ * time for one {@link GroupFanoutService#deliver} call to hand every copy to the outbound
+ * channel. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class GroupFanoutBenchmarkTest {
+
+    private static final int[] ROOM_SIZES = {10, 100, 1_000, 10_000};
+    private static final int WARMUP = 3;
+    private static final int SAMPLES = 9;
+
+    private final List<Runnable> cleanup = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        cleanup.forEach(Runnable::run);
+    }
+
+    @Test
+    void fanoutLatency_ByRoomSize() {
+        System.out.printf("%n%10s %14s %14s%n", "members", "queue p50 ms", "topic p50 ms");
+        for (int size : ROOM_SIZES) {
+            double queue = measure(size, false);
+            double topic = measure(size, true);
+            System.out.printf("%10d %14.3f %14.3f%n", size, queue, topic);
+        }
+    }
+
+    private double measure(int size, boolean broadcast) {
+        List<String> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            members.add("user" + i);
+        }
+        AtomicLong delivered = new AtomicLong();
+        SimpMessagingTemplate template = broker(members, broadcast, delivered);
+        GroupMembershipService membershipService = mock(GroupMembershipService.class);
+        when(membershipService.members("room1")).thenReturn(members);
+        // Everyone is connected, so the inbox always delivers straight away
+        PresenceRegistry presence = new PresenceRegistry();
+        members.forEach(member -> presence.subscribed(member, "s-" + member, "sub-0"));
+        OfflineInbox inbox = new OfflineInbox(template, mock(StringRedisTemplate.class), presence, new ObjectMapper(),
+                new SimpleMeterRegistry(), 1000, 1, 100, 1);
+        GroupFanoutService fanoutService = new GroupFanoutService(template, membershipService, inbox, new SimpleMeterRegistry());
+        GroupRoom room = GroupRoom.builder().id("room1").memberCount(size).broadcast(broadcast).build();
+        ChatMessage message = ChatMessage.builder()
+                .id("msg1").chatId("room1").senderId("user0").recipientId("room1").content("hello room").seq(1L).build();
+
+        long[] nanos = new long[SAMPLES];
+        for (int i = 0; i < WARMUP + SAMPLES; i++) {
+            long start = System.nanoTime();
+            fanoutService.deliver(room, message);
+            if (i >= WARMUP) {
+                nanos[i - WARMUP] = System.nanoTime() - start;
+            }
+        }
+        // The topic reaches the sender's own session too; per-user delivery skips it
+        long perRound = broadcast ? size : size - 1;
+        assertEquals(perRound * (WARMUP + SAMPLES), delivered.get());
+        Arrays.sort(nanos);
+        return nanos[SAMPLES / 2] / 1_000_000.0;
+    }
+
+    // Broker channel -> user destination resolution -> simple broker -> counting client channel
+    private SimpMessagingTemplate broker(List<String> members, boolean broadcast, AtomicLong delivered) {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        MessageChannel clientOutbound = (message, timeout) -> {
+            delivered.incrementAndGet();
+            return true;
+        };
+        SimpleBrokerMessageHandler broker =
+                new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic", "/queue"));
+        broker.start();
+        cleanup.add(broker::stop);
+
+        Map<String, SimpUser> users = new HashMap<>();
+        for (String member : members) {
+            String sessionId = "s-" + member;
+            users.put(member, new BenchUser(member, sessionId));
+            String destination = broadcast
+                    ? GroupFanoutService.TOPIC_PREFIX + "room1"
+                    : "/queue/messages-user" + sessionId;
+            broker.handleMessage(frame(SimpMessageType.CONNECT, sessionId, null));
+            broker.handleMessage(frame(SimpMessageType.SUBSCRIBE, sessionId, destination));
+        }
+        // Drop the CONNECT_ACKs so only fan-out copies are counted
+        delivered.set(0);
+        UserDestinationMessageHandler userHandler = new UserDestinationMessageHandler(
+                clientInbound, brokerChannel, new DefaultUserDestinationResolver(new BenchRegistry(users)));
+        userHandler.start();
+        cleanup.add(userHandler::stop);
+
+        return new SimpMessagingTemplate(brokerChannel);
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String sessionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        if (destination != null) {
+            accessor.setSubscriptionId("sub-0");
+            accessor.setDestination(destination);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private record BenchRegistry(Map<String, SimpUser> users) implements SimpUserRegistry {
+        @Override
+        public SimpUser getUser(String userName) {
+            return users.get(userName);
+        }
+
+        @Override
+        public Set<SimpUser> getUsers() {
+            return Set.copyOf(users.values());
+        }
+
+        @Override
+        public int getUserCount() {
+            return users.size();
+        }
+
+        @Override
+        public Set<SimpSubscription> findSubscriptions(SimpSubscriptionMatcher matcher) {
+            return Set.of();
+        }
+    }
+
+    private record BenchUser(String name, String sessionId) implements SimpUser {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return () -> name;
+        }
+
+        @Override
+        public boolean hasSessions() {
+            return true;
+        }
+
+        @Override
+        public SimpSession getSession(String id) {
+            return sessionId.equals(id) ? new BenchSession(sessionId, this) : null;
+        }
+
+        @Override
+        public Set<SimpSession> getSessions() {
+            return Set.of(new BenchSession(sessionId, this));
+        }
+    }
+
+    private record BenchSession(String id, SimpUser user) implements SimpSession {
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public SimpUser getUser() {
+            return user;
+        }
+
+        @Override
+        public Set<SimpSubscription> getSubscriptions() {
+            return Set.of();
+        }
+    }
+}
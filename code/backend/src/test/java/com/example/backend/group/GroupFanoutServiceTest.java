@@ -0,0 +1,91 @@
+package com.example.backend.group;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatNotification;
+import com.example.backend.chat.enums.NotificationType;
+import com.example.backend.inbox.OfflineInbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupFanoutServiceTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private GroupMembershipService membershipService;
+
+    @Mock
+    private OfflineInbox offlineInbox;
+
+    private GroupFanoutService fanoutService;
+
+    private final ChatMessage saved = ChatMessage.builder()
+            .id("msg1").chatId("room1").senderId("userA").recipientId("room1").content("hi").seq(4L).build();
+
+    @BeforeEach
+    void setUp() {
+        fanoutService = new GroupFanoutService(messagingTemplate, membershipService, offlineInbox, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void deliver_ShouldSendToEachOtherMember_ForSmallRoom() {
+        // Arrange
+        GroupRoom room = GroupRoom.builder().id("room1").memberCount(3).build();
+        when(membershipService.members("room1")).thenReturn(List.of("userA", "userB", "userC"));
+
+        // Act
+        fanoutService.deliver(room, saved);
+
+        // Assert
+        ArgumentCaptor<ChatNotification> payload = ArgumentCaptor.forClass(ChatNotification.class);
+        verify(offlineInbox, times(1)).deliver(eq("userB"), payload.capture());
+        verify(offlineInbox, times(1)).deliver(eq("userC"), any(ChatNotification.class));
+        verify(offlineInbox, never()).deliver(eq("userA"), any(ChatNotification.class));
+        ChatNotification notification = payload.getValue();
+        assertEquals("room1", notification.getRoomId());
+        assertEquals(4L, notification.getSeq());
+    }
+
+    @Test
+    void deliver_ShouldPublishOnceToRoomTopic_ForBroadcastRoom() {
+        // Arrange
+        GroupRoom room = GroupRoom.builder().id("room1").memberCount(50_000).broadcast(true).build();
+
+        // Act
+        fanoutService.deliver(room, saved);
+
+        // Assert
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/rooms/room1"), any(Object.class));
+        verifyNoInteractions(membershipService, offlineInbox);
+    }
+
+    @Test
+    void deliverPreviews_ShouldSendTypedUpdateWithReadyAttachmentsOnly() {
+        // Arrange
+        GroupRoom room = GroupRoom.builder().id("room1").memberCount(2).build();
+        when(membershipService.members("room1")).thenReturn(List.of("userA", "userB"));
+
+        // Act
+        fanoutService.deliverPreviews(room, saved, List.of("att1"));
+
+        // Assert
+        ArgumentCaptor<ChatNotification> payload = ArgumentCaptor.forClass(ChatNotification.class);
+        verify(offlineInbox, times(1)).deliver(eq("userB"), payload.capture());
+        assertEquals(NotificationType.PREVIEWS_READY, payload.getValue().getType());
+        assertEquals(List.of("att1"), payload.getValue().getAttachmentIds());
+        assertNull(payload.getValue().getContent());
+    }
+}
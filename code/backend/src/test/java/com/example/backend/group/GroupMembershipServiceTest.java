@@ -0,0 +1,88 @@
+package com.example.backend.group;
+
+import com.mongodb.client.result.UpdateResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupMembershipServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private GroupMembershipService membershipService;
+
+    @BeforeEach
+    void setUp() {
+        membershipService = new GroupMembershipService(mongoTemplate, 1000);
+    }
+
+    @Test
+    void add_ShouldPushIntoChunkWithRoom_WhenUserIsNew() {
+        // Arrange
+        when(mongoTemplate.exists(any(Query.class), eq(GroupMemberChunk.class))).thenReturn(false);
+
+        // Act
+        boolean added = membershipService.add("room1", "userA");
+
+        // Assert
+        assertTrue(added);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).upsert(query.capture(), update.capture(), eq(GroupMemberChunk.class));
+        assertEquals("room1", query.getValue().getQueryObject().get("roomId"));
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"$lt\": 1000"));
+        assertTrue(update.getValue().getUpdateObject().containsKey("$push"));
+    }
+
+    @Test
+    void add_ShouldSkipWrite_WhenUserIsAlreadyMember() {
+        // Arrange
+        when(mongoTemplate.exists(any(Query.class), eq(GroupMemberChunk.class))).thenReturn(true);
+
+        // Act
+        boolean added = membershipService.add("room1", "userA");
+
+        // Assert
+        assertFalse(added);
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(GroupMemberChunk.class));
+    }
+
+    @Test
+    void remove_ShouldReportWhetherAChunkChanged() {
+        // Arrange
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(GroupMemberChunk.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // Act & Assert
+        assertTrue(membershipService.remove("room1", "userA"));
+        assertFalse(membershipService.remove("room1", "userA"));
+    }
+
+    @Test
+    void members_ShouldFlattenChunksAndDropDuplicates() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(GroupMemberChunk.class))).thenReturn(List.of(
+                GroupMemberChunk.builder().memberIds(List.of("userA", "userB")).build(),
+                GroupMemberChunk.builder().memberIds(List.of("userC", "userA")).build()));
+
+        // Act
+        List<String> members = membershipService.members("room1");
+
+        // Assert
+        assertEquals(List.of("userA", "userB", "userC"), members);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.backend.group;
+
+import com.example.backend.group.dto.CreateGroupRequest;
+import com.example.backend.shared.exceptions.GroupRoomNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupRoomServiceTest {
+
+    @Mock
+    private GroupRoomRepository groupRoomRepository;
+
+    @Mock
+    private GroupMembershipService membershipService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private GroupRoomService groupRoomService;
+
+    @BeforeEach
+    void setUp() {
+        groupRoomService = new GroupRoomService(groupRoomRepository, membershipService, mongoTemplate, 2);
+    }
+
+    @Test
+    void addMember_ShouldSwitchRoomToBroadcast_WhenThresholdIsCrossed() {
+        // Arrange
+        when(groupRoomRepository.existsById("room1")).thenReturn(true);
+        when(membershipService.add("room1", "userC")).thenReturn(true);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(GroupRoom.class)))
+                .thenReturn(GroupRoom.builder().id("room1").memberCount(3).build());
+
+        // Act
+        GroupRoom room = groupRoomService.addMember("room1", "userC");
+
+        // Assert
+        assertTrue(room.isBroadcast());
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class),
+                argThat((Update update) -> update.getUpdateObject().toJson().contains("\"broadcast\": true")),
+                eq(GroupRoom.class));
+    }
+
+    @Test
+    void addMember_ShouldLeaveCountAlone_WhenUserIsAlreadyMember() {
+        // Arrange
+        GroupRoom existing = GroupRoom.builder().id("room1").memberCount(2).build();
+        when(groupRoomRepository.existsById("room1")).thenReturn(true);
+        when(membershipService.add("room1", "userA")).thenReturn(false);
+        when(groupRoomRepository.findById("room1")).thenReturn(Optional.of(existing));
+
+        // Act
+        GroupRoom room = groupRoomService.addMember("room1", "userA");
+
+        // Assert
+        assertSame(existing, room);
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void addMember_ShouldThrow_WhenRoomDoesNotExist() {
+        // Arrange
+        when(groupRoomRepository.existsById("missing")).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(GroupRoomNotFoundException.class, () -> groupRoomService.addMember("missing", "userA"));
+        verifyNoInteractions(membershipService);
+    }
+
+    @Test
+    void create_ShouldAddOwnerAndInitialMembers() {
+        // Arrange
+        GroupRoom saved = GroupRoom.builder().id("room1").name("Team").ownerId("owner").build();
+        when(groupRoomRepository.save(any(GroupRoom.class))).thenReturn(saved);
+        when(groupRoomRepository.existsById("room1")).thenReturn(true);
+        when(groupRoomRepository.findById("room1")).thenReturn(Optional.of(saved));
+
+        // Act
+        groupRoomService.create(new CreateGroupRequest("Team", "owner", List.of("userA", "userB")));
+
+        // Assert
+        verify(membershipService, times(1)).add("room1", "owner");
+        verify(membershipService, times(1)).add("room1", "userA");
+        verify(membershipService, times(1)).add("room1", "userB");
+    }
+}
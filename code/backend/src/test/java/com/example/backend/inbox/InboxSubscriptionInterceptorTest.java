@@ -0,0 +1,93 @@
+package com.example.backend.inbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InboxSubscriptionInterceptorTest {
+
+    @Mock
+    private ObjectProvider<OfflineInbox> inboxProvider;
+
+    @Mock
+    private OfflineInbox offlineInbox;
+
+    @Mock
+    private MessageChannel channel;
+
+    @Mock
+    private SimpleBrokerMessageHandler broker;
+
+    private final PresenceRegistry presence = new PresenceRegistry();
+    private InboxSubscriptionInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(inboxProvider.getObject()).thenReturn(offlineInbox);
+        interceptor = new InboxSubscriptionInterceptor(presence, inboxProvider);
+    }
+
+    @Test
+    void afterMessageHandled_ShouldMarkOnlineAndDrain_WhenBrokerRegisteredQueueSubscription() {
+        // Act
+        interceptor.afterMessageHandled(frame(SimpMessageType.SUBSCRIBE, "/user/userB/queue/messages"), channel, broker, null);
+
+        // Assert
+        assertTrue(presence.isOnline("userB"));
+        verify(offlineInbox, times(1)).requestDrain("userB");
+    }
+
+    @Test
+    void afterMessageHandled_ShouldIgnoreOtherHandlersAndDestinations() {
+        // Act
+        interceptor.afterMessageHandled(frame(SimpMessageType.SUBSCRIBE, "/user/userB/queue/messages"),
+                channel, mock(MessageHandler.class), null);
+        interceptor.afterMessageHandled(frame(SimpMessageType.SUBSCRIBE, "/topic/public"), channel, broker, null);
+
+        // Assert
+        assertFalse(presence.isOnline("userB"));
+        verifyNoInteractions(offlineInbox);
+    }
+
+    @Test
+    void afterMessageHandled_ShouldMarkOffline_OnDisconnect() {
+        // Arrange
+        interceptor.afterMessageHandled(frame(SimpMessageType.SUBSCRIBE, "/user/userB/queue/messages"), channel, broker, null);
+
+        // Act
+        interceptor.afterMessageHandled(frame(SimpMessageType.DISCONNECT, null), channel, broker, null);
+
+        // Assert
+        assertFalse(presence.isOnline("userB"));
+    }
+
+    @Test
+    void queueOwner_ShouldResolveExplicitAndPrincipalDestinations() {
+        assertEquals("userB", InboxSubscriptionInterceptor.queueOwner("/user/userB/queue/messages", null));
+        assertEquals("me", InboxSubscriptionInterceptor.queueOwner("/user/queue/messages", () -> "me"));
+        assertNull(InboxSubscriptionInterceptor.queueOwner("/user/userB/queue/typing", null));
+        assertNull(InboxSubscriptionInterceptor.queueOwner("/user/a/b/queue/messages", null));
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
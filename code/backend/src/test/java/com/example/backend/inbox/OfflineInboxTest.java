@@ -0,0 +1,146 @@
+package com.example.backend.inbox;
+
+import com.example.backend.chat.ChatNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OfflineInboxTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisListCommands listCommands;
+
+    @Mock
+    private RedisKeyCommands keyCommands;
+
+    private final PresenceRegistry presence = new PresenceRegistry();
+    private OfflineInbox inbox;
+
+    @BeforeEach
+    void setUp() {
+        // Worker not started: tests drive process() directly
+        inbox = new OfflineInbox(messagingTemplate, redisTemplate, presence, new ObjectMapper(),
+                new SimpleMeterRegistry(), 1000, 14, 2, 100);
+    }
+
+    @Test
+    void deliver_ShouldSendRightAway_WhenRecipientIsSubscribed() {
+        // Arrange
+        presence.subscribed("userB", "s1", "sub-0");
+        ChatNotification notification = notification("m1", 1L);
+
+        // Act
+        inbox.deliver("userB", notification);
+
+        // Assert
+        verify(messagingTemplate, times(1)).convertAndSendToUser("userB", "/queue/messages", notification);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void deliver_ShouldNotSend_WhenRecipientIsOffline() {
+        // Act
+        inbox.deliver("userB", notification("m1", 1L));
+
+        // Assert
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    void process_ShouldAppendTrimAndExpireInOnePipeline() {
+        // Arrange
+        when(connection.listCommands()).thenReturn(listCommands);
+        when(connection.keyCommands()).thenReturn(keyCommands);
+        when(redisTemplate.executePipelined(Mockito.<RedisCallback<?>>any())).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return null;
+        });
+
+        // Act
+        inbox.process(List.of(
+                new OfflineInbox.Work("userB", notification("m1", 1L)),
+                new OfflineInbox.Work("userB", notification("m2", 2L))));
+
+        // Assert
+        byte[] key = "inbox:userB".getBytes(StandardCharsets.UTF_8);
+        ArgumentCaptor<byte[]> rows = ArgumentCaptor.forClass(byte[].class);
+        verify(listCommands, times(2)).rPush(eq(key), rows.capture());
+        verify(listCommands, times(2)).lTrim(key, -1000, -1);
+        String first = new String(rows.getAllValues().get(0), StandardCharsets.UTF_8);
+        assertTrue(first.contains("\"id\":\"m1\""));
+        assertFalse(first.contains("roomId"), "Null fields are not stored");
+        // Still offline, so nothing is drained
+        verify(redisTemplate, never()).execute(Mockito.<RedisScript<List>>any(), anyList(), any());
+    }
+
+    @Test
+    void process_ShouldDrainBacklogInBatchedFrames_WhenUserSubscribes() {
+        // Arrange
+        presence.subscribed("userB", "s1", "sub-0");
+        when(redisTemplate.execute(Mockito.<RedisScript<List>>any(), eq(List.of("inbox:userB")), eq("2")))
+                .thenReturn(List.of(json("m1", 1L), json("m2", 2L)))
+                .thenReturn(List.of(json("m3", 3L)));
+
+        // Act
+        inbox.process(List.of(new OfflineInbox.Work("userB", null)));
+
+        // Assert
+        ArgumentCaptor<Object> frames = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq("userB"), eq("/queue/messages"), frames.capture());
+        List<?> firstFrame = (List<?>) frames.getAllValues().get(0);
+        List<?> secondFrame = (List<?>) frames.getAllValues().get(1);
+        assertEquals(2, firstFrame.size());
+        assertEquals("m1", ((ChatNotification) firstFrame.get(0)).getId());
+        assertEquals(3L, ((ChatNotification) secondFrame.get(0)).getSeq());
+    }
+
+    @Test
+    void process_ShouldLeaveBacklog_WhenUserLeftBeforeDrain() {
+        // Arrange
+        presence.subscribed("userB", "s1", "sub-0");
+        presence.disconnected("s1");
+
+        // Act
+        inbox.process(List.of(new OfflineInbox.Work("userB", null)));
+
+        // Assert
+        verifyNoInteractions(redisTemplate, messagingTemplate);
+    }
+
+    private static ChatNotification notification(String id, long seq) {
+        return ChatNotification.builder().id(id).senderId("userA").recipientId("userB").content("hi").seq(seq).build();
+    }
+
+    private static String json(String id, long seq) {
+        return "{\"id\":\"" + id + "\",\"senderId\":\"userA\",\"recipientId\":\"userB\",\"content\":\"hi\",\"seq\":" + seq + "}";
+    }
+}
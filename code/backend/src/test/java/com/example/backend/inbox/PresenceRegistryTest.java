@@ -0,0 +1,38 @@
+package com.example.backend.inbox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresenceRegistryTest {
+
+    private final PresenceRegistry presence = new PresenceRegistry();
+
+    @Test
+    void isOnline_ShouldStayTrue_UntilLastSubscriptionIsGone() {
+        // Arrange
+        presence.subscribed("userB", "s1", "sub-0");
+        presence.subscribed("userB", "s2", "sub-0");
+
+        // Act
+        presence.disconnected("s1");
+
+        // Assert
+        assertTrue(presence.isOnline("userB"));
+        presence.unsubscribed("s2", "sub-0");
+        assertFalse(presence.isOnline("userB"));
+    }
+
+    @Test
+    void unsubscribed_ShouldIgnoreUnknownSubscriptions() {
+        // Arrange
+        presence.subscribed("userB", "s1", "sub-0");
+
+        // Act
+        presence.unsubscribed("s1", "sub-9");
+        presence.disconnected("s9");
+
+        // Assert
+        assertTrue(presence.isOnline("userB"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backend.search;
+
+import com.example.backend.chat.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSearchIndexerTest {
+
+    @Test
+    void toPostings_ShouldWriteOneSortedSegmentPerTermAndChat() {
+        // Arrange
+        List<ChatMessage> messages = List.of(
+                message("b2", "chat1", "invoice paid"),
+                message("a1", "chat1", "Invoice sent"),
+                message("c3", "chat2", "invoice"));
+
+        // Act
+        List<SearchPosting> postings = MessageSearchIndexer.toPostings(messages);
+
+        // Assert
+        SearchPosting invoiceChat1 = postings.stream()
+                .filter(p -> p.getTerm().equals("invoice") && p.getChatId().equals("chat1"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(List.of("a1", "b2"), invoiceChat1.getMessageIds());
+        assertEquals(2, invoiceChat1.getSize());
+        assertEquals(4, postings.size());
+    }
+
+    @Test
+    void toPostings_ShouldSkipMessagesWithoutId() {
+        // Act
+        List<SearchPosting> postings = MessageSearchIndexer.toPostings(List.of(message(null, "chat1", "hello")));
+
+        // Assert
+        assertTrue(postings.isEmpty());
+    }
+
+    private ChatMessage message(String id, String chatId, String content) {
+        return ChatMessage.builder().id(id).chatId(chatId).content(content).build();
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.backend.search;
+
+import com.example.backend.chat.ChatMessage;
+import com.example.backend.chat.ChatHistoryStore;
+import com.example.backend.chatroom.ChatRoom;
+import com.example.backend.chatroom.ChatRoomRepository;
+import com.example.backend.search.dto.SearchResultPage;
+import com.example.backend.shared.exceptions.InvalidSearchQueryException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageSearchServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ChatRoomRepository chatRoomRepository;
+
+    @Mock
+    private ChatHistoryStore historyStore;
+
+    @InjectMocks
+    private MessageSearchService searchService;
+
+    // ObjectId hex, increasing with creation time
+    private final String older = "650000000000000000000001";
+    private final String middle = "650000000000000000000002";
+    private final String newer = "650000000000000000000003";
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(searchService, "defaultPageSize", 1);
+        ReflectionTestUtils.setField(searchService, "maxPageSize", 10);
+        ReflectionTestUtils.setField(searchService, "maxTerms", 3);
+        ReflectionTestUtils.setField(searchService, "verifyBatchSize", 1000);
+    }
+
+    @Test
+    void search_ShouldReturnNewestMessagesMatchingEveryTerm() {
+        // Arrange
+        givenChats();
+        givenTermSizes(termSize("invoice", 3), termSize("paid", 2));
+        // Only the rarer term's postings are read; the other term is asked about its ids
+        when(mongoTemplate.stream(any(Query.class), eq(SearchPosting.class)))
+                .thenReturn(Stream.empty())
+                .thenReturn(Stream.of(posting("paid", older, newer)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(SearchPosting.class), eq(MessageSearchService.PostingHits.class)))
+                .thenReturn(new AggregationResults<>(List.of(hits(older, newer)), new Document()));
+        when(historyStore.findAllById(List.of(newer)))
+                .thenReturn(List.of(ChatMessage.builder().id(newer).content("invoice paid").build()));
+
+        // Act
+        SearchResultPage page = searchService.search("userA", "Invoice PAID", null, null);
+
+        // Assert
+        assertEquals(List.of(newer), page.getMessages().stream().map(ChatMessage::getId).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(newer, page.getNextCursor());
+    }
+
+    @Test
+    void search_ShouldContinueBeforeCursor() {
+        // Arrange
+        givenChats();
+        givenTermSizes(termSize("invoice", 3));
+        when(mongoTemplate.stream(any(Query.class), eq(SearchPosting.class)))
+                .thenReturn(Stream.of(posting("invoice", older)))
+                .thenReturn(Stream.of(posting("invoice", older, newer)));
+        when(historyStore.findAllById(List.of(older)))
+                .thenReturn(List.of(ChatMessage.builder().id(older).content("invoice").build()));
+
+        // Act
+        SearchResultPage page = searchService.search("userA", "invoice", newer, 5);
+
+        // Assert
+        assertEquals(List.of(older), page.getMessages().stream().map(ChatMessage::getId).toList());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void search_ShouldStopReadingSegments_OnceOlderOnesCannotImproveThePage() {
+        // Arrange
+        ReflectionTestUtils.setField(searchService, "verifyBatchSize", 1);
+        givenChats();
+        givenTermSizes(termSize("invoice", 3));
+        Stream<SearchPosting> segments = Stream.concat(
+                Stream.of(posting("invoice", middle, newer), posting("invoice", older)),
+                Stream.generate(() -> fail("Read a segment past the page")));
+        when(mongoTemplate.stream(any(Query.class), eq(SearchPosting.class)))
+                .thenReturn(Stream.empty())
+                .thenReturn(segments);
+        when(historyStore.findAllById(List.of(newer)))
+                .thenReturn(List.of(ChatMessage.builder().id(newer).content("invoice").build()));
+
+        // Act
+        SearchResultPage page = searchService.search("userA", "invoice", null, null);
+
+        // Assert
+        assertEquals(List.of(newer), page.getMessages().stream().map(ChatMessage::getId).toList());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void search_ShouldSkipMessage_WhenAnEditRemovedTheTerm() {
+        // Arrange
+        givenChats();
+        givenTermSizes(termSize("invoice", 2));
+        when(mongoTemplate.stream(any(Query.class), eq(SearchPosting.class)))
+                .thenReturn(Stream.empty())
+                .thenReturn(Stream.of(posting("invoice", older, newer)));
+        // The posting for newer predates its edit
+        when(historyStore.findAllById(List.of(newer, older))).thenReturn(List.of(
+                ChatMessage.builder().id(newer).content("receipt attached").version(1L).build(),
+                ChatMessage.builder().id(older).content("invoice attached").build()));
+
+        // Act
+        SearchResultPage page = searchService.search("userA", "invoice", null, 5);
+
+        // Assert
+        assertEquals(List.of(older), page.getMessages().stream().map(ChatMessage::getId).toList());
+        assertEquals(older, page.getNextCursor());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void search_ShouldNotReadPostings_WhenATermHasNone() {
+        // Arrange
+        givenChats();
+        givenTermSizes(termSize("invoice", 3));
+
+        // Act
+        SearchResultPage page = searchService.search("userA", "invoice paid", null, null);
+
+        // Assert
+        assertTrue(page.getMessages().isEmpty());
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(SearchPosting.class));
+    }
+
+    @Test
+    void search_ShouldReturnEmptyPage_WhenUserHasNoChats() {
+        // Arrange
+        when(chatRoomRepository.findByParticipant("userA")).thenReturn(List.of());
+
+        // Act
+        SearchResultPage page = searchService.search("userA", "invoice", null, null);
+
+        // Assert
+        assertTrue(page.getMessages().isEmpty());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void search_ShouldThrow_WhenQueryHasNoTerms() {
+        // Act & Assert
+        assertThrows(InvalidSearchQueryException.class, () -> searchService.search("userA", " ?! ", null, null));
+    }
+
+    @Test
+    void search_ShouldThrow_WhenCursorIsMalformed() {
+        // Act & Assert
+        assertThrows(InvalidSearchQueryException.class, () -> searchService.search("userA", "invoice", "nope", null));
+    }
+
+    private void givenChats() {
+        when(chatRoomRepository.findByParticipant("userA"))
+                .thenReturn(List.of(ChatRoom.builder().chatId("userA_userB").build()));
+    }
+
+    private void givenTermSizes(MessageSearchService.TermSize... sizes) {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(SearchPosting.class), eq(MessageSearchService.TermSize.class)))
+                .thenReturn(new AggregationResults<>(List.of(sizes), new Document()));
+    }
+
+    private static MessageSearchService.TermSize termSize(String term, long size) {
+        MessageSearchService.TermSize termSize = new MessageSearchService.TermSize();
+        termSize.setId(term);
+        termSize.setSize(size);
+        return termSize;
+    }
+
+    private static MessageSearchService.PostingHits hits(String... ids) {
+        MessageSearchService.PostingHits hits = new MessageSearchService.PostingHits();
+        hits.setHits(List.of(ids));
+        return hits;
+    }
+
+    private SearchPosting posting(String term, String... ids) {
+        return SearchPosting.of(term, "userA_userB", List.of(ids));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTokenizerTest {
+
+    @Test
+    void tokenize_ShouldLowercaseAndSplitOnPunctuation() {
+        // Act
+        Set<String> terms = MessageTokenizer.tokenize("Invoice INV-2024-001, see invoice!");
+
+        // Assert
+        assertEquals(List.of("invoice", "inv", "2024", "001", "see"), List.copyOf(terms));
+    }
+
+    @Test
+    void tokenize_ShouldDropTermsOutsideLengthBounds() {
+        // Act
+        Set<String> terms = MessageTokenizer.tokenize("a ok " + "x".repeat(MessageTokenizer.MAX_TERM_LENGTH + 1));
+
+        // Assert
+        assertEquals(Set.of("ok"), terms);
+    }
+
+    @Test
+    void tokenize_ShouldReturnNoTerms_WhenTextIsNull() {
+        // Act & Assert
+        assertTrue(MessageTokenizer.tokenize(null).isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchSegmentMergerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void merge_ShouldFoldSegmentsIntoDeduplicatedBlocks() {
+        // Arrange
+        SearchSegmentMerger merger = new SearchSegmentMerger(mongoTemplate, 2, 10);
+        when(mongoTemplate.find(any(Query.class), eq(SearchPosting.class))).thenReturn(List.of(
+                segment("s1", "a", "c"),
+                segment("s2", "b", "a")));
+
+        // Act
+        merger.merge("invoice", "chat1");
+
+        // Assert
+        // 1. Ids are deduplicated, sorted and split at the segment size
+        ArgumentCaptor<Collection<SearchPosting>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insertAll(captor.capture());
+        List<List<String>> blocks = captor.getValue().stream().map(SearchPosting::getMessageIds).toList();
+        assertEquals(List.of(List.of("a", "b"), List.of("c")), blocks);
+        assertEquals(List.of("a", "c"), captor.getValue().stream().map(SearchPosting::getMinId).toList());
+        assertEquals(List.of("b", "c"), captor.getValue().stream().map(SearchPosting::getMaxId).toList());
+
+        // 2. The old segments are removed only after the merged ones are written
+        var order = inOrder(mongoTemplate);
+        order.verify(mongoTemplate).insertAll(any());
+        order.verify(mongoTemplate).remove(any(Query.class), eq(SearchPosting.class));
+    }
+
+    @Test
+    void merge_ShouldDoNothing_WhenOnlyOneSegmentIsOpen() {
+        // Arrange
+        SearchSegmentMerger merger = new SearchSegmentMerger(mongoTemplate, 2, 10);
+        when(mongoTemplate.find(any(Query.class), eq(SearchPosting.class))).thenReturn(List.of(segment("s1", "a")));
+
+        // Act
+        merger.merge("invoice", "chat1");
+
+        // Assert
+        verify(mongoTemplate, never()).insertAll(any());
+    }
+
+    private SearchPosting segment(String id, String... messageIds) {
+        return SearchPosting.builder()
+                .id(id)
+                .term("invoice")
+                .chatId("chat1")
+                .messageIds(List.of(messageIds))
+                .size(messageIds.length)
+                .build();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.backend.shared.bloom;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExistenceFiltersTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExistenceFilters existenceFilters;
+    private final List<String> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        existenceFilters = new ExistenceFilters(redisTemplate, meterRegistry, "bloom:add", 100, 0.01, 60000, 3600000);
+        stored.add("alice");
+    }
+
+    @Test
+    void register_ShouldBuildFilterFromSource() {
+        // Arrange
+        subscribe();
+
+        // Act
+        ExistenceFilter filter = existenceFilters.register("usernames", stored::stream);
+
+        // Assert
+        assertTrue(filter.mightContain("alice"));
+        assertFalse(filter.mightContain("mallory"));
+        assertEquals(1.0, meterRegistry.get("bloom.lookups").tag("result", "absent").counter().count());
+    }
+
+    @Test
+    void add_ShouldUpdateLocalFilter_AndPublishToOtherNodes() {
+        // Arrange
+        subscribe();
+        ExistenceFilter filter = existenceFilters.register("usernames", stored::stream);
+
+        // Act
+        filter.add("bob");
+
+        // Assert
+        assertTrue(filter.mightContain("bob"));
+        verify(redisTemplate).convertAndSend("bloom:add", "usernames bob");
+    }
+
+    @Test
+    void onMessage_ShouldAddValueStoredOnAnotherNode() {
+        // Arrange
+        subscribe();
+        ExistenceFilter filter = existenceFilters.register("usernames", stored::stream);
+
+        // Act
+        existenceFilters.onMessage(new DefaultMessage("bloom:add".getBytes(StandardCharsets.UTF_8),
+                "usernames carol".getBytes(StandardCharsets.UTF_8)), null);
+
+        // Assert
+        assertTrue(filter.mightContain("carol"));
+        assertFalse(filter.mightContain("mallory"));
+        verify(redisTemplate, never()).convertAndSend("bloom:add", "usernames carol");
+    }
+
+    @Test
+    void rebuildAll_ShouldKeepPreviousFilter_WhenSourceFails() {
+        // Arrange
+        subscribe();
+        List<Boolean> failing = new ArrayList<>();
+        ExistenceFilter filter = existenceFilters.register("usernames", () -> {
+            if (!failing.isEmpty()) {
+                throw new IllegalStateException("mongo down");
+            }
+            return Stream.of("alice");
+        });
+        failing.add(true);
+
+        // Act
+        existenceFilters.rebuildAll();
+
+        // Assert
+        assertTrue(filter.mightContain("alice"));
+    }
+
+    @Test
+    void rebuildAll_ShouldPickUpValuesWhoseAnnouncementWasMissed() {
+        // Arrange
+        subscribe();
+        ExistenceFilter filter = existenceFilters.register("usernames", stored::stream);
+        stored.add("dave");
+
+        // Act
+        existenceFilters.rebuildAll();
+
+        // Assert
+        assertTrue(filter.mightContain("dave"));
+    }
+
+    @Test
+    void register_ShouldAnswerMightExist_UntilChannelIsHeard() {
+        // Arrange
+        ExistenceFilter filter = existenceFilters.register("usernames", stored::stream);
+        assertTrue(filter.mightContain("mallory"));
+
+        // Act
+        subscribe();
+
+        // Assert
+        assertFalse(filter.mightContain("mallory"));
+        assertTrue(filter.mightContain("alice"));
+    }
+
+    @Test
+    void checkSubscription_ShouldDropFilters_WhenProbesStopComingBack() throws InterruptedException {
+        // Arrange
+        existenceFilters = new ExistenceFilters(redisTemplate, meterRegistry, "bloom:add", 100, 0.01, 1, 3600000);
+        ExistenceFilter filter = existenceFilters.register("usernames", stored::stream);
+        subscribe();
+        Thread.sleep(10);
+
+        // Act
+        existenceFilters.checkSubscription();
+
+        // Assert
+        assertTrue(filter.mightContain("mallory"));
+        existenceFilters.rebuildAll();
+        assertTrue(filter.mightContain("mallory"));
+        // Heard again: rebuilt from the source
+        existenceFilters.onMessage(message(lastProbe()), null);
+        assertFalse(filter.mightContain("mallory"));
+    }
+
+    @Test
+    void start_ShouldProbeChannelOnItsOwnThread() {
+        // Arrange
+        existenceFilters = new ExistenceFilters(redisTemplate, meterRegistry, "bloom:add", 100, 0.01, 3600000, 3600000);
+        List<String> threads = new ArrayList<>();
+        doAnswer(invocation -> threads.add(Thread.currentThread().getName()))
+                .when(redisTemplate).convertAndSend(eq("bloom:add"), startsWith("_probe "));
+
+        // Act
+        existenceFilters.start();
+
+        // Assert
+        try {
+            verify(redisTemplate, timeout(5000)).convertAndSend(eq("bloom:add"), startsWith("_probe "));
+            assertEquals(List.of("bloom-rebuilder"), threads);
+        } finally {
+            existenceFilters.stop();
+        }
+    }
+
+    // The node hears its own probe, as it does once the listener is subscribed
+    private void subscribe() {
+        existenceFilters.checkSubscription();
+        existenceFilters.onMessage(message(lastProbe()), null);
+    }
+
+    private String lastProbe() {
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, atLeastOnce()).convertAndSend(eq("bloom:add"), body.capture());
+        return body.getValue();
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("bloom:add".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
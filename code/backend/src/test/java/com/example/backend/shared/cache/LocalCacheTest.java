@@ -0,0 +1,64 @@
+package com.example.backend.shared.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void put_ShouldDropLeastRecentlyRead_WhenFull() {
+        // Arrange
+        LocalCache cache = new LocalCache(new LocalCacheSpec(Duration.ofMinutes(1), 2), clock::get);
+        cache.put("a", 1);
+        clock.incrementAndGet();
+        cache.put("b", 2);
+        clock.incrementAndGet();
+        cache.get("a");
+        clock.incrementAndGet();
+
+        // Act
+        cache.put("c", 3);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void put_ShouldStayWithinMaxSize_WhenManyKeysArrive() {
+        // Arrange
+        LocalCache cache = new LocalCache(new LocalCacheSpec(Duration.ofMinutes(1), 10), clock::get);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            clock.incrementAndGet();
+            cache.put("key" + i, i);
+        }
+
+        // Assert
+        assertEquals(10, cache.size());
+        assertEquals(999, cache.get("key999"));
+    }
+
+    @Test
+    void get_ShouldDropEntry_OnceTtlPassed() {
+        // Arrange
+        LocalCache cache = new LocalCache(new LocalCacheSpec(Duration.ofSeconds(5), 10), clock::get);
+        cache.put("a", 1);
+
+        // Act
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        // Assert
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.backend.shared.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TwoLevelCacheManagerTest {
+
+    @Mock
+    private CacheManager remoteManager;
+
+    @Mock
+    private Cache remoteCache;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisCacheCoordinator coordinator;
+
+    private final AtomicLong now = new AtomicLong();
+    private double random = 0.5;
+    private SimpleMeterRegistry meterRegistry;
+    private TwoLevelCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(remoteManager.getCache("rooms")).thenReturn(remoteCache);
+        lenient().when(remoteCache.getName()).thenReturn("rooms");
+        cacheManager = new TwoLevelCacheManager(remoteManager, redisTemplate, meterRegistry, "cache:invalidate",
+                new LocalCacheSpec(Duration.ofSeconds(30), 2), Map.of(), coordinator, 1.0, now::get, () -> random);
+    }
+
+    @Test
+    void get_ShouldServeFromLocalLevel_AfterFirstRemoteHit() {
+        // Arrange
+        when(remoteCache.get("a_b")).thenReturn(new SimpleValueWrapper("room"));
+        Cache cache = cacheManager.getCache("rooms");
+
+        // Act
+        cache.get("a_b");
+        Cache.ValueWrapper second = cache.get("a_b");
+
+        // Assert
+        assertEquals("room", second.get());
+        verify(remoteCache, times(1)).get("a_b");
+        assertEquals(1.0, meterRegistry.get("cache.local.gets").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void get_ShouldGoRemote_WhenLocalEntryExpired() {
+        // Arrange
+        when(remoteCache.get("a_b")).thenReturn(new SimpleValueWrapper("room"));
+        Cache cache = cacheManager.getCache("rooms");
+        cache.get("a_b");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        // Act
+        cache.get("a_b");
+
+        // Assert
+        verify(remoteCache, times(2)).get("a_b");
+    }
+
+    @Test
+    void put_ShouldWriteBothLevels_AndPublishInvalidation() {
+        // Arrange
+        Cache cache = cacheManager.getCache("rooms");
+
+        // Act
+        cache.put("a_b", "room");
+        Object cached = cache.get("a_b").get();
+
+        // Assert
+        assertEquals("room", cached);
+        verify(remoteCache).put("a_b", "room");
+        verify(remoteCache, never()).get("a_b");
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq("cache:invalidate"), body.capture());
+        assertTrue(body.getValue().endsWith(" rooms a_b"));
+    }
+
+    @Test
+    void onMessage_ShouldDropLocalEntry_WhenAnotherNodeChangedIt() {
+        // Arrange
+        when(remoteCache.get("a_b")).thenReturn(new SimpleValueWrapper("room"));
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("rooms");
+        cache.get("a_b");
+
+        // Act
+        cacheManager.onMessage(message("other-node rooms a_b"), null);
+        cache.get("a_b");
+
+        // Assert
+        verify(remoteCache, times(2)).get("a_b");
+    }
+
+    @Test
+    void onMessage_ShouldClearLocalLevel_WhenAnotherNodeClearedCache() {
+        // Arrange
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("rooms");
+        cache.put("a_b", "room");
+        cache.put("c_d", "room");
+
+        // Act
+        cacheManager.onMessage(message("other-node rooms"), null);
+
+        // Assert
+        assertEquals(0, cache.localSize());
+    }
+
+    @Test
+    void onMessage_ShouldIgnoreOwnInvalidations() {
+        // Arrange
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("rooms");
+        cache.put("a_b", "room");
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq("cache:invalidate"), body.capture());
+
+        // Act
+        cacheManager.onMessage(message(body.getValue()), null);
+
+        // Assert
+        assertEquals(1, cache.localSize());
+    }
+
+    @Test
+    void put_ShouldDropLeastRecentlyUsedEntry_WhenLocalLevelIsFull() {
+        // Arrange
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("rooms");
+        // Reads are ranked by the clock, so time moves between them
+        cache.put("a", "1");
+        now.incrementAndGet();
+        cache.put("b", "2");
+        now.incrementAndGet();
+        cache.get("a");
+        now.incrementAndGet();
+
+        // Act
+        cache.put("c", "3");
+        cache.get("b");
+
+        // Assert
+        assertEquals(2, cache.localSize());
+        verify(remoteCache, times(1)).get("b");
+        verify(remoteCache, never()).get("a");
+    }
+
+    @Test
+    void getWithLoader_ShouldRecomputeUnderLease_WhenBothLevelsMiss() {
+        // Arrange
+        when(coordinator.tryLease("rooms", "a_b")).thenReturn("token");
+        Cache cache = cacheManager.getCache("rooms");
+
+        // Act
+        String value = cache.get("a_b", () -> "room");
+        String again = cache.get("a_b", () -> "other");
+
+        // Assert
+        assertEquals("room", value);
+        assertEquals("room", again);
+        verify(remoteCache).put("a_b", "room");
+        verify(coordinator).release("rooms", "a_b", "token");
+    }
+
+    @Test
+    void getWithLoader_ShouldServeCurrentValue_WhenAnotherNodeHoldsLease() {
+        // Arrange
+        when(coordinator.tryLease("rooms", "a_b")).thenReturn("token");
+        Cache cache = cacheManager.getCache("rooms");
+        // A first recompute that took 1s makes the entry eligible for early refresh
+        cache.get("a_b", () -> {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            return "room";
+        });
+        cacheManager.onMessage(message("other-node rooms a_b"), null);
+        when(remoteCache.get("a_b")).thenReturn(new SimpleValueWrapper("room"));
+        when(coordinator.remainingTtlMillis("rooms", "a_b")).thenReturn(100L);
+        when(coordinator.tryLease("rooms", "a_b")).thenReturn(null);
+
+        // Act
+        String value = cache.get("a_b", () -> fail("recomputed while another node holds the lease"));
+
+        // Assert
+        assertEquals("room", value);
+    }
+
+    @Test
+    void getWithLoader_ShouldRefreshEarly_WhenEntryIsCloseToExpiry() {
+        // Arrange
+        when(coordinator.tryLease("rooms", "a_b")).thenReturn("token");
+        Cache cache = cacheManager.getCache("rooms");
+        cache.get("a_b", () -> {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            return "room";
+        });
+        cacheManager.onMessage(message("other-node rooms a_b"), null);
+        when(remoteCache.get("a_b")).thenReturn(new SimpleValueWrapper("room"));
+        // 1s recompute * -ln(0.5) is about 0.69s, more than the 100ms left
+        when(coordinator.remainingTtlMillis("rooms", "a_b")).thenReturn(100L);
+
+        // Act
+        String value = cache.get("a_b", () -> "fresh");
+
+        // Assert
+        assertEquals("fresh", value);
+        verify(remoteCache).put("a_b", "fresh");
+    }
+
+    @Test
+    void getWithLoader_ShouldKeepRemoteValue_WhenExpiryIsFarAway() {
+        // Arrange
+        when(coordinator.tryLease("rooms", "a_b")).thenReturn("token");
+        Cache cache = cacheManager.getCache("rooms");
+        cache.get("a_b", () -> {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+            return "room";
+        });
+        cacheManager.onMessage(message("other-node rooms a_b"), null);
+        when(remoteCache.get("a_b")).thenReturn(new SimpleValueWrapper("room"));
+        when(coordinator.remainingTtlMillis("rooms", "a_b")).thenReturn(TimeUnit.MINUTES.toMillis(30));
+
+        // Act
+        String value = cache.get("a_b", () -> fail("refreshed half an hour before expiry"));
+
+        // Assert
+        assertEquals("room", value);
+    }
+
+    @Test
+    void getWithLoader_ShouldWaitForLeaseHolder_WhenNoValueIsCached() {
+        // Arrange
+        when(coordinator.tryLease("rooms", "a_b")).thenReturn(null);
+        when(coordinator.leaseMs()).thenReturn(1000L);
+        when(remoteCache.get("a_b")).thenReturn(null, new SimpleValueWrapper("room"));
+        Cache cache = cacheManager.getCache("rooms");
+
+        // Act
+        String value = cache.get("a_b", () -> fail("recomputed while another node holds the lease"));
+
+        // Assert
+        assertEquals("room", value);
+    }
+
+    @Test
+    void parse_ShouldReadPerCacheSpecs() {
+        // Act
+        Map<String, LocalCacheSpec> specs = LocalCacheSpec.parse("connectedUsers=5s/1, rooms=2m/500");
+
+        // Assert
+        assertEquals(new LocalCacheSpec(Duration.ofSeconds(5), 1), specs.get("connectedUsers"));
+        assertEquals(new LocalCacheSpec(Duration.ofMinutes(2), 500), specs.get("rooms"));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("cache:invalidate".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.backend.shared.security;
 
+import com.example.backend.user.KnownUsernames;
 import com.example.backend.user.User;
 import com.example.backend.user.UserRepository;
 import com.example.backend.user.enums.Role;
@@ -24,6 +25,9 @@ class CustomUserDetailsServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private KnownUsernames knownUsernames;
+
     @InjectMocks
     private CustomUserDetailsService customUserDetailsService;
 
@@ -31,6 +35,7 @@ class CustomUserDetailsServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(knownUsernames.mightExist(anyString())).thenReturn(true);
         user = User.builder()
                 .id("user123")
                 .username("johndoe")
@@ -100,4 +105,14 @@ class CustomUserDetailsServiceTest {
 
         verify(userRepository, times(1)).findByUsername("admin");
     }
-}
\ No newline at end of file
+
+    @Test
+    void loadUserByUsername_ShouldSkipQuery_WhenFilterRulesNameOut() {
+        // Arrange
+        when(knownUsernames.mightExist("nobody")).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("nobody"));
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.backend.shared.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboundBacklogTest {
+
+    @Mock
+    private WebSocketHandler handler;
+
+    @Mock
+    private WebSocketSession session;
+
+    @Mock
+    private MessageChannel channel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboundBacklog outboundBacklog;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        outboundBacklog = new OutboundBacklog(meterRegistry);
+        lenient().when(session.getId()).thenReturn("s1");
+    }
+
+    @Test
+    void decorate_ShouldTrackSessionUntilClosed() throws Exception {
+        // Arrange
+        WebSocketHandler decorated = outboundBacklog.decorate(handler);
+
+        // Act
+        decorated.afterConnectionEstablished(session);
+        OutboundBacklog.SessionBacklog tracked = outboundBacklog.get("s1");
+        decorated.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        // Assert
+        assertNotNull(tracked);
+        assertNull(outboundBacklog.get("s1"));
+    }
+
+    @Test
+    void sendMessage_ShouldSubtractFrameFromBacklog_WhenWriteCompletes() throws Exception {
+        // Arrange
+        WebSocketSession counting = connect();
+        OutboundBacklog.SessionBacklog backlog = outboundBacklog.get("s1");
+        backlog.queued(100, channel);
+        backlog.queued(40, channel);
+
+        // Act
+        counting.sendMessage(new TextMessage("first"));
+
+        // Assert
+        assertEquals(40, backlog.bytes());
+        assertEquals(1, backlog.messages());
+        assertEquals(40.0, meterRegistry.get("websocket.outbound.buffered.bytes").gauge().value());
+        assertEquals(40.0, meterRegistry.get("websocket.outbound.buffered.max.bytes").gauge().value());
+    }
+
+    @Test
+    void sendMessage_ShouldNotifyDrainListener_OnlyWhileUpdatesAreHeld() throws Exception {
+        // Arrange
+        List<OutboundBacklog.SessionBacklog> drained = new ArrayList<>();
+        outboundBacklog.onDrain(drained::add);
+        WebSocketSession counting = connect();
+        OutboundBacklog.SessionBacklog backlog = outboundBacklog.get("s1");
+        backlog.queued(10, channel);
+        backlog.queued(10, channel);
+
+        // Act
+        counting.sendMessage(new TextMessage("a"));
+        backlog.hold("/topic/public|bob", MessageBuilder.withPayload(new byte[0]).build());
+        counting.sendMessage(new TextMessage("b"));
+
+        // Assert
+        assertEquals(List.of(backlog), drained);
+        assertEquals(1, backlog.releaseHeld().size());
+        assertTrue(backlog.releaseHeld().isEmpty());
+    }
+
+    @Test
+    void close_ShouldCloseRawSessionOnce() throws Exception {
+        // Arrange
+        connect();
+        OutboundBacklog.SessionBacklog backlog = outboundBacklog.get("s1");
+
+        // Act
+        backlog.close(SlowConsumerInterceptor.SLOW_CONSUMER);
+        backlog.close(SlowConsumerInterceptor.SLOW_CONSUMER);
+
+        // Assert
+        assertTrue(backlog.isClosing());
+        verify(session, times(1)).close(SlowConsumerInterceptor.SLOW_CONSUMER);
+    }
+
+    @Test
+    void sample_ShouldRecordBufferedBytesPerSession() throws Exception {
+        // Arrange
+        connect();
+        outboundBacklog.get("s1").queued(256, channel);
+
+        // Act
+        outboundBacklog.sample();
+
+        // Assert
+        assertEquals(1, meterRegistry.get("websocket.session.buffered.bytes").summary().count());
+        assertEquals(256.0, meterRegistry.get("websocket.session.buffered.bytes").summary().totalAmount());
+    }
+
+    // The handler downstream of the decorator receives the counting session
+    private WebSocketSession connect() throws Exception {
+        outboundBacklog.decorate(handler).afterConnectionEstablished(session);
+        ArgumentCaptor<WebSocketSession> downstream = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(downstream.capture());
+        return downstream.getValue();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.backend.shared.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlowConsumerInterceptorTest {
+
+    @Mock
+    private WebSocketHandler handler;
+
+    @Mock
+    private WebSocketSession session;
+
+    @Mock
+    private MessageChannel channel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutboundBacklog outboundBacklog;
+    private SlowConsumerInterceptor interceptor;
+    private WebSocketSession counting;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        outboundBacklog = new OutboundBacklog(meterRegistry);
+        // Soft limit of 2 frames, hard limit of 4
+        interceptor = new SlowConsumerInterceptor(outboundBacklog, new ObjectMapper(), meterRegistry,
+                List.of("/topic/public"), 1_000_000, 2, 10_000_000, 4);
+        when(session.getId()).thenReturn("s1");
+        outboundBacklog.decorate(handler).afterConnectionEstablished(session);
+        ArgumentCaptor<WebSocketSession> downstream = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(downstream.capture());
+        counting = downstream.getValue();
+    }
+
+    @Test
+    void preSend_ShouldPassEverything_WhileUnderSoftLimit() {
+        // Act
+        Message<?> typing = interceptor.preSend(frame("/user/userB/queue/typing", "{}"), channel);
+
+        // Assert
+        assertNotNull(typing);
+        assertEquals(1, outboundBacklog.get("s1").messages());
+    }
+
+    @Test
+    void preSend_ShouldDropTyping_WhenCongested() {
+        // Arrange
+        congest();
+
+        // Act
+        Message<?> result = interceptor.preSend(frame("/user/userB/queue/typing", "{}"), channel);
+
+        // Assert
+        assertNull(result);
+        assertEquals(1.0, meterRegistry.get("websocket.outbound.policy").tag("action", "dropped").counter().count());
+    }
+
+    @Test
+    void preSend_ShouldConflatePresenceAndReplayLatest_WhenBacklogDrains() throws Exception {
+        // Arrange
+        congest();
+        Message<?> stale = frame("/topic/public", "{\"username\":\"bob\",\"status\":\"ONLINE\"}");
+        Message<?> latest = frame("/topic/public", "{\"username\":\"bob\",\"status\":\"OFFLINE\"}");
+        Message<?> other = frame("/topic/public", "{\"username\":\"carol\",\"status\":\"ONLINE\"}");
+
+        // Act
+        assertNull(interceptor.preSend(stale, channel));
+        assertNull(interceptor.preSend(latest, channel));
+        assertNull(interceptor.preSend(other, channel));
+        counting.sendMessage(new TextMessage("x"));
+
+        // Assert
+        ArgumentCaptor<Message<?>> replayed = ArgumentCaptor.forClass(Message.class);
+        verify(channel, times(2)).send(replayed.capture());
+        assertTrue(replayed.getAllValues().contains(latest));
+        assertTrue(replayed.getAllValues().contains(other));
+        assertFalse(replayed.getAllValues().contains(stale));
+        assertEquals(3.0, meterRegistry.get("websocket.outbound.policy").tag("action", "conflated").counter().count());
+    }
+
+    @Test
+    void preSend_ShouldQueueChatMessages_WhileUnderMax() {
+        // Arrange
+        congest();
+
+        // Act
+        Message<?> result = interceptor.preSend(frame("/user/userB/queue/messages", "{}"), channel);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(3, outboundBacklog.get("s1").messages());
+    }
+
+    @Test
+    void preSend_ShouldCloseWithResumeHint_WhenChatMessagesExceedMax() throws Exception {
+        // Arrange
+        congest();
+        interceptor.preSend(frame("/user/userB/queue/messages", "{}"), channel);
+        interceptor.preSend(frame("/user/userB/queue/messages", "{}"), channel);
+
+        // Act
+        Message<?> result = interceptor.preSend(frame("/user/userB/queue/messages", "{}"), channel);
+        Message<?> afterClose = interceptor.preSend(frame("/user/userB/queue/messages", "{}"), channel);
+
+        // Assert
+        assertNull(result);
+        assertNull(afterClose);
+        verify(session, times(1)).close(SlowConsumerInterceptor.SLOW_CONSUMER);
+        assertEquals(1.0, meterRegistry.get("websocket.outbound.policy").tag("action", "disconnected").counter().count());
+    }
+
+    @Test
+    void preSend_ShouldIgnoreUnknownSessions() {
+        // Arrange
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("unknown");
+        accessor.setDestination("/user/userB/queue/typing");
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        // Act
+        Message<?> result = interceptor.preSend(message, channel);
+
+        // Assert
+        assertSame(message, result);
+    }
+
+    private void congest() {
+        interceptor.preSend(frame("/user/userB/queue/messages", "{}"), channel);
+        interceptor.preSend(frame("/user/userB/queue/messages", "{}"), channel);
+    }
+
+    private static Message<byte[]> frame(String destination, String json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("s1");
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
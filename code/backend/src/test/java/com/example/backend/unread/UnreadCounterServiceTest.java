@@ -0,0 +1,123 @@
+package com.example.backend.unread;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UnreadCounterServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisHashCommands hashCommands;
+
+    private UnreadCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        service = new UnreadCounterService(redisTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void counts_ShouldAddUnflushedDeltasToRedisTotals() {
+        // Arrange
+        when(hashOperations.entries("unread:userB")).thenReturn(Map.of("userA", "2", "userC", "1"));
+        service.increment("userB", "userA");
+        service.increment("userB", "userD");
+
+        // Act
+        Map<String, Long> counts = service.counts("userB");
+
+        // Assert
+        assertEquals(Map.of("userA", 3L, "userC", 1L, "userD", 1L), counts);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteOneIncrementPerConversation() {
+        // Arrange
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return null;
+        });
+        service.increment("userB", "userA");
+        service.increment("userB", "userA");
+        service.increment("userB", "userA");
+
+        // Act
+        service.flush();
+
+        // Assert
+        ArgumentCaptor<Long> delta = ArgumentCaptor.forClass(Long.class);
+        verify(hashCommands, times(1)).hIncrBy(eq(bytes("unread:userB")), eq(bytes("userA")), delta.capture());
+        assertEquals(3L, delta.getValue());
+        when(hashOperations.entries("unread:userB")).thenReturn(Map.of());
+        assertTrue(service.counts("userB").isEmpty());
+    }
+
+    @Test
+    void flush_ShouldKeepDeltas_WhenRedisFails() {
+        // Arrange
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenThrow(new IllegalStateException("redis down"));
+        when(hashOperations.entries("unread:userB")).thenReturn(Map.of());
+        service.increment("userB", "userA");
+
+        // Act
+        service.flush();
+
+        // Assert
+        assertEquals(Map.of("userA", 1L), service.counts("userB"));
+    }
+
+    @Test
+    void reset_ShouldDropPendingDeltasAndRedisCount() {
+        // Arrange
+        when(hashOperations.entries("unread:userB")).thenReturn(Map.of());
+        service.increment("userB", "userA");
+
+        // Act
+        service.reset("userB", "userA");
+
+        // Assert
+        verify(hashOperations, times(1)).delete("unread:userB", "userA");
+        assertTrue(service.counts("userB").isEmpty());
+    }
+
+    @Test
+    void flush_ShouldSkipRedis_WhenNothingChanged() {
+        // Act
+        service.flush();
+
+        // Assert
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -23,6 +23,9 @@ class UserServiceTest {
     @Mock
     private UserRepository repository;
 
+    @Mock
+    private KnownUsernames knownUsernames;
+
     @InjectMocks
     private UserService userService;
 
@@ -30,6 +33,7 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(knownUsernames.mightExist(anyString())).thenReturn(true);
         user = User.builder()
                 .id("user123")
                 .username("johndoe")
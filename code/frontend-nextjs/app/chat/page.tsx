@@ -38,7 +38,11 @@ export default function ChatPage() {
     const accessToken = (session as any)?.user?.accessToken || ''
 
     const { users, isConnected, sendMessage, setNotificationCallback } = useWebSocket(currentUser, accessToken)
-    const { messages, setMessages, loadMessages } = useChat(currentUser, selectedUser, accessToken)
+    const { messages, setMessages, syncMessages, hasOlder, loadingOlder, loadOlderMessages } = useChat(currentUser, selectedUser, accessToken)
+
+    useEffect(() => {
+        if (isConnected) syncMessages()
+    }, [isConnected, syncMessages])
 
     useEffect(() => {
         if (!setNotificationCallback) return;
@@ -53,7 +57,8 @@ export default function ChatPage() {
                     senderId: notification.senderId,
                     recipientId: notification.recipientId,
                     content: notification.content,
-                    timestamp: new Date()
+                    timestamp: new Date(),
+                    seq: notification.seq
                 }])
             }
         })
@@ -123,6 +128,9 @@ export default function ChatPage() {
                     currentUser={currentUser}
                     selectedUser={selectedUser}
                     messages={messages}
+                    hasOlder={hasOlder}
+                    loadingOlder={loadingOlder}
+                    onLoadOlder={loadOlderMessages}
                     onSendMessage={handleSendMessage}
                 />
             </div>
@@ -6,10 +6,13 @@ interface ChatWindowProps {
     currentUser: User
     selectedUser: User | null
     messages: ChatMessage[]
+    hasOlder: boolean
+    loadingOlder: boolean
+    onLoadOlder: () => void
     onSendMessage: (content: string) => void
 }
 
-export default function ChatWindow({ currentUser, selectedUser, messages, onSendMessage }: ChatWindowProps) {
+export default function ChatWindow({ currentUser, selectedUser, messages, hasOlder, loadingOlder, onLoadOlder, onSendMessage }: ChatWindowProps) {
     if (!selectedUser) {
         return (
             <div className="flex-1 flex items-center justify-center bg-gray-50 dark:bg-gray-900 p-4">
@@ -31,7 +34,13 @@ export default function ChatWindow({ currentUser, selectedUser, messages, onSend
                 <p className="text-xs sm:text-sm text-gray-600 dark:text-gray-400">@{selectedUser.username}</p>
             </div>
 
-            <MessageList messages={messages} currentUserId={currentUser.username} />
+            <MessageList
+                messages={messages}
+                currentUserId={currentUser.username}
+                hasOlder={hasOlder}
+                loadingOlder={loadingOlder}
+                onLoadOlder={onLoadOlder}
+            />
             <MessageInput onSendMessage={onSendMessage} />
         </div>
     )
@@ -6,18 +6,23 @@ import { ChatMessage } from '@/types'
 interface MessageListProps {
     messages: ChatMessage[]
     currentUserId: string
+    hasOlder: boolean
+    loadingOlder: boolean
+    onLoadOlder: () => void
 }
 
-export default function MessageList({ messages, currentUserId }: MessageListProps) {
+export default function MessageList({ messages, currentUserId, hasOlder, loadingOlder, onLoadOlder }: MessageListProps) {
     const messagesEndRef = useRef<HTMLDivElement>(null)
+    const newest = messages.length > 0 ? messages[messages.length - 1] : undefined
 
     const scrollToBottom = () => {
         messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' })
     }
 
+    // Only when a newer message arrives; prepending an older page keeps the scroll position
     useEffect(() => {
         scrollToBottom()
-    }, [messages])
+    }, [newest?.id, newest?.timestamp])
 
     if (messages.length === 0) {
         return (
@@ -29,6 +34,17 @@ export default function MessageList({ messages, currentUserId }: MessageListProp
 
     return (
         <div className="flex-1 overflow-y-auto p-4 space-y-4 custom-scrollbar">
+            {hasOlder && (
+                <div className="flex justify-center">
+                    <button
+                        onClick={onLoadOlder}
+                        disabled={loadingOlder}
+                        className="text-xs text-primary-600 dark:text-primary-400 hover:underline disabled:opacity-50"
+                    >
+                        {loadingOlder ? 'Loading...' : 'Load older messages'}
+                    </button>
+                </div>
+            )}
             {messages.map((message, index) => {
                 const isCurrentUser = message.senderId === currentUserId
                 const showDate = index === 0 ||
@@ -1,30 +1,100 @@
-import { useState, useEffect, useCallback } from 'react'
+import { useState, useEffect, useCallback, useRef } from 'react'
 import { api } from '@/services/api'
 import { ChatMessage, User } from '@/types'
 
+// A fresh seq gap on the server comes back as an empty delta with hasMore; retry a few times, then leave it
+const SYNC_RETRIES = 4
+const SYNC_RETRY_DELAY_MS = 500
+
+const sleep = (ms: number) => new Promise(resolve => setTimeout(resolve, ms))
+
 export function useChat(currentUser: User | null, selectedUser: User | null, token: string) {
     const [messages, setMessages] = useState<ChatMessage[]>([])
+    const [hasOlder, setHasOlder] = useState(false)
+    const [loadingOlder, setLoadingOlder] = useState(false)
+    // Cursor of the oldest page loaded; the next older page is requested with it as before
+    const beforeCursor = useRef<string | undefined>(undefined)
+    // Highest seq held, read by sync without re-creating it on every message; 0 means no baseline yet
+    const lastSeq = useRef(0)
+
+    useEffect(() => {
+        lastSeq.current = messages.reduce((max, m) => Math.max(max, m.seq ?? 0), 0)
+    }, [messages])
 
     const loadMessages = useCallback(async () => {
         if (!currentUser || !selectedUser || !token) return
 
+        // The held seq belongs to the previous chat until this page arrives
+        lastSeq.current = 0
         try {
             // CHANGED: nickName -> username
-            const chatMessages = await api.getChatMessages(
+            const page = await api.getChatMessagePage(
                 currentUser.username,
                 selectedUser.username,
                 token
             )
-            setMessages(chatMessages)
+            beforeCursor.current = page.beforeCursor
+            setHasOlder(page.hasMore)
+            setMessages(page.messages)
         } catch (error) {
             console.error("Failed to load chat history:", error)
+            beforeCursor.current = undefined
+            setHasOlder(false)
             setMessages([])
         }
     }, [currentUser, selectedUser, token])
 
+    // Prepends the page before the oldest message held
+    const loadOlderMessages = useCallback(async () => {
+        if (!currentUser || !selectedUser || !token || !beforeCursor.current || loadingOlder) return
+
+        setLoadingOlder(true)
+        try {
+            const page = await api.getChatMessagePage(
+                currentUser.username,
+                selectedUser.username,
+                token,
+                beforeCursor.current
+            )
+            if (page.beforeCursor) beforeCursor.current = page.beforeCursor
+            setHasOlder(page.hasMore)
+            setMessages(prev => {
+                const known = new Set(prev.map(m => m.id))
+                return [...page.messages.filter(m => !known.has(m.id)), ...prev]
+            })
+        } finally {
+            setLoadingOlder(false)
+        }
+    }, [currentUser, selectedUser, token, loadingOlder])
+
+    // After a reconnect, download only the messages past the last seq we hold
+    const syncMessages = useCallback(async () => {
+        // Without a loaded page there is nothing to sync from; loadMessages fetches the chat instead
+        if (!currentUser || !selectedUser || !token || lastSeq.current === 0) return
+
+        let since = lastSeq.current
+        let retries = 0
+        while (true) {
+            const [delta] = await api.syncMessages(currentUser.username, { [selectedUser.username]: since }, token)
+            if (!delta || (!delta.hasMore && delta.messages.length === 0)) return
+            if (delta.messages.length === 0) {
+                if (retries === SYNC_RETRIES) return
+                await sleep(SYNC_RETRY_DELAY_MS * 2 ** retries++)
+                continue
+            }
+            retries = 0
+            setMessages(prev => {
+                const known = new Set(prev.map(m => m.id))
+                return [...prev, ...delta.messages.filter(m => !known.has(m.id))]
+            })
+            since = delta.lastSeq
+            if (!delta.hasMore) return
+        }
+    }, [currentUser, selectedUser, token])
+
     useEffect(() => {
         loadMessages()
     }, [loadMessages])
 
-    return { messages, setMessages, loadMessages }
+    return { messages, setMessages, loadMessages, syncMessages, hasOlder, loadingOlder, loadOlderMessages }
 }
@@ -1,4 +1,4 @@
-import { User, ChatMessage, LoginRequest, RegisterRequest } from '@/types';
+import { User, ChatMessage, ChatMessagePage, ChatDelta, ConversationPage, LoginRequest, RegisterRequest } from '@/types';
 
 // Use a single source for the URL. You can keep utils/constants.tsx or just define it here.
 const API_URL = process.env.NEXT_PUBLIC_BACKEND_API || 'http://localhost:8080';
@@ -71,16 +71,101 @@ export const api = {
         }
     },
 
-    async getChatMessages(senderId: string, recipientId: string, token: string): Promise<ChatMessage[]> {
+    async getChatMessages(senderId: string, recipientId: string, token: string, before?: string): Promise<ChatMessage[]> {
+        const page = await this.getChatMessagePage(senderId, recipientId, token, before);
+        return page.messages;
+    },
+
+    async getChatMessagePage(senderId: string, recipientId: string, token: string, before?: string): Promise<ChatMessagePage> {
         try {
-            const response = await fetch(`${API_URL}/messages/${senderId}/${recipientId}`, {
+            const query = before ? `?before=${encodeURIComponent(before)}` : '';
+            const response = await fetch(`${API_URL}/messages/${senderId}/${recipientId}${query}`, {
                 headers: getAuthHeaders(token)
             });
             if (!response.ok) throw new Error('Failed to fetch messages');
             return await response.json();
         } catch (error) {
             console.error('Error fetching messages:', error);
+            return { messages: [], hasMore: false };
+        }
+    },
+
+    // Fetches only what arrived after the given seq per peer, used after a reconnect
+    async syncMessages(userId: string, since: Record<string, number>, token: string): Promise<ChatDelta[]> {
+        try {
+            const response = await fetch(`${API_URL}/messages/sync`, {
+                method: 'POST',
+                headers: getAuthHeaders(token),
+                body: JSON.stringify({ userId, since }),
+            });
+            if (!response.ok) throw new Error('Failed to sync messages');
+            const body = await response.json();
+            return body.chats;
+        } catch (error) {
+            console.error('Error syncing messages:', error);
             return [];
         }
     },
+
+    // The user's conversations by last activity; pass nextCursor as before for the next page
+    async getConversations(userId: string, token: string, before?: string): Promise<ConversationPage> {
+        try {
+            const query = before ? `?before=${encodeURIComponent(before)}` : '';
+            const response = await fetch(`${API_URL}/conversations/${userId}${query}`, {
+                headers: getAuthHeaders(token)
+            });
+            if (!response.ok) throw new Error('Failed to fetch conversations');
+            return await response.json();
+        } catch (error) {
+            console.error('Error fetching conversations:', error);
+            return { conversations: [] };
+        }
+    },
+
+    // Only the sender may edit; pass the version last seen to fail on a conflicting change
+    async editMessage(senderId: string, recipientId: string, messageId: string, content: string, token: string, version?: number): Promise<ChatMessage | null> {
+        try {
+            const response = await fetch(`${API_URL}/messages/${senderId}/${recipientId}/${messageId}`, {
+                method: 'PUT',
+                headers: getAuthHeaders(token),
+                body: JSON.stringify({ content, version }),
+            });
+            if (!response.ok) throw new Error('Failed to edit message');
+            return await response.json();
+        } catch (error) {
+            console.error('Error editing message:', error);
+            return null;
+        }
+    },
+
+    // Returns the tombstone that replaces the message in history
+    async deleteMessage(senderId: string, recipientId: string, messageId: string, token: string, version?: number): Promise<ChatMessage | null> {
+        try {
+            const query = version !== undefined ? `?version=${version}` : '';
+            const response = await fetch(`${API_URL}/messages/${senderId}/${recipientId}/${messageId}${query}`, {
+                method: 'DELETE',
+                headers: getAuthHeaders(token),
+            });
+            if (!response.ok) throw new Error('Failed to delete message');
+            return await response.json();
+        } catch (error) {
+            console.error('Error deleting message:', error);
+            return null;
+        }
+    },
+
+    // Adds or removes the user's reaction; a repeat of the same change returns null
+    async setReaction(userId: string, peerId: string, messageId: string, emoji: string, reacted: boolean, token: string): Promise<ChatMessage | null> {
+        try {
+            const response = await fetch(`${API_URL}/messages/${userId}/${peerId}/${messageId}/reactions/${encodeURIComponent(emoji)}`, {
+                method: reacted ? 'PUT' : 'DELETE',
+                headers: getAuthHeaders(token),
+            });
+            if (!response.ok) throw new Error('Failed to update reaction');
+            return response.status === 204 ? null : await response.json();
+        } catch (error) {
+            console.error('Error updating reaction:', error);
+            return null;
+        }
+    },
 };
@@ -34,8 +34,11 @@ export class WebSocketService {
 
                 // CHANGED: nickName -> username
                 this.client?.subscribe(`/user/${user.username}/queue/messages`, (message) => {
-                    const notification = JSON.parse(message.body)
-                    onMessageReceived(notification)
+                    // The offline backlog arrives as arrays of notifications
+                    const body = JSON.parse(message.body)
+                    const notifications: ChatNotification[] = Array.isArray(body) ? body : [body]
+                    // Updates to delivered messages are not new messages
+                    notifications.filter((notification) => !notification.type).forEach(onMessageReceived)
                 })
 
                 this.client?.publish({
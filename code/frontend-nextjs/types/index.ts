@@ -18,6 +18,20 @@ export interface ChatMessage {
     recipientId: string;
     content: string;
     timestamp: Date;
+    seq?: number;
+    // Set once the message was edited or deleted; a deleted message has no content
+    version?: number;
+    editedAt?: Date;
+    deletedAt?: Date;
+    // Emoji -> number of users who reacted with it
+    reactions?: Record<string, number>;
+}
+
+export interface ChatMessagePage {
+    messages: ChatMessage[];
+    beforeCursor?: string;
+    afterCursor?: string;
+    hasMore: boolean;
 }
 
 export interface ChatNotification {
@@ -25,6 +39,40 @@ export interface ChatNotification {
     senderId: string;
     recipientId: string;
     content: string;
+    seq?: number;
+    roomId?: string;
+    attachmentIds?: string[];
+    // Absent for a new message; set when the notification updates one already delivered
+    type?: 'PREVIEWS_READY' | 'EDITED' | 'DELETED' | 'REACTION';
+    // Message version after an EDITED or DELETED update
+    version?: number;
+    // REACTION only: reactorId added (1) or removed (-1) this emoji
+    reaction?: string;
+    reactorId?: string;
+    reactionDelta?: number;
+}
+
+export interface ChatDelta {
+    peerId: string;
+    messages: ChatMessage[];
+    lastSeq: number;
+    hasMore: boolean;
+}
+
+export interface ConversationSummary {
+    peerId: string;
+    chatId: string;
+    lastMessageId: string;
+    lastSenderId: string;
+    preview?: string;
+    lastTimestamp: string;
+    lastSeq?: number;
+    unread: number;
+}
+
+export interface ConversationPage {
+    conversations: ConversationSummary[];
+    nextCursor?: string;
 }
 
 export interface LoginRequest {